@@ -0,0 +1,244 @@
+/**
+   AnagramIndex.java
+
+      An index of every word in a Dictionary keyed by its sorted-letter signature ie. the letters of the word placed in
+      alphabetical order. All anagrams of each other share the same signature, so "RENTALS", "ANTLERS" and "STERNAL" are all
+      stored under "AELNRST". Finding the anagrams of a set of letters is then a single hash probe rather than a walk through
+      every permutation of the letters.
+
+      The table is backed by primitive arrays:
+         1) members    -- the words of the index, grouped together by signature (dictionary order within each group)
+         2) groupStart -- the index in members where each signature group begins (groupStart[g+1] is where it ends)
+         3) groupHash  -- the 64-bit hash of the signature of each group
+         4) table      -- an open-addressing hash table of group numbers (-1 for an empty slot)
+
+      Signatures are not stored. Since every word in a group has the same signature, a probe is verified by comparing
+      against the first word of the group.
+
+      The index is built once and is not changed afterwards.
+
+   @author Peter Olson
+   @version 10/18/26
+   @see Dictionary.java
+
+**/
+
+import java.util.Arrays;
+
+public class AnagramIndex {
+
+   private final String[] members;
+   private final int[] groupStart;
+   private final long[] groupHash;
+   private final int[] table;
+   private final int mask;
+   private final int numGroups;
+
+   /**
+      Build the index from a list of words. The words are expected to be uppercase, as they are in the Dictionary
+
+      @param words The words to be indexed
+      @param numWords The total number of words in the list
+      @see signatureHash( char[] sortedLetters, int length )
+   */
+   public AnagramIndex( Iterable<String> words, int numWords ) {
+      int tableSize = Integer.highestOneBit( Math.max( numWords, 1 ) * 2 - 1 ) << 1;
+      mask = tableSize - 1;
+      table = new int[ tableSize ];
+      Arrays.fill( table, -1 );
+
+      //Words are chained onto their group while building, then flattened so that each group is contiguous
+      String[] wordList = new String[ numWords ];
+      int[] wordGroup = new int[ numWords ];
+      long[] hashes = new long[ numWords ];
+      int[] firstWord = new int[ numWords ];
+      int[] groupSize = new int[ numWords ];
+      char[] scratch = new char[ 16 ];
+
+      int groups = 0;
+      int w = 0;
+      for( String word : words ) {
+         if( scratch.length < word.length() )
+            scratch = new char[ word.length() * 2 ];
+         int length = sortLetters( word, scratch );
+         long hash = signatureHash( scratch, length );
+
+         int slot = (int)mix( hash ) & mask;
+         while( table[ slot ] != -1 ) {
+            int g = table[ slot ];
+            if( hashes[g] == hash && sameSignature( wordList[ firstWord[g] ], scratch, length ) )
+               break;
+            slot = ( slot + 1 ) & mask;
+         }
+
+         int group = table[ slot ];
+         if( group == -1 ) {
+            group = groups++;
+            table[ slot ] = group;
+            hashes[ group ] = hash;
+            firstWord[ group ] = w;
+         }
+
+         wordList[w] = word;
+         wordGroup[w++] = group;
+         groupSize[ group ]++;
+      }
+
+      numGroups = groups;
+      groupStart = new int[ groups + 1 ];
+      for( int g = 0; g < groups; g++ )
+         groupStart[ g + 1 ] = groupStart[g] + groupSize[g];
+
+      members = new String[ w ];
+      int[] fill = Arrays.copyOf( groupStart, groups );
+      for( int i = 0; i < w; i++ )
+         members[ fill[ wordGroup[i] ]++ ] = wordList[i];
+
+      groupHash = Arrays.copyOf( hashes, groups );
+   }
+
+   /**
+      Get all of the words in the index that are made up of exactly the given letters, in dictionary order
+
+      eg. getAnagrams( "rstlnea" ) yields "ANTLERS", "RENTALS", "SALTERN", "SLANTER", and "STERNAL"
+
+      @param letters The letters to find the anagrams of. Case does not matter
+      @return String[] The list of words using all of the letters; an empty list if there are none
+   */
+   public String[] getAnagrams( String letters ) {
+      int group = findGroup( letters );
+      if( group == -1 )
+         return new String[0];
+
+      return Arrays.copyOfRange( members, groupStart[ group ], groupStart[ group + 1 ] );
+   }
+
+   /**
+      Get the number of words in the index that are made up of exactly the given letters
+
+      @param letters The letters to find the anagrams of. Case does not matter
+      @return int The number of anagrams found
+   */
+   public int countAnagrams( String letters ) {
+      int group = findGroup( letters );
+      if( group == -1 )
+         return 0;
+
+      return groupStart[ group + 1 ] - groupStart[ group ];
+   }
+
+   /**
+      Get the number of distinct signatures in the index
+
+      @return int The number of signature groups
+   */
+   public int getNumSignatures() {
+      return numGroups;
+   }
+
+   /**
+      Get the total number of words in the index
+
+      @return int The number of words indexed
+   */
+   public int size() {
+      return members.length;
+   }
+
+   /**
+      Find the signature group of the given letters
+
+      @param letters The letters to look up
+      @return int The group number, or -1 if no word has these letters
+   */
+   private int findGroup( String letters ) {
+      char[] sorted = new char[ letters.length() ];
+      int length = sortLetters( letters, sorted );
+      long hash = signatureHash( sorted, length );
+
+      int slot = (int)mix( hash ) & mask;
+      while( table[ slot ] != -1 ) {
+         int g = table[ slot ];
+         if( groupHash[g] == hash && sameSignature( members[ groupStart[g] ], sorted, length ) )
+            return g;
+         slot = ( slot + 1 ) & mask;
+      }
+
+      return -1;
+   }
+
+   /**
+      Place the uppercase letters of the word into the buffer in sorted order
+
+      @param word The word to sort the letters of
+      @param buffer The array to hold the sorted letters. Must be at least as long as the word
+      @return int The number of letters placed in the buffer
+   */
+   static int sortLetters( String word, char[] buffer ) {
+      int length = word.length();
+      for( int i = 0; i < length; i++ )
+         buffer[i] = Character.toUpperCase( word.charAt(i) );
+
+      //Words are short, so an insertion sort beats the overhead of Arrays.sort(..)
+      for( int i = 1; i < length; i++ ) {
+         char c = buffer[i];
+         int j = i - 1;
+         while( j >= 0 && buffer[j] > c ) {
+            buffer[ j + 1 ] = buffer[j];
+            j--;
+         }
+         buffer[ j + 1 ] = c;
+      }
+
+      return length;
+   }
+
+   /**
+      Tells whether the word is made up of exactly the sorted letters given
+
+      @param word The word to check
+      @param sorted The sorted letters of the signature
+      @param length The number of letters in the signature
+      @return boolean True if the word has the same signature, false otherwise
+   */
+   static boolean sameSignature( String word, char[] sorted, int length ) {
+      if( word.length() != length )
+         return false;
+
+      char[] wordLetters = new char[ length ];
+      sortLetters( word, wordLetters );
+      for( int i = 0; i < length; i++ )
+         if( wordLetters[i] != sorted[i] )
+            return false;
+
+      return true;
+   }
+
+   /**
+      Get the 64-bit hash of a signature
+
+      @param sorted The sorted letters of the signature
+      @param length The number of letters in the signature
+      @return long The hash of the signature
+   */
+   static long signatureHash( char[] sorted, int length ) {
+      long hash = 1125899906842597L;
+      for( int i = 0; i < length; i++ )
+         hash = 31 * hash + sorted[i];
+      return hash;
+   }
+
+   /**
+      Spread the bits of the hash so that the low bits can be used to pick a table slot
+
+      @param hash The hash to mix
+      @return long The mixed hash
+   */
+   static long mix( long hash ) {
+      hash ^= hash >>> 33;
+      hash *= 0xff51afd7ed558ccdL;
+      hash ^= hash >>> 33;
+      return hash;
+   }
+
+}
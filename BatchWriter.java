@@ -0,0 +1,423 @@
+/**
+   BatchWriter.java
+
+      Writes lines of text to a file through a FileChannel and one buffer, and puts the file in place with a rename when it
+      is done. Every text file a Dictionary writes goes through a BatchWriter.
+
+      Lines are encoded into the buffer in batches: a character below 0x80 is one byte and is stored as is, and other
+      characters are encoded as UTF-8. The buffer only goes to the channel when it is full, so writing the 276,643 words
+      of the dictionary takes a few dozen system calls instead of one (or more) per word. The buffer is an ordinary heap
+      buffer of BUFFER_SIZE bytes unless a size is given. A direct buffer is not used, as its memory outside the heap is
+      only given back when the writer is garbage collected, and a program that makes many writers (eg. one per partition
+      file) would hold on to all of it.
+
+      The lines are written to a temporary file next to the target. commit() moves it onto the target in one atomic
+      rename (or a plain replace, where the file system cannot rename atomically), so a reader of the target sees either
+      the old file or the whole new one, never part of it. If the writer is closed without commit(), the temporary file
+      is deleted and the target is left alone. The file is not forced to disk before the rename.
+
+      Each line ends with the system line separator, the same as PrintStream.println(..). Text that is not split into lines
+      (eg. a translated document) can be written as it is with write(..), and so can the bytes of a binary file (eg. a
+      saved LanguageMap).
+
+   @author Peter Olson
+   @version 10/18/26
+   @see Dictionary.java
+
+**/
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+public class BatchWriter implements AutoCloseable {
+
+   public static final int BUFFER_SIZE = 1 << 16;
+
+   private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes( StandardCharsets.UTF_8 );
+
+   private final Path target;
+   private final Path temp;
+   private final FileChannel channel;
+   private final ByteBuffer buffer;
+   private byte[] batch = new byte[ 256 ]; //the encoded bytes of the line being written
+   private long bytes;
+   private long lines;
+   private boolean done;
+
+   /**
+      The number of bytes and lines written to a file
+   */
+   public static class Result {
+
+      private final long bytes;
+      private final long lines;
+
+      /**
+         @param bytes The number of bytes written
+         @param lines The number of lines written
+      */
+      public Result( long bytes, long lines ) {
+         this.bytes = bytes;
+         this.lines = lines;
+      }
+
+      /**
+         @return long The number of bytes written
+      */
+      public long getBytes() {
+         return bytes;
+      }
+
+      /**
+         @return long The number of lines written
+      */
+      public long getLines() {
+         return lines;
+      }
+
+      public String toString() {
+         return lines + " lines, " + bytes + " bytes";
+      }
+
+   }
+
+   /**
+      Start writing a file. Nothing happens to the file itself until commit()
+
+      @param fileName The file to write. It is replaced when the writer is committed
+      @throws UncheckedIOException If the temporary file cannot be made
+   */
+   public BatchWriter( String fileName ) {
+      this( fileName, BUFFER_SIZE );
+   }
+
+   /**
+      Start writing a file with a buffer of the given size. A larger buffer means fewer system calls for a large file
+
+      @param fileName The file to write. It is replaced when the writer is committed
+      @param bufferSize The number of bytes to gather before writing them to the file
+      @throws UncheckedIOException If the temporary file cannot be made
+      @throws IllegalArgumentException If bufferSize is not positive
+   */
+   public BatchWriter( String fileName, int bufferSize ) {
+      if( bufferSize <= 0 )
+         throw new IllegalArgumentException( "Buffer size must be positive: " + bufferSize );
+
+      target = Paths.get( fileName ).toAbsolutePath();
+
+      //The temporary file is made like any other new file (not with Files.createTempFile(..), which would make it
+      //private to the owner), so the target gets the usual permissions
+      Path file = null;
+      FileChannel open = null;
+      for( int attempt = 0; open == null; attempt++ ) {
+         file = target.resolveSibling( "." + target.getFileName() + "." + Long.toHexString( System.nanoTime() ) + ".tmp" );
+         try {
+            open = FileChannel.open( file, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW );
+         } catch( FileAlreadyExistsException e ) {
+            if( attempt == 100 )
+               throw new UncheckedIOException( e );
+         } catch( IOException e ) {
+            throw new UncheckedIOException( e );
+         }
+      }
+      temp = file;
+      channel = open;
+      buffer = ByteBuffer.allocate( bufferSize );
+   }
+
+   /**
+      Write the lines of a list to a file, replacing it
+
+      @param list The lines to write
+      @param fileName The file to write
+      @return Result The number of bytes and lines written
+      @throws UncheckedIOException If the file cannot be written
+   */
+   public static Result write( Iterable<? extends CharSequence> list, String fileName ) {
+      try( BatchWriter writer = new BatchWriter( fileName ) ) {
+         for( CharSequence line : list )
+            writer.writeLine( line );
+         return writer.commit();
+      }
+   }
+
+   /**
+      Write the lines of an array to a file, replacing it
+
+      @param list The lines to write
+      @param fileName The file to write
+      @return Result The number of bytes and lines written
+      @throws UncheckedIOException If the file cannot be written
+   */
+   public static Result write( String[] list, String fileName ) {
+      return write( Arrays.asList( list ), fileName );
+   }
+
+   /**
+      Write one line, followed by the line separator
+
+      @param line The line. null is written as "null", the same as PrintStream.println(..)
+      @throws UncheckedIOException If the file cannot be written
+      @throws IllegalStateException If the writer has already been committed or closed
+   */
+   public void writeLine( CharSequence line ) {
+      if( done )
+         throw new IllegalStateException( "The writer has been closed" );
+      if( line == null )
+         line = "null";
+
+      //Encode the line into the batch array, then copy it into the buffer in one go
+      int n = encode( line, 0, line.length(), LINE_SEPARATOR.length );
+      System.arraycopy( LINE_SEPARATOR, 0, batch, n, LINE_SEPARATOR.length );
+      put( batch, n + LINE_SEPARATOR.length );
+      lines++;
+   }
+
+   /**
+      Write part of a piece of text as it is, with no line separator added. A surrogate pair must not be split between
+      two calls
+
+      @param text The text
+      @param start The index of the first character to write
+      @param end The index after the last character to write
+      @throws UncheckedIOException If the file cannot be written
+      @throws IllegalStateException If the writer has already been committed or closed
+   */
+   public void write( CharSequence text, int start, int end ) {
+      if( done )
+         throw new IllegalStateException( "The writer has been closed" );
+
+      int n = encode( text, start, end, 0 ); //before reading batch, which encode(..) may replace
+      put( batch, n );
+   }
+
+   /**
+      Write characters from an array as they are, with no line separator added. A surrogate pair must not be split between
+      two calls
+
+      @param text The array holding the characters
+      @param off The index of the first character
+      @param len The number of characters
+      @throws UncheckedIOException If the file cannot be written
+      @throws IllegalStateException If the writer has already been committed or closed
+   */
+   public void write( char[] text, int off, int len ) {
+      if( done )
+         throw new IllegalStateException( "The writer has been closed" );
+
+      //Encode UTF-8 straight from the array; a character never takes more than 3 bytes, and a surrogate pair takes 4
+      if( batch.length < 3 * len )
+         batch = new byte[ Math.max( batch.length * 2, 3 * len ) ];
+      byte[] out = batch;
+      int n = 0;
+      int end = off + len;
+      for( int i = off; i < end; i++ ) {
+         char c = text[i];
+         if( c < 0x80 ) {
+            out[ n++ ] = (byte)c;
+         } else if( c < 0x800 ) {
+            out[ n++ ] = (byte)( 0xC0 | c >> 6 );
+            out[ n++ ] = (byte)( 0x80 | c & 0x3F );
+         } else if( Character.isHighSurrogate( c ) && i + 1 < end && Character.isLowSurrogate( text[ i + 1 ] ) ) {
+            int code = Character.toCodePoint( c, text[ ++i ] );
+            out[ n++ ] = (byte)( 0xF0 | code >> 18 );
+            out[ n++ ] = (byte)( 0x80 | code >> 12 & 0x3F );
+            out[ n++ ] = (byte)( 0x80 | code >> 6 & 0x3F );
+            out[ n++ ] = (byte)( 0x80 | code & 0x3F );
+         } else if( Character.isSurrogate( c ) ) {
+            out[ n++ ] = '?'; //half of a pair, as the UTF-8 encoder writes it
+         } else {
+            out[ n++ ] = (byte)( 0xE0 | c >> 12 );
+            out[ n++ ] = (byte)( 0x80 | c >> 6 & 0x3F );
+            out[ n++ ] = (byte)( 0x80 | c & 0x3F );
+         }
+      }
+      put( out, n );
+   }
+
+   /**
+      Write bytes as they are, for a file that is not text or for text that is already encoded as UTF-8
+
+      @param data The array holding the bytes
+      @param off The index of the first byte
+      @param len The number of bytes
+      @throws UncheckedIOException If the file cannot be written
+      @throws IllegalStateException If the writer has already been committed or closed
+   */
+   public void write( byte[] data, int off, int len ) {
+      if( done )
+         throw new IllegalStateException( "The writer has been closed" );
+
+      put( data, off, len );
+   }
+
+   /**
+      Write a piece of text as it is, with no line separator added
+
+      @param text The text
+      @throws UncheckedIOException If the file cannot be written
+      @throws IllegalStateException If the writer has already been committed or closed
+   */
+   public void write( CharSequence text ) {
+      write( text, 0, text.length() );
+   }
+
+   /**
+      Encode characters into the start of the batch array as UTF-8
+
+      @param text The text holding the characters
+      @param start The index of the first character
+      @param end The index after the last character
+      @param spare The number of bytes to leave room for after the characters
+      @return int The number of bytes the characters took
+   */
+   private int encode( CharSequence text, int start, int end, int spare ) {
+      if( batch.length < end - start + spare )
+         batch = new byte[ Math.max( batch.length * 2, end - start + spare ) ];
+      int n = 0;
+      for( int i = start; i < end; i++ ) {
+         char c = text.charAt(i);
+         if( c < 0x80 ) {
+            batch[ n++ ] = (byte)c;
+         } else {
+            //Hand the rest of the text to the UTF-8 encoder, which also pairs up surrogates
+            byte[] rest = text.subSequence( i, end ).toString().getBytes( StandardCharsets.UTF_8 );
+            if( batch.length < n + rest.length + spare )
+               batch = Arrays.copyOf( batch, n + rest.length + spare );
+            System.arraycopy( rest, 0, batch, n, rest.length );
+            n += rest.length;
+            break;
+         }
+      }
+      return n;
+   }
+
+   /**
+      Write what is left in the buffer, and move the file onto the target
+
+      @return Result The number of bytes and lines written
+      @throws UncheckedIOException If the file cannot be written or moved
+      @throws IllegalStateException If the writer has already been committed or closed
+   */
+   public Result commit() {
+      if( done )
+         throw new IllegalStateException( "The writer has been closed" );
+
+      flush();
+      done = true;
+      try {
+         channel.close();
+         try {
+            Files.move( temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING );
+         } catch( AtomicMoveNotSupportedException e ) {
+            Files.move( temp, target, StandardCopyOption.REPLACE_EXISTING );
+         }
+      } catch( IOException e ) {
+         deleteTemp();
+         throw new UncheckedIOException( e );
+      }
+      return new Result( bytes, lines );
+   }
+
+   /**
+      Close the writer. If it has not been committed, what was written is thrown away and the target is left alone
+   */
+   public void close() {
+      if( done )
+         return;
+
+      done = true;
+      try {
+         channel.close();
+      } catch( IOException e ) {
+         //The file is about to be deleted anyway
+      }
+      deleteTemp();
+   }
+
+   /**
+      Get the number of bytes written so far
+
+      @return long The number of bytes
+   */
+   public long getBytes() {
+      return bytes;
+   }
+
+   /**
+      Get the number of lines written so far
+
+      @return long The number of lines
+   */
+   public long getLines() {
+      return lines;
+   }
+
+   /**
+      Put bytes into the buffer, writing it out whenever it fills
+
+      @param data The array holding the bytes
+      @param length The number of bytes, from the start of the array
+   */
+   private void put( byte[] data, int length ) {
+      put( data, 0, length );
+   }
+
+   /**
+      Put bytes into the buffer, writing it out whenever it fills
+
+      @param data The array holding the bytes
+      @param off The index of the first byte
+      @param length The number of bytes
+   */
+   private void put( byte[] data, int off, int length ) {
+      int offset = off;
+      int end = off + length;
+      while( offset < end ) {
+         if( !buffer.hasRemaining() )
+            flush();
+         int n = Math.min( buffer.remaining(), end - offset );
+         buffer.put( data, offset, n );
+         offset += n;
+      }
+      bytes += length;
+   }
+
+   /**
+      Write the buffer to the channel and empty it
+   */
+   private void flush() {
+      buffer.flip();
+      try {
+         while( buffer.hasRemaining() )
+            channel.write( buffer );
+      } catch( IOException e ) {
+         close();
+         throw new UncheckedIOException( e );
+      }
+      buffer.clear();
+   }
+
+   /**
+      Delete the temporary file, if it is still there
+   */
+   private void deleteTemp() {
+      try {
+         Files.deleteIfExists( temp );
+      } catch( IOException e ) {
+         //Leave it; it is only a temporary file
+      }
+   }
+
+}
@@ -0,0 +1,247 @@
+/**
+   BloomFilter.java
+
+      A blocked Bloom filter of words, used as a fast "definitely not a word" check in front of a full lookup. A Bloom filter
+      can answer "maybe" for a word that is not in it (a false positive), but never answers "no" for a word that is.
+
+      The bits are split into blocks of 512 bits (8 longs), which is the size of one cache line. Every bit for a word is set
+      within a single block chosen by the word's hash, so a query touches one cache line no matter how many bits are checked.
+      The filter is sized from the number of words and the false positive rate asked for:
+         bits per word   = -ln( rate ) / ln(2)^2
+         bits set per word = bits per word * ln(2)
+
+      Counts of queries, rejections and false positives are kept so that the savings can be checked on a real workload.
+      The counters can be updated from many threads at once.
+
+   @author Peter Olson
+   @version 10/18/26
+   @see Dictionary.java
+
+**/
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class BloomFilter {
+
+   private static final int BLOCK_LONGS = 8;   //512 bits
+   private static final int BLOCK_BITS_LOG = 9;
+
+   private final long[] bits;
+   private final int numBlocks;
+   private final int numHashes;
+   private final double falsePositiveRate;
+
+   private final LongAdder queries = new LongAdder();
+   private final LongAdder rejected = new LongAdder();
+   private final LongAdder falsePositives = new LongAdder();
+
+   /**
+      Create an empty filter sized for the given number of words
+
+      @param expectedWords The number of words that will be added
+      @param falsePositiveRate The fraction of non-words that should get past the filter eg. 0.01 for 1%
+      @throws IllegalArgumentException If the rate is not between 0 and 1
+   */
+   public BloomFilter( int expectedWords, double falsePositiveRate ) {
+      if( !( falsePositiveRate > 0 && falsePositiveRate < 1 ) )
+         throw new IllegalArgumentException( "False positive rate must be between 0 and 1: " + falsePositiveRate );
+
+      double ln2 = Math.log(2);
+      long totalBits = (long)Math.ceil( -Math.max( expectedWords, 1 ) * Math.log( falsePositiveRate ) / ( ln2 * ln2 ) );
+      long blocks = Math.max( 1, ( totalBits + ( 1 << BLOCK_BITS_LOG ) - 1 ) >>> BLOCK_BITS_LOG );
+
+      this.numBlocks = (int)blocks;
+      this.bits = new long[ numBlocks * BLOCK_LONGS ];
+      this.numHashes = Math.max( 1, (int)Math.round( (double)totalBits / Math.max( expectedWords, 1 ) * ln2 ) );
+      this.falsePositiveRate = falsePositiveRate;
+   }
+
+   /**
+      Add a word to the filter. Case does not matter
+
+      @param word The word to add
+   */
+   public void add( CharSequence word ) {
+      long hash = 0xcbf29ce484222325L;
+      for( int i = 0; i < word.length(); i++ )
+         hash = ( hash ^ upper( word.charAt(i) ) ) * 0x100000001b3L;
+      set( mix( hash ) );
+   }
+
+   /**
+      Tells whether the word might be in the filter. Counts the query, and counts a rejection if the answer is no.
+      Case does not matter
+
+      @param word The word to check
+      @return boolean False if the word is definitely not in the filter, true if it might be
+   */
+   public boolean mightContain( CharSequence word ) {
+      long hash = 0xcbf29ce484222325L;
+      for( int i = 0; i < word.length(); i++ )
+         hash = ( hash ^ upper( word.charAt(i) ) ) * 0x100000001b3L;
+      return test( mix( hash ) );
+   }
+
+   /**
+      Tells whether the letters buf[off] to buf[off+len-1] might be in the filter. Counts the query, and counts a rejection
+      if the answer is no. Case does not matter
+
+      @param buf The array holding the letters
+      @param off The index of the first letter
+      @param len The number of letters
+      @return boolean False if the word is definitely not in the filter, true if it might be
+   */
+   public boolean mightContain( char[] buf, int off, int len ) {
+      long hash = 0xcbf29ce484222325L;
+      for( int i = off; i < off + len; i++ )
+         hash = ( hash ^ upper( buf[i] ) ) * 0x100000001b3L;
+      return test( mix( hash ) );
+   }
+
+   /**
+      Count a word that got past the filter but was then found not to be a word
+   */
+   public void recordFalsePositive() {
+      falsePositives.increment();
+   }
+
+   /**
+      Get the number of queries made of the filter
+
+      @return long The number of queries
+   */
+   public long getNumQueries() {
+      return queries.sum();
+   }
+
+   /**
+      Get the number of queries the filter answered "no" to, each of which saved a full lookup
+
+      @return long The number of rejections
+   */
+   public long getNumRejected() {
+      return rejected.sum();
+   }
+
+   /**
+      Get the number of queries that got past the filter but were not words
+
+      @return long The number of false positives
+   */
+   public long getNumFalsePositives() {
+      return falsePositives.sum();
+   }
+
+   /**
+      Get the measured false positive rate ie. the false positives out of all of the queries for non-words
+
+      @return double The measured false positive rate, or 0 if no non-words have been queried
+   */
+   public double getMeasuredFalsePositiveRate() {
+      long negatives = getNumRejected() + getNumFalsePositives();
+      return negatives == 0 ? 0 : (double)getNumFalsePositives() / negatives;
+   }
+
+   /**
+      Get the false positive rate the filter was sized for
+
+      @return double The target false positive rate
+   */
+   public double getFalsePositiveRate() {
+      return falsePositiveRate;
+   }
+
+   /**
+      Set all of the counters back to zero
+   */
+   public void resetCounters() {
+      queries.reset();
+      rejected.reset();
+      falsePositives.reset();
+   }
+
+   /**
+      Get the number of bytes of heap used by the bits of the filter
+
+      @return long The heap usage in bytes
+   */
+   public long getMemoryUsage() {
+      return 16 + 8L * bits.length;
+   }
+
+   /**
+      Get a summary of the filter and its counters
+
+      @return String The summary
+   */
+   public String toString() {
+      return "BloomFilter[ " + ( bits.length * 64L ) + " bits, " + numHashes + " hashes, target rate " + falsePositiveRate +
+             " ] queries: " + getNumQueries() + ", rejected: " + getNumRejected() + ", false positives: " +
+             getNumFalsePositives() + " (measured rate " + String.format( "%.5f", getMeasuredFalsePositiveRate() ) + ")";
+   }
+
+   /**
+      Set the bits for a hash. The block is picked from the high 32 bits of the hash, and the bits within the block from
+      the low 32 bits, split into two 16-bit hashes that are combined for each bit (double hashing)
+
+      @param hash The mixed hash of the word
+   */
+   private void set( long hash ) {
+      int base = (int)( ( ( hash >>> 32 ) * numBlocks ) >>> 32 ) * BLOCK_LONGS;
+      int h1 = (int)hash & 0xFFFF;
+      int h2 = ( (int)hash >>> 16 ) | 1;
+      for( int i = 0; i < numHashes; i++ ) {
+         int bit = ( h1 + i * h2 ) & ( ( 1 << BLOCK_BITS_LOG ) - 1 );
+         bits[ base + ( bit >>> 6 ) ] |= 1L << bit;
+      }
+   }
+
+   /**
+      Check the bits for a hash, counting the query and any rejection
+
+      @param hash The mixed hash of the word
+      @return boolean True if every bit is set, false otherwise
+   */
+   private boolean test( long hash ) {
+      queries.increment();
+      int base = (int)( ( ( hash >>> 32 ) * numBlocks ) >>> 32 ) * BLOCK_LONGS;
+      int h1 = (int)hash & 0xFFFF;
+      int h2 = ( (int)hash >>> 16 ) | 1;
+      for( int i = 0; i < numHashes; i++ ) {
+         int bit = ( h1 + i * h2 ) & ( ( 1 << BLOCK_BITS_LOG ) - 1 );
+         if( ( bits[ base + ( bit >>> 6 ) ] & ( 1L << bit ) ) == 0 ) {
+            rejected.increment();
+            return false;
+         }
+      }
+      return true;
+   }
+
+   /**
+      Fold a letter to uppercase, with a fast path for plain ASCII
+
+      @param c The letter to fold
+      @return char The uppercase letter
+   */
+   private static char upper( char c ) {
+      if( c < 128 )
+         return ( c >= 'a' && c <= 'z' ) ? (char)( c - 32 ) : c;
+      return Character.toUpperCase( c );
+   }
+
+   /**
+      Spread the bits of the hash (murmur3 64-bit finalizer)
+
+      @param hash The hash to mix
+      @return long The mixed hash
+   */
+   private static long mix( long hash ) {
+      hash ^= hash >>> 33;
+      hash *= 0xff51afd7ed558ccdL;
+      hash ^= hash >>> 33;
+      hash *= 0xc4ceb9fe1a85ec53L;
+      hash ^= hash >>> 33;
+      return hash;
+   }
+
+}
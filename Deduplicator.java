@@ -0,0 +1,461 @@
+/**
+   Deduplicator.java
+
+      Removes repeated entries from lists and text files in linear time, keeping the first of each entry and leaving the
+      entries in the order they were in. There are three paths, for three sizes of input:
+         1) lists in memory -- a hash set made of two int[] (no entry object per element): an open-addressing table of
+                               element number + 1, and the hash of each kept element, so a probe only calls equals(..)
+                               when the hashes match
+         2) sorted input    -- repeated lines of a sorted file sit next to each other, so each line is only compared to
+                               the line before it. Memory does not depend on the size of the file
+         3) large files     -- a file too big for its distinct lines to fit in memory is split by the hash of each line
+                               into partition files, tagged with their line numbers. Every copy of a line lands in the
+                               same partition, so each partition is deduplicated on its own, and the surviving lines of
+                               the partitions (each already in line order) are merged back into the order of the file
+
+      removeDuplicates( inFile, outFile, memoryBytes ) first streams the file through the hash set of path 1, counting the
+      heap its distinct lines take the same way ExternalSorter counts the lines of a run. Only if they outgrow the memory
+      budget does it fall back to path 3. A partition whose distinct lines still do not fit is itself split again, on a
+      different hash, up to MAX_DEPTH levels down, so no single partition has to fit in memory however the lines fall. A
+      file is never split for fewer than MIN_SPLIT_LINES distinct lines, however small the budget.
+
+      Files are read and written as UTF-8. The output is written through a BatchWriter, so it may be the same file as the
+      input, and is only replaced once the work is done.
+
+   @author Peter Olson
+   @version 10/18/26
+   @see Dictionary.java
+   @see BatchWriter.java
+
+**/
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+public class Deduplicator {
+
+   public static final long DEFAULT_MEMORY_BYTES = 128L << 20;
+   public static final int MAX_PARTITIONS = 128;
+   public static final int MAX_DEPTH = 4; //levels of partitions; below this a partition is deduplicated in memory whatever its size
+
+   //Fewest distinct lines kept before the memory budget can stop a read, so a tiny budget does not split files forever
+   private static final int MIN_SPLIT_LINES = 1024;
+
+   //Approximate heap taken by a distinct line: the String, its byte[], the reference to it and its slots in the hash set
+   private static final int LINE_OVERHEAD = 64;
+
+   /**
+      Remove the repeated elements of a list, keeping the first of each. The list itself is not changed
+
+      @param list The list
+      @return ArrayList<T> The elements of the list without repeats, in the order they were in
+   */
+   public static <T> ArrayList<T> removeDuplicates( List<T> list ) {
+      FirstSeen<T> seen = new FirstSeen<T>( list.size() );
+      for( T element : list )
+         seen.add( element );
+      return seen.kept;
+   }
+
+   /**
+      Remove the repeated lines of a text file, keeping the first of each, with the default memory budget
+
+      @param inFileName The text file to read
+      @param outFileName The text file to write. May be the same as inFileName
+      @return long The number of lines written
+      @throws UncheckedIOException If a file cannot be read or written
+   */
+   public static long removeDuplicates( String inFileName, String outFileName ) {
+      return removeDuplicates( inFileName, outFileName, DEFAULT_MEMORY_BYTES );
+   }
+
+   /**
+      Remove the repeated lines of a text file, keeping the first of each. If the distinct lines of the file do not fit in
+      the memory budget, it is split into hash partitions on disk
+
+      @param inFileName The text file to read
+      @param outFileName The text file to write. May be the same as inFileName
+      @param memoryBytes The most heap (approximately) to fill with distinct lines
+      @return long The number of lines written
+      @throws UncheckedIOException If a file cannot be read or written
+      @throws IllegalArgumentException If memoryBytes is not positive
+   */
+   public static long removeDuplicates( String inFileName, String outFileName, long memoryBytes ) {
+      if( memoryBytes <= 0 )
+         throw new IllegalArgumentException( "Memory budget must be positive: " + memoryBytes );
+
+      Path in = Paths.get( inFileName );
+      Path dir = Paths.get( outFileName ).toAbsolutePath().getParent();
+      ArrayList<Path> temps = new ArrayList<Path>();
+      try( BatchWriter writer = new BatchWriter( outFileName ) ) {
+         Distinct distinct = readDistinct( in, false, memoryBytes );
+         if( distinct.complete ) {
+            for( String line : distinct.seen.kept )
+               writer.writeLine( line );
+         } else {
+            int numPartitions = distinct.numPartitions( Files.size( in ), memoryBytes );
+            distinct = null; //let the lines read so far go before the partitions are read
+            merge( keepFirstOfEach( partition( in, false, dir, numPartitions, 0, temps ), dir, memoryBytes, 1, temps ),
+                   writer, false );
+         }
+         return writer.commit().getLines();
+      } catch( IOException e ) {
+         throw new UncheckedIOException( e );
+      } finally {
+         deleteAll( temps );
+      }
+   }
+
+   /**
+      Remove the repeated lines of a sorted text file. Only neighbouring lines are compared, so this works on a file of any
+      size in constant memory, but lines that repeat without being next to each other are all kept
+
+      @param inFileName The sorted text file to read
+      @param outFileName The text file to write. May be the same as inFileName
+      @return long The number of lines written
+      @throws UncheckedIOException If a file cannot be read or written
+   */
+   public static long removeSortedDuplicates( String inFileName, String outFileName ) {
+      try( BufferedReader reader = Files.newBufferedReader( Paths.get( inFileName ) );
+           BatchWriter writer = new BatchWriter( outFileName ) ) {
+         String previous = null;
+         String line;
+         while( ( line = reader.readLine() ) != null ) {
+            if( !line.equals( previous ) )
+               writer.writeLine( line );
+            previous = line;
+         }
+         return writer.commit().getLines();
+      } catch( IOException e ) {
+         throw new UncheckedIOException( e );
+      }
+   }
+
+   /**
+      Stream a file through the hash set, keeping each line the first time it is seen, until the lines kept outgrow the
+      memory budget
+
+      @param in The file to read
+      @param tagged True if each line is "lineNumber<tab>line" and only the line is compared
+      @param memoryBytes The most heap (approximately) to fill with distinct lines
+      @return Distinct The lines kept; complete is false if the file was not read to the end
+      @throws IOException If the file cannot be read
+   */
+   private static Distinct readDistinct( Path in, boolean tagged, long memoryBytes ) throws IOException {
+      Distinct distinct = new Distinct();
+      try( BufferedReader reader = Files.newBufferedReader( in ) ) {
+         String line;
+         while( ( line = reader.readLine() ) != null ) {
+            distinct.bytesRead += line.length() + 1;
+            long lineNumber = 0;
+            if( tagged ) {
+               int tab = line.indexOf( '\t' );
+               lineNumber = Long.parseLong( line.substring( 0, tab ) );
+               line = line.substring( tab + 1 );
+            }
+            if( distinct.seen.add( line ) ) {
+               distinct.addLineNumber( lineNumber );
+               distinct.heap += LINE_OVERHEAD + line.length() + ( tagged ? 8 : 0 );
+               if( distinct.heap > memoryBytes && distinct.seen.kept.size() > MIN_SPLIT_LINES )
+                  return distinct;
+            }
+         }
+      }
+      distinct.complete = true;
+      return distinct;
+   }
+
+   /**
+      Split a file into hash partitions, each line tagged with its line number. Every copy of a line lands in the same
+      partition, and the lines of each partition stay in line order
+
+      @param in The file to read
+      @param tagged True if the lines of the file are already tagged with their line numbers
+      @param dir The directory to write the partitions to
+      @param numPartitions The number of partitions
+      @param depth The level of the partitions, which picks the hash they are split on
+      @param temps The list to add the temporary files to, so they can be deleted
+      @return Path[] The partitions
+      @throws IOException If a file cannot be read or written
+   */
+   private static Path[] partition( Path in, boolean tagged, Path dir, int numPartitions, int depth, ArrayList<Path> temps )
+         throws IOException {
+      Path[] partitions = new Path[ numPartitions ];
+      BufferedWriter[] writers = new BufferedWriter[ numPartitions ];
+      try( BufferedReader reader = Files.newBufferedReader( in ) ) {
+         for( int p = 0; p < numPartitions; p++ ) {
+            partitions[p] = Files.createTempFile( dir, "dedup", ".part" );
+            temps.add( partitions[p] );
+            writers[p] = Files.newBufferedWriter( partitions[p] );
+         }
+
+         long lineNumber = 0;
+         String line;
+         while( ( line = reader.readLine() ) != null ) {
+            String key = tagged ? line.substring( line.indexOf( '\t' ) + 1 ) : line;
+            //The partition comes from the high bits of the hash, as the hash set of each partition uses the low bits.
+            //Each level adds a different constant first, so lines that shared a partition one level up are spread out
+            int partition = (int)( ( ( mix( key.hashCode() + depth * 0x9E3779B9 ) & 0xFFFFFFFFL ) * numPartitions ) >>> 32 );
+            BufferedWriter part = writers[ partition ];
+            if( !tagged ) {
+               part.write( Long.toString( lineNumber++ ) );
+               part.write( '\t' );
+            }
+            part.write( line );
+            part.newLine();
+         }
+      } finally {
+         for( BufferedWriter part : writers )
+            if( part != null )
+               part.close();
+      }
+      return partitions;
+   }
+
+   /**
+      Keep the first copy of each line of each partition. Every copy of a line is in the same partition, and they are in
+      line order. A partition whose distinct lines do not fit in the memory budget is split again, one level down.
+      The partitions are deleted as they are done
+
+      @param partitions The partitions, of tagged lines
+      @param dir The directory to write the survivors to
+      @param memoryBytes The most heap (approximately) to fill with distinct lines
+      @param depth The level of the partitions
+      @param temps The list to add the temporary files to, so they can be deleted
+      @return Path[] The survivors of each partition, tagged and in line order
+      @throws IOException If a file cannot be read or written
+   */
+   private static Path[] keepFirstOfEach( Path[] partitions, Path dir, long memoryBytes, int depth, ArrayList<Path> temps )
+         throws IOException {
+      Path[] survivors = new Path[ partitions.length ];
+      for( int p = 0; p < partitions.length; p++ ) {
+         survivors[p] = Files.createTempFile( dir, "dedup", ".keep" );
+         temps.add( survivors[p] );
+         Distinct distinct = readDistinct( partitions[p], true, depth < MAX_DEPTH ? memoryBytes : Long.MAX_VALUE );
+         try( BatchWriter keep = new BatchWriter( survivors[p].toString() ) ) {
+            if( distinct.complete ) {
+               for( int i = 0; i < distinct.seen.kept.size(); i++ )
+                  keep.writeLine( distinct.lineNumbers[i] + "\t" + distinct.seen.kept.get(i) );
+            } else {
+               int numPartitions = distinct.numPartitions( Files.size( partitions[p] ), memoryBytes );
+               distinct = null;
+               Path[] split = partition( partitions[p], true, dir, numPartitions, depth, temps );
+               merge( keepFirstOfEach( split, dir, memoryBytes, depth + 1, temps ), keep, true );
+            }
+            keep.commit();
+         }
+         Files.delete( partitions[p] );
+      }
+      return survivors;
+   }
+
+   /**
+      Merge the survivors of the partitions back into line order. The survivors are deleted once they are merged
+
+      @param survivors The survivors of each partition, tagged and in line order
+      @param writer The writer of the output. It is not committed
+      @param tagged True to write each line with its line number tag, false to write the line alone
+      @throws IOException If a file cannot be read
+   */
+   private static void merge( Path[] survivors, BatchWriter writer, boolean tagged ) throws IOException {
+      PriorityQueue<TaggedReader> queue = new PriorityQueue<TaggedReader>( survivors.length, new Comparator<TaggedReader>() {
+         public int compare( TaggedReader a, TaggedReader b ) {
+            return Long.compare( a.lineNumber, b.lineNumber );
+         }
+      } );
+      ArrayList<TaggedReader> readers = new ArrayList<TaggedReader>();
+      try {
+         for( Path survivor : survivors ) {
+            TaggedReader reader = new TaggedReader( survivor );
+            readers.add( reader );
+            if( reader.advance() )
+               queue.add( reader );
+         }
+
+         while( !queue.isEmpty() ) {
+            TaggedReader reader = queue.poll();
+            writer.writeLine( tagged ? reader.lineNumber + "\t" + reader.line : reader.line );
+            if( reader.advance() )
+               queue.add( reader );
+         }
+      } finally {
+         for( TaggedReader reader : readers )
+            reader.reader.close();
+      }
+      for( Path survivor : survivors )
+         Files.deleteIfExists( survivor );
+   }
+
+   /**
+      Delete temporary files, ignoring any that cannot be deleted
+
+      @param files The files to delete
+   */
+   private static void deleteAll( ArrayList<Path> files ) {
+      for( Path file : files ) {
+         try {
+            Files.deleteIfExists( file );
+         } catch( IOException e ) {
+            //Leave it; it is only a temporary file
+         }
+      }
+   }
+
+   /**
+      Spread the bits of a hash code, so that hashes that differ only in their high bits land in different slots
+
+      @param hash The hash code
+      @return int The mixed hash
+   */
+   private static int mix( int hash ) {
+      hash ^= hash >>> 16;
+      hash *= 0x85EBCA6B;
+      hash ^= hash >>> 13;
+      return hash;
+   }
+
+   /**
+      The elements seen so far, in the order they were first seen, with an open-addressing table over them
+   */
+   private static class FirstSeen<T> {
+
+      final ArrayList<T> kept;
+      private int[] table;  //element number + 1, or 0 if the slot is empty
+      private int[] hashes; //the hash of each kept element
+      private int mask;
+
+      FirstSeen( int expected ) {
+         int tableSize = Integer.highestOneBit( Math.max( expected, 8 ) * 2 - 1 ) << 1;
+         table = new int[ tableSize ];
+         mask = tableSize - 1;
+         hashes = new int[ Math.max( expected, 8 ) ];
+         kept = new ArrayList<T>( Math.max( expected, 8 ) );
+      }
+
+      /**
+         Add an element if it has not been seen before
+
+         @param element The element
+         @return boolean True if it was added, false if it was already seen
+      */
+      boolean add( T element ) {
+         int hash = mix( element == null ? 0 : element.hashCode() );
+         int slot = hash & mask;
+         int entry;
+         while( ( entry = table[ slot ] ) != 0 ) {
+            if( hashes[ entry - 1 ] == hash ) {
+               T other = kept.get( entry - 1 );
+               if( element == null ? other == null : element.equals( other ) )
+                  return false;
+            }
+            slot = ( slot + 1 ) & mask;
+         }
+
+         int n = kept.size();
+         if( n == hashes.length )
+            hashes = Arrays.copyOf( hashes, n * 2 );
+         hashes[n] = hash;
+         kept.add( element );
+         table[ slot ] = n + 1;
+         if( 2 * ( n + 1 ) > table.length )
+            grow();
+         return true;
+      }
+
+      /**
+         Double the table and put every kept element back in
+      */
+      private void grow() {
+         table = new int[ table.length * 2 ];
+         mask = table.length - 1;
+         for( int i = 0; i < kept.size(); i++ ) {
+            int slot = hashes[i] & mask;
+            while( table[ slot ] != 0 )
+               slot = ( slot + 1 ) & mask;
+            table[ slot ] = i + 1;
+         }
+      }
+
+   }
+
+   /**
+      The distinct lines read from a file, in the order they were first seen, and how much of the memory budget they take
+   */
+   private static class Distinct {
+
+      final FirstSeen<String> seen = new FirstSeen<String>( 1024 );
+      long[] lineNumbers = new long[ 1024 ]; //the line number of each kept line, if the file was tagged
+      long heap;                             //the approximate heap the kept lines take
+      long bytesRead;                        //the approximate bytes of the file read so far
+      boolean complete;                      //true if the whole file was read
+
+      /**
+         Record the line number of the line just kept
+
+         @param lineNumber The line number
+      */
+      void addLineNumber( long lineNumber ) {
+         int n = seen.kept.size() - 1;
+         if( n == lineNumbers.length )
+            lineNumbers = Arrays.copyOf( lineNumbers, n * 2 );
+         lineNumbers[n] = lineNumber;
+      }
+
+      /**
+         Get the number of partitions to split a file into, so that the distinct lines of each should fit in the memory
+         budget about twice over. The heap of the whole file is estimated from the heap of the part read before the budget
+         ran out
+
+         @param fileBytes The size of the file
+         @param memoryBytes The most heap (approximately) to fill with distinct lines
+         @return int The number of partitions, from 2 to MAX_PARTITIONS
+      */
+      int numPartitions( long fileBytes, long memoryBytes ) {
+         double heapPerByte = (double)heap / Math.max( 1, bytesRead );
+         double estimate = heapPerByte * Math.max( fileBytes, bytesRead );
+         return (int)Math.max( 2, Math.min( MAX_PARTITIONS, 2 * estimate / memoryBytes + 1 ) );
+      }
+
+   }
+
+   /**
+      An open partition file of "lineNumber<tab>line" entries and the entry of it that is next to be merged
+   */
+   private static class TaggedReader {
+
+      final BufferedReader reader;
+      long lineNumber;
+      String line;
+
+      TaggedReader( Path file ) throws IOException {
+         reader = Files.newBufferedReader( file );
+      }
+
+      /**
+         Read the next entry
+
+         @return boolean True if there was an entry, false if the file is used up
+      */
+      boolean advance() throws IOException {
+         String tagged = reader.readLine();
+         if( tagged == null )
+            return false;
+         int tab = tagged.indexOf( '\t' );
+         lineNumber = Long.parseLong( tagged.substring( 0, tab ) );
+         line = tagged.substring( tab + 1 );
+         return true;
+      }
+
+   }
+
+}
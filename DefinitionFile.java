@@ -0,0 +1,294 @@
+/**
+   DefinitionFile.java
+
+      The definitions of a Dictionary left in their text file, with only the place of each definition kept on the heap.
+      The file (one "word<tab>definition" per line) is memory-mapped and read through once when it is opened, to find
+      where each definition starts and how long it is. After that, getDef(..) reads the bytes of just that one
+      definition straight out of the mapped pages, so the definitions never all sit on the heap at once.
+
+      The index is held in two parts:
+         1) arena -- a WordArena of the words, which gives each word a number in the order the words first appear
+         2) spans -- long[ number of words ]; the high 32 bits are the offset of the definition in the file, and the
+                     low 32 bits its length in bytes
+
+      A small least-recently-used cache of definitions sits in front of the file, so the definitions asked for most often
+      are only decoded once.
+
+      If a word is on more than one line, it keeps the definition of the last line (the same as putting each line into a
+      map). The definition runs from the first tab to the next tab or the end of the line, the same as the definitions
+      read into the map by Dictionary( true ). A line with no tab is a word with an empty definition, and blank lines
+      are skipped. The file is read as UTF-8, and is limited to 2 GB, as a single MappedByteBuffer can map no more than
+      that.
+
+      The index is built once and is not changed afterwards. Only the cache is locked, so one DefinitionFile can be
+      shared between threads.
+
+   @author Peter Olson
+   @version 10/18/26
+   @see Dictionary.java
+   @see WordArena.java
+
+**/
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+public class DefinitionFile {
+
+   public static final int DEFAULT_CACHE_SIZE = 1024;
+
+   private final MappedByteBuffer buffer;
+   private final WordArena arena;
+   private final long[] spans;
+   private final LinkedHashMap<Integer, String> cache; //word number --> definition, least recently used first
+   private long hits;
+   private long misses;
+
+   /**
+      Map a file of words and definitions into memory and find where each definition is
+
+      @param fileName The text file, with one word and its definition (separated by a tab) per line
+      @param cacheSize The most definitions to keep decoded in the cache; 0 turns the cache off
+      @throws UncheckedIOException If the file cannot be read
+      @throws IllegalArgumentException If the cache size is negative
+   */
+   public DefinitionFile( String fileName, final int cacheSize ) {
+      if( cacheSize < 0 )
+         throw new IllegalArgumentException( "Cache size must not be negative: " + cacheSize );
+
+      try( FileChannel channel = FileChannel.open( Paths.get( fileName ), StandardOpenOption.READ ) ) {
+         buffer = channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() );
+      } catch( IOException e ) {
+         throw new UncheckedIOException( e );
+      }
+
+      //Find the word and the definition of every line
+      ArrayList<String> lineWords = new ArrayList<String>();
+      long[] lineSpans = new long[ 1024 ];
+      int size = buffer.capacity();
+      int lineStart = 0;
+      while( lineStart < size ) {
+         int lineEnd = lineStart;
+         int tab = -1;
+         int secondTab = -1;
+         while( lineEnd < size && buffer.get( lineEnd ) != '\n' ) {
+            if( buffer.get( lineEnd ) == '\t' ) {
+               if( tab == -1 )
+                  tab = lineEnd;
+               else if( secondTab == -1 )
+                  secondTab = lineEnd;
+            }
+            lineEnd++;
+         }
+         int next = lineEnd + 1;
+         if( lineEnd > lineStart && buffer.get( lineEnd - 1 ) == '\r' )
+            lineEnd--;
+
+         if( lineEnd > lineStart ) {
+            int wordEnd = tab == -1 ? lineEnd : tab;
+            int defStart = tab == -1 ? lineEnd : tab + 1;
+            int defEnd = secondTab == -1 ? lineEnd : secondTab;
+            if( lineWords.size() == lineSpans.length )
+               lineSpans = Arrays.copyOf( lineSpans, lineSpans.length * 2 );
+            lineSpans[ lineWords.size() ] = span( defStart, defEnd - defStart );
+            lineWords.add( decode( lineStart, wordEnd - lineStart ) );
+         }
+         lineStart = next;
+      }
+
+      //Number the words, then give each number the span of the last line holding that word
+      arena = new WordArena( lineWords, lineWords.size() );
+      spans = new long[ arena.size() ];
+      for( int i = 0; i < lineWords.size(); i++ )
+         spans[ arena.indexOf( lineWords.get(i) ) ] = lineSpans[i];
+
+      cache = new LinkedHashMap<Integer, String>( 16, 0.75f, true ) {
+         protected boolean removeEldestEntry( Map.Entry<Integer, String> eldest ) {
+            return size() > cacheSize;
+         }
+      };
+   }
+
+   /**
+      Get the definition of a word, from the cache if it is there, or from the mapped file if not
+
+      @param word The word. Case does not matter
+      @return String The definition, or null if the word is not in the file
+   */
+   public String getDef( CharSequence word ) {
+      int id = arena.indexOf( word );
+      return id == -1 ? null : getDef( id );
+   }
+
+   /**
+      Get the definition of the word with the given number, from the cache if it is there, or from the mapped file if not
+
+      @param id The number of the word, from 0 to size() - 1
+      @return String The definition
+   */
+   public String getDef( int id ) {
+      synchronized( cache ) {
+         String def = cache.get( id );
+         if( def != null ) {
+            hits++;
+            return def;
+         }
+         misses++;
+      }
+
+      String def = readDef( id );
+      synchronized( cache ) {
+         cache.put( id, def );
+      }
+      return def;
+   }
+
+   /**
+      Read the definition of the word with the given number straight from the mapped file, without using the cache. Use
+      this when reading many definitions once each, so the hot definitions are not pushed out of the cache
+
+      @param id The number of the word, from 0 to size() - 1
+      @return String The definition
+   */
+   public String readDef( int id ) {
+      return decode( (int)( spans[ id ] >>> 32 ), (int)spans[ id ] );
+   }
+
+   /**
+      Get the definitions of a list of words as a function from the number of a word in the list to its definition, for
+      building a DefinitionIndex without copying the definitions onto the heap. A word with a definition in heapDefs keeps
+      that one; the definition of any other word is read from the mapped file (without the cache) each time it is asked
+      for. The numbers of the words in the file are found once, here
+
+      @param words The words
+      @param heapDefs The definition of each word held on the heap, or null where the file's definition should be used
+      @return IntFunction<String> The definition of each word number, or null if the word has none in either place
+   */
+   public IntFunction<String> defsOf( String[] words, final String[] heapDefs ) {
+      final int[] ids = new int[ words.length ];
+      for( int i = 0; i < words.length; i++ )
+         ids[i] = heapDefs[i] != null ? -1 : arena.indexOf( words[i] );
+
+      return new IntFunction<String>() {
+         public String apply( int i ) {
+            if( heapDefs[i] != null )
+               return heapDefs[i];
+            return ids[i] == -1 ? null : readDef( ids[i] );
+         }
+      };
+   }
+
+   /**
+      Get the word with the given number
+
+      @param id The number of the word, from 0 to size() - 1
+      @return String The word, as it is written in the file
+   */
+   public String getWord( int id ) {
+      return arena.getWord( id );
+   }
+
+   /**
+      Get the number of the given word
+
+      @param word The word. Case does not matter
+      @return int The number of the word, or -1 if it is not in the file
+   */
+   public int indexOf( CharSequence word ) {
+      return arena.indexOf( word );
+   }
+
+   /**
+      Get the words of the file, numbered in the order they first appear
+
+      @return WordArena The words
+   */
+   public WordArena getWordArena() {
+      return arena;
+   }
+
+   /**
+      Get the number of distinct words in the file
+
+      @return int The number of words
+   */
+   public int size() {
+      return spans.length;
+   }
+
+   /**
+      Get the number of getDef(..) calls answered by the cache
+
+      @return long The number of cache hits
+   */
+   public long getCacheHits() {
+      synchronized( cache ) {
+         return hits;
+      }
+   }
+
+   /**
+      Get the number of getDef(..) calls that had to read the mapped file
+
+      @return long The number of cache misses
+   */
+   public long getCacheMisses() {
+      synchronized( cache ) {
+         return misses;
+      }
+   }
+
+   /**
+      Get the number of bytes of heap used by the index, not counting the cached definitions
+
+      @return long The heap usage in bytes
+   */
+   public long getMemoryUsage() {
+      final int ARRAY_HEADER = 16;
+      return arena.getMemoryUsage() + ARRAY_HEADER + 8L * spans.length;
+   }
+
+   /**
+      Get the number of bytes of the mapped file
+
+      @return long The size of the file in bytes
+   */
+   public long getMappedSize() {
+      return buffer.capacity();
+   }
+
+   /**
+      Pack the place of a definition into one long
+
+      @param offset The offset of the definition in the file
+      @param length The length of the definition in bytes
+      @return long The offset in the high 32 bits and the length in the low 32 bits
+   */
+   private static long span( int offset, int length ) {
+      return ( (long)offset << 32 ) | ( length & 0xFFFFFFFFL );
+   }
+
+   /**
+      Decode part of the mapped file as UTF-8
+
+      @param offset The offset of the first byte
+      @param length The number of bytes
+      @return String The decoded text
+   */
+   private String decode( int offset, int length ) {
+      byte[] bytes = new byte[ length ];
+      buffer.get( offset, bytes );
+      return new String( bytes, StandardCharsets.UTF_8 );
+   }
+
+}
@@ -0,0 +1,440 @@
+/**
+   DefinitionIndex.java
+
+      A full-text index of the definitions of a Dictionary. Each definition is split into terms (runs of letters and
+      digits, in uppercase), and every term has a posting list: the sorted numbers of the definitions that use it. Words
+      are numbered in dictionary order, so every result comes out in dictionary order.
+
+      Queries supported:
+         1) all terms  -- the posting lists are intersected, rarest first
+         2) any term   -- the posting lists are merged
+         3) phrase     -- the terms of the phrase are intersected, then each definition left is checked for the terms
+                          side by side in the same order
+         4) substring  -- the vocabulary (which is far smaller than the definitions) is scanned for terms that hold the
+                          longest run of letters in the substring, their posting lists are merged, and only those
+                          definitions are checked for the substring (see TokenMatcher.java)
+      Results can be handed to an action one at a time as they are found, without building a list.
+
+      There is also an open-addressing hash table of the whole definitions, so that an exact definition can be looked
+      up without checking every definition in turn.
+
+      The posting lists are held in one int[], with the start of each term's list in a second int[]. The index is built
+      once and is not changed afterwards.
+
+      The definitions themselves are not held by the index. They are read through a function from the number of a word
+      to its definition: an array on the heap, or the memory-mapped defs file (see DefinitionFile.defsOf(..)). Each
+      definition is read once while the index is built, and after that only when a query has to look at its text, so an
+      index over a mapped file does not pull every definition onto the heap. The hash code of each definition is kept, so
+      an exact lookup only reads the definitions whose hash matches.
+
+   @author Peter Olson
+   @version 10/18/26
+   @see Dictionary.java
+
+**/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+
+public class DefinitionIndex {
+
+   private final String[] words;
+   private final IntFunction<String> defs; //the definition of each word number, or null if it has none
+   private final int[] defHashes;     //the hash code of each definition
+   private final String[] terms;      //the vocabulary; terms[t] is term number t
+   private final HashMap<String, Integer> termIds;
+   private final int[] postStart;     //the posting list of term t is postings[ postStart[t] ] to postings[ postStart[t+1] - 1 ]
+   private final int[] postings;
+   private final int[] defTable;      //open-addressing table of definition number + 1, or 0 if the slot is empty
+   private final int mask;
+
+   /**
+      Build the index over definitions held on the heap. Words with no definition (null) are given a number but are never
+      found
+
+      @param words The words, in dictionary order
+      @param defs The definition of each word
+   */
+   public DefinitionIndex( String[] words, final String[] defs ) {
+      this( words, new IntFunction<String>() {
+         public String apply( int id ) {
+            return defs[ id ];
+         }
+      } );
+   }
+
+   /**
+      Build the index over definitions read through a function. Each definition is read once here; after that, only the
+      definitions a query needs are read again
+
+      @param words The words, in dictionary order
+      @param defs Gives the definition of each word number, or null if the word has no definition
+   */
+   public DefinitionIndex( String[] words, IntFunction<String> defs ) {
+      this.words = words;
+      this.defs = defs;
+      int numDefs = words.length;
+      defHashes = new int[ numDefs ];
+
+      //Number the terms, and list the distinct terms of each definition end to end, so each definition is read only once
+      termIds = new HashMap<String, Integer>();
+      ArrayList<String> vocabulary = new ArrayList<String>();
+      int[] counts = new int[ 1024 ];
+      int[] lastSeen = new int[ 1024 ];
+      int[] defTerms = new int[ Math.max( 16, numDefs * 4 ) ];
+      int[] defTermStart = new int[ numDefs + 1 ];
+      boolean[] hasDef = new boolean[ numDefs ];
+      int numDefTerms = 0;
+      ArrayList<String> found = new ArrayList<String>();
+      for( int id = 0; id < numDefs; id++ ) {
+         defTermStart[ id ] = numDefTerms;
+         String def = defs.apply( id );
+         if( def == null )
+            continue;
+         hasDef[ id ] = true;
+         defHashes[ id ] = def.hashCode();
+         found.clear();
+         tokenize( def, found );
+         for( String term : found ) {
+            Integer t = termIds.get( term );
+            if( t == null ) {
+               t = vocabulary.size();
+               termIds.put( term, t );
+               vocabulary.add( term );
+               if( t == counts.length ) {
+                  counts = Arrays.copyOf( counts, t * 2 );
+                  lastSeen = Arrays.copyOf( lastSeen, t * 2 );
+               }
+               lastSeen[t] = -1;
+            }
+            if( lastSeen[t] != id ) {
+               lastSeen[t] = id;
+               counts[t]++;
+               if( numDefTerms == defTerms.length )
+                  defTerms = Arrays.copyOf( defTerms, numDefTerms * 2 );
+               defTerms[ numDefTerms++ ] = t;
+            }
+         }
+      }
+      defTermStart[ numDefs ] = numDefTerms;
+      terms = vocabulary.toArray( new String[ vocabulary.size() ] );
+
+      int numTerms = terms.length;
+      postStart = new int[ numTerms + 1 ];
+      for( int t = 0; t < numTerms; t++ )
+         postStart[ t + 1 ] = postStart[t] + counts[t];
+      postings = new int[ postStart[ numTerms ] ];
+
+      //Fill the posting lists. Definitions are visited in order, so each list comes out sorted
+      int[] fill = Arrays.copyOf( postStart, numTerms );
+      for( int id = 0; id < numDefs; id++ )
+         for( int k = defTermStart[ id ]; k < defTermStart[ id + 1 ]; k++ )
+            postings[ fill[ defTerms[k] ]++ ] = id;
+
+      //Hash the whole definitions
+      int tableSize = Integer.highestOneBit( Math.max( numDefs, 1 ) * 2 - 1 ) << 1;
+      mask = tableSize - 1;
+      defTable = new int[ tableSize ];
+      for( int id = 0; id < numDefs; id++ ) {
+         if( !hasDef[ id ] )
+            continue;
+         int slot = mix( defHashes[ id ] ) & mask;
+         while( defTable[ slot ] != 0 )
+            slot = ( slot + 1 ) & mask;
+         defTable[ slot ] = id + 1;
+      }
+   }
+
+   /**
+      Tells whether the given String is exactly equal to one of the definitions
+
+      @param def The definition to look up
+      @return boolean True if it is a definition, false otherwise
+   */
+   public boolean containsDef( String def ) {
+      int hash = def.hashCode();
+      int slot = mix( hash ) & mask;
+      int entry;
+      while( ( entry = defTable[ slot ] ) != 0 ) {
+         if( defHashes[ entry - 1 ] == hash && def.equals( defs.apply( entry - 1 ) ) )
+            return true;
+         slot = ( slot + 1 ) & mask;
+      }
+      return false;
+   }
+
+   /**
+      Find the definitions that use every one of the given terms, in dictionary order
+
+      @param queryTerms The terms to look for. Case does not matter. Each is split into terms the same way as the definitions
+      @param action Given the number of each definition found
+   */
+   public void findAll( String[] queryTerms, IntConsumer action ) {
+      int[] keys = lookupTerms( queryTerms );
+      if( keys == null || keys.length == 0 )
+         return;
+
+      for( int id : intersect( keys ) )
+         action.accept( id );
+   }
+
+   /**
+      Find the definitions that use at least one of the given terms, in dictionary order
+
+      @param queryTerms The terms to look for. Case does not matter. Each is split into terms the same way as the definitions
+      @param action Given the number of each definition found
+   */
+   public void findAny( String[] queryTerms, IntConsumer action ) {
+      ArrayList<String> split = new ArrayList<String>();
+      for( String query : queryTerms )
+         tokenize( query, split );
+
+      long[] hits = new long[ ( words.length + 63 ) >>> 6 ];
+      for( String term : split ) {
+         Integer t = termIds.get( term );
+         if( t != null )
+            for( int p = postStart[t]; p < postStart[ t + 1 ]; p++ )
+               hits[ postings[p] >>> 6 ] |= 1L << postings[p];
+      }
+      forEachBit( hits, action );
+   }
+
+   /**
+      Find the definitions that use the terms of the phrase side by side, in the same order, in dictionary order. Case and
+      punctuation do not matter eg. "a small dog" matches "...like A SMALL, DOG..."
+
+      @param phrase The phrase to look for
+      @param action Given the number of each definition found
+   */
+   public void findPhrase( String phrase, IntConsumer action ) {
+      ArrayList<String> split = new ArrayList<String>();
+      tokenize( phrase, split );
+      int[] keys = lookupTerms( split.toArray( new String[ split.size() ] ) );
+      if( keys == null || keys.length == 0 )
+         return;
+
+      ArrayList<String> defTerms = new ArrayList<String>();
+      for( int id : intersect( keys ) ) {
+         defTerms.clear();
+         tokenize( defs.apply( id ), defTerms );
+         if( Collections.indexOfSubList( defTerms, split ) >= 0 )
+            action.accept( id );
+      }
+   }
+
+   /**
+      Find the definitions that contain the given String, exactly as it is written, in dictionary order
+
+      @param token The String to look for. Case matters when the definitions are checked
+      @param action Given the number of each definition found
+      @see findContainingAny( String[] tokens, IntConsumer action )
+   */
+   public void findContaining( String token, IntConsumer action ) {
+      findContainingAny( new String[]{ token }, action );
+   }
+
+   /**
+      Find the definitions that contain at least one of the given Strings, exactly as they are written, in dictionary
+      order. Only the definitions using a term that holds the longest run of letters in one of the Strings are checked.
+      The longest runs of all the Strings are compiled into one TokenMatcher, so the vocabulary is scanned once, however
+      many Strings there are
+
+      @param tokens The Strings to look for. Case matters when the definitions are checked
+      @param action Given the number of each definition found
+   */
+   public void findContainingAny( String[] tokens, IntConsumer action ) {
+      long[] candidates = new long[ ( words.length + 63 ) >>> 6 ];
+      ArrayList<String> longestRuns = new ArrayList<String>();
+      ArrayList<String> split = new ArrayList<String>();
+      boolean checkAll = false;
+      for( String token : tokens ) {
+         String longest = "";
+         split.clear();
+         tokenize( token, split );
+         for( String run : split )
+            if( run.length() > longest.length() )
+               longest = run;
+
+         if( longest.isEmpty() ) {
+            checkAll = true; //no letters to look up, so every definition has to be checked
+            break;
+         }
+         longestRuns.add( longest );
+      }
+
+      if( checkAll ) {
+         for( int id = 0; id < words.length; id++ )
+            candidates[ id >>> 6 ] |= 1L << id;
+      } else if( !longestRuns.isEmpty() ) {
+         TokenMatcher runs = new TokenMatcher( longestRuns.toArray( new String[ longestRuns.size() ] ) );
+         for( int t = 0; t < terms.length; t++ )
+            if( runs.containsAny( terms[t] ) )
+               for( int p = postStart[t]; p < postStart[ t + 1 ]; p++ )
+                  candidates[ postings[p] >>> 6 ] |= 1L << postings[p];
+      }
+
+      TokenMatcher matcher = new TokenMatcher( tokens );
+      for( int i = 0; i < candidates.length; i++ ) {
+         long b = candidates[i];
+         while( b != 0 ) {
+            int id = ( i << 6 ) + Long.numberOfTrailingZeros( b );
+            String def = defs.apply( id );
+            if( def != null && matcher.containsAny( def ) )
+               action.accept( id );
+            b &= b - 1;
+         }
+      }
+   }
+
+   /**
+      Get the word with the given number
+
+      @param id The number of the word
+      @return String The word
+   */
+   public String getWord( int id ) {
+      return words[ id ];
+   }
+
+   /**
+      Get the definition with the given number, read from wherever the definitions are held
+
+      @param id The number of the word
+      @return String The definition of the word
+   */
+   public String getDef( int id ) {
+      return defs.apply( id );
+   }
+
+   /**
+      Get the number of words in the index, including those with no definition
+
+      @return int The number of words
+   */
+   public int size() {
+      return words.length;
+   }
+
+   /**
+      Get the number of distinct terms used by the definitions
+
+      @return int The size of the vocabulary
+   */
+   public int getNumTerms() {
+      return terms.length;
+   }
+
+   /**
+      Split text into terms: runs of letters and digits, in uppercase
+
+      @param text The text to split
+      @param result The list to add the terms to
+   */
+   public static void tokenize( String text, ArrayList<String> result ) {
+      int start = -1;
+      for( int i = 0; i <= text.length(); i++ ) {
+         boolean inTerm = i < text.length() && Character.isLetterOrDigit( text.charAt(i) );
+         if( inTerm && start < 0 ) {
+            start = i;
+         } else if( !inTerm && start >= 0 ) {
+            result.add( text.substring( start, i ).toUpperCase() );
+            start = -1;
+         }
+      }
+   }
+
+   /**
+      Look up the term numbers of the query terms
+
+      @param queryTerms The terms to look up. Each is split into terms the same way as the definitions
+      @return int[] The term numbers, or null if a term is not used by any definition
+   */
+   private int[] lookupTerms( String[] queryTerms ) {
+      ArrayList<String> split = new ArrayList<String>();
+      for( String query : queryTerms )
+         tokenize( query, split );
+
+      int[] keys = new int[ split.size() ];
+      for( int i = 0; i < keys.length; i++ ) {
+         Integer t = termIds.get( split.get(i) );
+         if( t == null )
+            return null;
+         keys[i] = t;
+      }
+      return keys;
+   }
+
+   /**
+      Intersect the posting lists of some terms, starting from the shortest
+
+      @param keys The term numbers. Must not be empty
+      @return int[] The sorted numbers of the definitions using all of the terms
+   */
+   private int[] intersect( int[] keys ) {
+      int rarest = 0;
+      for( int k = 1; k < keys.length; k++ )
+         if( listSize( keys[k] ) < listSize( keys[ rarest ] ) )
+            rarest = k;
+
+      int[] result = Arrays.copyOfRange( postings, postStart[ keys[ rarest ] ], postStart[ keys[ rarest ] + 1 ] );
+      for( int k = 0; k < keys.length && result.length > 0; k++ ) {
+         if( k == rarest )
+            continue;
+         int n = 0;
+         int j = postStart[ keys[k] ];
+         int end = postStart[ keys[k] + 1 ];
+         for( int i = 0; i < result.length && j < end; i++ ) {
+            while( j < end && postings[j] < result[i] )
+               j++;
+            if( j < end && postings[j] == result[i] )
+               result[ n++ ] = result[i];
+         }
+         result = Arrays.copyOf( result, n );
+      }
+      return result;
+   }
+
+   /**
+      Get the length of a term's posting list
+
+      @param t The term number
+      @return int The number of definitions using the term
+   */
+   private int listSize( int t ) {
+      return postStart[ t + 1 ] - postStart[t];
+   }
+
+   /**
+      Hand the number of every set bit to the action, in increasing order
+
+      @param bits The bits
+      @param action Given the number of each set bit
+   */
+   private static void forEachBit( long[] bits, IntConsumer action ) {
+      for( int i = 0; i < bits.length; i++ ) {
+         long b = bits[i];
+         while( b != 0 ) {
+            action.accept( ( i << 6 ) + Long.numberOfTrailingZeros( b ) );
+            b &= b - 1;
+         }
+      }
+   }
+
+   /**
+      Spread the bits of the hash so that the low bits can be used to pick a table slot
+
+      @param hash The hash to mix
+      @return int The mixed hash
+   */
+   private static int mix( int hash ) {
+      hash ^= hash >>> 16;
+      hash *= 0x85ebca6b;
+      hash ^= hash >>> 13;
+      return hash;
+   }
+
+}
@@ -15,29 +15,64 @@
    
    Dictionary( boolean useDefs ) -- create a Dictionary with just words, or one with words and definitions
    
+   Dictionary( boolean useDefs, boolean mapDefs ) -- same as above, but with mapDefs the definitions are left in the memory-mapped
+                                                  -- text file and read when asked for, instead of being held in the map
+   
    Dictionary( String fileName, LanguageSpecs specs, boolean useDefs ) -- create a Dictionary using another language, with just words, or their defs too
    
+   Dictionary( WordStoreType storeType ) -- create a Dictionary with just words, held in the map (MAP) or in a compact word graph (DAWG)
+   
+   Dictionary( String imageFileName ) -- create a Dictionary with just words, memory-mapped from a binary image made by compileImage(..)
+   
    @@@@@@@@@@ PUBLIC FUNCTIONS @@@@@@@@@
    
+   put( String word, String def ) -- put a word into the map; this and every other change to the map drops the word arena,
+                                  -- and isWord(..) then looks in the map (putAll, remove, replace, compute, merge, clear too)
+   remove( Object word ) -- remove a word from the map
+   keySet() / values() / entrySet() -- views of the map; removing through them, or setting an entry, is tracked like remove(..)
+   
    isWord( String word ) -- checks if the word is in the Dictionary
+   isWord( char[] buf, int off, int len ) -- checks if the letters in a section of a char array are a word, without creating a String
+   enableBloomFilter( double falsePositiveRate ) -- turn on a Bloom filter that turns away most non-words before isWord(..) looks them up
+   disableBloomFilter() -- turn off the Bloom filter
+   getBloomFilter() -- get the Bloom filter, with its query / rejection / false positive counts
    isDef( String def ) -- checks if the definition is in the Dictionary
    getDef( String word ) -- get the definition of a word
    addDefs( String fileName ) -- add definitions to a list of words that have no definitions
+   getMemoryUsage() -- get the approximate heap used to hold the words (map or word store)
+   compileImage( String imageFileName ) -- write the words to a binary image that can be memory-mapped by Dictionary( String imageFileName )
    
    descramble( String[] str, String fileName ) -- finds all words of a list of letters allowing rearrangement and removal. Then removes
-                                               -- duplicates, orders the words in increasing word length, and alphabetizes each set of length words
+                                               -- duplicates, orders the words in increasing word length, and alphabetizes each set of length words.
+                                               -- Any number of '?' blanks may be used (see WordTrie.java)
    descramble( String str, String fileName ) -- same as above
    descramble( char[] str, String fileName ) -- same as above
    descramble( String[] str ) -- find all words of a list of letters allowing rearrangement and removal
    descramble( String str ) -- same as above
    descramble( char[] str ) -- same as above
+   enableParallelDescramble( ForkJoinPool pool ) -- split descramble(..) searches across the threads of a fork-join pool
+   enableParallelDescramble( int parallelism ) -- same as above, on a new pool of the given number of threads
+   disableParallelDescramble() -- search on the calling thread again
+   enableResultCache() -- cache descramble(..) and descrambleReps(..) results by sorted rack, with segmented-LRU eviction
+   enableResultCache( int maxEntries, long maxBytes ) -- same as above, with the given bounds
+   disableResultCache() -- turn off the result cache
+   getResultCache() -- get the result cache, with its hit / miss / shared wait / eviction counts
+   snapshot() -- make an immutable DictionarySnapshot with every index built, for lock-free queries from many threads
    scramble( String[] str ) -- find all permutations of all subsets of a list of letters
    scramble( String str ) -- same as above
    scramble( char[] str ) -- same as above
+   scrambleStream( String str ) -- lazy Stream of all permutations of all subsets of a String of letters (see Scrambler.java)
+   scrambleStream( String str, int minLength, int maxLength ) -- same as above, only for subsets of the given lengths
+   descrambleStream( String str ) -- lazy Stream of the words of a list of letters; limit(..) and findFirst() cut the trie walk short
+   descrambleStream( String str, int minLength, int maxLength ) -- same as above, only walking as deep as maxLength
+   descrambleAnagramStream( String str ) -- descrambleAnagram(..) as a Stream
 
-   descrambleAnagram( String str ) -- finds all anagrams of a String (same as descramble method, but only gets words of same length as input token)
+   descrambleAnagram( String str ) -- finds all anagrams of a String (same as descramble method, but only gets words of same length as input token);
+                                   -- a single lookup in the sorted-letter anagram index
    descrambleReps( String str ) -- finds all the anagrams of a String, allowing for repeated letters up to a set limit
    descrambleReps( String str, int limit ) -- finds all of the anagrams of a String, allowing for a limited number of repeated letters
+   descrambleReps( String str, int maxLetterReps, int limit ) -- same as above, also limiting the times any one letter may be used;
+                                                               -- one walk of the word trie with a budget of repeats
 
    descrambleSpecs( String[] specs, String newFileName ) -- find all the words in the dictionary that match the given specs
    descrambleSpecs( String specs, String newFileName ) -- same as above
@@ -48,9 +83,20 @@
    descrambleSpecs( String[] specs, String str, String descrambleFileName, String newFileName ) -- find all the words made from the descrambled
                                                                                                   -- letters that match the given specs
    descrambleSpecs( String specs, String str, String descrambleFileName, String newFileName  ) -- same as above
+   compileSpecs( String specs ) -- compile specs once so that they can be used for many searches
+   descrambleSpecs( SpecPattern pattern ) -- find all the words in the dictionary that match compiled specs, walking only the
+                                          -- branches of the word trie that can still match
+   descrambleSpecs( SpecPattern pattern, Consumer<String> action ) -- same as above, handing each match to the action as it is found
+   descrambleSpecsStream( SpecPattern pattern ) -- same as above, as a lazy Stream that walks the trie only as far as it is read
+   descrambleSpecsStream( String specs ) -- same as above
+   savePositionIndex( String fileName ) -- write the positional bitmap index used for fixed-length specs to a file
+   loadPositionIndex( String fileName ) -- read a positional bitmap index written by savePositionIndex(..)
    
    makeLanguage( LanguageSpecs specs, String fileName ) -- make a new language and store it in a text file;
                                                         -- based on randomization and approximation to another language (default English)
+   makeLanguage( LanguageSpecs specs, String fileName, long seed ) -- same as above, reproducibly from a seed; words are made in parallel
+                                                                   -- with no collisions (see LanguageGenerator.java). Both return the
+                                                                   -- English <--> new word LanguageMap, for a Translator
    processNewWord( LanguageSpecs specs, String word ) -- create a new word based on the specs of a new language based on the original word
    
    orderIncreasing( String fileName ) -- reorder a text file in increasing word length order
@@ -59,11 +105,18 @@
    alphabetize( String oldFileName, String newFileName ) -- alphabetize a text file (lexicographically), preserving the old file
    alphabetizeSets( String fileName ) -- alphabetize a text file per each set of words of a given length
    alphabetizeSets( String oldFileName, String newFileName ) -- alphabetize a text file per each set of words of a given length, preserving the old file
+   sortFile( String oldFileName, String newFileName, Comparator<String> order ) -- sort a text file of any size into any order, in bounded memory
    removeDuplicates( String fileName ) -- remove the duplicate entries from a text file
    removeDuplicates( String oldFileName, String newFileName ) -- remove the duplicate entries from a text file, preserving the old file
    removeDuplicates( ArrayList<?> list ) -- remove all duplicates in the list and returns the new list
+   removeSortedDuplicates( String fileName ) -- remove the duplicate entries from a sorted text file, comparing only neighbouring lines
+   removeSortedDuplicates( String oldFileName, String newFileName ) -- same as above, preserving the old file
+   (for lists already in memory, ResultPipeline does the steps above without rewriting a file for each one)
    
    getXLetterWords( int length ) -- get words of specified length
+   getXLetterWords( int minLength, int maxLength ) -- get words within a range of lengths
+   getNumXLetterWords( int length ) -- get the number of words of specified length
+   getLengthHistogram() -- get the number of words of every length
    getWordsContainingX( String token ) -- get words containing a specified token
    getWordsContainingX( String[] tokens ) -- get words containing multiple tokens
    getAppends( String word ) -- get words containing a specified word
@@ -72,12 +125,20 @@
    
    getDefsContainingX( String token ) -- get definitions containing a specified token
    getDefsContainingX( String[] tokens ) -- get definitions containing any of a set of specified tokens
+   getDefsContainingX( TokenMatcher matcher ) -- same as above, with the tokens compiled once by compileTokens(..)
+   getDefsWithAllTerms( String[] terms ) -- get definitions that use every one of the given words
+   getDefsWithAnyTerm( String[] terms ) -- get definitions that use any of the given words
+   getDefsWithPhrase( String phrase ) -- get definitions that use the words of a phrase side by side
+   searchDefs( String[] terms, boolean matchAll, Consumer<String> action ) -- hand each definition using all (or any) of the words to an action
+   searchDefPhrase( String phrase, Consumer<String> action ) -- hand each definition using a phrase to an action
+   compileTokens( String[] tokens ) -- compile a set of tokens into a matcher that finds all of them in one pass over a word
    
    write( String[] list, String fileName ) -- write a list to a text file
    write( ArrayList<String> list, String fileName ) -- write a list to a text file
    write( LinkedHashMap<String, String> list, String fileName ) -- write a list to a text file
    writeLimit( String[] list, String fileName, int upperLimit ) -- write a list to a text file, excluding words that are longer than a specified limit
    writeLimit( String[] list, String fileName, int lowerLimit, int upperLimit ) -- write a list to a text file, excluding words based on length limits
+   writeLimit( String fileName, int lowerLimit, int upperLimit ) -- write the words of the dictionary within length limits to a text file
    
    removeWords( String fileName, String token ) -- remove all instances of the given word (do not remove if found in contained in another word)
    removeWords( String oldFileName, String newFileName, String token ) -- same as above, but preserve old file, and create a new one
@@ -85,8 +146,12 @@
    removeWordsContainingX( String oldFileName, String newFileName, String token ) -- same as above, but preserve old file, and create a new one
    removeWordsContainingX( String fileName, String[] tokens ) -- edit a text file and replace it, removing words containing any of the given tokens
    removeWordsContainingX( String oldFileName, String newFileName, String[] tokens ) -- same as above, but preserve old file, and create a new one
+   removeWordsContainingX( String fileName, TokenMatcher matcher ) -- same as above, with the tokens compiled once by compileTokens(..)
+   removeWordsContainingX( String oldFileName, String newFileName, TokenMatcher matcher ) -- same as above, but preserve old file
    removeWordsLongerThanX( String fileName, int upperLimit ) -- edit a text file and replace it, removing all words longer than the given limit
    removeWordsLongerThanX( String oldFileName, String newFileName, int upperLimit ) -- same as above, but preserve old file, and create a new one
+   filterFile( String fileName, LineFilter filter ) -- remove the words matched by any rule of a filter, in one streaming pass
+   filterFile( String oldFileName, String newFileName, LineFilter filter ) -- same as above, but preserve old file, and create a new one
    
    clearFile( String fileName ) -- clear all contents of a text file so that it has nothing in it
    renameFile( String oldFileName, String newFileName ) -- renames file to new name
@@ -99,24 +164,34 @@
    
    @@@@@@@@@@ PRIVATE FUNCTIONS @@@@@@@@
    
-   containsAny( String word, String[] tokens ) -- finds whether the word contains any of the tokens (true) or not (false)
-   containsAll( String word, String[] tokens ) -- finds whether the word contains all of the tokens (true) or not (false)
    
    addWords( Scanner scanner ) -- add the list of words to the Dictionary (no definitions)
    addWordsAndDefs( Scanner scanner ) -- add the list of words and their definitions to the Dictionary
-   addArray( ArrayList<String> arrayList, String[] list ) -- add the contents of an array to the end of an ArrayList
+   buildIndexes() -- build the lookup indexes (word arena, anagram index) once all words have been added
+   usePool( ForkJoinPool pool, ForkJoinPool owned ) -- switch descramble(..) to a pool, shutting down the old one if it was made here
+   changed() -- drop the indexes that no longer match the words and clear the result cache, after a change to the map
+   changedIf( int oldSize, String oldDef, String newDef ) -- call changed() if a mutator added or removed a word, or changed its definition
+   trackedIterator( Iterator<T> iterator ) -- wrap an iterator of a view of the map so that remove() calls changed()
+   trackedEntry( Map.Entry<String, String> entry ) -- wrap an entry of the map so that setValue(..) calls changed()
+   numWords() -- get the number of words, as a size hint for building an index
+   getAnagramIndex() -- get the anagram index, building it if it has not been built yet
+   getLengthIndex() -- get the length index, building it if it has not been built yet
+   getNGramIndex() -- get the n-gram index used for substring searches, building it the first time it is needed
+   getDefinitionIndex() -- get the full-text index of the definitions, building it the first time it is needed
+   readEntries( String[] wordList, String[] defList ) -- copy the words and the definitions held in the map into two lists
+   defLines( Consumer<String> action ) -- turn an action on "word<tab>definition" lines into an action on definition numbers
+   addTo( ArrayList<String> list ) -- get an action that adds each String to a list
+   toUpperCase( String[] tokens ) -- get an uppercase copy of a list of Strings
+   words() -- get all the words of the Dictionary, from the map or from the word store
+   descrambleRack( String letters ) -- find the words of a rack with the word trie, in parallel if it is turned on
+   stream( Iterator<String> iterator ) -- wrap an iterator in a lazy sequential Stream
+   
+   getWordTrie() -- get the word trie used for descrambling, building it the first time it is needed
+   getPositionIndex() -- get the positional bitmap index used for fixed-length specs, building it the first time it is needed
+   
+   descrambleSpecs( SpecPattern pattern, Scanner scanner ) -- find all matches in a text file that fit the specs and return them in a list
+   joinSpecs( String[] specs ) -- join a list of one-character specs into one String
    
-   descrambleMain( String[] list ) -- adds the tokens that are words to the list and shrinks the list
-   descrambleReg( String[] str, String fileName ) -- descramble a set of letters with no variables
-   descrambleVar( String[] str, String fileName, int varIndex1, int varIndex2 ) -- descramble a set of letters with up to two variables
-   descrambleSubsets( String[] str ) -- finds all subsets of a list of letters
-   descramblePermutations( String prefix, String str, ArrayList<String> result ) -- finds all permutations of a list of letters
-   
-   descrambleSpecs( String[] specs, Scanner scanner ) -- find all matches that fit the specs and return them in a list
-   
-   removeReps( String str ) -- removes repeated letters from a String and returns the result
-   
-   alphabetizeSets( Scanner scanner ) -- alphabetize a text file per each set of words of a given length
    
    getScanner( String fileName ) -- gets a Scanner to read the text file
    getFileSize( Scanner scanner ) -- gets the number of lines in the file
@@ -129,31 +204,39 @@
    printExecutionTime( long beginTime ) -- print the total time used during a process
    SOPln( String message ) -- never type out System.out.println(..) again with this wonderful, short method; also reduces carpal tunnel
    
-   @@@@@@@@@@ PRIVATE CLASSES @@@@@@@@@@
-   
-   BaseChain
-   
-   BaseChain( int base, int length ) -- create a BaseChain object with the given base-X system and chain length
-   
-   BaseChain( int base, int length, int limit ) -- create a BaseChain object with the given base-x system and chain length, with the limit
-                                                   of repeated letter possibilities
-   
-   Fields
-   - int base --> the base of the number system for counting with the chain
-   - int length --> the length of the chain
-   - int[] chain --> the elements stored in an array
-   - int limit --> the limit imposed on the total allowed repeated letters for permuting
-   - boolean updated --> for chains of no repeated letters, this is used for showing when a chain has been amended
-   
-   Public Methods
-   - add() -- increments the chain by 1
-   - get() -- gets the chain array
-   - length() -- gets the length of the chain
-   - numNonZero() -- gets the numbers of nonzero elements within the chain
-   
-   Private Methods
-   - addNoLimit() -- for chains with no limit
-   - addLimit() -- for chains with a limit 
+   @@@@@@@@@@ HELPER CLASSES @@@@@@@@@@@
+   
+   WordArena    -- words packed into one char[] with an open-addressing long[] table; used by isWord(..) (see WordArena.java)
+   AnagramIndex -- sorted-letter signature --> words table used by descrambleAnagram(..) (see AnagramIndex.java)
+   LengthIndex  -- the words sorted by length, then alphabetically; used by getXLetterWords(..) and writeLimit(..) (see LengthIndex.java)
+   NGramIndex   -- unigram/bigram/trigram posting lists used by getWordsContainingX(..) and getAppends(..) (see NGramIndex.java)
+   TokenMatcher -- Aho-Corasick automaton over a set of tokens; made by compileTokens(..) for the multi-token filters (see TokenMatcher.java)
+   DefinitionIndex -- term posting lists and exact hash of the definitions; used by isDef(..) and the definition searches (see DefinitionIndex.java)
+   BloomFilter  -- optional cache-line-blocked Bloom filter checked before isWord(..) lookups (see BloomFilter.java)
+   WordTrie     -- packed prefix trie searched with a letter budget by descramble(..), optionally on a ForkJoinPool, and with a
+                   repeat budget by descrambleReps(..); also walked lazily by the descramble streams (see WordTrie.java)
+   LanguageGenerator -- seeded, parallel, collision-free maker of the words of a new language; used by makeLanguage(..) (see LanguageGenerator.java)
+   LanguageMap  -- two-way English <--> new word table returned by makeLanguage(..), saved as a compact binary file (see LanguageMap.java)
+   Translator   -- streams a UTF-8 text file through a byte[], rewriting each word through a LanguageMap (see Translator.java)
+   DictionarySnapshot -- immutable, eagerly indexed copy of the words for lock-free concurrent queries; swapped atomically
+                         by its Holder (see DictionarySnapshot.java)
+   ResultCache  -- segmented-LRU, single-flight cache of descramble results keyed by sorted rack (see ResultCache.java)
+   Scrambler    -- Iterator over the permutations of the subsets of a list of letters; used by scramble(..) (see Scrambler.java)
+   SpecPattern  -- descrambleSpecs(..) spec compiled into a bit-parallel automaton, run over the WordTrie (see SpecPattern.java)
+   PositionIndex -- (length, position, letter / vowel / consonant) bitmaps ANDed for fixed-length specs (see PositionIndex.java)
+   WordStore    -- read-only set of words that can hold the words in place of the map (see WordStore.java)
+   WordGraph    -- minimized DAWG packed into primitive arrays; the WordStore used by WordStoreType.DAWG (see WordGraph.java)
+   DictionaryImage -- versioned binary image of the words, memory-mapped as a WordStore (see DictionaryImage.java)
+   LineFilter   -- removal rules applied to a text file in one streaming pass; used by removeWords*(..) and filterFile(..) (see LineFilter.java)
+   BatchWriter  -- FileChannel writer with a 64 KB heap buffer and atomic rename; every text file is written through it (see BatchWriter.java)
+   ExternalSorter -- bounded-memory external merge sort of a text file; used by alphabetize(..), orderIncreasing(..), alphabetizeSets(..) (see ExternalSorter.java)
+   Deduplicator -- linear-time dedup: int[] hash set for lists, neighbour check for sorted files, hash partitions for big files (see Deduplicator.java)
+   ResultPipeline -- in-memory removeDuplicates / orderIncreasing / alphabetizeSets steps, then one buffered write (see ResultPipeline.java)
+   DefinitionFile -- word --> (offset, length) of its definition in the memory-mapped defs file, with an LRU cache (see DefinitionFile.java)
+   
+   @@@@@@@@@@ ENUMS @@@@@@@@@@@@@@@@@@@@
+   
+   WordStoreType -- MAP or DAWG; how the words of a Dictionary are held in memory
    
    @@@@@@@@@@ GLOBALS @@@@@@@@@@@@@@@@@@
    
@@ -165,6 +248,8 @@
    ENGLISH_ALPHABET_LIST -- the list of the letters in the English alphabet (default)
    ALPHABET_LIST         -- the list of the letters in the alphabet
    
+   MIN_DESCRAMBLE_LENGTH -- the shortest word returned when descrambling a set of letters
+   
    VOWELS -- determines what is considered a vowel. Check this variable if you want to include 'Y' as a vowel or not
    
    DIRECTORY_PATH -- the direct path of the directory -- used to print all text files. Allows you to have this file in one place,
@@ -179,6 +264,31 @@
    @see dictionary_rikitikita.txt
    @see DictionaryRunner.java
    @see LanguageSpecs.java
+   @see WordArena.java
+   @see AnagramIndex.java
+   @see LengthIndex.java
+   @see NGramIndex.java
+   @see TokenMatcher.java
+   @see DefinitionIndex.java
+   @see BloomFilter.java
+   @see WordTrie.java
+   @see SpecPattern.java
+   @see PositionIndex.java
+   @see WordStore.java
+   @see WordGraph.java
+   @see DictionaryImage.java
+   @see DefinitionFile.java
+   @see ResultPipeline.java
+   @see ExternalSorter.java
+   @see BatchWriter.java
+   @see LineFilter.java
+   @see Deduplicator.java
+   @see Scrambler.java
+   @see ResultCache.java
+   @see DictionarySnapshot.java
+   @see LanguageGenerator.java
+   @see LanguageMap.java
+   @see Translator.java
    @see WordFinderGame.java
 
 */
@@ -186,14 +296,18 @@
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Scanner;
-import java.util.Random;
+import java.util.SplittableRandom;
 import java.util.Collections;
+import java.util.Collection;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Objects;
+import java.util.Set;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.io.FileReader;
 import java.io.FileNotFoundException;
-import java.io.PrintStream;
-import java.io.PrintWriter;
 import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
@@ -203,8 +317,19 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-public class Dictionary extends LinkedHashMap {
+public class Dictionary extends LinkedHashMap<String, String> {
    
    public final String DICTIONARY_NO_DEFS_FILE_NAME = "dictionary_no_defs.txt"; //276,643 words -- Collins 15th Edition Dictionary 2015
    public final String DICTIONARY_WITH_DEFS_FILE_NAME = "dictionary_defs.txt";
@@ -214,6 +339,41 @@ public class Dictionary extends LinkedHashMap {
    public final String VOWELS = "AEIOU"; //@@@NOTE: If you want 'Y' to be a vowel, this String needs to be changed. (add 'Y')
    public final String DIRECTORY_PATH = "C://Users/Peter/Desktop/UnclePedro/Work/teaching/cs/Java Files/Java Worksheets and Assignments/teacher";
    
+   public final int MIN_DESCRAMBLE_LENGTH = 2; //shortest word returned by descramble(..)
+   public final int DEFAULT_REP_LIMIT = 2;        //extra copies of letters descrambleReps(..) allows in all, by default
+   public final int DEFAULT_LETTER_REP_LIMIT = 2; //times descrambleReps(..) allows any one letter to be used, by default
+   
+   /**
+      The ways the words of a Dictionary can be held in memory
+      
+      MAP  -- the words are keys of the Dictionary's map (default)
+      DAWG -- the words are held in a minimized directed acyclic word graph, and the map is left empty. See WordGraph.java
+   */
+   public enum WordStoreType {
+      MAP, DAWG
+   }
+   
+   private WordStore wordStore;       //compact store holding the words in place of the map; null if the map holds the words
+   private DictionaryImage image;     //the memory-mapped image holding the words, if the Dictionary was loaded from one
+   //The indexes below are built from the words and dropped by changed() when the words change. They are volatile
+   //so that a Dictionary shared between threads never hands one thread an index another thread has half built
+   private volatile WordArena wordArena; //allocation-free hash set of the words used by isWord(..); built when the words are loaded
+   private Set<String> trackedKeys; //keySet(); removing a word through it calls changed()
+   private Collection<String> trackedValues; //values(); removing a definition through it calls changed()
+   private Set<Map.Entry<String, String>> trackedEntries; //entrySet(); removing or setting an entry through it calls changed()
+   private volatile AnagramIndex anagramIndex; //sorted-letter signature --> words; built when the words are loaded
+   private volatile LengthIndex lengthIndex; //words sorted by length, then alphabetically; built when the words are loaded
+   private volatile NGramIndex nGramIndex; //1-3 letter sequence --> words; built the first time a substring search needs it
+   private volatile DefinitionIndex definitionIndex; //term --> definitions, plus a hash of whole definitions; built on the first definition query
+   private DefinitionFile definitionFile; //where each definition is in the memory-mapped defs file; null if the map holds the definitions
+   private volatile BloomFilter bloomFilter; //optional negative check in front of isWord(..); null if not turned on
+   private volatile boolean bloomStale; //true once the map has changed since the Bloom filter was made; the filter is skipped
+   private volatile WordTrie wordTrie; //prefix trie of the words; built the first time a descramble needs it
+   private volatile ForkJoinPool descramblePool; //pool that descramble(..) splits its search across; null to search on the calling thread
+   private ForkJoinPool ownedPool;    //the descramble pool, if this Dictionary made it and so has to shut it down; else null
+   private volatile ResultCache resultCache; //cache of descramble(..) and descrambleReps(..) results by rack; null if it is off
+   private volatile PositionIndex positionIndex; //(length, position, letter) bitmaps; built the first time a fixed-length spec needs it
+   
    /**
       Create a dictionary and add all the words and definitions to it (note, Dictionary is a HashMap).
       NOTE: Default constructor adds words and definitions using the DICTIONARY_WITH_DEFS_FILE_NAME
@@ -227,6 +387,7 @@ public class Dictionary extends LinkedHashMap {
       addWordsAndDefs( scanner );
       
       NUM_WORDS = this.size();
+      buildIndexes();
    }
    
    /**
@@ -250,6 +411,41 @@ public class Dictionary extends LinkedHashMap {
       }
      
       NUM_WORDS = this.size();    
+      buildIndexes();
+   }
+   
+   /**
+      Create a dictionary and add all the words and definitions to it, or just the words, choosing where the
+      definitions are held.
+      
+      With mapDefs, the words are put into the map with no definitions, and the defs file is memory-mapped instead of
+      read. Only the offset and length of each definition are kept on the heap (about 2 MB more than a Dictionary of just
+      words, rather than the tens of MB taken by the definition Strings), and getDef(..) reads the definition out of the
+      mapped file, through a small cache of the most recently used definitions. Startup costs about the same as a
+      Dictionary of just words
+      
+      @param useDefs True --> add words and defs; False --> only add the words, no defs
+      @param mapDefs True --> leave the defs in the memory-mapped file; False --> hold the defs in the map. Ignored if
+                     useDefs is false
+      @see DefinitionFile
+      @see getDef( String word )
+   */
+   public Dictionary( boolean useDefs, boolean mapDefs ) {
+      ALPHABET_LIST = ENGLISH_ALPHABET_LIST;
+      if( useDefs && mapDefs ) {
+         definitionFile = new DefinitionFile( DICTIONARY_WITH_DEFS_FILE_NAME, DefinitionFile.DEFAULT_CACHE_SIZE );
+         for( int id = 0; id < definitionFile.size(); id++ )
+            super.put( definitionFile.getWord( id ), null );
+      } else if( useDefs ) {
+         Scanner scanner = getScanner( DICTIONARY_WITH_DEFS_FILE_NAME );
+         addWordsAndDefs( scanner );
+      } else {
+         Scanner scanner = getScanner( DICTIONARY_NO_DEFS_FILE_NAME );
+         addWords( scanner );
+      }
+      
+      NUM_WORDS = this.size();
+      buildIndexes();
    }
    
    /**
@@ -270,45 +466,477 @@ public class Dictionary extends LinkedHashMap {
          addWords( scanner );
       
       NUM_WORDS = this.size();
+      buildIndexes();
+   }
+   
+   /**
+      Create a dictionary of just words (no definitions), choosing how the words are held in memory.
+      
+      A WordStoreType of DAWG holds the words in a minimized word graph packed into primitive arrays, which takes under 2 MB
+      rather than the ~28 MB taken by the map. The map is left empty, so the Dictionary should only be used through its own
+      methods (isWord(..), descramble(..), getXLetterWords(..), etc.) and not through the methods of the map.
+      
+      @param storeType How the words should be held: MAP (the default) or DAWG
+      @see WordStoreType
+      @see WordGraph
+      @see getMemoryUsage()
+   */
+   public Dictionary( WordStoreType storeType ) {
+      Scanner scanner = getScanner( DICTIONARY_NO_DEFS_FILE_NAME );
+      ALPHABET_LIST = ENGLISH_ALPHABET_LIST;
+      
+      if( storeType == WordStoreType.DAWG ) {
+         ArrayList<String> list = new ArrayList<String>();
+         while( scanner.hasNextLine() )
+            list.add( scanner.nextLine() );
+         wordStore = new WordGraph( list );
+         NUM_WORDS = wordStore.size();
+      } else {
+         addWords( scanner );
+         NUM_WORDS = this.size();
+      }
+      
+      scanner.close();
+      buildIndexes();
+   }
+   
+   /**
+      Create a dictionary of just words (no definitions) from a binary image made by compileImage(..). The image is
+      memory-mapped rather than read, so this takes next to no time no matter how many words there are, and the pages of
+      the image are shared by every process that maps it.
+      
+      Like a DAWG Dictionary, the map is left empty, so the Dictionary should only be used through its own methods.
+      
+      @param imageFileName The binary image file to map
+      @see compileImage( String imageFileName )
+      @see DictionaryImage
+   */
+   public Dictionary( String imageFileName ) {
+      ALPHABET_LIST = ENGLISH_ALPHABET_LIST;
+      image = new DictionaryImage( imageFileName );
+      wordStore = image;
+      NUM_WORDS = wordStore.size();
+      
+      buildIndexes();
+   }
+   
+   /**
+      Put a word and its definition into the map. Like every change to the map, this drops the indexes built from the
+      old words (see changed()), unless the word was already in the map with the same definition
+      
+      @param word The word
+      @param def The definition of the word, or null
+      @return String The definition the word had before, or null
+   */
+   public String put( String word, String def ) {
+      int size = size();
+      String old = super.put( word, def );
+      changedIf( size, old, def );
+      return old;
+   }
+   
+   public void putAll( Map<? extends String, ? extends String> entries ) {
+      boolean changed = false;
+      for( Map.Entry<? extends String, ? extends String> entry : entries.entrySet() ) {
+         int size = size();
+         String old = super.put( entry.getKey(), entry.getValue() );
+         changed |= size != size() || !Objects.equals( old, entry.getValue() );
+      }
+      if( changed )
+         changed();
+   }
+   
+   public String putIfAbsent( String word, String def ) {
+      String before = super.get( word );
+      int size = size();
+      String old = super.putIfAbsent( word, def );
+      changedIf( size, before, super.get( word ) );
+      return old;
+   }
+   
+   /**
+      Remove a word from the map. Like every change to the map, this drops the indexes built from the old words (see
+      changed()), unless the word was not in the map
+      
+      @param word The word
+      @return String The definition the word had, or null
+   */
+   public String remove( Object word ) {
+      int size = size();
+      String old = super.remove( word );
+      if( size != size() )
+         changed();
+      return old;
+   }
+   
+   public boolean remove( Object word, Object def ) {
+      boolean removed = super.remove( word, def );
+      if( removed )
+         changed();
+      return removed;
+   }
+   
+   public String replace( String word, String def ) {
+      if( !containsKey( word ) )
+         return null;
+      String old = super.replace( word, def );
+      changedIf( size(), old, def );
+      return old;
+   }
+   
+   public boolean replace( String word, String oldDef, String newDef ) {
+      boolean replaced = super.replace( word, oldDef, newDef );
+      if( replaced && !Objects.equals( oldDef, newDef ) )
+         changed();
+      return replaced;
+   }
+   
+   public void replaceAll( final BiFunction<? super String, ? super String, ? extends String> function ) {
+      final boolean[] changed = new boolean[1];
+      super.replaceAll( new BiFunction<String, String, String>() {
+         public String apply( String word, String def ) {
+            String newDef = function.apply( word, def );
+            changed[0] |= !Objects.equals( def, newDef );
+            return newDef;
+         }
+      } );
+      if( changed[0] )
+         changed();
+   }
+   
+   public String compute( String word, BiFunction<? super String, ? super String, ? extends String> function ) {
+      String before = super.get( word );
+      int size = size();
+      String def = super.compute( word, function );
+      changedIf( size, before, def );
+      return def;
+   }
+   
+   public String computeIfAbsent( String word, Function<? super String, ? extends String> function ) {
+      String before = super.get( word );
+      int size = size();
+      String def = super.computeIfAbsent( word, function );
+      changedIf( size, before, super.get( word ) );
+      return def;
+   }
+   
+   public String computeIfPresent( String word, BiFunction<? super String, ? super String, ? extends String> function ) {
+      String before = super.get( word );
+      int size = size();
+      String def = super.computeIfPresent( word, function );
+      changedIf( size, before, super.get( word ) );
+      return def;
+   }
+   
+   public String merge( String word, String def, BiFunction<? super String, ? super String, ? extends String> function ) {
+      String before = super.get( word );
+      int size = size();
+      String merged = super.merge( word, def, function );
+      changedIf( size, before, merged );
+      return merged;
+   }
+   
+   public void clear() {
+      if( isEmpty() )
+         return;
+      super.clear();
+      changed();
+   }
+   
+   /**
+      Get the words of the map. Removing a word through the set (or its iterator) removes it from the map, and drops the
+      indexes built from the old words like remove(..) does
+      
+      @return Set<String> The words, in dictionary order
+   */
+   public Set<String> keySet() {
+      if( trackedKeys == null ) {
+         trackedKeys = new AbstractSet<String>() {
+            public Iterator<String> iterator() {
+               return trackedIterator( Dictionary.super.keySet().iterator() );
+            }
+            
+            public int size() {
+               return Dictionary.this.size();
+            }
+            
+            public boolean contains( Object word ) {
+               return containsKey( word );
+            }
+            
+            public boolean remove( Object word ) {
+               int size = Dictionary.this.size();
+               Dictionary.this.remove( word );
+               return size != Dictionary.this.size();
+            }
+            
+            public void clear() {
+               Dictionary.this.clear();
+            }
+         };
+      }
+      return trackedKeys;
+   }
+   
+   /**
+      Get the definitions of the map. Removing a definition through the collection (or its iterator) removes its word
+      from the map, and drops the indexes built from the old words like remove(..) does
+      
+      @return Collection<String> The definitions, in dictionary order
+   */
+   public Collection<String> values() {
+      if( trackedValues == null ) {
+         trackedValues = new AbstractCollection<String>() {
+            public Iterator<String> iterator() {
+               return trackedIterator( Dictionary.super.values().iterator() );
+            }
+            
+            public int size() {
+               return Dictionary.this.size();
+            }
+            
+            public boolean contains( Object def ) {
+               return containsValue( def );
+            }
+            
+            public void clear() {
+               Dictionary.this.clear();
+            }
+         };
+      }
+      return trackedValues;
+   }
+   
+   /**
+      Get the words and definitions of the map. Removing an entry through the set (or its iterator), or setting the
+      definition of an entry, changes the map and drops the indexes built from the old words like remove(..) and put(..) do
+      
+      @return Set<Map.Entry<String, String>> The words and their definitions, in dictionary order
+   */
+   public Set<Map.Entry<String, String>> entrySet() {
+      if( trackedEntries == null ) {
+         trackedEntries = new AbstractSet<Map.Entry<String, String>>() {
+            public Iterator<Map.Entry<String, String>> iterator() {
+               final Iterator<Map.Entry<String, String>> entries = trackedIterator( Dictionary.super.entrySet().iterator() );
+               return new Iterator<Map.Entry<String, String>>() {
+                  public boolean hasNext() {
+                     return entries.hasNext();
+                  }
+                  
+                  public Map.Entry<String, String> next() {
+                     return trackedEntry( entries.next() );
+                  }
+                  
+                  public void remove() {
+                     entries.remove();
+                  }
+               };
+            }
+            
+            public int size() {
+               return Dictionary.this.size();
+            }
+            
+            public boolean contains( Object o ) {
+               return Dictionary.super.entrySet().contains( o );
+            }
+            
+            public boolean remove( Object o ) {
+               if( !( o instanceof Map.Entry ) )
+                  return false;
+               Map.Entry<?, ?> entry = (Map.Entry<?, ?>)o;
+               return Dictionary.this.remove( entry.getKey(), entry.getValue() );
+            }
+            
+            public void clear() {
+               Dictionary.this.clear();
+            }
+         };
+      }
+      return trackedEntries;
+   }
+   
+   /**
+      Compile the words of this Dictionary into a binary image that can be loaded with Dictionary( String imageFileName ).
+      The image holds the sorted words, an offset table, a hash table for isWord(..), and the anagram index used by
+      descrambleAnagram(..). Definitions are not included
+      
+      @param imageFileName The binary image file to write. It is replaced if it already exists
+      @return int The number of words written
+      @see DictionaryImage.compile( Iterable<String> words, String fileName, boolean includeAnagrams )
+   */
+   public int compileImage( String imageFileName ) {
+      return DictionaryImage.compile( words(), imageFileName, true );
+   }
+   
+   /**
+      Gets the approximate number of bytes of heap used to hold the words of the Dictionary. For the map, this counts the
+      map's table, one entry per word, and the String (and its backing array) of each word. Definitions are not counted.
+      
+      Measured with the Collins dictionary (276,643 words, 64-bit JVM with compressed pointers):
+         MAP  -- about 28 MB (about 36 MB measured on the heap, with the anagram index)
+         DAWG -- about 1.8 MB (79,269 nodes, 190,279 edges)
+      
+      @return long The approximate heap usage in bytes
+      @see WordStore.getMemoryUsage()
+   */
+   public long getMemoryUsage() {
+      if( wordStore != null )
+         return wordStore.getMemoryUsage();
+      
+      final int ENTRY_SIZE = 40;  //LinkedHashMap.Entry: header, hash, key, value, next, before, after
+      final int STRING_SIZE = 24; //String: header, value, hash, coder, hashIsZero
+      final int ARRAY_HEADER = 16;
+      
+      long table = ARRAY_HEADER + 4L * Integer.highestOneBit( Math.max( NUM_WORDS, 1 ) * 4 / 3 ) * 2;
+      long total = table;
+      for( String word : words() )
+         total += ENTRY_SIZE + STRING_SIZE + ( ( ARRAY_HEADER + word.length() + 7 ) & ~7 );
+      
+      return total;
    }
    
    /**
-      Tells whether the given String is a word or not.
+      Tells whether the given String is a word or not. Case does not matter.
+      
+      For a map-backed Dictionary, the word is looked up in the word arena, which does not create any objects (the word
+      is not copied into uppercase first). Once the map has been changed by put(..), remove(..) or any other change to
+      its words, the arena is dropped and the word is looked up in the map itself.
+      
+      If the Bloom filter is on, it is checked first, and most non-words are turned away without a full lookup
       
       @param word The word to check and see if it is in the Dictionary or not
       @return boolean True if it is a word, false otherwise
-      @see containsKey( Key key )
+      @see BloomFilter.mightContain( CharSequence word )
+      @see WordArena.contains( CharSequence word )
+      @see WordStore.contains( CharSequence word )
    */
    public boolean isWord( String word ) {
-      return containsKey( word.toUpperCase() );
+      BloomFilter filter = bloomStale ? null : bloomFilter;
+      if( filter != null && !filter.mightContain( word ) )
+         return false;
+      
+      boolean result;
+      WordArena arena = wordArena;
+      if( wordStore != null )
+         result = wordStore.contains( word.toUpperCase() );
+      else if( arena != null )
+         result = arena.contains( word );
+      else
+         result = containsKey( word.toUpperCase() );
+      
+      if( !result && filter != null )
+         filter.recordFalsePositive();
+      
+      return result;
+   }
+   
+   /**
+      Tells whether the letters buf[off] to buf[off+len-1] are a word or not. Case does not matter.
+      
+      For a map-backed Dictionary whose words have not been changed since it was made, this does not create any objects,
+      so it can be called from loops that build candidate words in a reusable char[] buffer
+      
+      @param buf The array holding the letters
+      @param off The index of the first letter
+      @param len The number of letters
+      @return boolean True if it is a word, false otherwise
+      @see BloomFilter.mightContain( char[] buf, int off, int len )
+      @see WordArena.contains( char[] buf, int off, int len )
+   */
+   public boolean isWord( char[] buf, int off, int len ) {
+      BloomFilter filter = bloomStale ? null : bloomFilter;
+      if( filter != null && !filter.mightContain( buf, off, len ) )
+         return false;
+      
+      boolean result;
+      WordArena arena = wordArena;
+      if( wordStore != null )
+         result = wordStore.contains( new String( buf, off, len ).toUpperCase() );
+      else if( arena != null )
+         result = arena.contains( buf, off, len );
+      else
+         result = containsKey( new String( buf, off, len ).toUpperCase() );
+      
+      if( !result && filter != null )
+         filter.recordFalsePositive();
+      
+      return result;
+   }
+   
+   /**
+      Turn on a Bloom filter in front of isWord(..). The filter is sized from the number of words so that about the given fraction of
+      non-words get past it to a full lookup; every other non-word is turned away after checking a single cache line.
+      The filter is worth turning on when most of the Strings checked are not words, as when filtering candidates.
+      
+      If the words of the map are changed after the filter is made, the filter is skipped (and counts nothing more) until
+      it is turned on again.
+      
+      @param falsePositiveRate The fraction of non-words that should get past the filter eg. 0.01 for 1%
+      @see BloomFilter
+      @see getBloomFilter()
+   */
+   public void enableBloomFilter( double falsePositiveRate ) {
+      BloomFilter filter = new BloomFilter( numWords(), falsePositiveRate );
+      for( String word : words() )
+         filter.add( word );
+      
+      bloomFilter = filter;
+      bloomStale = false;
+   }
+   
+   /**
+      Turn off the Bloom filter in front of isWord(..)
+   */
+   public void disableBloomFilter() {
+      bloomFilter = null;
+   }
+   
+   /**
+      Gets the Bloom filter in front of isWord(..), which holds the counts of queries, rejections, and false positives
+      
+      @return BloomFilter The filter, or null if it is not turned on
+      @see enableBloomFilter( double falsePositiveRate )
+   */
+   public BloomFilter getBloomFilter() {
+      return bloomFilter;
    }
    
    /**
-      Tells whether the given String is a definition of a word in the dictionary or not
+      Tells whether the given String is a definition of a word in the dictionary or not. The definition is looked up in
+      a hash table of all the definitions, built the first time a definition is looked for
       
       @param def The definition to check and see if it is associated with a word. Note: The given definition must be
                  exactly equal to the definition in the dictionary in order for this to return true
       @return boolean True if it is a definition, false otherwise
-      @see containsValue( Value value )
+      @see DefinitionIndex.containsDef( String def )
    */
    public boolean isDef( String def ) {
-      return containsValue( def );
+      if( def == null )
+         return definitionFile == null && containsValue( null );
+      
+      return getDefinitionIndex().containsDef( def );
    }
    
    /**
       Returns the definition associated with the word given. If the word is not in the dictionary,
-      "That's not a word!" is returned.
+      "That's not a word!" is returned. If the definitions were left in the defs file, the definition is read from the
+      mapped file (or its cache) unless one has since been put into the map
       
       @param word The word to get the definition of
       @return String The definition of the word if it is in the dictionary, or the String "That's not a word!"
       @see HashMap.get( Key key )
+      @see DefinitionFile.getDef( CharSequence word )
    */
    public String getDef( String word ) {
       word = word.toUpperCase();
-      if( isWord( word ) )
-         return (String)this.get( word );
-      else
+      if( !isWord( word ) )
          return "That's not a word!";
+      
+      String def = this.get( word );
+      if( def == null && definitionFile != null )
+         def = definitionFile.getDef( word );
+      return def;
    }
    
    /**
@@ -366,26 +994,52 @@ public class Dictionary extends LinkedHashMap {
    }
    
    /**
-      Create a dictionary filled with words of a new language. These new words are randomized using the processNewWord(..) method that is dependent
-      upon the LanguageSpecs for that language. Each word added is unique
+      Create a dictionary filled with words of a new language. These new words are randomized according to the LanguageSpecs
+      for that language, and each word added is unique. A different language is made each time
       
       @param specs The specs of the new language, including details on randomization, randomization length, randomization buffer, and the details on the letters of the alphabet
       @param fileName The file to be written to
-      @return Dictionary A HashMap Dictionary object containing all of the words in the new language, which have been translated from the original language
-   */
-   public void makeLanguage( LanguageSpecs specs, String fileName ) {
-      LinkedHashMap<String, String> dict = this;
-      LinkedHashMap<String, String> newDict = new LinkedHashMap<String, String>(); //I don't understand why I have to do this instead of just calling this.keySet() below
-      for( String word : dict.keySet() ) {
-         String newWord = processNewWord( specs, word );
-         //no repeated words
-         while( newDict.get(newWord) != null ) {
-            newWord = processNewWord( specs, word );
-         }
-         newDict.put( newWord, null );
-      }
+      @return LanguageMap The pairs of English and new words
+      @throws IllegalArgumentException If the alphabet of the specs is too small to make room for the words by adding letters
+      @throws IllegalStateException If some word could not be given a new word that is not already taken
+      @see makeLanguage( LanguageSpecs specs, String fileName, long seed )
+   */
+   public LanguageMap makeLanguage( LanguageSpecs specs, String fileName ) {
+      return makeLanguage( specs, fileName, new SplittableRandom().nextLong() );
+   }
+   
+   /**
+      Create a dictionary filled with words of a new language, one for each word of this Dictionary, in the same order. Each
+      word added is unique. The same seed always makes the same language, no matter how many threads make it.
+      
+      The words are made in parallel on the common ForkJoinPool, each English word with its own random stream, and words
+      that collide are made again in rounds until every word has one of its own. Before any word is made, the alphabet is
+      checked for room, and where the lengths the specs allow are too crowded, the longest English words are given more
+      letters.
+      
+      The English word of each new word is returned in a LanguageMap, which can be saved with LanguageMap.save(..) and
+      used by a Translator to rewrite whole text files into the new language and back
+      
+      @param specs The specs of the new language
+      @param fileName The file to be written to
+      @param seed The seed of the language
+      @return LanguageMap The pairs of English and new words
+      @throws IllegalArgumentException If the alphabet of the specs is too small to make room for the words by adding letters
+      @throws IllegalStateException If some word could not be given a new word that is not already taken
+      @see LanguageGenerator
+      @see LanguageMap
+      @see Translator
+   */
+   public LanguageMap makeLanguage( LanguageSpecs specs, String fileName, long seed ) {
+      ArrayList<String> english = new ArrayList<String>( NUM_WORDS );
+      for( String word : words() )
+         english.add( word );
       
-      write( newDict, fileName );
+      String[] englishWords = english.toArray( new String[ english.size() ] );
+      String[] newWords = new LanguageGenerator( specs, seed ).generate( englishWords, ForkJoinPool.commonPool() );
+      
+      write( newWords, fileName );
+      return new LanguageMap( englishWords, newWords );
    }
    
    /**
@@ -396,42 +1050,10 @@ public class Dictionary extends LinkedHashMap {
     * @param word The word to be translated into a new word
     * @return String The word in the new language
     * @see makeLanguage( Language specs )
+    * @see LanguageGenerator.newWord( LanguageSpecs specs, int englishLength, SplittableRandom random )
     */
    public String processNewWord( LanguageSpecs specs, String word ) {
-      int engWordLength = word.length();
-      int newWordNumLetterSets = 0;
-      Random random = new Random();
-      
-      if( specs.MATCH_LENGTH ) {
-         /* Since letters in another language might be multiple characters, divide by average letter length to approximate the correct number of
-            characters for the new word in the new language
-         */
-         newWordNumLetterSets = engWordLength / specs.AVG_LETTER_LENGTH;
-         if( specs.RANDOMIZE_LENGTH ) {
-            /* The line below randomly adds a number within the range of the approximate length buffer. The number can be negative
-               or positive, depending on the randomization. A line below assures that it will not be a set less than the
-               MIN_RANDOMIZATION_LENGTH or longer than the MAX_RANDOMIZATION_LENGTH
-            */
-            newWordNumLetterSets += ( Math.pow(-1, random.nextInt(2) + 1 ) ) * random.nextInt( specs.APPROX_LENGTH_BUFFER );
-            if( newWordNumLetterSets > specs.MAX_RANDOMIZATION_LENGTH )
-               newWordNumLetterSets = specs.MAX_RANDOMIZATION_LENGTH;
-            else if( newWordNumLetterSets < specs.MIN_RANDOMIZATION_LENGTH )
-               newWordNumLetterSets = specs.MIN_RANDOMIZATION_LENGTH;
-         }
-      } else {
-         // Set the number of letters to be equal to some number inbetween the max and min randomization range
-         newWordNumLetterSets += random.nextInt( specs.MAX_RANDOMIZATION_LENGTH - specs.MIN_RANDOMIZATION_LENGTH + 1 ) + specs.MIN_RANDOMIZATION_LENGTH;
-      }
-      
-      String newWord = "";
-      int newAlphabetLength = specs.ALPHABET.length;
-      
-      //Put together random letters from the new alphabet to make the new word
-      for( int i = 0; i < newWordNumLetterSets; i++ ) {
-         newWord += specs.ALPHABET[ random.nextInt( newAlphabetLength ) ];
-      }
-      
-      return newWord;
+      return LanguageGenerator.newWord( specs, word.length(), new SplittableRandom() );
    }
    
    /**
@@ -450,7 +1072,7 @@ public class Dictionary extends LinkedHashMap {
       orders the file in sets of same length words, and alphabetizes each set of length words.
       
       @param str The array of characters to be parsed and processed
-      @return boolean True if there are 2 or less '?'s and the method is successful, false otherwise
+      @return boolean True if the method is successful, false otherwise
       @see descramble( String[] str, String fileName )
    */
    public boolean descramble( char[] str, String fileName ) {
@@ -479,7 +1101,7 @@ public class Dictionary extends LinkedHashMap {
       
       @param str The String of letters to be parsed and processed
       @param fileName The text file to be processed
-      @return boolean True if there are 2 or less '?'s and the method is successful, false otherwise
+      @return boolean True if the method is successful, false otherwise
       @see descramble( String[] str, String fileName )
    */
    public boolean descramble( String str, String fileName ) {
@@ -492,175 +1114,178 @@ public class Dictionary extends LinkedHashMap {
    }
    
    /**
-      Given a set of letters, finds all the possible words that this set can make, and returns them in a list of Strings
+      Given a set of letters, finds all the possible words that this set can make, and returns them in a list of Strings.
+      Each '?' is a blank that can stand in for any letter, and any number of blanks can be given.
+      
+      The words are found by walking the word trie while spending the letters, so no String is ever built that is not
+      a word, and there is no limit on the number of letters. Each word is found once, in alphabetical order. If parallel
+      descrambling is on, the search is split across the threads of its pool, and the words come out in the same order.
+      If the result cache is on, a rack that has been descrambled before (in any order) is answered from the cache
       
       @param str The list of letters to process-- Each element should be one letter long
       @return String[] The list of words that can be found by rearrangement and removal
-      @see scramble( String[] str )
-      @see shrinkArray( String[] list, int actualSize )
+      @see WordTrie.descramble( String letters, int minLength )
+      @see enableParallelDescramble( ForkJoinPool pool )
+      @see enableResultCache( int maxEntries, long maxBytes )
    */
    public String[] descramble( String[] str ) {
-      for( int i = 0; i < str.length; i++ )
+      StringBuilder letters = new StringBuilder();
+      for( int i = 0; i < str.length; i++ ) {
          str[i] = str[i].toUpperCase();
-   
-      String[] list = scramble( str );
-   
-      return descrambleMain( list );
+         letters.append( str[i] );
+      }
+      
+      final String rack = letters.toString();
+      ResultCache cache = resultCache;
+      if( cache != null )
+         return cache.get( ResultCache.key( "DESCRAMBLE", rack, MIN_DESCRAMBLE_LENGTH ), new Supplier<String[]>() {
+            public String[] get() {
+               return descrambleRack( rack );
+            }
+         } );
+      
+      return descrambleRack( rack );
    }
    
    /**
-      Determines which tokens are words from the list and returns a list with just those words
+      Make a frozen copy of the words and definitions of the Dictionary, with every index built up front, that any number
+      of threads can query at once without a lock. Later changes to the Dictionary do not change the snapshot. To update a
+      server's words, build the next snapshot (see DictionarySnapshot.withWords(..)) and swap it in with a
+      DictionarySnapshot.Holder
       
-      @param list The list of tokens to process
-      @return String[] The list of words
-      @see isWord( String word )
-      @see descramble( String[] str )
-      @see descrambleReg( String[] str, String fileName )
-      @see descrambleVar( String[] str, String fileName )
-   */
-   private String[] descrambleMain( String[] list ) {
-      String[] words = new String[ list.length ];
-      int count = 0;
-      for( int i = 0; i < list.length; i++ ) {
-         if( isWord( list[i] ) ) {
-            words[ count ] = list[i];
-            count++;
-         }
+      @return DictionarySnapshot The snapshot
+      @see DictionarySnapshot
+   */
+   public DictionarySnapshot snapshot() {
+      if( wordStore != null ) {
+         ArrayList<String> wordList = new ArrayList<String>( NUM_WORDS );
+         for( String word : wordStore )
+            wordList.add( word );
+         return new DictionarySnapshot( wordList.toArray( new String[ wordList.size() ] ), null, VOWELS );
       }
       
-      words = shrinkArray( words, count );
-      
-      return words;
+      String[] wordList = new String[ this.size() ];
+      String[] defList = new String[ this.size() ];
+      boolean anyDefs = readEntries( wordList, defList );
+      if( definitionFile != null )
+         return new DictionarySnapshot( wordList, defList, definitionFile, VOWELS );
+      return new DictionarySnapshot( wordList, anyDefs ? defList : null, VOWELS );
    }
    
    /**
-      Given a set of letters, finds all the possible words that this set can make, removes the duplicates,
-      orders the file in sets of same length words, and alphabetizes each set of length words.
+      Turn on parallel descrambling: descramble(..) splits its search of the word trie into a task per branch near the
+      root, runs the tasks on the given pool, and joins their words back together in alphabetical order. The output does
+      not depend on the number of threads
       
-      @param str The list of letters to process-- Each element should be one letter long
-      @return boolean True if there are 2 or less '?'s and the method is successful, false otherwise
-      @see scramble( String[] str )
-      @see shrinkArray( String[] list, int actualSize )
-      @see write( String[] list, String fileName )
-      @see removeDuplicates( String fileName )
-      @see orderIncreasing( String fileName )
-      @see alphabetizeSets( String fileName )
+      The pool belongs to the caller, and is not shut down by this Dictionary. If a pool made by
+      enableParallelDescramble( int parallelism ) was in use, that pool is shut down
+      
+      @param pool The pool to run descrambles on, eg. ForkJoinPool.commonPool(), or a pool made for the purpose
+      @see WordTrie.descramble( String letters, int minLength, ForkJoinPool pool )
+      @see disableParallelDescramble()
    */
-   public boolean descramble( String[] str, String fileName ) {
-      if( !fileName.contains(".txt") )
-         fileName += ".txt";
+   public void enableParallelDescramble( ForkJoinPool pool ) {
+      usePool( pool, null );
+   }
    
-      boolean containsVariable = false;
-      int count = 0;
-      int index = -1;
-      int index2 = -1;
-      for( int i = 0; i < str.length; i++ ) {
-         str[i] = str[i].toUpperCase();
-         if( str[i].equals("?") && count == 0 ) {
-            containsVariable = true;
-            index = i;
-            count++;
-         } else if ( str[i].equals("?") && count == 1 ) {
-            index2 = i;
-            count++;
-         } else if ( str[i].equals("?") && count > 1 ) {
-            return false;
-         }
-      }
+   /**
+      Turn on parallel descrambling on a new pool of the given number of threads. The pool belongs to this Dictionary,
+      and is shut down when parallel descrambling is turned off or another pool takes its place
       
-      if( !containsVariable )
-         descrambleReg( str, fileName );
-      else
-         descrambleVar( str, fileName, index, index2 );
-   
-      return true;
+      @param parallelism The number of threads
+      @see enableParallelDescramble( ForkJoinPool pool )
+   */
+   public void enableParallelDescramble( int parallelism ) {
+      ForkJoinPool pool = new ForkJoinPool( parallelism );
+      usePool( pool, pool );
    }
    
    /**
-      Given a set of letters, finds all the possible words that this set can make, removes the duplicates,
-      orders the file in sets of same length words, and alphabetizes each set of length words.
+      Turn off parallel descrambling, so descramble(..) searches on the calling thread. A pool given to
+      enableParallelDescramble( ForkJoinPool pool ) is not shut down; one made by enableParallelDescramble( int parallelism )
+      is, once the descrambles running on it finish
       
-      @param str The list of letters to process-- Each element should be one letter long
-      @return String[] The list of words that can be found by rearrangement and removal
-      @see scramble( String[] str )
-      @see shrinkArray( String[] list, int actualSize )
-      @see write( String[] list, String fileName )
-      @see removeDuplicates( String fileName )
-      @see orderIncreasing( String fileName )
-      @see alphabetizeSets( String fileName )
+      @see enableParallelDescramble( ForkJoinPool pool )
    */
-   private void descrambleReg( String[] str, String fileName ) {
-      String[] list = scramble( str );
-      
-      String[] words = descrambleMain( list );
-      
-      write( words, fileName );
-      
-      this.removeDuplicates( fileName );
-      this.orderIncreasing( fileName );
-      this.alphabetizeSets( fileName );
+   public void disableParallelDescramble() {
+      usePool( null, null );
    }
    
    /**
-      Given a set of letters, finds all the possible words that this set can make, removes the duplicates,
-      orders the file in sets of same length words, and alphabetizes each set of length words. If a '?' is included with
-      this set of letters, this is a variable that can be any letter. Thus, all 26 possibilities will be assessed and added
+      Switch descramble(..) to a new pool, shutting down the old one if this Dictionary made it. Descrambles already
+      running on the old pool finish there, since shutdown() lets submitted tasks complete
       
-      Note that two variables is O(n!*(n^3)*(26^2)) (yikes!) -- Thus, for one variable, the total number of allowed letters
-      to descramble (including the variable) is 10 letters still (approx. 3.6b * 26 = 94b ~approx 260 sec = 4 minutes and change)
-      The max number of allowed letters for two variables is 7 letters ( 5 seconds ), since 8 letters is more than 20 minutes of computation time
-      
-      @param str The list of letters to process-- Each element should be one letter long
-      @return String[] The list of words that can be found by rearrangement and removal
-      @see addArray( ArrayList<String> arrayList, String[] list )
-      @see scramble( String[] str )
-      @see shrinkArray( String[] list, int actualSize )
-      @see write( String[] list, String fileName )
-      @see removeDuplicates( String fileName )
-      @see orderIncreasing( String fileName )
-      @see alphabetizeSets( String fileName )
-   */
-   private void descrambleVar( String[] str, String fileName, int varIndex1, int varIndex2 ) {
-      ArrayList<String> varLists = new ArrayList<String>();
-      String[] list = new String[ fact( str.length ) ];
-      
-      // Max allowed letters with 1 variable: 10 letters (4 mins)
-      //                          2 varaibles: 8 letters (8 mins)
-      if( varIndex2 == -1 )
-         if( str.length > 10 )
-            return;
-         else
-            if( str.length > 9 )
-               return;
-      
-      // If varIndex == -1, then there is just 1 variable. Otherwise, there are two variables
-      if( varIndex2 == -1 ) {
-         for( int i = 0; i < ALPHABET_LIST.length; i++ ) {
-            str[ varIndex1 ] = ALPHABET_LIST[i];
-            list = scramble( str );
-            varLists = addArray( varLists, list );
-         }
-      } else {
-         for( int i = 0; i < ALPHABET_LIST.length; i++ ) {
-            str[ varIndex1 ] = ALPHABET_LIST[i];
-            for( int j = 0; j < ALPHABET_LIST.length; j++ ) {
-               str[ varIndex2 ] = ALPHABET_LIST[j];
-               list = scramble( str );
-               varLists = addArray( varLists, list );
-            }
-         }
-      }
+      @param pool The pool to run descrambles on, or null to search on the calling thread
+      @param owned The same pool if this Dictionary made it, else null
+   */
+   private synchronized void usePool( ForkJoinPool pool, ForkJoinPool owned ) {
+      ForkJoinPool old = ownedPool;
+      descramblePool = pool;
+      ownedPool = owned;
+      if( old != null && old != owned )
+         old.shutdown();
+   }
+   
+   /**
+      Turn on a result cache with the default bounds
       
-      Object[] objArray = varLists.toArray();
-      String[] varListArray = Arrays.copyOf( objArray, objArray.length, String[].class);
+      @see enableResultCache( int maxEntries, long maxBytes )
+   */
+   public void enableResultCache() {
+      resultCache = new ResultCache();
+   }
+   
+   /**
+      Turn on a cache of the results of descramble(..) and descrambleReps(..). Racks are keyed by their sorted letters,
+      so the same letters in a different order are answered from the cache. Concurrent calls with the same rack are
+      computed once. The least valuable results are evicted to keep within the bounds
       
-      String[] words = descrambleMain( varListArray );
+      @param maxEntries The most results to hold
+      @param maxBytes The most heap (approximately) for the results to take up
+      @throws IllegalArgumentException If either bound is not positive
+      @see ResultCache
+      @see getResultCache()
+   */
+   public void enableResultCache( int maxEntries, long maxBytes ) {
+      resultCache = new ResultCache( maxEntries, maxBytes );
+   }
+   
+   /**
+      Turn off the result cache, dropping the results it holds
+   */
+   public void disableResultCache() {
+      resultCache = null;
+   }
+   
+   /**
+      Get the result cache, which holds the counts of hits, misses, shared waits and evictions
       
-      write( words, fileName );
+      @return ResultCache The cache, or null if it is not turned on
+      @see enableResultCache( int maxEntries, long maxBytes )
+   */
+   public ResultCache getResultCache() {
+      return resultCache;
+   }
+   
+   /**
+      Given a set of letters, finds all the possible words that this set can make, removes the duplicates,
+      orders the file in sets of same length words, and alphabetizes each set of length words. Each '?' is a blank
+      that can stand in for any letter, and any number of blanks can be given.
+      
+      The words are cleaned up and ordered in memory, and the file is written once
       
-      this.removeDuplicates( fileName );
-      this.orderIncreasing( fileName ); 
-      this.alphabetizeSets( fileName );
+      @param str The list of letters to process-- Each element should be one letter long
+      @param fileName The text file to write the words to
+      @return boolean True if the method is successful, false otherwise
+      @see descramble( String[] str )
+      @see ResultPipeline
+   */
+   public boolean descramble( String[] str, String fileName ) {
+      String[] words = descramble( str );
+      
+      new ResultPipeline( words ).removeDuplicates().orderIncreasing().alphabetizeSets().write( fileName );
+   
+      return true;
    }
    
    /**
@@ -696,7 +1321,8 @@ public class Dictionary extends LinkedHashMap {
       
       @param str The list of letters to process-- Each element should be one letter long
       @return String[] The list of all permutations of all subsets
-      @see descrambleSubsets( String[] str )
+      @see Scrambler
+      @see scrambleStream( String str, int minLength, int maxLength )
    */
    public String[] scramble( String[] str ) {
       //This computer (Lenovo y510P) runs on 2.4GHz --> approx 2.4 billion computations/sec
@@ -706,8 +1332,6 @@ public class Dictionary extends LinkedHashMap {
       //                      2 variables --> 8  --> ?? (more than 20 minutes) cycles
       //                                      7  --> ?? -- 5 seconds
       /*
-         Variable limits are handled in descrambleVar(..) method
-      
          Note that two variables is O(n!*(n^3)*(26^2)) (yikes!) -- Thus, for one variable, the total number of allowed letters
          to descramble (including the variable) is 10 letters still (approx. 3.6b * 26 = 94b ~approx 260 sec = 4 minutes and change)
          The max number of allowed letters for two variables is 8 letters (13b) ~approx 40 sec, or 9 letters (178b) ~approx 8 minutes
@@ -718,46 +1342,108 @@ public class Dictionary extends LinkedHashMap {
       if( size > MAX_COMPUTATIONAL_LIMIT || size < 2 )
          return str;
       
-      ArrayList<String> result = descrambleSubsets( str );
-      Object[] objArray = result.toArray();
+      ArrayList<String> result = new ArrayList<String>();
+      for( Iterator<String> scrambles = new Scrambler( str, 2, size ); scrambles.hasNext(); )
+         result.add( scrambles.next() );
+      
+      return result.toArray( new String[ result.size() ] );
+   }
+   
+   /**
+      Get all permutations of all subsets of a String of letters as a lazy Stream. Each scramble is built only when the
+      stream asks for it, so limit(..), findFirst() and the like stop the work as soon as they have what they need, and
+      there is no cap on the number of letters
+      
+      @param str The String of letters to be processed
+      @return Stream<String> The permutations of all subsets of two or more letters, in the order of scramble( str )
+      @see scrambleStream( String str, int minLength, int maxLength )
+   */
+   public Stream<String> scrambleStream( String str ) {
+      return scrambleStream( str, 2, str.length() );
+   }
+   
+   /**
+      Get the permutations of the subsets of a String of letters that have a given range of lengths, as a lazy Stream.
+      Subsets outside the range are skipped without being permuted
+      
+      @param str The String of letters to be processed
+      @param minLength The fewest letters in a scramble
+      @param maxLength The most letters in a scramble
+      @return Stream<String> The scrambles, in the order of scramble( str )
+      @throws IllegalArgumentException If there are more than Scrambler.MAX_LETTERS letters
+      @see Scrambler
+   */
+   public Stream<String> scrambleStream( String str, int minLength, int maxLength ) {
+      String[] listOfLetters = new String[ str.length() ];
+      for( int i = 0; i < listOfLetters.length; i++ )
+         listOfLetters[i] = String.valueOf( str.charAt(i) );
+      
+      return stream( new Scrambler( listOfLetters, minLength, maxLength ) );
+   }
+   
+   /**
+      Get all the words that can be made from a String of letters as a lazy Stream, in alphabetical order. The word trie
+      is only walked as far as the next word each time the stream asks for one, so limit(..) and findFirst() end the
+      search early. Any number of '?' blanks may be used
       
-      String[] strArray = Arrays.copyOf( objArray, objArray.length, String[].class);
+      eg. descrambleStream( "retains??" ).limit( 50 ) walks only the part of the trie that holds the first 50 words
       
-      return strArray;
+      @param str The letters to descramble
+      @return Stream<String> The words, in the order of descramble( str )
+      @see descrambleStream( String str, int minLength, int maxLength )
+   */
+   public Stream<String> descrambleStream( String str ) {
+      return descrambleStream( str, MIN_DESCRAMBLE_LENGTH, Integer.MAX_VALUE );
+   }
+   
+   /**
+      Get the words of a given range of lengths that can be made from a String of letters, as a lazy Stream in alphabetical
+      order. No branch of the word trie deeper than maxLength is walked
+      
+      @param str The letters to descramble
+      @param minLength The shortest word to include
+      @param maxLength The longest word to include
+      @return Stream<String> The words
+      @see WordTrie.descrambleIterator( String letters, int minLength, int maxLength )
+   */
+   public Stream<String> descrambleStream( String str, int minLength, int maxLength ) {
+      return stream( getWordTrie().descrambleIterator( str, minLength, maxLength ) );
+   }
+   
+   /**
+      Get the anagrams of a String as a Stream. The anagrams are a single lookup in the anagram index, so there is
+      nothing to gain from finding them lazily; this is for callers that work with the other descramble streams
+      
+      @param str The String to find the anagrams of
+      @return Stream<String> The anagrams, in the order of descrambleAnagram( str )
+      @see descrambleAnagram( String str )
+   */
+   public Stream<String> descrambleAnagramStream( String str ) {
+      return Arrays.stream( descrambleAnagram( str ) );
    }
    
    /**
       Given a String which presumably contains a list of jumbled letters, finds all of the
       descrambled words that can be found using all letters of that word.
       
-      eg. descrambleAnagram( "dpiswbree" ) yields "spiderweb"
-      eg. descrambleAnagram( "rstlnea" ) yields "rentals", "sternal", "slanter", "saltern", and "antlers"
+      eg. descrambleAnagram( "dpiswbree" ) yields "SPIDERWEB"
+      eg. descrambleAnagram( "rstlnea" ) yields "ANTLERS", "RENTALS", "SALTERN", "SLANTER", and "STERNAL"
       eg. descrambleAnagram( "zxcvbnm" ) yields <nothing>
       
+      The words are looked up by their sorted-letter signature in the anagram index, so this is a single hash probe
+      no matter how many letters are given. The words are returned as they appear in the dictionary (uppercase), in
+      dictionary order
+      
       @param str The String to find the anagrams of
       @return String[] The list of descrambled anagram words
-      @see descramblePermutations( String prefix, String token, ArrayList<String> list )
-      @see removeDuplicates( ArrayList<?> list )
+      @see AnagramIndex.getAnagrams( String letters )
+      @see DictionaryImage.getAnagrams( String letters )
    */
    public String[] descrambleAnagram( String str ) {
+      if( image != null && image.hasAnagrams() )
+         return image.getAnagrams( str );
       
-      ArrayList<String> result = descramblePermutations( "", str, new ArrayList<String>() );
-      int sizeList = result.size();
-      ArrayList<String> words = new ArrayList<String>();
-      
-      //just add Strings that are words in the dct
-      for( int i = 0; i < sizeList; i++ ) {
-         if( this.isWord( result.get(i) ) )
-            words.add( result.get(i) );
-      }
-      
-      words = (ArrayList<String>)removeDuplicates( words );
-      
-      Object[] objArray = words.toArray();
-      
-      String[] strArray = Arrays.copyOf( objArray, objArray.length, String[].class);
-      
-      return strArray;
+      return getAnagramIndex().getAnagrams( str );
    }
    
    /**
@@ -765,328 +1451,64 @@ public class Dictionary extends LinkedHashMap {
       descrambled words that can be found using all letters of that word, allowing for
       repetition of letters that are found in the word
       
-      A limit must be made on the number of repetitions within the word due to the issue of
-      permutations creating an intractable problem. The descramble functions operate on an
-      order close to O(n^2) at worst, whereas this function results in a complexity of
-      O(n^2)*O(a^b), where a is the average number of repetitions per letter, and b is the
-      number of letters in the word.
-      
-      The descramble functions operate within a fraction of a second. At a cap of 7 letters
-      descrambled with repetitions, we get the following operating times based on the max
-      limits for repetitions per letter:
-      
-      2: 7^2 * 2^7 = ~627.2 to 6272 seconds [10 minutes to 100 minutes]
-      3: 7^2 * 3^7 = ~10,716.3 to 107,163 seconds [2.9 hrs to 29 hours]
-      ...
-      
-      In order to decrease these computational times, further reductions within the synthesis
-      are necessary, such as setting restrictions on the repetitions of vowels and/or common
-      consonants, and intraprocess checking
-      
-      Thus, a limit is set in order to reduce the load on the heap space. A limit of total
-      additional reps is set per word, so the total repeated letters reduces the total
-      permutations that are checked for finding words. Here is a chart of the adjusted
-      times, considering factors such as word length, total repeats allowed per letter, and
-      total allowed repeats in general:
-      
-      Word Length | Letter Repeats Max | Total Repeats Max | Average Computational Time
-      ---------------------------------------------------------------------------------
-            3     |        1           |        1          |            0ms
-            4     |        1           |        1          |            1ms
-            5     |        1           |        1          |            2ms
-            6     |        1           |        1          |            7ms
-            7     |        1           |        1          |            12ms
-            8     |        1           |        1          |            31ms
-            9     |        1           |        1          |            241ms
-            10    |        1           |        1          |            2s
-            11    |        1           |        1          |            21s
-      ---------------------------------------------------------------------------------
-            3     |        1           |        2          |            27ms
-            4     |        1           |        2          |            33ms
-            5     |        1           |        2          |            519ms
-            6     |        1           |        2          |            49s
-      ---------------------------------------------------------------------------------
-            3     |        1           |        3          |            27ms
-            4     |        1           |        3          |            33ms
-            5     |        1           |        3          |            519ms
-            6     |        1           |        3          |            49s
-      ---------------------------------------------------------------------------------
+      Every letter of the String must be used, and each may be used again, up to two times per
+      letter (or more, if the String already has more), with at most totalRepLimit copies in all
+      beyond the letters given. The words are found by walking the word trie with a budget of
+      repeats, so each word is found once, with no rack of repeated letters ever being built:
+      a 10 letter String with a generous limit is descrambled in a few milliseconds
+      
+      eg. descrambleReps( "lob", 1 ) yields "BOLL", "LOBO" (among others)
       
       @param str The String to find the anagrams of. Does not need to contain repeat letters. The
-             function will add the additional repeated letters on a permutative basis
-      @param totalRepLimit The max allowed count of repeated letters to permutate
-      @return String[] The list of descrambled anagram words
-      @see descrambleAnagram( String str )
-      @see REP_LIMIT The limit to the total number of allowed repeated letters
-      @see removeReps( String str )
-      @see BaseChain.numNonZero()
-      @see BaseChain.add()
-      @see Arrays.copyOf(...)
+             function will add the additional repeated letters
+      @param totalRepLimit The max allowed count of repeated letters, in total
+      @return String[] The list of descrambled anagram words, in alphabetical order
+      @see descrambleReps( String str, int maxLetterReps, int totalRepLimit )
    */
    public String[] descrambleReps( String str, int totalRepLimit ) {
-      final int BASE = 2;
-      final int CHAR_REP_LIMIT = totalRepLimit;
-      final int FULL = -1; //@see BaseChain.numNonZero()
-   
-      //@@DEBUG
-      long beginTime = System.currentTimeMillis();
-   
-      String strNoReps = removeReps( str );
-      char[] charList = strNoReps.toCharArray();
-      ArrayList<String> masterList = new ArrayList<String>();
-      
-      int length = strNoReps.length();
-      BaseChain bc = new BaseChain( BASE, length, CHAR_REP_LIMIT );
-      int[] chain = new int[ length ];
-      //check all permutations of repeated characters
-      for( int i = 0; bc.numNonZero() != FULL; i++ ) {
-         String newStr = "";
-         //iterate through all letters of word
-         for( int j = 0; j < length; j++ ) {
-            //iterate through all reps of each letter
-            for( int k = 0; k <= chain[j]; k++ ) {
-               newStr += Character.toString( charList[j] );
-            }
-         }
-         String[] wordList = descrambleAnagram( newStr );
-         masterList.addAll( Arrays.asList( wordList ) );
-         chain = bc.add();
-      }
-      
-      masterList = (ArrayList<String>)removeDuplicates( masterList );
+      return descrambleReps( str, DEFAULT_LETTER_REP_LIMIT, totalRepLimit );
+   }
+   
+   /**
+      Given a String of jumbled letters, finds all of the descrambled words that use all of the
+      letters, where each letter may be repeated up to maxLetterReps times (or as many times as
+      the String has it, if that is more), with at most totalRepLimit copies in all beyond the
+      letters given
       
-      Object[] objArray = masterList.toArray();
+      eg. descrambleReps( "lob", 2, 2 ) yields "BOBOL" (among others), but descrambleReps( "lob", 2, 1 ) does not
       
-      String[] strArray = Arrays.copyOf( objArray, objArray.length, String[].class);
+      @param str The String to find the anagrams of
+      @param maxLetterReps The max number of times any one letter may be used
+      @param totalRepLimit The max allowed count of repeated letters, in total
+      @return String[] The list of descrambled anagram words, in alphabetical order
+      @throws IllegalArgumentException If either limit is negative
+      @see WordTrie.descrambleReps( String letters, int maxCount, int maxExtra )
+   */
+   public String[] descrambleReps( final String str, final int maxLetterReps, final int totalRepLimit ) {
+      Supplier<String[]> search = new Supplier<String[]>() {
+         public String[] get() {
+            ArrayList<String> words = getWordTrie().descrambleReps( str, maxLetterReps, totalRepLimit );
+            return words.toArray( new String[ words.size() ] );
+         }
+      };
       
-      //@@DEBUG
-      printExecutionTime( beginTime );
+      ResultCache cache = resultCache;
+      if( cache != null )
+         return cache.get( ResultCache.key( "REPS", str, maxLetterReps, totalRepLimit ), search );
       
-      return strArray;
+      return search.get();
    }
    
    /**
       @param str The String to find the anagrams of. Does not need to contain repeat letters. The
-             function will add the additional repeated letters on a permutative basis
+             function will add the additional repeated letters
       @return String[] The list of descrambled anagram words
       @see descrambleReps( String str, int totalRepLimit )
    */
    public String[] descrambleReps( String str ) {
-      final int DEFAULT_REP_LIMIT = 2;
       return descrambleReps( str, DEFAULT_REP_LIMIT );
    }
    
-   /**
-      BaseChain is a data structure that uses an array to count
-      iteratively similar to counting in different base systems.
-      Each subsequent index contains integers which are equal up
-      to the value of the base counting system minus 1
-      
-      Eg. Base-2 BaseChains count from zero up to one
-      Eg. Base-7 BaseChains count from zero up to six
-      
-      @see descrambleReps( String str )
-   */
-   private class BaseChain {
-      
-      private int base;    //Describes the base system of the chain
-      private int length;  //Describes the number of chain indices
-      private int[] chain; //Holds the quantities of each index
-      private int limit;   //Describes the limit to the number of nonzero quantities of the chain
-                           //--> by default, the limit is equal to the length of the chain
-      private boolean updated = false;
-      
-      /**
-         Create an empty chain (of zeros) of the stated base
-         
-         @param base The base of the chain
-         @param length The number of links of the chain
-      */
-      public BaseChain( int base, int length ) {
-         this.base = base;
-         this.length = length;
-         this.limit = length;
-         chain = new int[ length ];
-      }
-      
-      /**
-         Create an empty chain (of zeros) of the stated base.
-         The chain is limited to having a specified number of nonzero elements
-         
-         @param base The base of the chain
-         @param length The number of links of the chain
-      */
-      public BaseChain( int base, int length, int limit ) {
-         this.base = base;
-         this.length = length;
-         this.limit = limit;
-         chain = new int[ length ];
-      }
-      
-      /**
-         Increase the basechain by 1
-         
-         @return int[] The int array of chain values
-         @see addNoLimit();
-         @see addLimit();
-      */
-      public int[] add( ) {
-         updated = true;
-         if( limit == length )
-            return addNoLimit();
-         else
-            return addLimit();
-      }
-      
-      /**
-         Increase the basechain by 1
-         
-         @return int[] The int array of chain values
-         @see add()
-         @see addLimit()
-      */
-      private int[] addNoLimit( ) {
-
-         boolean doContinue = true;
-         for( int i = 0; i < length && doContinue; i++ ) {
-            //add one since not at base value - 1
-            if( chain[i] != base - 1 ) {
-               chain[i] += 1;
-               doContinue = false;
-               
-            //element is at max value, so reset to zero and continue loop
-            } else {
-               chain[i] = 0;
-               doContinue = true;
-            }
-         }
-         
-         return chain;
-      }
-      
-      /**
-         Increase the limited basechain by 1.
-         
-         Since the chain is limited to a number of nonzero
-         elements, adding must count according to the permutations
-         that are allowed, disallowing there to be more than the
-         limit-number of nonzero elements
-         
-         @return int[] The int array of chain values
-         @see add()
-         @see addNoLimit()
-      */
-      private int[] addLimit( ) {
-         int totalNonZeros = numNonZero();
-         
-         boolean doContinue = true;
-         for( int i = 0; i < length && doContinue; i++ ) {
-            //add one if not at limit
-            if( chain[i] != base - 1 && ( totalNonZeros != limit || doContinue ) ) {
-               chain[i] += 1;
-               doContinue = false;
-            
-            //set previous elements to zero and add one to end of contiguous nonzero elements
-            //--> when the chain is full
-            } else if( chain[i] != base - 1 && totalNonZeros == limit && !doContinue ) {
-               int j = i+1;
-               while( j < length && chain[j] != 0 ) {
-                  chain[j++] = 0;
-               }
-               chain[j] += 1;
-               doContinue = false;
-            
-            //element is at max value, so reset to zero and continue loop
-            } else {
-               chain[i] = 0;
-               doContinue = true;
-            }
-         }
-         
-         return chain;
-      }
-      
-      /**
-         Get the int[] chain
-         
-         @return int[] The int[] chain
-      */
-      public int[] get( ) {
-         return chain;
-      }
-      
-      /**
-         Get the length of the chain
-         
-         @return int The length of the chain
-      */
-      public int length() {
-         return length;
-      }
-      
-      /**
-         Get the number of non-zero elements in the chain. Returns -1 if the
-         chain only has non-zero elements
-         
-         @return int The total number of non-zero elements in the chain
-         @see FULL If the chain only has non-zero elements, return -1
-      */
-      public int numNonZero() {
-         int totalNonZero = 0;
-         final int FULL = -1;
-         int endingNonZeros = 0;
-         boolean isFull = true; //this variable is used tell if the chain is not full
-                                //but will not necessarilly be full if it finishes the
-                                //for loop and is still true
-         
-         //For limits of 1, the chain must have all zeros, so return full
-         if( limit == 1 && this.updated )
-            return FULL;
-         
-         for( int i = chain.length - 1; i >= 0; i-- ) {
-            //count the number of nonzero elements
-            if( chain[i] != 0 )
-               totalNonZero++;
-            
-            //determine whether the chain is full, whether the chain is limited or not
-            if( chain[i] != 0 ) {
-               endingNonZeros++;
-            } else if( totalNonZero != limit ) {
-               endingNonZeros = 0;
-               isFull = false;
-            }
-         }
-         
-         //If the chain is full, return -1
-         if( endingNonZeros == limit && isFull )
-            return FULL;
-         
-         return totalNonZero;
-      }
-      
-   }
-   
-   /**
-      Remove all repeated characters of the String
-      
-      @param str The String to remove repeated characters from
-      @return String A String that has no repeated characters
-      @see descrambleReps( String str )
-   */
-   private String removeReps( String str ) {
-      char[] charStr = str.toCharArray();
-      ArrayList<Character> charList = new ArrayList<Character>();
-      for( int i = 0; i < charStr.length; i++ ) {
-         if( !charList.contains( charStr[i] ) )
-            charList.add( charStr[i] );
-      }
-
-      String result = "";
-      for( Character c : charList )
-         result += Character.toString( c.charValue() );
-      return result;
-   }
-   
    /**
       Print the time the between the provided beginning time
       and the current time
@@ -1127,83 +1549,15 @@ public class Dictionary extends LinkedHashMap {
    }
    
    /**
-      Finds all subsets of a given list of letters and returns them in an ArrayList<String>
-      
-      @param str The list to be processed -- each element should be one letter long
-      @return ArrayList<String> The list of all subsets
-      @see descramblePermutations( String prefix, String str, ArrayList<String> result )
-   */
-   private ArrayList<String> descrambleSubsets( String[] str ) {
-      String descramblePieces = "";
-      ArrayList<String> words = new ArrayList<String>();
-      
-      int strLength = str.length;
-   
-      for ( int i = 0; i < ( 1 << strLength ); i++ ) {
-         for ( int j = 0; j < strLength; j++ ) {
-            if ( ( i & ( 1 << j ) ) > 0 )
-               descramblePieces += str[j];
-         }
-         if( descramblePieces.length() >= 2 )
-            words = descramblePermutations( "", descramblePieces, words );
-         descramblePieces = "";
-      }
-   
-      return words;
-   }
-   
-   /**
-      Finds all of the permutations of a given String and is returned in a list -- Each char of the String is viewed as a single token
-      
-      @param prefix The beginning of the token that is used to piece together the final String
-      @param str The token that is being used to find the permutations of
-      @param result The list containing all permutations
-   */
-   private ArrayList<String> descramblePermutations( String prefix, String str, ArrayList<String> result ) {
-      int strLength = str.length();
-      if ( strLength == 0 ) {
-         result.add( prefix );
-      } else {
-         for ( int i = 0; i < strLength; i++ )
-            descramblePermutations( prefix + str.charAt(i), str.substring( 0, i ) + str.substring( i + 1, strLength ), result );
-      }
-      
-      return result;
-   }
-   
-   /**
-      Rewrite a file so that words of the same length are grouped together, from shortest to longest
+      Rewrite a file so that words of the same length are grouped together, from shortest to longest. Words of the same
+      length stay in the order they were in. The file is sorted in bounded memory, so it may be larger than the heap
       
       @param fileName The text file to be rearranged
-      @see write( ArrayList<String>, String fileName );
+      @see sortFile( String oldFileName, String newFileName, Comparator<String> order )
+      @see ExternalSorter.LENGTH
    */
    public void orderIncreasing( String fileName ) {
-      if( !fileName.contains(".txt") )
-         fileName += ".txt";
-   
-      Scanner scanner = getScanner( fileName );
-      int size = getFileSize( scanner );
-      scanner = getScanner( fileName );   //@@@ YOU MUST ALWAYS DECLARE A NEW SCANNER AFTER getFileSize(..) @@@
-      
-      ArrayList<String> list = new ArrayList<String>();
-      
-      int wordLength = 1;
-      int i = 0;
-      while( size > i ) {
-         while( scanner.hasNextLine() ) {
-            String word = scanner.nextLine();
-            if( word.length() == wordLength ) {
-               list.add( word );
-               i++;
-            }
-         }
-         scanner = getScanner( fileName );
-         wordLength++;
-      }
-      
-      write( list, fileName );
-      
-      scanner.close();
+      orderIncreasing( fileName, fileName );
    }
    
    /**
@@ -1212,62 +1566,22 @@ public class Dictionary extends LinkedHashMap {
       
       @param oldFileName The text file to be rearranged
       @param newFileName The new text file to be written to
-      @see write( ArrayList<String>, String fileName );
+      @see sortFile( String oldFileName, String newFileName, Comparator<String> order )
+      @see ExternalSorter.LENGTH
    */
    public void orderIncreasing( String oldFileName, String newFileName ) {
-      if( !oldFileName.contains(".txt") )
-         oldFileName += ".txt";
-   
-      Scanner scanner = getScanner( oldFileName );
-      int size = getFileSize( scanner );
-      scanner = getScanner( oldFileName );   //@@@ YOU MUST ALWAYS DECLARE A NEW SCANNER AFTER getFileSize(..) @@@
-      
-      ArrayList<String> list = new ArrayList<String>();
-      
-      int wordLength = 1;
-      int i = 0;
-      while( size > i ) {
-         while( scanner.hasNextLine() ) {
-            String word = scanner.nextLine();
-            if( word.length() == wordLength ) {
-               list.add( word );
-               i++;
-            }
-         }
-         scanner = getScanner( oldFileName );
-         wordLength++;
-      }
-      
-      write( list, newFileName );
-      
-      scanner.close();
+      sortFile( oldFileName, newFileName, ExternalSorter.LENGTH );
    }
    
    /**
-      Alphabetize the given text file
+      Alphabetize the given text file. The file is sorted in bounded memory, so it may be larger than the heap
       
       @param fileName The text file to be alphabetized
-      @see Collections.sort( List<T> list )
-      @see write( ArrayList<String> list )
+      @see sortFile( String oldFileName, String newFileName, Comparator<String> order )
+      @see ExternalSorter.LEXICOGRAPHIC
    */
    public void alphabetize( String fileName ) {
-      if( !fileName.contains(".txt") )
-         fileName += ".txt";
-   
-      Scanner scanner = getScanner( fileName );
-      
-      ArrayList<String> list = new ArrayList<String>();
-      
-      while( scanner.hasNextLine() ) {
-         String word = scanner.nextLine();
-         list.add( word );
-      }
-      
-      Collections.sort( list );
-      
-      write( list, fileName );
-      
-      scanner.close();
+      alphabetize( fileName, fileName );
    }
    
    /**
@@ -1275,48 +1589,23 @@ public class Dictionary extends LinkedHashMap {
       
       @param oldFileName The text file to be alphabetized
       @param newFileName The text file to be written to
-      @see Collections.sort( List<T> list )
-      @see write( ArrayList<String> list )
+      @see sortFile( String oldFileName, String newFileName, Comparator<String> order )
+      @see ExternalSorter.LEXICOGRAPHIC
    */
    public void alphabetize( String oldFileName, String newFileName ) {
-      if( !oldFileName.contains(".txt") )
-         oldFileName += ".txt";
-   
-      Scanner scanner = getScanner( oldFileName );
-      
-      ArrayList<String> list = new ArrayList<String>();
-      
-      while( scanner.hasNextLine() ) {
-         String word = scanner.nextLine();
-         list.add( word );
-      }
-      
-      Collections.sort( list );
-      
-      write( list, newFileName );
-      
-      scanner.close();
+      sortFile( oldFileName, newFileName, ExternalSorter.LEXICOGRAPHIC );
    }
    
    /**
       Alphabetize each set of x-lengthed words within a text file ie. alphabetize the 2-letter words, then the 3-letter words, etc.
+      The sets are put in order from shortest to longest. The file is sorted in bounded memory, so it may be larger than the heap
       
       @param fileName The text file to be alphabetized by sets
-      @see alphabetizeSets( Scanner scanner )
-      @see Collections.sort( List<T> list )
-      @see write( ArrayList<T> list, String fileName )
+      @see sortFile( String oldFileName, String newFileName, Comparator<String> order )
+      @see ExternalSorter.LENGTH_THEN_LEXICOGRAPHIC
    */
    public void alphabetizeSets( String fileName ) {
-      if( !fileName.contains(".txt") )
-         fileName += ".txt";
-   
-      Scanner scanner = getScanner( fileName );
-      
-      ArrayList<String> resultList = alphabetizeSets( scanner );
-            
-      write( resultList, fileName );
-      
-      scanner.close();
+      alphabetizeSets( fileName, fileName );
    }
    
    /**
@@ -1325,97 +1614,41 @@ public class Dictionary extends LinkedHashMap {
       
       @param oldTextFile The text file to be alphabetized by sets
       @param newFileName The text file to be written to
-      @see alphabetizeSets( Scanner scanner )
-      @see Collections.sort( List<T> list )
-      @see write( ArrayList<T> list, String fileName )
+      @see sortFile( String oldFileName, String newFileName, Comparator<String> order )
+      @see ExternalSorter.LENGTH_THEN_LEXICOGRAPHIC
    */
    public void alphabetizeSets( String oldTextFile, String newFileName ) {
-      if( !oldTextFile.contains(".txt") )
-         oldTextFile += ".txt";
-   
-      Scanner scanner = getScanner( oldTextFile );
-      
-      ArrayList<String> resultList = alphabetizeSets( scanner );
-      
-      write( resultList, newFileName );
-      
-      scanner.close();
+      sortFile( oldTextFile, newFileName, ExternalSorter.LENGTH_THEN_LEXICOGRAPHIC );
    }
    
    /**
-      Alphabetize each set of x-lengthed words within a text file and write to a new file
-      (preserves old text file) ie. alphabetize the 2-letter words, then the 3-letter words, etc.
-      
-      @param oldTextFile The text file to be alphabetized by sets
-      @param newFileName The text file to be written to
-      @return ArrayList<String> The list of the alphabetized sets
-      @see Collections.sort( List<T> list )
-      @see write( ArrayList<T> list, String fileName )
-   */
-   private ArrayList<String> alphabetizeSets( Scanner scanner ) {
-      ArrayList<String> resultList = new ArrayList<String>();
-      ArrayList<String> setList;
-      
-      String word = "aa";
-      int setSize = 2;
-      boolean addLastWord = false;
-      boolean addNextWord = false;
-      while( scanner.hasNextLine() ) {
-         setList = new ArrayList<String>();
-         if( addNextWord ) {
-            setList.add( word );
-            addNextWord = false;
-         }
-         
-         while( word.length() == setSize && scanner.hasNextLine() ) {
-            word = scanner.nextLine();
-            if( word.length() == setSize )
-               setList.add( word );
-            else if( !scanner.hasNextLine() )
-               addLastWord = true;
-            else
-               addNextWord = true;
-         }
-         
-         setSize++;
-         Collections.sort( setList );
-         resultList.addAll( setList );
-         
-         if( addLastWord ) {
-            setList = new ArrayList<String>();
-            setList.add( word );
-            addLastWord = false;
-            resultList.addAll( setList );
-         }
-      }
-      
-      return resultList;
-   }
-   
-   /**
-      Remove all duplicate entries from a text file
+      Sort the lines of a text file into any order, with an external merge sort that holds only a bounded part of the
+      file in memory. The file is split into sorted runs (sorted on several threads), which are then merged
       
-      @param fileName The text file to be processed
-      @see write( LinkedHashMap<String, String> list, String fileName )
+      @param oldFileName The text file to be sorted
+      @param newFileName The text file to be written to. May be the same as oldFileName
+      @param order The order to sort the lines into, eg. ExternalSorter.LEXICOGRAPHIC
+      @return long The number of lines sorted
+      @see ExternalSorter
    */
-   public void removeDuplicates( String fileName ) {
-      if( !fileName.contains(".txt") )
-         fileName += ".txt";
-   
-      Scanner scanner = getScanner( fileName );
-      
-      LinkedHashMap<String, String> map = new LinkedHashMap<String, String>();
-      
-      while( scanner.hasNextLine() ) {
-         String word = scanner.nextLine();
-      
-         if( !map.containsKey( word ) )
-            map.put( word, "" );
-      }
+   public long sortFile( String oldFileName, String newFileName, Comparator<String> order ) {
+      if( !oldFileName.contains(".txt") )
+         oldFileName += ".txt";
+      if( !newFileName.contains(".txt") )
+         newFileName += ".txt";
       
-      write( map, fileName );
+      return new ExternalSorter( order ).sort( oldFileName, newFileName );
+   }
+   
+   /**
+      Remove all duplicate entries from a text file, keeping the first of each. Takes linear time, and files too big to
+      fit in memory are split into hash partitions on disk
       
-      scanner.close();
+      @param fileName The text file to be processed
+      @see Deduplicator.removeDuplicates( String inFileName, String outFileName )
+   */
+   public void removeDuplicates( String fileName ) {
+      removeDuplicates( fileName, fileName );
    }
    
    /**
@@ -1423,46 +1656,54 @@ public class Dictionary extends LinkedHashMap {
       
       @param oldFileName The text file to be processed
       @param newFileName The text file to write to
-      @see write( LinkedHashMap<String, String> list, String fileName )
+      @see Deduplicator.removeDuplicates( String inFileName, String outFileName )
    */
    public void removeDuplicates( String oldFileName, String newFileName ) {
       if( !oldFileName.contains(".txt") )
          oldFileName += ".txt";
-   
-      Scanner scanner = getScanner( oldFileName );
+      if( !newFileName.contains(".txt") )
+         newFileName += ".txt";
       
-      LinkedHashMap<String, String> map = new LinkedHashMap<String, String>();
+      Deduplicator.removeDuplicates( oldFileName, newFileName );
+   }
+   
+   /**
+      Remove all duplicate entries from a sorted text file (eg. one made by alphabetize(..)). Since the copies of an entry
+      are next to each other, each line is only compared with the one before it, and a file of any size takes constant memory
       
-      while( scanner.hasNextLine() ) {
-         String word = scanner.nextLine();
-         if( !map.containsKey( word ) )
-            map.put( word, "" );
-      }
+      @param fileName The sorted text file to be processed
+      @see Deduplicator.removeSortedDuplicates( String inFileName, String outFileName )
+   */
+   public void removeSortedDuplicates( String fileName ) {
+      removeSortedDuplicates( fileName, fileName );
+   }
+   
+   /**
+      Remove all duplicate entries from a sorted text file, preserving the old text file
       
-      write( map, newFileName );
+      @param oldFileName The sorted text file to be processed
+      @param newFileName The text file to write to
+      @see Deduplicator.removeSortedDuplicates( String inFileName, String outFileName )
+   */
+   public void removeSortedDuplicates( String oldFileName, String newFileName ) {
+      if( !oldFileName.contains(".txt") )
+         oldFileName += ".txt";
+      if( !newFileName.contains(".txt") )
+         newFileName += ".txt";
       
-      scanner.close();
+      Deduplicator.removeSortedDuplicates( oldFileName, newFileName );
    }
    
    /**
-      Removes all duplicate tokens in an ArrayList
+      Removes all duplicate tokens in an ArrayList, keeping the first of each, in linear time
       
       @param list The list of Objects to remove duplicates from
       @return ArrayList<?> The list without duplicates
-      @see descrambleAnagram( String str )
+      @see descrambleReps( String str, int totalRepLimit )
+      @see Deduplicator.removeDuplicates( List<T> list )
    */
    public ArrayList<?> removeDuplicates( ArrayList<?> list ) {
-   
-      ArrayList<Object> newList = new ArrayList<Object>();
-      Iterator iterator = list.iterator();
-      
-      while ( iterator.hasNext() ) {
-         Object obj = iterator.next();
-         if( !newList.contains( obj ) )
-            newList.add( obj );
-      }
-      
-      return newList;
+      return Deduplicator.removeDuplicates( list );
    }
    
    /**
@@ -1522,7 +1763,7 @@ public class Dictionary extends LinkedHashMap {
       @param oldFileName The text file to be processed
       @param newFileName The text file name to be printed to
       @return boolean True if everything works, false if there is an invalid character
-      @see descrambleSpecs( String[] specs, Scanner scanner )
+      @see descrambleSpecs( SpecPattern pattern, Scanner scanner )
    */
    public boolean descrambleSpecs( String specs, String oldFileName, String newFileName ) {
       if( !oldFileName.contains(".txt") )
@@ -1542,9 +1783,17 @@ public class Dictionary extends LinkedHashMap {
       for( int i = 0; i < listOfLetters.length; i++ )
          listOfLetters[i] = String.valueOf( specs.charAt(i) );
       
+      SpecPattern pattern;
+      try {
+         pattern = compileSpecs( joinSpecs( listOfLetters ) );
+      } catch( IllegalArgumentException e ) {
+         SOPln( e.getMessage() );
+         return false;
+      }
+      
       Scanner scanner = getScanner( oldFileName );
       
-      ArrayList<String> matches = descrambleSpecs( listOfLetters, scanner );
+      ArrayList<String> matches = descrambleSpecs( pattern, scanner );
       
       write( matches, newFileName );
       
@@ -1574,7 +1823,7 @@ public class Dictionary extends LinkedHashMap {
       @param oldFileName The text file to be processed
       @param newFileName The text file name to be printed to
       @return boolean True if everything works, false if there is an invalid character
-      @see descrambleSpecs( String[] specs, Scanner scanner )
+      @see descrambleSpecs( SpecPattern pattern, Scanner scanner )
    */
    public boolean descrambleSpecs( String[] specs, String oldFileName, String newFileName ) {
       if( !oldFileName.contains(".txt") )
@@ -1589,9 +1838,17 @@ public class Dictionary extends LinkedHashMap {
             return false;
       }
    
+      SpecPattern pattern;
+      try {
+         pattern = compileSpecs( joinSpecs( specs ) );
+      } catch( IllegalArgumentException e ) {
+         SOPln( e.getMessage() );
+         return false;
+      }
+      
       Scanner scanner = getScanner( oldFileName );
       
-      ArrayList<String> matches = descrambleSpecs( specs, scanner );
+      ArrayList<String> matches = descrambleSpecs( pattern, scanner );
       
       write( matches, newFileName );
       
@@ -1677,8 +1934,8 @@ public class Dictionary extends LinkedHashMap {
       @param specs The list of Strings that are of length 1 that follow the spec's notations. See notes above
       @param newFileName The text file name to be printed to
       @return boolean True if everything works, false if there is an invalid character
-      @see descrambleSpecs( String[] specs, Scanner scanner )
-      @see getScanner( String fileName )
+      @see compileSpecs( String specs )
+      @see descrambleSpecs( SpecPattern pattern )
       @see Character.isLetter( char letter )
       @see write( ArrayList<String> list, String fileName )
    */
@@ -1693,165 +1950,184 @@ public class Dictionary extends LinkedHashMap {
             return false;
       }
    
-      Scanner scanner = getScanner( DICTIONARY_NO_DEFS_FILE_NAME );
+      SpecPattern pattern;
+      try {
+         pattern = compileSpecs( joinSpecs( specs ) );
+      } catch( IllegalArgumentException e ) {
+         SOPln( e.getMessage() );
+         return false;
+      }
       
-      ArrayList<String> matches = descrambleSpecs( specs, scanner );
+      ArrayList<String> matches = descrambleSpecs( pattern );
       
       write( matches, newFileName );
       
-      scanner.close();
-      
       return true;
    }
    
    /**
-      Given a set of 'specs', find all matches within the dictionary. The specs are defined as follows:
-      
-      [a-z]: The positions of the letters must match up
-      '?': Can denote any letter, will automatically be a match. So this is used as a placeholder to specify where the letters
-           must be places eg. ?cat? --> 'acats', 'scate', 'scath', 'scato', 'scats', 'scatt'; but 'cats', 'scat', and others are not included
-      '*': Can denote any number of places inbetween two letters eg. q*z --> 'quartz', 'quiz'
-           However, this can also be zero places, so *go* would produce many, many words, but also 'go'
-      
-      Additional notes:
-         - c*?a guarantees that the 'c' and the 'a' will at least have 1 letter inbetween them
-         - * will produce all the letters in the dictionary
-         - ??? will produce all the three letter words
-         - cat will only match with 'cat' in the dictionary
-         - *c* will produce all words that contain c in them
-         - *c*j* will produce all words that have a c followed by a j, with an unspecified number of letters inbetween them
+      Given compiled 'specs', find all matches within a text file of words, one word per line. Each line is checked against
+      the specs in a single pass over its letters. See descrambleSpecs( String[] specs, String newFileName ) for the notation
       
-      @param specs The list of Strings that are of length 1 that follow the spec's notations. See notes above
+      @param pattern The compiled specs
       @param scanner The scanner attached to the text file
       @return ArrayList<String> The list of matches found
-      @see descrambleSpecs( String[] specs, String newFileName )
+      @see descrambleSpecs( String[] specs, String oldFileName, String newFileName )
+      @see compileSpecs( String specs )
    */
-   private ArrayList<String> descrambleSpecs( String[] specs, Scanner scanner ) {
-      String specString = "";
-      // Convert to String, and make sure all chars are uppercase
-      for( int i = 0; i < specs.length; i++ )
-         specString += specs[i].toUpperCase();
-      
+   private ArrayList<String> descrambleSpecs( SpecPattern pattern, Scanner scanner ) {
       ArrayList<String> matches = new ArrayList<String>();
-      
-      //Asterisks don't necessarilly take up space (can have no letters where an asterisk is), so account for them
-      //and subtract them from the true specString total later in the loop
-      int numAsterisks = 0; 
-      for( int i = 0; i < specString.length(); i++ ) {
-         if( specString.charAt(i) == '*' )
-            numAsterisks++;
-      }
-      
-      boolean continueSearching = false; //when encountering an asterisk, this is used to skip over letters instead of breaking to the next word
-      boolean breaked = false; //If within any of the if statements a break was hit, this automatically disqualifies the word from being a
-                               //possible match, so this allows us to skip over the if statement after the for loop (which is needed, it's not just
-                               //for efficiency
       while( scanner.hasNextLine() ) {
          String word = scanner.nextLine();
-         int i, j; //i keeps track of specString index, j keeps track of word index; i is not incremented when searching
-         for( i = 0, j = 0; j < word.length() && i < specString.length(); j++ ) {
-            //If the word length is already shorter than the specString length (w/o the asterisks), we can break and move to the next work
-            if( word.length() < specString.length() - numAsterisks ) {
-               breaked = true;
-               break;
-            }
-            if( Character.isLetter( specString.charAt(i) ) ) {
-               if( word.charAt(j) == specString.charAt(i) ) {
-                  continueSearching = false;
-                  i++;
-                  continue;
-               } else {
-                  if( continueSearching ) {
-                     continue; //for asterisks, we move onto the next letter even if its the wrong letter (for conditional will stop if necessary)
-                  } else {
-                     //specString letter and word letter not matching, move on to next word
-                     breaked = true;
-                     break;
-                  }
-               }
-            } else if( specString.charAt(i) == '?' ) {
-               i++; // ^^ it's good no matter what, continue
-               continue;
-            } else if( specString.charAt(i) == '#' ) {
-               if( VOWELS.indexOf( word.charAt(j) ) < 0 ) { //if this character is a consonant (not found in VOWEL String)
-                  i++;
-                  continueSearching = false;
-                  continue;
-               } else { //character is a vowel
-                  if( continueSearching ) {
-                     continue;
-                  } else {
-                     //specString consonant and word letter is not consonant, move on to next word
-                     breaked = true;
-                     break;
-                  }
-               }
-            } else if( specString.charAt(i) == '^' ) {
-               if( VOWELS.indexOf( word.charAt(j) ) >= 0 ) { //if this character is a vowel (found in VOWEL String)
-                  i++;
-                  continueSearching = false;
-                  continue;
-               } else { //character is a consonant
-                  if( continueSearching ) {
-                     continue;
-                  } else {
-                     //specString consonant and word letter is not consonant, move on to next word
-                     breaked = true;
-                     break;
-                  }
-               }
-            } else if( specString.charAt(i) == '*' ) {
-               i++;
-               j--; //since asterisks dont actually match any values, have to make sure we don't skip a word letter
-               continueSearching = true;
-               continue;
-            } else {
-               SOPln("Invalid input character. Use only [a-z], '*', '?', '#', or '^'");
-               return null;
-            }
-         } //end for
-         
-         if( !breaked && ( i >= specString.length() || (i >= specString.length() - 1 && specString.charAt( specString.length() - 1 ) == '*') ) &&
-             ( j >= word.length() || (j <= word.length() - 1 && specString.charAt( specString.length() - 1) == '*') ) ) {
+         if( pattern.matches( word ) )
             matches.add( word );
-         }
-         
-         breaked = false;
-      } //end while
+      }
       
       return matches;
    }
    
    /**
-      Given a String array and a file name, writes each token on sequential lines to a text file
+      Compile a set of 'specs' so that they can be used for many searches. See descrambleSpecs( String[] specs, String newFileName )
+      for the notation. '^' and '#' use the letters in VOWELS
+      
+      eg. compileSpecs("c*t") matches 'cat', 'cost', 'count', ...
+      
+      @param specs A String of letters that follows the spec's notations. Case does not matter
+      @return SpecPattern The compiled specs
+      @throws IllegalArgumentException If there is an invalid character in the specs
+      @see SpecPattern
+   */
+   public SpecPattern compileSpecs( String specs ) {
+      return new SpecPattern( specs, VOWELS );
+   }
+   
+   /**
+      Find all the words in the dictionary that match compiled specs, in alphabetical order. Specs with no '*' have a fixed
+      length, and are answered by ANDing together the positional bitmaps of their pinned letters, without comparing any
+      letters. Other specs are run alongside a walk of the word trie, so only the branches that can still match are visited
+      
+      @param pattern The compiled specs
+      @return ArrayList<String> The list of words that match
+      @see compileSpecs( String specs )
+      @see PositionIndex.match( SpecPattern pattern )
+      @see WordTrie.match( SpecPattern pattern )
+   */
+   public ArrayList<String> descrambleSpecs( SpecPattern pattern ) {
+      if( PositionIndex.canMatch( pattern ) )
+         return getPositionIndex().match( pattern );
+      
+      return getWordTrie().match( pattern );
+   }
+   
+   /**
+      Find all the words in the dictionary that match compiled specs, handing each one to the action as soon as it is found,
+      in alphabetical order. No list of results is built, so this suits specs with very many matches, like *e*
+      
+      @param pattern The compiled specs
+      @param action What to do with each word that matches
+      @see compileSpecs( String specs )
+      @see WordTrie.match( SpecPattern pattern, Consumer<String> action )
+   */
+   public void descrambleSpecs( SpecPattern pattern, Consumer<String> action ) {
+      getWordTrie().match( pattern, action );
+   }
+   
+   /**
+      Get the words in the dictionary that match compiled specs as a lazy Stream, in alphabetical order. The word trie is
+      only walked as far as the next match each time the stream asks for one, so limit(..) and findFirst() end the search
+      early
+      
+      @param pattern The compiled specs
+      @return Stream<String> The words that match
+      @see compileSpecs( String specs )
+      @see WordTrie.matchIterator( SpecPattern pattern )
+   */
+   public Stream<String> descrambleSpecsStream( SpecPattern pattern ) {
+      return stream( getWordTrie().matchIterator( pattern ) );
+   }
+   
+   /**
+      @param specs A String of letters that follows the spec's notations. See notes on descrambleSpecs( String[] specs, String fileName )
+      @return Stream<String> The words that match, in alphabetical order
+      @throws IllegalArgumentException If there is an invalid character in the specs
+      @see descrambleSpecsStream( SpecPattern pattern )
+   */
+   public Stream<String> descrambleSpecsStream( String specs ) {
+      return descrambleSpecsStream( compileSpecs( specs ) );
+   }
+   
+   /**
+      Find the words of a rack with the word trie, on the descramble pool if parallel descrambling is on
+      
+      @param letters The letters of the rack
+      @return String[] The words, in alphabetical order
+      @see descramble( String[] str )
+   */
+   private String[] descrambleRack( String letters ) {
+      ArrayList<String> words;
+      ForkJoinPool pool = descramblePool;
+      if( pool != null )
+         words = getWordTrie().descramble( letters, MIN_DESCRAMBLE_LENGTH, pool );
+      else
+         words = getWordTrie().descramble( letters, MIN_DESCRAMBLE_LENGTH );
+      
+      return words.toArray( new String[ words.size() ] );
+   }
+   
+   /**
+      Wrap an iterator in a sequential Stream that pulls from it only as it is consumed
+      
+      @param iterator The iterator
+      @return Stream<String> The stream
+   */
+   private static Stream<String> stream( Iterator<String> iterator ) {
+      return StreamSupport.stream( Spliterators.spliteratorUnknownSize( iterator, Spliterator.ORDERED | Spliterator.NONNULL ), false );
+   }
+   
+   /**
+      Write the positional bitmap index used for fixed-length specs to a file, building it first if needed. Loading it
+      with loadPositionIndex(..) is faster than building it again
+      
+      @param fileName The file to write. It is replaced if it already exists
+      @see PositionIndex.save( String fileName )
+   */
+   public void savePositionIndex( String fileName ) {
+      getPositionIndex().save( fileName );
+   }
+   
+   /**
+      Read a positional bitmap index written by savePositionIndex(..), to be used for fixed-length specs in place of
+      building one. The index must have been saved from a Dictionary with the same words
+      
+      @param fileName The file to read
+      @throws IllegalArgumentException If the file is not a position index, is damaged, was built with different VOWELS,
+                                       or holds a different number of words than this Dictionary
+      @see PositionIndex( String fileName )
+   */
+   public void loadPositionIndex( String fileName ) {
+      PositionIndex index = new PositionIndex( fileName );
+      if( !index.getVowels().equals( VOWELS ) )
+         throw new IllegalArgumentException( fileName + " was built with vowels " + index.getVowels() + ", expected " + VOWELS );
+      if( index.size() != numWords() )
+         throw new IllegalArgumentException( fileName + " holds " + index.size() + " words, but the Dictionary has " + numWords() );
+      
+      positionIndex = index;
+   }
+   
+   /**
+      Given a String array and a file name, writes each token on sequential lines to a text file. The lines are written
+      in large batches to a temporary file, which then replaces the text file in one rename
       
       @param list The list of Strings to write to the text file
       @param fileName The name of the text file being written to. Note: If fileName does not end in '.txt', it will be appended
+      @return BatchWriter.Result The number of bytes and lines written
+      @see BatchWriter
    */
-   public void write( String[] list, String fileName ) {
-      
+   public BatchWriter.Result write( String[] list, String fileName ) {
       if( !fileName.contains(".txt") )
          fileName += ".txt";
-   	
-   	// Only .txt files accepted
-      if( !fileName.contains(".txt") )
-         System.out.println("Please only use a .txt file");
-   	
-      File file = null;
-      PrintStream printStream = null;
-      
-      try {
-         file = new File( fileName );
-         printStream = new PrintStream( file );
-      } catch( IOException e ) {
-         System.out.println(e);
-      }
-      
-      for( int i = 0; i < list.length; i++ ) {
-         printStream.println( list[i] );
-      }
       
-      printStream.close();
+      return BatchWriter.write( list, fileName );
    }
    
    /**
@@ -1859,32 +2135,14 @@ public class Dictionary extends LinkedHashMap {
       
       @param list The list of Strings to write to the text file
       @param fileName The name of the text file being written to. Note: If fileName does not end in '.txt', it will be appended
+      @return BatchWriter.Result The number of bytes and lines written
+      @see BatchWriter
    */
-   public void write( ArrayList<String> list, String fileName ) {
-      
+   public BatchWriter.Result write( ArrayList<String> list, String fileName ) {
       if( !fileName.contains(".txt") )
          fileName += ".txt";
-   	
-   	// Only .txt files accepted
-      if( !fileName.contains(".txt") )
-         System.out.println("Please only use a .txt file");
-   	
-      File file = null;
-      PrintStream printStream = null;
-      
-      try
-      {
-         file = new File( fileName );
-         printStream = new PrintStream( file );
-      } catch( IOException e ) {
-         System.out.println(e);
-      }
-      
-      for( int i = 0; i < list.size(); i++ ) {
-         printStream.println( list.get(i) );
-      }
       
-      printStream.close();
+      return BatchWriter.write( list, fileName );
    }
    
    /**
@@ -1892,73 +2150,61 @@ public class Dictionary extends LinkedHashMap {
       
       @param list The LinkedHashMap of Strings to write to the text file
       @param fileName The name of the text file being written to. Note: If fileName does not end in '.txt', it will be appended
+      @return BatchWriter.Result The number of bytes and lines written
+      @see BatchWriter
    */
-   public void write( LinkedHashMap<String, String> list, String fileName ) {
-      
+   public BatchWriter.Result write( LinkedHashMap<String, String> list, String fileName ) {
       if( !fileName.contains(".txt") )
          fileName += ".txt";
-   	
-   	// Only .txt files accepted
-      if( !fileName.contains(".txt") )
-         System.out.println("Please only use a .txt file");
-   	
-      File file = null;
-      PrintStream printStream = null;
-      
-      try
-      {
-         file = new File( fileName );
-         printStream = new PrintStream( file );
-      } catch( IOException e ) {
-         System.out.println(e);
-      }
-      
-      for( String word : list.keySet() ) {
-         printStream.println( word );
-      }
       
-      printStream.close();
+      return BatchWriter.write( list.keySet(), fileName );
    }
    
    /**
       @see writeLimit( String[] list, String fileName, int lowerLimit, int upperLimit )
    */
-   public void writeLimit( String[] list, String fileName, int upperLimit ) {
-      writeLimit( list, fileName, 0, upperLimit );
+   public BatchWriter.Result writeLimit( String[] list, String fileName, int upperLimit ) {
+      return writeLimit( list, fileName, 0, upperLimit );
    }
    
    /**
-      Given a String array and a file name, writes each token on sequential lines to a text file
+      Write all of the words in the dictionary with a length from lowerLimit to upperLimit to a text file, shortest first
+      and then in alphabetical order. Only the words within the range are looked at
       
-      @param list The list of Strings to write to the text file
       @param fileName The name of the text file being written to. Note: If fileName does not end in '.txt', it will be appended
+      @param lowerLimit The shortest length to include
+      @param upperLimit The longest length to include
+      @return BatchWriter.Result The number of bytes and lines written
+      @see getXLetterWords( int minLength, int maxLength )
    */
-   public void writeLimit( String[] list, String fileName, int lowerLimit, int upperLimit ) {
+   public BatchWriter.Result writeLimit( String fileName, int lowerLimit, int upperLimit ) {
+      return write( getXLetterWords( lowerLimit, upperLimit ), fileName );
+   }
+   
+   /**
+      Given a String array and a file name, writes each token with a length from lowerLimit to upperLimit on sequential
+      lines to a text file
       
-      if(!fileName.contains(".txt"))
+      @param list The list of Strings to write to the text file
+      @param fileName The name of the text file being written to. Note: If fileName does not end in '.txt', it will be appended
+      @param lowerLimit The shortest length to include
+      @param upperLimit The longest length to include
+      @return BatchWriter.Result The number of bytes and lines written
+      @see BatchWriter
+   */
+   public BatchWriter.Result writeLimit( String[] list, String fileName, int lowerLimit, int upperLimit ) {
+      if( !fileName.contains(".txt") )
          fileName += ".txt";
-   	
-   	// Only .txt files accepted
-      if(!fileName.contains(".txt"))
-         System.out.println("Please only use a .txt file");
-   	
-      File file = null;
-      PrintStream printStream = null;
-      
-      try
-      {
-         file = new File(fileName);
-         printStream = new PrintStream(file);
-      } catch( IOException e ) {
-         System.out.println(e);
-      }
       
-      for( int i = 0; i < list.length; i++ ) {
-         if( list[i].length() <= upperLimit && list[i].length() >= lowerLimit )
-            printStream.println( list[i] );
+      BatchWriter writer = new BatchWriter( fileName );
+      try {
+         for( int i = 0; i < list.length; i++ )
+            if( list[i].length() <= upperLimit && list[i].length() >= lowerLimit )
+               writer.writeLine( list[i] );
+         return writer.commit();
+      } finally {
+         writer.close();
       }
-      
-      printStream.close();
    }
    
    /**
@@ -1979,31 +2225,62 @@ public class Dictionary extends LinkedHashMap {
       14 letters- 9312
       15 letters- 5877
       
+      The words are copied straight out of the length index, in alphabetical order; no other words are looked at.
+      Use getNumXLetterWords(..) for just the count.
+      
       @param length The length of the word to find
       @return String[] The list of words in the dictionary of the given length
-      @see getScanner( String fileName )
-      @see HashMap.keySet()
-      @see shrinkArray( Object[] list, int actualSize )
+      @see LengthIndex.toArray( int length )
    */
    public String[] getXLetterWords( int length ) {
-      Scanner scanner = getScanner( DICTIONARY_NO_DEFS_FILE_NAME );
-      
-      String[] wordList = new String[ NUM_WORDS ];
+      return getLengthIndex().toArray( length );
+   }
+   
+   /**
+      Get a list of all words in the dictionary with a length from minLength to maxLength, shortest first and then in
+      alphabetical order
       
-      int i = 0;
-      LinkedHashMap<String, String> map = this; //I don't understand why I have to do this instead of just calling this.keySet() below
-      for( String word : map.keySet() ) {
-         if( word.length() == length )
-            wordList[i++] = word;
-      }
+      @param minLength The shortest length to include
+      @param maxLength The longest length to include
+      @return String[] The list of words in the dictionary within the range of lengths
+      @see LengthIndex.toArray( int minLength, int maxLength )
+   */
+   public String[] getXLetterWords( int minLength, int maxLength ) {
+      return getLengthIndex().toArray( minLength, maxLength );
+   }
+   
+   /**
+      Get the number of words in the dictionary of the given length, without building a list of them
       
-      wordList = shrinkArray( wordList, i );
+      @param length The length of the words to count
+      @return int The number of words of the given length
+      @see LengthIndex.count( int length )
+   */
+   public int getNumXLetterWords( int length ) {
+      return getLengthIndex().count( length );
+   }
+   
+   /**
+      Get the number of words in the dictionary of every length
       
-      scanner.close();
+      eg. getLengthHistogram()[7] is the number of seven letter words
       
-      return wordList;
+      @return int[] A new array where element L is the number of words of length L, from 0 to the longest length
+      @see LengthIndex.getHistogram()
+   */
+   public int[] getLengthHistogram() {
+      return getLengthIndex().getHistogram();
    }
    
+   /**
+      Count the words of the given length in a text file of words, one word per line. To count the words of the
+      dictionary itself use getNumXLetterWords(..), which does not read any file
+      
+      @param length The length of the words to count
+      @param fileName The text file to read. Note: If fileName does not end in '.txt', it will be appended
+      @return int The number of lines in the file of the given length
+      @see getNumXLetterWords( int length )
+   */
    public int getXLetterWords( int length, String fileName ) {
       if(!fileName.contains(".txt"))
          fileName = fileName + ".txt";
@@ -2015,74 +2292,33 @@ public class Dictionary extends LinkedHashMap {
          if(scanner.nextLine().length() == length)
             counter++;
       }
-      /*
-      String[] wordList = new String[ NUM_WORDS ];
-      
-      int i = 0;
-      int counter = 0;
-      LinkedHashMap<String, String> map = this; //I don't understand why I have to do this instead of just calling this.keySet() below
-      for( String word : map.keySet() ) {
-         if( word.length() == length ){
-            wordList[i++] = word;
-            counter++;
-         }
-      }
-      
-      wordList = shrinkArray( wordList, i );
-      */
       scanner.close();
       
       return counter;
    }
    
    /**
-      Find all words containing the given String and return them in a list
+      Find all words containing the given String and return them in a list. The words are looked up in the n-gram index,
+      so only the words holding every trigram of the token are checked
       
       @param token The String searched for within the words in the Dictionary
       @return String[] The list of words that contain the token
-      @see String.contains( CharSequence cs )
+      @see NGramIndex.getWordsContaining( String token )
    */
    public String[] getWordsContainingX( String token ) {
-   
-      String[] wordList = new String[ NUM_WORDS ];
-      token = token.toUpperCase();
-      
-      int i = 0;
-      LinkedHashMap<String, String> map = this; //I don't understand why I have to do this instead of just calling this.keySet() below
-      for( String word : map.keySet() ) {
-         if( word.contains( token ) )
-            wordList[i++] = word;
-      }
-      
-      wordList = shrinkArray( wordList, i );
-      
-      return wordList;
+      return getNGramIndex().getWordsContaining( token.toUpperCase() );
    }
    
    /**
-      Find all words containing the given String and return them in a list
+      Find all words containing every one of the given Strings and return them in a list. The posting lists of the
+      tokens are intersected in the n-gram index
       
-      @param token The String searched for within the words in the Dictionary
-      @return String[] The list of words that contain the token
-      @see String.contains( CharSequence cs )
+      @param tokens The Strings searched for within the words in the Dictionary
+      @return String[] The list of words that contain all of the tokens
+      @see NGramIndex.getWordsContainingAll( String[] tokens )
    */
    public String[] getWordsContainingX( String[] tokens ) {
-   
-      String[] wordList = new String[ NUM_WORDS ];
-      
-      for( int i = 0; i < tokens.length; i++ )
-         tokens[i] = tokens[i].toUpperCase();
-      
-      int i = 0;
-      LinkedHashMap<String, String> map = this; //I don't understand why I have to do this instead of just calling this.keySet() below
-      for( String word : map.keySet() ) {
-         if( containsAll( word, tokens ) )
-            wordList[i++] = word;
-      }
-      
-      wordList = shrinkArray( wordList, i );
-      
-      return wordList;
+      return getNGramIndex().getWordsContainingAll( toUpperCase( tokens ) );
    }
    
    /**
@@ -2101,105 +2337,163 @@ public class Dictionary extends LinkedHashMap {
       Find all words containing the given String, and not containing the second String, and return them in a list
       
       @param token The String searched for within the words in the Dictionary
+      @param exclusionToken The String that must not be within the words
       @return String[] The list of words that contain the token
-      @see String.contains( CharSequence cs )
+      @see getWordsContainingXButNotY( String token, String[] exclusionTokens )
    */
    public String[] getWordsContainingXButNotY( String token, String exclusionToken ) {
-   
-      String[] wordList = new String[ NUM_WORDS ];
-      token = token.toUpperCase();
-      exclusionToken = exclusionToken.toUpperCase();
-      
-      int i = 0;
-      LinkedHashMap<String, String> map = this; //I don't understand why I have to do this instead of just calling this.keySet() below
-      for( String word : map.keySet() ) {
-         if( word.contains( token ) && !word.contains( exclusionToken ) )
-            wordList[i++] = word;
-      }
-      
-      wordList = shrinkArray( wordList, i );
-      
-      return wordList;
+      return getWordsContainingXButNotY( token, new String[]{ exclusionToken } );
    }
    
    /**
-      Find all words containing the given String, and not containing the second String, and return them in a list
+      Find all words containing the given String, and not containing any of the exclusion Strings, and return them in a
+      list. The words containing each exclusion String are found in the n-gram index and subtracted from the result
       
       @param token The String searched for within the words in the Dictionary
+      @param exclusionTokens The Strings that must not be within the words
       @return String[] The list of words that contain the token
-      @see String.contains( CharSequence cs )
-      @see containsAny( String[] tokens )
+      @see NGramIndex.getWordsContainingButNot( String token, String[] exclusionTokens )
    */
    public String[] getWordsContainingXButNotY( String token, String[] exclusionTokens ) {
+      return getNGramIndex().getWordsContainingButNot( token.toUpperCase(), toUpperCase( exclusionTokens ) );
+   }
    
-      String[] wordList = new String[ NUM_WORDS ];
-      token = token.toUpperCase();
-      
-      for( int i = 0; i < exclusionTokens.length; i++ )
-         exclusionTokens[i] = exclusionTokens[i].toUpperCase();
-      
-      int i = 0;
-      LinkedHashMap<String, String> map = this; //I don't understand why I have to do this instead of just calling this.keySet() below
-      for( String word : map.keySet() ) {
-         if( word.contains( token ) && !containsAny( word, exclusionTokens ) )
-            wordList[i++] = word;
-      }
+   /**
+      Compile a set of tokens into a matcher that finds all of them in a single pass over a word or definition. Build the
+      matcher once and reuse it for every word checked against the same tokens. Matching is case-sensitive
       
-      wordList = shrinkArray( wordList, i );
+      eg. compileTokens( new String[]{ "QU", "ZZ" } ).containsAny( "QUIZ" ) is true
       
-      return wordList;
+      @param tokens The tokens to look for
+      @return TokenMatcher The compiled tokens
+      @see TokenMatcher
+   */
+   public TokenMatcher compileTokens( String[] tokens ) {
+      return new TokenMatcher( tokens );
    }
    
    /**
-      Find all the definitions containing the given token and return them in a list
+      Find all the definitions containing the given token and return them in a list. Only the definitions using a word
+      that holds the letters of the token are checked
       
       @param token The String searched for within the definitions in the Dictionary
       @return String[] The list of definitions that contain the token
-      @see String.contains( CharSequence cs )
+      @see DefinitionIndex.findContaining( String token, IntConsumer action )
    */
    public String[] getDefsContainingX( String token ) {
+      ArrayList<String> defList = new ArrayList<String>();
+      getDefinitionIndex().findContaining( token.toUpperCase(), defLines( addTo( defList ) ) );
+      
+      return defList.toArray( new String[ defList.size() ] );
+   }
    
-      String[] defList = new String[ NUM_WORDS ];
-      token = token.toUpperCase();
+   /**
+      Find all the definitions containing any of the given tokens and return them in a list. Only the definitions using
+      a word that holds the letters of one of the tokens are checked, and the tokens are compiled into one matcher, so each
+      of those definitions is read only once no matter how many tokens there are
       
-      int i = 0;
-      LinkedHashMap<String, String> map = this; //I don't understand why I have to do this instead of just calling this.keySet() below
-      for( String word : map.keySet() ) {
-         String def = this.getDef( word );
-         if( def.contains( token ) )
-            defList[i++] = word + '\t' + def;
-      }
+      @param tokens The tokens searched for within the definitions in the Dictionary
+      @return String[] The list of definitions that contain any of the tokens
+      @see DefinitionIndex.findContainingAny( String[] tokens, IntConsumer action )
+   */
+   public String[] getDefsContainingX( String[] tokens ) {
+      ArrayList<String> defList = new ArrayList<String>();
+      getDefinitionIndex().findContainingAny( toUpperCase( tokens ), defLines( addTo( defList ) ) );
+      
+      return defList.toArray( new String[ defList.size() ] );
+   }
+   
+   /**
+      Find all the definitions containing any of the tokens of a compiled token set and return them in a list. The
+      matcher is case-sensitive, and the definitions are searched as they are stored
       
-      defList = shrinkArray( defList, i );
+      @param matcher The compiled tokens
+      @return String[] The list of definitions that contain any of the tokens
+      @see compileTokens( String[] tokens )
+      @see TokenMatcher.containsAny( CharSequence text )
+   */
+   public String[] getDefsContainingX( TokenMatcher matcher ) {
+      DefinitionIndex index = getDefinitionIndex();
+      ArrayList<String> defList = new ArrayList<String>();
+      for( int id = 0; id < index.size(); id++ ) {
+         String def = index.getDef( id );
+         if( def != null && matcher.containsAny( def ) )
+            defList.add( index.getWord( id ) + '\t' + def );
+      }
       
-      return defList;
+      return defList.toArray( new String[ defList.size() ] );
    }
    
    /**
-      Find all the definitions containing the given tokens and return them in a list
+      Find all the definitions that use every one of the given words, in dictionary order. Words are matched whole, and
+      case and punctuation do not matter eg. { "small", "dog" } matches "A SMALL BREED OF DOG"
       
-      @param tokens The tokens searched for within the definitions in the Dictionary
-      @return String[] The list of definitions that contain the tokens
-      @see containsAll( String[] list )
+      @param terms The words that must all be in the definition
+      @return String[] The list of words and their definitions (separated by tabs) that use all of the terms
+      @see searchDefs( String[] terms, boolean matchAll, Consumer<String> action )
    */
-   public String[] getDefsContainingX( String[] tokens ) {
+   public String[] getDefsWithAllTerms( String[] terms ) {
+      ArrayList<String> defList = new ArrayList<String>();
+      searchDefs( terms, true, addTo( defList ) );
+      return defList.toArray( new String[ defList.size() ] );
+   }
    
-      String[] defList = new String[ NUM_WORDS ];
+   /**
+      Find all the definitions that use at least one of the given words, in dictionary order. Words are matched whole,
+      and case and punctuation do not matter
       
-      for( int i = 0; i < tokens.length; i++ )
-         tokens[i] = tokens[i].toUpperCase();
+      @param terms The words of which at least one must be in the definition
+      @return String[] The list of words and their definitions (separated by tabs) that use any of the terms
+      @see searchDefs( String[] terms, boolean matchAll, Consumer<String> action )
+   */
+   public String[] getDefsWithAnyTerm( String[] terms ) {
+      ArrayList<String> defList = new ArrayList<String>();
+      searchDefs( terms, false, addTo( defList ) );
+      return defList.toArray( new String[ defList.size() ] );
+   }
+   
+   /**
+      Find all the definitions that use the words of a phrase side by side and in order, in dictionary order. Case and
+      punctuation do not matter eg. "small dog" matches "A SMALL, DOG-LIKE ANIMAL"
       
-      int i = 0;
-      LinkedHashMap<String, String> map = this; //I don't understand why I have to do this instead of just calling this.keySet() below
-      for( String word : map.keySet() ) {
-         String def = this.getDef( word );
-         if( containsAny( def, tokens ) )
-            defList[i++] = word + '\t' + def;
-      }
+      @param phrase The phrase to look for
+      @return String[] The list of words and their definitions (separated by tabs) that use the phrase
+      @see searchDefPhrase( String phrase, Consumer<String> action )
+   */
+   public String[] getDefsWithPhrase( String phrase ) {
+      ArrayList<String> defList = new ArrayList<String>();
+      searchDefPhrase( phrase, addTo( defList ) );
+      return defList.toArray( new String[ defList.size() ] );
+   }
+   
+   /**
+      Find the definitions that use all (or any) of the given words, handing each word and its definition (separated by
+      a tab) to the action as soon as it is found, in dictionary order. The posting lists of the words are intersected
+      (or merged) in the definition index, so no definition is read
       
-      defList = shrinkArray( defList, i );
+      @param terms The words to look for
+      @param matchAll True if every one of the words must be used, false if any one of them is enough
+      @param action What to do with each word and definition found
+      @see DefinitionIndex.findAll( String[] queryTerms, IntConsumer action )
+      @see DefinitionIndex.findAny( String[] queryTerms, IntConsumer action )
+   */
+   public void searchDefs( String[] terms, boolean matchAll, Consumer<String> action ) {
+      if( matchAll )
+         getDefinitionIndex().findAll( terms, defLines( action ) );
+      else
+         getDefinitionIndex().findAny( terms, defLines( action ) );
+   }
+   
+   /**
+      Find the definitions that use the words of a phrase side by side and in order, handing each word and its
+      definition (separated by a tab) to the action as soon as it is found, in dictionary order
       
-      return defList;
+      @param phrase The phrase to look for
+      @param action What to do with each word and definition found
+      @see DefinitionIndex.findPhrase( String phrase, IntConsumer action )
+   */
+   public void searchDefPhrase( String phrase, Consumer<String> action ) {
+      getDefinitionIndex().findPhrase( phrase, defLines( action ) );
    }
    
    /**
@@ -2207,22 +2501,11 @@ public class Dictionary extends LinkedHashMap {
       file with these words removed.
       
       @param fileName The name of the file to be edited
-      @param token If words contain the token, they are removed.
+      @param token If words are equal to the token, they are removed.
+      @see filterFile( String oldFileName, String newFileName, LineFilter filter )
    */
    public void removeWords( String fileName, String token ) {
-      Scanner scanner = getScanner( fileName );
-      
-      ArrayList<String> list = new ArrayList<String>();
-      
-      while( scanner.hasNextLine() ) {
-         String word = scanner.nextLine();
-         if( !word.equals( token ) )
-            list.add( word );
-      }
-      
-      write( list, fileName );
-      
-      scanner.close();
+      removeWords( fileName, fileName, token );
    }
    
    /**
@@ -2231,22 +2514,11 @@ public class Dictionary extends LinkedHashMap {
       
       @param oldFileName The name of the file to be processed
       @param newFileName The name of the file to be written to
-      @param token If words contain the token, they are removed.
+      @param token If words are equal to the token, they are removed.
+      @see LineFilter.removeWord( String word )
    */
    public void removeWords( String oldFileName, String newFileName, String token ) {
-      Scanner scanner = getScanner( oldFileName );
-      
-      ArrayList<String> list = new ArrayList<String>();
-      
-      while( scanner.hasNextLine() ) {
-         String word = scanner.nextLine();
-         if( !word.equals( token ) )
-            list.add( word );
-      }
-      
-      write( list, newFileName );
-      
-      scanner.close();
+      filterFile( oldFileName, newFileName, new LineFilter().removeWord( token ) );
    }
    
    /**
@@ -2255,21 +2527,10 @@ public class Dictionary extends LinkedHashMap {
       
       @param fileName The name of the file to be editted
       @param token If words contain the token, they are removed.
+      @see filterFile( String oldFileName, String newFileName, LineFilter filter )
    */
    public void removeWordsContainingX( String fileName, String token ) {
-      Scanner scanner = getScanner( fileName );
-      
-      ArrayList<String> list = new ArrayList<String>();
-      
-      while( scanner.hasNextLine() ) {
-         String word = scanner.nextLine();
-         if( !word.contains( token ) )
-            list.add( word );
-      }
-      
-      write( list, fileName );
-      
-      scanner.close();
+      removeWordsContainingX( fileName, fileName, token );
    }
    
    /**
@@ -2279,21 +2540,10 @@ public class Dictionary extends LinkedHashMap {
       @param oldFileName The name of the file to be used
       @param newFileName The name of the new file to be created
       @param token If words contain the token, they are removed.
+      @see LineFilter.removeContaining( String token )
    */
    public void removeWordsContainingX( String oldFileName, String newFileName, String token ) {
-      Scanner scanner = getScanner( oldFileName );
-      
-      ArrayList<String> list = new ArrayList<String>();
-      
-      while( scanner.hasNextLine() ) {
-         String word = scanner.nextLine();
-         if( !word.contains( token ) )
-            list.add( word );
-      }
-      
-      write( list, newFileName );
-      
-      scanner.close();
+      filterFile( oldFileName, newFileName, new LineFilter().removeContaining( token ) );
    }
    
    /**
@@ -2301,22 +2551,23 @@ public class Dictionary extends LinkedHashMap {
       file with these words removed.
       
       @param fileName The name of the file to be editted
-      @param token If words contain the token, they are removed.
+      @param tokens If words contain any of the tokens, they are removed.
+      @see removeWordsContainingX( String fileName, TokenMatcher matcher )
    */
    public void removeWordsContainingX( String fileName, String[] tokens ) {
-      Scanner scanner = getScanner( fileName );
-      
-      ArrayList<String> list = new ArrayList<String>();
-      
-      while( scanner.hasNextLine() ) {
-         String word = scanner.nextLine();
-         if( containsAny( word, tokens ) )
-            list.add( word );
-      }
-      
-      write( list, fileName );
+      removeWordsContainingX( fileName, fileName, compileTokens( tokens ) );
+   }
+   
+   /**
+      Given a text file, removes all words in that file containing any of the tokens of a compiled token set, and
+      replaces the file with these words removed.
       
-      scanner.close();
+      @param fileName The name of the file to be editted
+      @param matcher If words contain any of the compiled tokens, they are removed.
+      @see compileTokens( String[] tokens )
+   */
+   public void removeWordsContainingX( String fileName, TokenMatcher matcher ) {
+      removeWordsContainingX( fileName, fileName, matcher );
    }
    
    /**
@@ -2325,22 +2576,26 @@ public class Dictionary extends LinkedHashMap {
             
       @param oldFileName The name of the text file to be used
       @param newFileName The name of the new text file 
-      @param token If words contain the token, they are removed.
+      @param tokens If words contain any of the tokens, they are removed.
+      @see removeWordsContainingX( String oldFileName, String newFileName, TokenMatcher matcher )
    */
    public void removeWordsContainingX( String oldFileName, String newFileName, String[] tokens ) {
-      Scanner scanner = getScanner( oldFileName );
-      
-      ArrayList<String> list = new ArrayList<String>();
-      
-      while( scanner.hasNextLine() ) {
-         String word = scanner.nextLine();
-         if( !containsAny( word, tokens ) )
-            list.add( word );
-      }
-      
-      write( list, newFileName );
-      
-      scanner.close();
+      removeWordsContainingX( oldFileName, newFileName, compileTokens( tokens ) );
+   }
+   
+   /**
+      Given a text file, removes all words in that file containing any of the tokens of a compiled token set, and
+      creates a new file with the words that were not removed (preserves old file). Each word is read only once no matter
+      how many tokens there are
+            
+      @param oldFileName The name of the text file to be used
+      @param newFileName The name of the new text file 
+      @param matcher If words contain any of the compiled tokens, they are removed.
+      @see compileTokens( String[] tokens )
+      @see LineFilter.removeContaining( TokenMatcher matcher )
+   */
+   public void removeWordsContainingX( String oldFileName, String newFileName, TokenMatcher matcher ) {
+      filterFile( oldFileName, newFileName, new LineFilter().removeContaining( matcher ) );
    }
    
    /**
@@ -2348,21 +2603,10 @@ public class Dictionary extends LinkedHashMap {
       
       @param fileName The file to remove words from
       @param upperLimit All words as long as this limit and longer it will be removed
+      @see filterFile( String oldFileName, String newFileName, LineFilter filter )
    */
    public void removeWordsLongerThanX( String fileName, int upperLimit ) {
-      Scanner scanner = getScanner( fileName );
-      
-      ArrayList<String> list = new ArrayList<String>();
-      
-      while( scanner.hasNextLine() ) {
-         String word = scanner.nextLine();
-         if( word.length() < upperLimit )
-            list.add( word );
-      }
-      
-      write( list, fileName );
-      
-      scanner.close();
+      removeWordsLongerThanX( fileName, fileName, upperLimit );
    }
    
    /**
@@ -2372,45 +2616,57 @@ public class Dictionary extends LinkedHashMap {
       @param oldFileName The text file to be used / scanned
       @param newFileName The text file to be created with the words that were not removed
       @param upperLimit All words as long as this limit and longer it will be removed
+      @see LineFilter.removeLongerThan( int upperLimit )
    */
    public void removeWordsLongerThanX( String oldFileName, String newFileName, int upperLimit ) {
-      Scanner scanner = getScanner( oldFileName );
+      filterFile( oldFileName, newFileName, new LineFilter().removeLongerThan( upperLimit ) );
+   }
+   
+   /**
+      Given a text file, remove every word that any rule of a filter matches, and replace the file with the words left.
+      However many rules the filter has, the file is read once
       
-      ArrayList<String> list = new ArrayList<String>();
+      eg. filterFile( "words.txt", new LineFilter().removeContaining( "Q" ).removeLongerThan( 8 ).removeWord( "CAT" ) );
       
-      while( scanner.hasNextLine() ) {
-         String word = scanner.nextLine();
-         if( word.length() < upperLimit )
-            list.add( word );
-      }
+      @param fileName The text file to be filtered
+      @param filter The rules for the words to remove
+      @return BatchWriter.Result The number of bytes and lines kept
+      @see filterFile( String oldFileName, String newFileName, LineFilter filter )
+   */
+   public BatchWriter.Result filterFile( String fileName, LineFilter filter ) {
+      return filterFile( fileName, fileName, filter );
+   }
+   
+   /**
+      Given a text file, remove every word that any rule of a filter matches, and create a new file with the words left
+      (preserves old text file). The file is streamed one line at a time, so memory does not depend on its size, and the
+      new file replaces any old one in a single rename
       
-      write( list, newFileName );
+      @param oldFileName The text file to be filtered. It is read under exactly this name
+      @param newFileName The text file to be created with the words that were not removed. May be the same as oldFileName.
+                         Note: If newFileName does not end in '.txt', it will be appended, as write(..) has always done
+      @param filter The rules for the words to remove
+      @return BatchWriter.Result The number of bytes and lines kept
+      @see LineFilter.apply( String inFileName, String outFileName )
+   */
+   public BatchWriter.Result filterFile( String oldFileName, String newFileName, LineFilter filter ) {
+      if( !newFileName.contains(".txt") )
+         newFileName += ".txt";
       
-      scanner.close();
+      return filter.apply( oldFileName, newFileName );
    }
    
    /**
-      Clear the contents of a text file by overwriting the file with an empty String
+      Clear the contents of a text file by replacing it with an empty file
       
       @param fileName
+      @see BatchWriter
    */
    public void clearFile( String fileName ) {
       if( !fileName.contains(".txt") )
          fileName += ".txt";
-   	
-      File file = null;
-      PrintWriter printWriter = null;
-      
-      try
-      {
-         file = new File( fileName );
-         printWriter = new PrintWriter( file );
-         printWriter.print("");
-         printWriter.close();
-      } catch( IOException e ) {
-         System.out.println(e);
-      }
       
+      new BatchWriter( fileName ).commit();
    }
       
    /**
@@ -2520,51 +2776,6 @@ public class Dictionary extends LinkedHashMap {
       return false;
    }
    
-   /**
-      If a word contains any of the specified tokens, return true
-      
-      @param word The String to check for contained tokens
-      @param tokens The list of tokens to check for
-      @return boolean True if the word contains any of the tokens, false otherwise
-   */
-   private boolean containsAny( String word, String[] tokens ) {
-      for( int i = 0; i < tokens.length; i++ )
-         if( word.contains( tokens[i] ) )
-            return true;
-      
-      return false;
-   }
-   
-   /**
-      If a word contains all of the specified tokens, return true
-      
-      @param word The String to check for contained tokens
-      @param tokens The list of tokens to check for
-      @return boolean True if the word contains all of the tokens, false otherwise
-   */
-   private boolean containsAll( String word, String[] tokens ) {
-      for( int i = 0; i < tokens.length; i++ )
-         if( !word.contains( tokens[i] ) )
-            return false;
-      
-      return true;
-   }
-   
-   /**
-      Returns the factorial eg. 5! = 120, of an integer. Returns -1 if the number given is already negative, which is invalid
-      
-      @param num The number to take the factorial of
-      @return int The result of the factorial computation
-   */
-   private int fact( int num ) {
-      if( num < 0 )
-         return -1;
-      if( num == 0 )
-         return 1;
-      else
-         return fact( num - 1) * num;
-   }
-   
    /**
       Gets the number of lines in the file. NOTE: The Scanner object is closed at the end of this method.
       
@@ -2629,7 +2840,7 @@ public class Dictionary extends LinkedHashMap {
    private void addWords( Scanner scanner ) {
       while( scanner.hasNextLine() ) {
          String word = scanner.nextLine();
-         this.put( word, null );
+         super.put( word, null ); //not this.put(..), which would call changed() for every word loaded
       }
    }
    
@@ -2646,27 +2857,336 @@ public class Dictionary extends LinkedHashMap {
       while( scanner.hasNextLine() ) {
          String line = scanner.nextLine();
          String[] linePieces = line.split("\t");
-         if( linePieces.length > 0 ) {
+         if( linePieces.length > 0 && !line.isEmpty() ) {
             String word = linePieces[0];
-            String def = linePieces[1];
-            this.put( word, def );
+            String def = linePieces.length > 1 ? linePieces[1] : ""; //a line with no tab is a word with an empty definition, as in DefinitionFile
+            super.put( word, def ); //not this.put(..), which would call changed() for every word loaded
+         }
+      }
+   }
+   
+   /**
+      Gets the trie of all the words in the Dictionary, building it the first time it is needed. Most Dictionary objects
+      are never used to descramble, so the trie is not built by the constructors
+      
+      @return WordTrie The trie of all of the words
+      @see WordTrie
+   */
+   private WordTrie getWordTrie() {
+      WordTrie index = wordTrie;
+      if( index == null ) {
+         index = new WordTrie( words(), numWords() );
+         wordTrie = index;
+      }
+      
+      return index;
+   }
+   
+   /**
+      Gets the positional bitmap index of all the words in the Dictionary, building it the first time it is needed
+      
+      @return PositionIndex The index of which words have which letter at which position
+      @see PositionIndex
+   */
+   private PositionIndex getPositionIndex() {
+      PositionIndex index = positionIndex;
+      if( index == null ) {
+         index = new PositionIndex( words(), VOWELS );
+         positionIndex = index;
+      }
+      
+      return index;
+   }
+   
+   /**
+      Builds the lookup indexes over the words of the Dictionary. Called once by each constructor after all of the
+      words have been added. A Dictionary using a compact WordStore does not build them up front, since the indexes
+      would hold on to a String for every word and undo the savings of the store. If the definitions were left in the
+      defs file, its word arena already holds the words in the same order as the map, so it is shared rather than built
+      again
+      
+      @see WordArena
+      @see getAnagramIndex()
+   */
+   private void buildIndexes() {
+      if( wordStore == null ) {
+         if( definitionFile != null )
+            wordArena = definitionFile.getWordArena();
+         else
+            wordArena = new WordArena( words(), numWords() );
+         getAnagramIndex();
+         getLengthIndex();
+      }
+   }
+   
+   /**
+      Called after every change to the map. The word arena no longer matches the words, so it is dropped, and isWord(..)
+      looks words up in the map from then on. The Bloom filter would turn away new words, so it is skipped. The
+      definition index, and every other index built from the words, is dropped and built again from the new words the
+      next time it is needed, and the descramble results cached for the old words are cleared. This is tracked here
+      rather than guessed from the size of the map, which stays the same when one word is put and another removed. The
+      constructors fill the map with HashMap.put(..), so loading the words does not call this
+   */
+   private void changed() {
+      wordArena = null;
+      bloomStale = true;
+      definitionIndex = null;
+      anagramIndex = null;
+      lengthIndex = null;
+      nGramIndex = null;
+      wordTrie = null;
+      positionIndex = null;
+      
+      ResultCache cache = resultCache;
+      if( cache != null )
+         cache.clear();
+   }
+   
+   /**
+      Calls changed() if a mutator of the map added or removed a word, or changed the definition of one
+      
+      @param oldSize The size of the map before the mutator
+      @param oldDef The definition of the word before the mutator
+      @param newDef The definition of the word after the mutator
+   */
+   private void changedIf( int oldSize, String oldDef, String newDef ) {
+      if( oldSize != size() || !Objects.equals( oldDef, newDef ) )
+         changed();
+   }
+   
+   /**
+      Wrap an iterator over one of the views of the map, so that removing through it calls changed()
+      
+      @param iterator The iterator of the view of the LinkedHashMap
+      @return Iterator<T> The same iterator, calling changed() after each remove()
+   */
+   private <T> Iterator<T> trackedIterator( final Iterator<T> iterator ) {
+      return new Iterator<T>() {
+         public boolean hasNext() {
+            return iterator.hasNext();
+         }
+         
+         public T next() {
+            return iterator.next();
+         }
+         
+         public void remove() {
+            iterator.remove();
+            changed();
+         }
+      };
+   }
+   
+   /**
+      Wrap an entry of the map, so that setting its definition calls changed()
+      
+      @param entry The entry of the LinkedHashMap
+      @return Map.Entry<String, String> The same entry, calling changed() when setValue(..) changes the definition
+   */
+   private Map.Entry<String, String> trackedEntry( final Map.Entry<String, String> entry ) {
+      return new Map.Entry<String, String>() {
+         public String getKey() {
+            return entry.getKey();
+         }
+         
+         public String getValue() {
+            return entry.getValue();
+         }
+         
+         public String setValue( String def ) {
+            String old = entry.setValue( def );
+            if( !Objects.equals( old, def ) )
+               changed();
+            return old;
+         }
+         
+         public boolean equals( Object o ) {
+            return entry.equals( o );
+         }
+         
+         public int hashCode() {
+            return entry.hashCode();
+         }
+         
+         public String toString() {
+            return entry.toString();
+         }
+      };
+   }
+   
+   /**
+      Gets the number of words the indexes are built over, as a size hint for them. This is NUM_WORDS until the map is
+      changed, and the size of the map after that
+      
+      @return int The number of words
+   */
+   private int numWords() {
+      return wordStore != null ? NUM_WORDS : this.size();
+   }
+   
+   /**
+      Gets the n-gram index of all the words in the Dictionary, building it the first time a substring search needs it
+      
+      @return NGramIndex The unigram, bigram and trigram posting lists of the words
+      @see NGramIndex
+   */
+   private NGramIndex getNGramIndex() {
+      NGramIndex index = nGramIndex;
+      if( index == null ) {
+         index = new NGramIndex( words(), numWords() );
+         nGramIndex = index;
+      }
+      
+      return index;
+   }
+   
+   /**
+      Get an uppercase copy of a list of Strings, leaving the list itself alone
+      
+      @param tokens The list of Strings
+      @return String[] The Strings in uppercase
+   */
+   private String[] toUpperCase( String[] tokens ) {
+      String[] result = new String[ tokens.length ];
+      for( int i = 0; i < tokens.length; i++ )
+         result[i] = tokens[i].toUpperCase();
+      return result;
+   }
+   
+   /**
+      Gets the full-text index of the definitions, building it the first time a definition is looked for. Most
+      Dictionary objects never search their definitions, so the index is not built by the constructors. If the
+      definitions were left in the defs file, the index reads them out of the mapped file as it is built and again only
+      when a query needs the text of one, so they are never all held on the heap
+      
+      @return DefinitionIndex The term posting lists and exact hash of the definitions
+      @see DefinitionIndex
+      @see DefinitionFile.defsOf( String[] words, String[] heapDefs )
+   */
+   private DefinitionIndex getDefinitionIndex() {
+      DefinitionIndex index = definitionIndex;
+      if( index == null ) {
+         String[] wordList = new String[ this.size() ];
+         String[] defList = new String[ this.size() ];
+         readEntries( wordList, defList );
+         if( definitionFile != null )
+            index = new DefinitionIndex( wordList, definitionFile.defsOf( wordList, defList ) );
+         else
+            index = new DefinitionIndex( wordList, defList );
+         definitionIndex = index;
+      }
+      
+      return index;
+   }
+   
+   /**
+      Copy the words and definitions of the map into two lists, in dictionary order. Definitions left in the defs file
+      are not read; their words get null, as they have in the map
+      
+      @param wordList The list to fill with the words; as long as the map
+      @param defList The list to fill with the definition of each word in the map; as long as the map
+      @return boolean True if any word has a definition in the map
+   */
+   private boolean readEntries( String[] wordList, String[] defList ) {
+      boolean anyDefs = false;
+      int i = 0;
+      for( Map.Entry<String, String> entry : super.entrySet() ) {
+         wordList[i] = entry.getKey();
+         defList[i] = entry.getValue();
+         anyDefs |= defList[i] != null;
+         i++;
+      }
+      return anyDefs;
+   }
+   
+   /**
+      Wrap an action on lines of text as an action on definition numbers, which turns each number into the word and its
+      definition separated by a tab
+      
+      @param action What to do with each line
+      @return IntConsumer The action on definition numbers
+   */
+   private IntConsumer defLines( final Consumer<String> action ) {
+      final DefinitionIndex index = getDefinitionIndex();
+      return new IntConsumer() {
+         public void accept( int id ) {
+            action.accept( index.getWord( id ) + '\t' + index.getDef( id ) );
+         }
+      };
+   }
+   
+   /**
+      Get an action that adds each String it is given to a list
+      
+      @param list The list to add to
+      @return Consumer<String> The action
+   */
+   private Consumer<String> addTo( final ArrayList<String> list ) {
+      return new Consumer<String>() {
+         public void accept( String line ) {
+            list.add( line );
          }
+      };
+   }
+   
+   /**
+      Gets the length index of all the words in the Dictionary, building it if it has not been built yet
+      
+      @return LengthIndex The words sorted by length and then alphabetically
+      @see LengthIndex
+   */
+   private LengthIndex getLengthIndex() {
+      LengthIndex index = lengthIndex;
+      if( index == null ) {
+         index = new LengthIndex( words(), numWords() );
+         lengthIndex = index;
       }
+      
+      return index;
    }
    
    /**
-      Adds the contents of an array to the end of an ArrayList
+      Gets the anagram index of all the words in the Dictionary, building it if it has not been built yet
       
-      @param arrayList The ArrayList to add the array contents to
-      @param list The array to add to the ArrayList
-      @return ArrayList<String> Contains the contents of the original list plus the contents of the array
+      @return AnagramIndex The sorted-letter signature index of the words
+      @see AnagramIndex
    */
-   private ArrayList<String> addArray( ArrayList<String> arrayList, String[] list ) {
-      for( int i = 0; i < list.length; i++ ) {
-         arrayList.add( list[i] );
+   private AnagramIndex getAnagramIndex() {
+      AnagramIndex index = anagramIndex;
+      if( index == null ) {
+         index = new AnagramIndex( words(), numWords() );
+         anagramIndex = index;
       }
       
-      return arrayList;
+      return index;
+   }
+   
+   /**
+      Gets all of the words in the Dictionary, in the order they are stored. This is the key set of the map, unless the
+      Dictionary was made with a compact WordStore, in which case the words are read out of the store
+      
+      @return Iterable<String> The words of the Dictionary
+      @see WordStore
+   */
+   private Iterable<String> words() {
+      if( wordStore != null )
+         return wordStore;
+      
+      LinkedHashMap<String, String> map = this; //I don't understand why I have to do this instead of just calling this.keySet() below
+      return map.keySet();
+   }
+   
+   /**
+      Join a list of one-character specs into a single String of specs
+      
+      @param specs The list of Strings that follow the spec's notations
+      @return String The specs joined together
+   */
+   private String joinSpecs( String[] specs ) {
+      StringBuilder builder = new StringBuilder();
+      for( int i = 0; i < specs.length; i++ )
+         builder.append( specs[i] );
+      return builder.toString();
    }
    
    /**
@@ -0,0 +1,700 @@
+/**
+   DictionaryImage.java
+
+      A compiled, binary image of the words of a Dictionary that is read straight out of a memory-mapped file. Opening an image
+      does not parse or copy anything: the file is mapped with FileChannel.map(..), and every lookup reads the mapped pages
+      directly. The tables are checked once when the image is opened, in one pass over them, so that a damaged image is turned
+      away rather than failing in the middle of a lookup. Since the pages belong to the operating system's file cache, every
+      process that maps the same image shares one copy of it.
+
+      --Image Format-- (all numbers are big-endian)
+
+      HEADER
+         int  MAGIC         -- 0x44494354 ("DICT")
+         int  VERSION       -- the format version; images of any other version are rejected
+         int  numWords
+         int  numSections
+         numSections x { int id, int reserved, long offset, long length }
+
+      WORDS section (required)    -- every word, one byte per letter, in sorted order with no separators
+      OFFSETS section (required)  -- int[ numWords + 1 ]; word i is bytes offsets[i] to offsets[i+1] of WORDS
+      HASH section (required)     -- int tableSize, then int[ tableSize ] open-addressing table of word number + 1 (0 is empty)
+      ANAGRAMS section (optional) -- int numGroups, int tableSize, int[ tableSize ] table of group number + 1,
+                                     long[ numGroups ] signature hashes, int[ numGroups + 1 ] group starts, and
+                                     int[ numWords ] word numbers grouped by sorted-letter signature (see AnagramIndex.java)
+
+      Words are stored one byte per character, so only words made of characters 0-255 can be compiled. Images are limited to
+      2 GB, as a single MappedByteBuffer can map no more than that.
+
+   @author Peter Olson
+   @version 10/18/26
+   @see Dictionary.java
+   @see WordStore.java
+   @see AnagramIndex.java
+
+**/
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.NoSuchElementException;
+
+public class DictionaryImage implements WordStore {
+
+   public static final int MAGIC = 0x44494354;
+   public static final int VERSION = 1;
+
+   public static final int SECTION_WORDS = 1;
+   public static final int SECTION_OFFSETS = 2;
+   public static final int SECTION_HASH = 3;
+   public static final int SECTION_ANAGRAMS = 4;
+
+   private static final int HEADER_SIZE = 16;
+   private static final int SECTION_ENTRY_SIZE = 24;
+   private static final int BUFFER_OBJECT_SIZE = 64; //approximate heap taken by one ByteBuffer, IntBuffer or LongBuffer object
+
+   private final MappedByteBuffer buffer;
+   private final int numWords;
+   private final int wordsStart;
+   private final IntBuffer offsets;
+   private final IntBuffer hashTable;
+   private final int hashMask;
+
+   //Optional anagram section; null if the image was compiled without it
+   private final IntBuffer anagramTable;
+   private final LongBuffer anagramHash;
+   private final IntBuffer anagramStart;
+   private final IntBuffer anagramMembers;
+   private final int anagramMask;
+
+   /**
+      Map an image file into memory. Nothing is copied out of the file. The header, the word offsets and the hash tables
+      are checked, so that every lookup stays inside its section and every probe of a hash table ends
+
+      @param fileName The image file made by compile(..)
+      @throws UncheckedIOException If the file cannot be read
+      @throws IllegalArgumentException If the file is not an image, is of another version, is missing a required section,
+                                       has a section that does not fit in the file, or has a table with an entry out of range
+   */
+   public DictionaryImage( String fileName ) {
+      try( FileChannel channel = FileChannel.open( Paths.get( fileName ), StandardOpenOption.READ ) ) {
+         buffer = channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() );
+      } catch( IOException e ) {
+         throw new UncheckedIOException( e );
+      }
+
+      if( buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC )
+         throw new IllegalArgumentException( fileName + " is not a dictionary image" );
+      if( buffer.getInt(4) != VERSION )
+         throw new IllegalArgumentException( fileName + " is image version " + buffer.getInt(4) + ", expected " + VERSION );
+
+      numWords = buffer.getInt(8);
+      int numSections = buffer.getInt(12);
+      if( numWords < 0 || numSections < 0 || numSections > ( buffer.capacity() - HEADER_SIZE ) / SECTION_ENTRY_SIZE )
+         throw new IllegalArgumentException( fileName + " has a damaged header: " + numWords + " words, " + numSections + " sections" );
+
+      ByteBuffer words = requiredSection( SECTION_WORDS, fileName );
+      wordsStart = sectionOffset( SECTION_WORDS );
+      ByteBuffer offsetBytes = requiredSection( SECTION_OFFSETS, fileName );
+      if( offsetBytes.capacity() < 4L * ( numWords + 1 ) )
+         throw new IllegalArgumentException( fileName + " has an OFFSETS section too short for " + numWords + " words" );
+      offsets = offsetBytes.asIntBuffer();
+      checkStarts( offsets, numWords, words.capacity(), fileName, "OFFSETS" );
+
+      ByteBuffer hash = requiredSection( SECTION_HASH, fileName );
+      int tableSize = hash.capacity() < 4 ? 0 : hash.getInt(0);
+      if( tableSize <= 0 || Integer.bitCount( tableSize ) != 1 || 4L * tableSize > hash.capacity() - 4 )
+         throw new IllegalArgumentException( fileName + " has a HASH section of the wrong size" );
+      hashMask = tableSize - 1;
+      hashTable = slice( hash, 4, 4 * tableSize ).asIntBuffer();
+      checkTable( hashTable, numWords, fileName, "HASH" );
+
+      ByteBuffer anagrams = sectionSlice( SECTION_ANAGRAMS, fileName );
+      if( anagrams == null ) {
+         anagramTable = null;
+         anagramHash = null;
+         anagramStart = null;
+         anagramMembers = null;
+         anagramMask = 0;
+      } else {
+         int numGroups = anagrams.capacity() < 8 ? -1 : anagrams.getInt(0);
+         int anagramTableSize = anagrams.capacity() < 8 ? 0 : anagrams.getInt(4);
+         long needed = 8 + 4L * anagramTableSize + 8L * numGroups + 4L * ( numGroups + 1 ) + 4L * numWords;
+         if( numGroups < 0 || anagramTableSize <= 0 || Integer.bitCount( anagramTableSize ) != 1 || needed > anagrams.capacity() )
+            throw new IllegalArgumentException( fileName + " has an ANAGRAMS section of the wrong size" );
+         int position = 8;
+         anagramTable = slice( anagrams, position, 4 * anagramTableSize ).asIntBuffer();
+         position += 4 * anagramTableSize;
+         anagramHash = slice( anagrams, position, 8 * numGroups ).asLongBuffer();
+         position += 8 * numGroups;
+         anagramStart = slice( anagrams, position, 4 * ( numGroups + 1 ) ).asIntBuffer();
+         position += 4 * ( numGroups + 1 );
+         anagramMembers = slice( anagrams, position, 4 * numWords ).asIntBuffer();
+         anagramMask = anagramTableSize - 1;
+
+         checkTable( anagramTable, numGroups, fileName, "ANAGRAMS" );
+         checkStarts( anagramStart, numGroups, numWords, fileName, "ANAGRAMS" );
+         for( int i = 0; i < numWords; i++ ) {
+            int member = anagramMembers.get(i);
+            if( member < 0 || member >= numWords )
+               throw new IllegalArgumentException( fileName + " has word number " + member + " in its ANAGRAMS section, but only " +
+                                                   numWords + " words" );
+         }
+      }
+   }
+
+   /**
+      Compile a list of words into an image file. The words are sorted, and repeated words are dropped
+
+      @param words The uppercase words to compile
+      @param fileName The image file to write. It is replaced if it already exists
+      @param includeAnagrams True to add the optional anagram section, false otherwise
+      @return int The number of words written to the image
+      @throws UncheckedIOException If the file cannot be written
+      @throws IllegalArgumentException If a word has a character that does not fit in one byte
+   */
+   public static int compile( Iterable<String> words, String fileName, boolean includeAnagrams ) {
+      ArrayList<String> list = new ArrayList<String>();
+      for( String word : words )
+         list.add( word );
+      String[] sorted = list.toArray( new String[ list.size() ] );
+      Arrays.sort( sorted );
+
+      //Drop repeated words
+      int n = 0;
+      for( int i = 0; i < sorted.length; i++ )
+         if( n == 0 || !sorted[i].equals( sorted[ n - 1 ] ) )
+            sorted[ n++ ] = sorted[i];
+      sorted = Arrays.copyOf( sorted, n );
+
+      //WORDS and OFFSETS
+      int totalLetters = 0;
+      for( String word : sorted )
+         totalLetters += word.length();
+
+      ByteBuffer wordBytes = ByteBuffer.allocate( totalLetters );
+      ByteBuffer offsetBytes = ByteBuffer.allocate( 4 * ( n + 1 ) );
+      for( String word : sorted ) {
+         offsetBytes.putInt( wordBytes.position() );
+         for( int i = 0; i < word.length(); i++ ) {
+            char c = word.charAt(i);
+            if( c > 0xFF )
+               throw new IllegalArgumentException( "Cannot compile '" + word + "': letters must fit in one byte" );
+            wordBytes.put( (byte)c );
+         }
+      }
+      offsetBytes.putInt( wordBytes.position() );
+
+      //HASH
+      int tableSize = tableSize( n );
+      int[] table = new int[ tableSize ];
+      for( int i = 0; i < n; i++ ) {
+         int slot = wordHash( sorted[i] ) & ( tableSize - 1 );
+         while( table[ slot ] != 0 )
+            slot = ( slot + 1 ) & ( tableSize - 1 );
+         table[ slot ] = i + 1;
+      }
+      ByteBuffer hashBytes = ByteBuffer.allocate( 4 + 4 * tableSize );
+      hashBytes.putInt( tableSize );
+      for( int slot : table )
+         hashBytes.putInt( slot );
+
+      ArrayList<Integer> ids = new ArrayList<Integer>();
+      ArrayList<ByteBuffer> sections = new ArrayList<ByteBuffer>();
+      ids.add( SECTION_WORDS );
+      sections.add( wordBytes );
+      ids.add( SECTION_OFFSETS );
+      sections.add( offsetBytes );
+      ids.add( SECTION_HASH );
+      sections.add( hashBytes );
+      if( includeAnagrams ) {
+         ids.add( SECTION_ANAGRAMS );
+         sections.add( compileAnagrams( sorted ) );
+      }
+
+      writeSections( ids, sections, n, fileName );
+
+      return n;
+   }
+
+   /**
+      Build the optional anagram section: the word numbers grouped by sorted-letter signature, with a hash table of the groups
+
+      @param sorted The sorted list of words in the image
+      @return ByteBuffer The section
+      @see AnagramIndex
+   */
+   private static ByteBuffer compileAnagrams( String[] sorted ) {
+      LinkedHashMap<String, ArrayList<Integer>> groups = new LinkedHashMap<String, ArrayList<Integer>>();
+      for( int i = 0; i < sorted.length; i++ ) {
+         char[] letters = new char[ sorted[i].length() ];
+         AnagramIndex.sortLetters( sorted[i], letters );
+         String signature = new String( letters );
+         ArrayList<Integer> group = groups.get( signature );
+         if( group == null ) {
+            group = new ArrayList<Integer>();
+            groups.put( signature, group );
+         }
+         group.add( i );
+      }
+
+      int numGroups = groups.size();
+      int tableSize = tableSize( numGroups );
+      int[] table = new int[ tableSize ];
+      long[] hashes = new long[ numGroups ];
+      int[] starts = new int[ numGroups + 1 ];
+      int[] members = new int[ sorted.length ];
+
+      int g = 0;
+      int m = 0;
+      for( String signature : groups.keySet() ) {
+         long hash = AnagramIndex.signatureHash( signature.toCharArray(), signature.length() );
+         int slot = (int)AnagramIndex.mix( hash ) & ( tableSize - 1 );
+         while( table[ slot ] != 0 )
+            slot = ( slot + 1 ) & ( tableSize - 1 );
+         table[ slot ] = g + 1;
+
+         hashes[g] = hash;
+         starts[g] = m;
+         for( int id : groups.get( signature ) )
+            members[ m++ ] = id;
+         g++;
+      }
+      starts[ numGroups ] = m;
+
+      ByteBuffer section = ByteBuffer.allocate( 8 + 4 * tableSize + 8 * numGroups + 4 * ( numGroups + 1 ) + 4 * sorted.length );
+      section.putInt( numGroups );
+      section.putInt( tableSize );
+      for( int slot : table )
+         section.putInt( slot );
+      for( long hash : hashes )
+         section.putLong( hash );
+      for( int start : starts )
+         section.putInt( start );
+      for( int member : members )
+         section.putInt( member );
+
+      return section;
+   }
+
+   /**
+      Write the header, the section table, and then each section to the image file
+
+      @param ids The id of each section
+      @param sections The contents of each section, filled up to their positions
+      @param numWords The number of words in the image
+      @param fileName The image file to write
+   */
+   private static void writeSections( ArrayList<Integer> ids, ArrayList<ByteBuffer> sections, int numWords, String fileName ) {
+      int numSections = sections.size();
+      ByteBuffer header = ByteBuffer.allocate( HEADER_SIZE + SECTION_ENTRY_SIZE * numSections );
+      header.putInt( MAGIC );
+      header.putInt( VERSION );
+      header.putInt( numWords );
+      header.putInt( numSections );
+
+      long offset = header.capacity();
+      for( int i = 0; i < numSections; i++ ) {
+         ByteBuffer section = sections.get(i);
+         section.flip();
+         //Keep each section 8-byte aligned so that the int and long views line up
+         offset = ( offset + 7 ) & ~7L;
+         header.putInt( ids.get(i) );
+         header.putInt( 0 );
+         header.putLong( offset );
+         header.putLong( section.remaining() );
+         offset += section.remaining();
+      }
+      header.flip();
+
+      Path path = Paths.get( fileName );
+      try( FileChannel channel = FileChannel.open( path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                   StandardOpenOption.TRUNCATE_EXISTING ) ) {
+         while( header.hasRemaining() )
+            channel.write( header );
+         for( int i = 0; i < numSections; i++ ) {
+            ByteBuffer section = sections.get(i);
+            long position = ( channel.position() + 7 ) & ~7L;
+            channel.position( position );
+            while( section.hasRemaining() )
+               channel.write( section );
+         }
+      } catch( IOException e ) {
+         throw new UncheckedIOException( e );
+      }
+   }
+
+   /**
+      Tells whether the given word is in the image. Does not create any objects
+
+      @param word The word to look up. Must be uppercase
+      @return boolean True if it is a word, false otherwise
+   */
+   public boolean contains( CharSequence word ) {
+      return indexOf( word ) != -1;
+   }
+
+   /**
+      Get the number of the given word ie. its position in the sorted list of words
+
+      @param word The word to look up. Must be uppercase
+      @return int The number of the word, or -1 if it is not in the image
+   */
+   public int indexOf( CharSequence word ) {
+      int slot = wordHash( word ) & hashMask;
+      int entry;
+      //A table with no empty slot ends the search after every slot has been looked at once
+      for( int probes = 0; probes <= hashMask && ( entry = hashTable.get( slot ) ) != 0; probes++ ) {
+         if( wordEquals( entry - 1, word ) )
+            return entry - 1;
+         slot = ( slot + 1 ) & hashMask;
+      }
+      return -1;
+   }
+
+   /**
+      Get the word with the given number
+
+      @param index The number of the word, from 0 to size() - 1
+      @return String The word
+   */
+   public String getWord( int index ) {
+      int start = offsets.get( index );
+      int end = offsets.get( index + 1 );
+      char[] letters = new char[ end - start ];
+      for( int i = 0; i < letters.length; i++ )
+         letters[i] = (char)( buffer.get( wordsStart + start + i ) & 0xFF );
+      return new String( letters );
+   }
+
+   /**
+      Get all of the words that begin with the given prefix, in alphabetical order. The words are sorted in the image,
+      so this is a binary search for the first match followed by a scan
+
+      @param prefix The beginning of the words to find. Must be uppercase
+      @return ArrayList<String> The list of words beginning with the prefix
+   */
+   public ArrayList<String> getWordsWithPrefix( String prefix ) {
+      int lo = 0;
+      int hi = numWords;
+      while( lo < hi ) {
+         int mid = ( lo + hi ) >>> 1;
+         if( compareTo( mid, prefix ) < 0 )
+            lo = mid + 1;
+         else
+            hi = mid;
+      }
+
+      ArrayList<String> result = new ArrayList<String>();
+      for( int i = lo; i < numWords && startsWith( i, prefix ); i++ )
+         result.add( getWord(i) );
+
+      return result;
+   }
+
+   /**
+      Tells whether the image was compiled with the anagram section
+
+      @return boolean True if getAnagrams(..) can be used, false otherwise
+   */
+   public boolean hasAnagrams() {
+      return anagramTable != null;
+   }
+
+   /**
+      Get all of the words in the image that are made up of exactly the given letters, in alphabetical order
+
+      @param letters The letters to find the anagrams of. Case does not matter
+      @return String[] The list of words using all of the letters, or null if the image has no anagram section
+      @see AnagramIndex.getAnagrams( String letters )
+   */
+   public String[] getAnagrams( String letters ) {
+      if( anagramTable == null )
+         return null;
+
+      char[] sorted = new char[ letters.length() ];
+      int length = AnagramIndex.sortLetters( letters, sorted );
+      long hash = AnagramIndex.signatureHash( sorted, length );
+
+      int slot = (int)AnagramIndex.mix( hash ) & anagramMask;
+      int entry;
+      for( int probes = 0; probes <= anagramMask && ( entry = anagramTable.get( slot ) ) != 0; probes++ ) {
+         int g = entry - 1;
+         int start = anagramStart.get( g );
+         int end = anagramStart.get( g + 1 );
+         if( anagramHash.get( g ) == hash && start < end &&
+             AnagramIndex.sameSignature( getWord( anagramMembers.get( start ) ), sorted, length ) ) {
+            String[] words = new String[ end - start ];
+            for( int i = start; i < end; i++ )
+               words[ i - start ] = getWord( anagramMembers.get(i) );
+            return words;
+         }
+         slot = ( slot + 1 ) & anagramMask;
+      }
+
+      return new String[0];
+   }
+
+   /**
+      Iterate over all of the words in the image in alphabetical order
+
+      @return Iterator<String> The iterator over the words
+   */
+   public Iterator<String> iterator() {
+      return new Iterator<String>() {
+         private int next = 0;
+
+         public boolean hasNext() {
+            return next < numWords;
+         }
+
+         public String next() {
+            if( next >= numWords )
+               throw new NoSuchElementException();
+            return getWord( next++ );
+         }
+      };
+   }
+
+   /**
+      Get the number of words in the image
+
+      @return int The number of words
+   */
+   public int size() {
+      return numWords;
+   }
+
+   /**
+      Get the number of bytes of heap used by the image. The image itself is mapped outside of the heap, so this is only
+      the buffer objects that view it: the mapped buffer, and for each int or long view of a section, the view and the
+      byte slice under it. An image without the anagram section has four fewer views
+
+      @return long The heap usage in bytes
+   */
+   public long getMemoryUsage() {
+      int views = 2; //offsets, hashTable
+      if( anagramTable != null )
+         views += 4; //anagramTable, anagramHash, anagramStart, anagramMembers
+      return BUFFER_OBJECT_SIZE * ( 1 + 2L * views );
+   }
+
+   /**
+      Get the number of bytes of the mapped image file
+
+      @return long The size of the image in bytes
+   */
+   public long getMappedSize() {
+      return buffer.capacity();
+   }
+
+   /**
+      Tells whether the word with the given number is equal to the letters
+
+      @param index The number of the word
+      @param word The letters to compare to
+      @return boolean True if they are equal, false otherwise
+   */
+   private boolean wordEquals( int index, CharSequence word ) {
+      int start = offsets.get( index );
+      int length = offsets.get( index + 1 ) - start;
+      if( length != word.length() )
+         return false;
+
+      for( int i = 0; i < length; i++ )
+         if( ( buffer.get( wordsStart + start + i ) & 0xFF ) != word.charAt(i) )
+            return false;
+
+      return true;
+   }
+
+   /**
+      Compare the word with the given number to a String, in the same order as String.compareTo(..)
+
+      @param index The number of the word
+      @param other The String to compare to
+      @return int Negative if the word comes first, positive if it comes after, zero if they are equal
+   */
+   private int compareTo( int index, String other ) {
+      int start = offsets.get( index );
+      int length = offsets.get( index + 1 ) - start;
+      int limit = Math.min( length, other.length() );
+      for( int i = 0; i < limit; i++ ) {
+         int diff = ( buffer.get( wordsStart + start + i ) & 0xFF ) - other.charAt(i);
+         if( diff != 0 )
+            return diff;
+      }
+      return length - other.length();
+   }
+
+   /**
+      Tells whether the word with the given number begins with the prefix
+
+      @param index The number of the word
+      @param prefix The prefix to check for
+      @return boolean True if the word begins with the prefix, false otherwise
+   */
+   private boolean startsWith( int index, String prefix ) {
+      int start = offsets.get( index );
+      int length = offsets.get( index + 1 ) - start;
+      if( length < prefix.length() )
+         return false;
+
+      for( int i = 0; i < prefix.length(); i++ )
+         if( ( buffer.get( wordsStart + start + i ) & 0xFF ) != prefix.charAt(i) )
+            return false;
+
+      return true;
+   }
+
+   /**
+      Get the offset in the file of a section
+
+      @param id The id of the section
+      @return int The offset of the section, or -1 if the image does not have it
+   */
+   private int sectionOffset( int id ) {
+      int numSections = buffer.getInt(12);
+      for( int i = 0; i < numSections; i++ ) {
+         int entry = HEADER_SIZE + SECTION_ENTRY_SIZE * i;
+         if( buffer.getInt( entry ) == id )
+            return (int)buffer.getLong( entry + 8 );
+      }
+      return -1;
+   }
+
+   /**
+      Get a view of a section of the image
+
+      @param id The id of the section
+      @param fileName The image file, for the message
+      @return ByteBuffer The view of the section, or null if the image does not have it
+      @throws IllegalArgumentException If the section does not fit in the file
+   */
+   private ByteBuffer sectionSlice( int id, String fileName ) {
+      int numSections = buffer.getInt(12);
+      for( int i = 0; i < numSections; i++ ) {
+         int entry = HEADER_SIZE + SECTION_ENTRY_SIZE * i;
+         if( buffer.getInt( entry ) == id ) {
+            long offset = buffer.getLong( entry + 8 );
+            long length = buffer.getLong( entry + 16 );
+            if( offset < 0 || length < 0 || offset + length > buffer.capacity() )
+               throw new IllegalArgumentException( fileName + " has section " + id + " at " + offset + " + " + length +
+                                                   ", past the end of the file (" + buffer.capacity() + " bytes)" );
+            return slice( buffer, (int)offset, (int)length );
+         }
+      }
+      return null;
+   }
+
+   /**
+      Get a view of a section the image must have
+
+      @param id The id of the section
+      @param fileName The image file, for the message
+      @return ByteBuffer The view of the section
+      @throws IllegalArgumentException If the image does not have the section, or it does not fit in the file
+   */
+   private ByteBuffer requiredSection( int id, String fileName ) {
+      ByteBuffer section = sectionSlice( id, fileName );
+      if( section == null )
+         throw new IllegalArgumentException( fileName + " has no section " + id + ", which every image must have" );
+      return section;
+   }
+
+   /**
+      Check that every entry of an open-addressing table is empty (0) or the number of an entry + 1
+
+      @param table The table
+      @param numEntries The number of entries the table can point to
+      @param fileName The image file, for the message
+      @param section The name of the section holding the table, for the message
+      @throws IllegalArgumentException If an entry is negative or past the last entry
+   */
+   private static void checkTable( IntBuffer table, int numEntries, String fileName, String section ) {
+      for( int slot = 0; slot < table.capacity(); slot++ ) {
+         int entry = table.get( slot );
+         if( entry < 0 || entry > numEntries )
+            throw new IllegalArgumentException( fileName + " has entry " + entry + " in slot " + slot + " of its " + section +
+                                                " table, but only " + numEntries + " entries" );
+      }
+   }
+
+   /**
+      Check a list of start offsets: count + 1 offsets that never decrease, from 0 or more up to the end of what they index
+
+      @param starts The offsets
+      @param count The number of items; starts holds count + 1 offsets
+      @param limit The size of what the offsets index
+      @param fileName The image file, for the message
+      @param section The name of the section holding the offsets, for the message
+      @throws IllegalArgumentException If an offset is negative, smaller than the one before, or past the limit
+   */
+   private static void checkStarts( IntBuffer starts, int count, int limit, String fileName, String section ) {
+      int previous = 0;
+      for( int i = 0; i <= count; i++ ) {
+         int start = starts.get(i);
+         if( start < previous || start > limit )
+            throw new IllegalArgumentException( fileName + " has offset " + start + " at " + i + " of its " + section +
+                                                " section, outside " + previous + " to " + limit );
+         previous = start;
+      }
+   }
+
+   /**
+      Get a view of part of a buffer
+
+      @param source The buffer to view
+      @param offset The index of the first byte of the view
+      @param length The number of bytes in the view
+      @return ByteBuffer The view
+   */
+   private static ByteBuffer slice( ByteBuffer source, int offset, int length ) {
+      ByteBuffer view = source.duplicate();
+      view.position( offset );
+      view.limit( offset + length );
+      return view.slice();
+   }
+
+   /**
+      Get the size of a hash table for the given number of entries: a power of two at least twice as large
+
+      @param entries The number of entries in the table
+      @return int The table size
+   */
+   private static int tableSize( int entries ) {
+      return Integer.highestOneBit( Math.max( entries, 1 ) * 2 - 1 ) << 1;
+   }
+
+   /**
+      The hash of a word used by the HASH section. This must never change, since it is baked into every image file
+
+      @param word The word to hash
+      @return int The hash of the word
+   */
+   private static int wordHash( CharSequence word ) {
+      int hash = 0;
+      for( int i = 0; i < word.length(); i++ )
+         hash = 31 * hash + word.charAt(i);
+
+      //murmur3 finalizer, so that the low bits are well mixed
+      hash ^= hash >>> 16;
+      hash *= 0x85ebca6b;
+      hash ^= hash >>> 13;
+      hash *= 0xc2b2ae35;
+      hash ^= hash >>> 16;
+      return hash;
+   }
+
+}
@@ -0,0 +1,585 @@
+/**
+   DictionarySnapshot.java
+
+      A frozen copy of the words and definitions of a Dictionary, for serving lookups from many threads at once. A
+      Dictionary is a LinkedHashMap: anyone holding it can put(..) and remove(..) words, and its indexes are built lazily
+      the first time a query needs them, so it is not safe to share between threads without a lock. A snapshot has
+      neither problem:
+         1) every index is built in the constructor, before the snapshot can be seen by any other thread: the word
+            arena, anagram index, length index, n-gram index, word trie, positional bitmaps and, if there are
+            definitions, the definition index
+         2) nothing is changed after that, and every index is reached through a final field, so once a thread has the
+            snapshot it sees all of them fully built
+      Every query is then a read of arrays that never change, so any number of threads can run queries at the same time
+      with no locks, and no query can see a half-made update.
+
+      A snapshot is never changed. To add or remove words, make a new snapshot with withWords(..) or withoutWords(..),
+      and swap it in with a Holder: the threads still running queries on the old snapshot finish on it, and the next
+      query to call get() sees the new one. Only writers take the lock of the Holder, so that two updates made at the
+      same time do not lose one another's words; readers never wait for an update to be built.
+
+      The queries work as they do on a Dictionary, with the same names, and give the same results. A snapshot of a
+      Dictionary that left its definitions in the memory-mapped defs file shares the DefinitionFile, and reads a
+      definition from it only when a query needs one, so the definitions are not copied onto the heap.
+
+   @author Peter Olson
+   @version 10/18/26
+   @see Dictionary.java
+   @see WordArena.java
+   @see AnagramIndex.java
+   @see LengthIndex.java
+   @see NGramIndex.java
+   @see WordTrie.java
+   @see PositionIndex.java
+   @see DefinitionIndex.java
+   @see DefinitionFile.java
+
+**/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.UnaryOperator;
+
+public final class DictionarySnapshot {
+
+   public static final int MIN_DESCRAMBLE_LENGTH = 2;    //shortest word returned by descramble(..), as in Dictionary
+   public static final int DEFAULT_REP_LIMIT = 2;        //extra copies of letters descrambleReps(..) allows in all, by default
+   public static final int DEFAULT_LETTER_REP_LIMIT = 2; //times descrambleReps(..) allows any one letter to be used, by default
+
+   private final String vowels;
+   private final String[] words;
+   private final String[] heapDefs;          //the definition of each word held on the heap, or null if there are no definitions
+   private final DefinitionFile defsFile;    //the mapped defs file read for the words with no definition on the heap, or null
+   private final IntFunction<String> defs;   //word number --> definition, from heapDefs or defsFile; null if there are no definitions
+   private final WordArena wordArena;        //word --> number of the word, for isWord(..) and getDef(..)
+   private final AnagramIndex anagramIndex;
+   private final LengthIndex lengthIndex;
+   private final NGramIndex nGramIndex;
+   private final WordTrie wordTrie;
+   private final PositionIndex positionIndex;
+   private final DefinitionIndex definitionIndex; //null if there are no definitions
+
+   /**
+      Make a snapshot of a list of words, building all of its indexes
+
+      @param words The words, in dictionary order. Case does not matter; each word is kept once
+      @param defs The definition of each word, in the same order, or null if there are no definitions
+      @param vowels The letters that count as vowels in specs eg. Dictionary.VOWELS
+      @throws IllegalArgumentException If there is not one definition for each word
+   */
+   public DictionarySnapshot( String[] words, String[] defs, String vowels ) {
+      this( words, defs, null, vowels );
+   }
+
+   /**
+      Make a snapshot of a list of words whose definitions are held partly or wholly in a memory-mapped defs file,
+      building all of its indexes. Definitions are read from the file when a query needs them, not copied
+
+      @param words The words, in dictionary order. Case does not matter; each word is kept once
+      @param defs The definition of each word held on the heap, in the same order, or null where the word's definition is
+                  in the file. May be null if all of the definitions are in the file, or if there are none
+      @param defsFile The defs file, or null if the definitions are all on the heap
+      @param vowels The letters that count as vowels in specs eg. Dictionary.VOWELS
+      @throws IllegalArgumentException If there is not one definition for each word
+   */
+   public DictionarySnapshot( String[] words, String[] defs, DefinitionFile defsFile, String vowels ) {
+      if( defs != null && defs.length != words.length )
+         throw new IllegalArgumentException( "There are " + words.length + " words but " + defs.length + " definitions" );
+
+      //Uppercase the words and drop repeats, keeping the first definition of each
+      LinkedHashMap<String, String> entries = new LinkedHashMap<String, String>( words.length * 2 );
+      for( int i = 0; i < words.length; i++ ) {
+         String word = words[i].toUpperCase();
+         if( !entries.containsKey( word ) )
+            entries.put( word, defs == null ? null : defs[i] );
+      }
+
+      this.vowels = vowels;
+      this.words = entries.keySet().toArray( new String[ entries.size() ] );
+      this.defsFile = defsFile;
+      if( defs != null || defsFile != null )
+         heapDefs = entries.values().toArray( new String[ entries.size() ] );
+      else
+         heapDefs = null;
+      if( defsFile != null )
+         this.defs = defsFile.defsOf( this.words, heapDefs );
+      else if( heapDefs != null )
+         this.defs = new IntFunction<String>() {
+            public String apply( int id ) {
+               return heapDefs[ id ];
+            }
+         };
+      else
+         this.defs = null;
+
+      Iterable<String> list = Arrays.asList( this.words );
+      int n = this.words.length;
+      wordArena = new WordArena( list, n );
+      anagramIndex = new AnagramIndex( list, n );
+      lengthIndex = new LengthIndex( list, n );
+      nGramIndex = new NGramIndex( list, n );
+      wordTrie = new WordTrie( list, n );
+      positionIndex = new PositionIndex( list, vowels );
+      definitionIndex = this.defs == null ? null : new DefinitionIndex( this.words, this.defs );
+   }
+
+   /**
+      Make a new snapshot with words added. A word that is already in the snapshot is given the new definition
+
+      @param newWords The words to add. Case does not matter
+      @param newDefs The definition of each word, in the same order, or null to add the words with no definitions
+      @return DictionarySnapshot The new snapshot. This snapshot is not changed
+      @throws IllegalArgumentException If there is not one definition for each word
+   */
+   public DictionarySnapshot withWords( String[] newWords, String[] newDefs ) {
+      if( newDefs != null && newDefs.length != newWords.length )
+         throw new IllegalArgumentException( "There are " + newWords.length + " words but " + newDefs.length + " definitions" );
+
+      LinkedHashMap<String, String> entries = toMap();
+      for( int i = 0; i < newWords.length; i++ )
+         entries.put( newWords[i].toUpperCase(), newDefs == null ? null : newDefs[i] );
+
+      boolean hasDefs = heapDefs != null || newDefs != null;
+      return new DictionarySnapshot( entries.keySet().toArray( new String[ entries.size() ] ),
+                                     hasDefs ? entries.values().toArray( new String[ entries.size() ] ) : null, defsFile, vowels );
+   }
+
+   /**
+      Make a new snapshot with words removed. Words that are not in the snapshot are ignored
+
+      @param oldWords The words to remove. Case does not matter
+      @return DictionarySnapshot The new snapshot. This snapshot is not changed
+   */
+   public DictionarySnapshot withoutWords( String[] oldWords ) {
+      LinkedHashMap<String, String> entries = toMap();
+      for( String word : oldWords )
+         entries.remove( word.toUpperCase() );
+
+      return new DictionarySnapshot( entries.keySet().toArray( new String[ entries.size() ] ),
+                                     heapDefs != null ? entries.values().toArray( new String[ entries.size() ] ) : null, defsFile, vowels );
+   }
+
+   /**
+      Tells whether the word is in the snapshot. Case does not matter. Does not create any objects
+
+      @param word The word to check
+      @return boolean True if it is a word, false otherwise
+   */
+   public boolean isWord( CharSequence word ) {
+      return wordArena.contains( word );
+   }
+
+   /**
+      Tells whether the letters buf[off] to buf[off+len-1] are a word. Case does not matter. Does not create any objects
+
+      @param buf The array holding the letters
+      @param off The index of the first letter
+      @param len The number of letters
+      @return boolean True if it is a word, false otherwise
+   */
+   public boolean isWord( char[] buf, int off, int len ) {
+      return wordArena.contains( buf, off, len );
+   }
+
+   /**
+      Tells whether the given String is exactly the definition of a word in the snapshot
+
+      @param def The definition to look for
+      @return boolean True if it is a definition, false otherwise
+   */
+   public boolean isDef( String def ) {
+      if( def == null ) {
+         if( defsFile != null )
+            return false; //as in Dictionary, whose mapped definitions are never null
+         if( heapDefs == null )
+            return words.length > 0;
+         for( String d : heapDefs )
+            if( d == null )
+               return true;
+         return false;
+      }
+      return definitionIndex != null && definitionIndex.containsDef( def );
+   }
+
+   /**
+      Get the definition of a word. If the word is not in the snapshot, "That's not a word!" is returned
+
+      @param word The word to get the definition of. Case does not matter
+      @return String The definition, or null if the snapshot has no definition for the word
+   */
+   public String getDef( String word ) {
+      int index = wordArena.indexOf( word );
+      if( index == -1 )
+         return "That's not a word!";
+
+      return defs == null ? null : defs.apply( index );
+   }
+
+   /**
+      Tells whether the snapshot holds definitions
+
+      @return boolean True if it has definitions
+   */
+   public boolean hasDefs() {
+      return defs != null;
+   }
+
+   /**
+      Get the number of words in the snapshot
+
+      @return int The number of words
+   */
+   public int getNumWords() {
+      return words.length;
+   }
+
+   /**
+      Get all of the words, in dictionary order
+
+      @return String[] A copy of the words
+   */
+   public String[] getWords() {
+      return words.clone();
+   }
+
+   /**
+      @param length The length of the words to find
+      @return String[] The words of the given length, in alphabetical order
+      @see Dictionary.getXLetterWords( int length )
+   */
+   public String[] getXLetterWords( int length ) {
+      return lengthIndex.toArray( length );
+   }
+
+   /**
+      @param minLength The shortest length to include
+      @param maxLength The longest length to include
+      @return String[] The words within the range of lengths, shortest first and then in alphabetical order
+      @see Dictionary.getXLetterWords( int minLength, int maxLength )
+   */
+   public String[] getXLetterWords( int minLength, int maxLength ) {
+      return lengthIndex.toArray( minLength, maxLength );
+   }
+
+   /**
+      @param length The length of the words to count
+      @return int The number of words of the given length
+      @see Dictionary.getNumXLetterWords( int length )
+   */
+   public int getNumXLetterWords( int length ) {
+      return lengthIndex.count( length );
+   }
+
+   /**
+      @return int[] A new array where element L is the number of words of length L
+      @see Dictionary.getLengthHistogram()
+   */
+   public int[] getLengthHistogram() {
+      return lengthIndex.getHistogram();
+   }
+
+   /**
+      @param token The String searched for within the words
+      @return String[] The words that contain the token
+      @see Dictionary.getWordsContainingX( String token )
+   */
+   public String[] getWordsContainingX( String token ) {
+      return nGramIndex.getWordsContaining( token.toUpperCase() );
+   }
+
+   /**
+      @param tokens The Strings searched for within the words
+      @return String[] The words that contain all of the tokens
+      @see Dictionary.getWordsContainingX( String[] tokens )
+   */
+   public String[] getWordsContainingX( String[] tokens ) {
+      return nGramIndex.getWordsContainingAll( toUpperCase( tokens ) );
+   }
+
+   /**
+      @param word The word to find extensions of
+      @return String[] The words that contain the given word
+      @see Dictionary.getAppends( String word )
+   */
+   public String[] getAppends( String word ) {
+      return getWordsContainingX( word );
+   }
+
+   /**
+      @param token The String searched for within the words
+      @param exclusionToken The String that must not be within the words
+      @return String[] The words that contain the token but not the exclusion token
+      @see Dictionary.getWordsContainingXButNotY( String token, String exclusionToken )
+   */
+   public String[] getWordsContainingXButNotY( String token, String exclusionToken ) {
+      return getWordsContainingXButNotY( token, new String[]{ exclusionToken } );
+   }
+
+   /**
+      @param token The String searched for within the words
+      @param exclusionTokens The Strings that must not be within the words
+      @return String[] The words that contain the token but none of the exclusion tokens
+      @see Dictionary.getWordsContainingXButNotY( String token, String[] exclusionTokens )
+   */
+   public String[] getWordsContainingXButNotY( String token, String[] exclusionTokens ) {
+      return nGramIndex.getWordsContainingButNot( token.toUpperCase(), toUpperCase( exclusionTokens ) );
+   }
+
+   /**
+      @param token The String searched for within the definitions
+      @return String[] The words and their definitions (separated by tabs) that contain the token
+      @see Dictionary.getDefsContainingX( String token )
+   */
+   public String[] getDefsContainingX( String token ) {
+      DefLines lines = new DefLines();
+      if( definitionIndex != null )
+         definitionIndex.findContaining( token.toUpperCase(), lines );
+      return lines.toArray();
+   }
+
+   /**
+      @param tokens The tokens searched for within the definitions
+      @return String[] The words and their definitions (separated by tabs) that contain any of the tokens
+      @see Dictionary.getDefsContainingX( String[] tokens )
+   */
+   public String[] getDefsContainingX( String[] tokens ) {
+      DefLines lines = new DefLines();
+      if( definitionIndex != null )
+         definitionIndex.findContainingAny( toUpperCase( tokens ), lines );
+      return lines.toArray();
+   }
+
+   /**
+      @param terms The words that must all be in the definition
+      @return String[] The words and their definitions (separated by tabs) that use all of the terms
+      @see Dictionary.getDefsWithAllTerms( String[] terms )
+   */
+   public String[] getDefsWithAllTerms( String[] terms ) {
+      DefLines lines = new DefLines();
+      if( definitionIndex != null )
+         definitionIndex.findAll( terms, lines );
+      return lines.toArray();
+   }
+
+   /**
+      @param terms The words of which at least one must be in the definition
+      @return String[] The words and their definitions (separated by tabs) that use any of the terms
+      @see Dictionary.getDefsWithAnyTerm( String[] terms )
+   */
+   public String[] getDefsWithAnyTerm( String[] terms ) {
+      DefLines lines = new DefLines();
+      if( definitionIndex != null )
+         definitionIndex.findAny( terms, lines );
+      return lines.toArray();
+   }
+
+   /**
+      @param phrase The phrase to look for
+      @return String[] The words and their definitions (separated by tabs) that use the phrase
+      @see Dictionary.getDefsWithPhrase( String phrase )
+   */
+   public String[] getDefsWithPhrase( String phrase ) {
+      DefLines lines = new DefLines();
+      if( definitionIndex != null )
+         definitionIndex.findPhrase( phrase, lines );
+      return lines.toArray();
+   }
+
+   /**
+      Find all the words that can be made from a rack of letters, allowing rearrangement and removal. Any number of '?'
+      blanks may be used
+
+      @param letters The letters. Case does not matter
+      @return String[] The words, in alphabetical order
+      @see Dictionary.descramble( String str )
+   */
+   public String[] descramble( String letters ) {
+      return toArray( wordTrie.descramble( letters, MIN_DESCRAMBLE_LENGTH ) );
+   }
+
+   /**
+      @param str The String to find the anagrams of
+      @return String[] The words made of exactly the given letters, in dictionary order
+      @see Dictionary.descrambleAnagram( String str )
+   */
+   public String[] descrambleAnagram( String str ) {
+      return anagramIndex.getAnagrams( str );
+   }
+
+   /**
+      @param str The String to find the anagrams of
+      @return String[] The words that use all of the letters, with repeats, in alphabetical order
+      @see Dictionary.descrambleReps( String str )
+   */
+   public String[] descrambleReps( String str ) {
+      return descrambleReps( str, DEFAULT_REP_LIMIT );
+   }
+
+   /**
+      @param str The String to find the anagrams of
+      @param totalRepLimit The max allowed count of repeated letters, in total
+      @return String[] The words that use all of the letters, with repeats, in alphabetical order
+      @see Dictionary.descrambleReps( String str, int totalRepLimit )
+   */
+   public String[] descrambleReps( String str, int totalRepLimit ) {
+      return descrambleReps( str, DEFAULT_LETTER_REP_LIMIT, totalRepLimit );
+   }
+
+   /**
+      @param str The String to find the anagrams of
+      @param maxLetterReps The max number of times any one letter may be used
+      @param totalRepLimit The max allowed count of repeated letters, in total
+      @return String[] The words that use all of the letters, with repeats, in alphabetical order
+      @throws IllegalArgumentException If either limit is negative
+      @see Dictionary.descrambleReps( String str, int maxLetterReps, int totalRepLimit )
+   */
+   public String[] descrambleReps( String str, int maxLetterReps, int totalRepLimit ) {
+      return toArray( wordTrie.descrambleReps( str, maxLetterReps, totalRepLimit ) );
+   }
+
+   /**
+      @param specs A String of letters that follows the spec's notations. Case does not matter
+      @return SpecPattern The compiled specs, using the vowels of this snapshot
+      @throws IllegalArgumentException If there is an invalid character in the specs
+      @see Dictionary.compileSpecs( String specs )
+   */
+   public SpecPattern compileSpecs( String specs ) {
+      return new SpecPattern( specs, vowels );
+   }
+
+   /**
+      @param pattern The compiled specs
+      @return ArrayList<String> The words that match, in alphabetical order
+      @see Dictionary.descrambleSpecs( SpecPattern pattern )
+   */
+   public ArrayList<String> descrambleSpecs( SpecPattern pattern ) {
+      if( PositionIndex.canMatch( pattern ) )
+         return positionIndex.match( pattern );
+
+      return wordTrie.match( pattern );
+   }
+
+   /**
+      @param specs A String of letters that follows the spec's notations
+      @return ArrayList<String> The words that match, in alphabetical order
+      @throws IllegalArgumentException If there is an invalid character in the specs
+      @see descrambleSpecs( SpecPattern pattern )
+   */
+   public ArrayList<String> descrambleSpecs( String specs ) {
+      return descrambleSpecs( compileSpecs( specs ) );
+   }
+
+   /**
+      Get the words and definitions as a map that can be changed, for building the next snapshot
+
+      @return LinkedHashMap<String, String> word --> definition held on the heap (or null), in dictionary order
+   */
+   private LinkedHashMap<String, String> toMap() {
+      LinkedHashMap<String, String> entries = new LinkedHashMap<String, String>( words.length * 2 );
+      for( int i = 0; i < words.length; i++ )
+         entries.put( words[i], heapDefs == null ? null : heapDefs[i] );
+      return entries;
+   }
+
+   /**
+      Get an uppercase copy of a list of Strings
+
+      @param tokens The list of Strings
+      @return String[] The Strings in uppercase
+   */
+   private static String[] toUpperCase( String[] tokens ) {
+      String[] result = new String[ tokens.length ];
+      for( int i = 0; i < tokens.length; i++ )
+         result[i] = tokens[i].toUpperCase();
+      return result;
+   }
+
+   /**
+      @param list The list of words
+      @return String[] The words as an array
+   */
+   private static String[] toArray( ArrayList<String> list ) {
+      return list.toArray( new String[ list.size() ] );
+   }
+
+   /**
+      Collects the definitions found by the definition index as lines of the word and its definition, separated by a tab.
+      One is made per query, so queries on different threads never share one
+   */
+   private class DefLines implements IntConsumer {
+
+      private final ArrayList<String> lines = new ArrayList<String>();
+
+      public void accept( int id ) {
+         lines.add( definitionIndex.getWord( id ) + '\t' + definitionIndex.getDef( id ) );
+      }
+
+      String[] toArray() {
+         return DictionarySnapshot.toArray( lines );
+      }
+
+   }
+
+   /**
+      The current snapshot, which readers get with get() and writers replace as a whole. get() is a single volatile
+      read, so readers never wait. Writers are run one at a time, so an update always starts from the snapshot made by
+      the update before it
+   */
+   public static class Holder {
+
+      private final AtomicReference<DictionarySnapshot> current;
+
+      /**
+         @param snapshot The first snapshot
+      */
+      public Holder( DictionarySnapshot snapshot ) {
+         if( snapshot == null )
+            throw new IllegalArgumentException( "The snapshot must not be null" );
+         current = new AtomicReference<DictionarySnapshot>( snapshot );
+      }
+
+      /**
+         Get the current snapshot. Use the same snapshot for all the queries that must agree with each other
+
+         @return DictionarySnapshot The current snapshot
+      */
+      public DictionarySnapshot get() {
+         return current.get();
+      }
+
+      /**
+         Replace the current snapshot
+
+         @param snapshot The new snapshot
+         @return DictionarySnapshot The snapshot it replaced
+      */
+      public synchronized DictionarySnapshot set( DictionarySnapshot snapshot ) {
+         if( snapshot == null )
+            throw new IllegalArgumentException( "The snapshot must not be null" );
+         return current.getAndSet( snapshot );
+      }
+
+      /**
+         Build a new snapshot from the current one and swap it in. Readers go on using the current snapshot while the new
+         one is built
+
+         eg. holder.update( s -> s.withWords( new String[]{ "ZEN" }, null ) )
+
+         @param change Makes the new snapshot from the current one
+         @return DictionarySnapshot The new snapshot
+      */
+      public synchronized DictionarySnapshot update( UnaryOperator<DictionarySnapshot> change ) {
+         DictionarySnapshot next = change.apply( current.get() );
+         if( next == null )
+            throw new IllegalArgumentException( "The update made a null snapshot" );
+         current.set( next );
+         return next;
+      }
+
+   }
+
+}
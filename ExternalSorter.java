@@ -0,0 +1,358 @@
+/**
+   ExternalSorter.java
+
+      Sorts the lines of a text file of any size while holding only a bounded amount of it in memory (an external merge
+      sort). The file is sorted in two phases:
+         1) runs  -- the file is read in chunks that fit within the memory budget. Each chunk is sorted and spilled to a
+                     temporary run file. Chunks are sorted and written on a pool of threads while the next chunk is read
+         2) merge -- the run files are merged into the output with a priority queue holding the next line of each run.
+                     If there are more runs than MAX_FAN_IN, neighbouring runs are first merged into longer runs, so
+                     only MAX_FAN_IN files are ever open at once
+
+      The sort is stable: lines the comparator calls equal keep the order they had in the file. LENGTH (group the lines
+      by length, shortest first) relies on this to leave each group in its original order.
+
+      At most one chunk per thread is being sorted while one more is being read, so the heap used is about
+      ( numThreads + 1 ) x runBytes. The run size and the number of threads asked for are capped so that this stays
+      within MEMORY_SHARE of the largest heap the JVM will grow to (Runtime.maxMemory()): first the threads, so that no
+      run is cut below MIN_RUN_BYTES by them, and then the run size. The run files are written next to the output file
+      and are deleted when the sort is done. Files are read and written as UTF-8, and every line of the output ends with
+      a line separator. The output is written through a BatchWriter, so it only replaces the target once the whole sort
+      has succeeded.
+
+   @author Peter Olson
+   @version 10/18/26
+   @see Dictionary.java
+   @see BatchWriter.java
+
+**/
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class ExternalSorter {
+
+   public static final long DEFAULT_RUN_BYTES = 64L << 20;
+   public static final int MAX_FAN_IN = 128;
+   public static final long MIN_RUN_BYTES = 8L << 20;  //smallest run the thread count is cut down to keep
+   public static final double MEMORY_SHARE = 0.5;      //most of Runtime.maxMemory() the chunks being read and sorted may take
+
+   //Approximate heap taken by a line held in a run: the String, its byte[] and the reference to it
+   private static final int LINE_OVERHEAD = 64;
+
+   /** Lexicographic (String.compareTo(..)) order */
+   public static final Comparator<String> LEXICOGRAPHIC = new Comparator<String>() {
+      public int compare( String a, String b ) {
+         return a.compareTo( b );
+      }
+   };
+
+   /** Shortest first; lines of the same length keep the order they had */
+   public static final Comparator<String> LENGTH = new Comparator<String>() {
+      public int compare( String a, String b ) {
+         return a.length() - b.length();
+      }
+   };
+
+   /** Shortest first, then lexicographic within each length */
+   public static final Comparator<String> LENGTH_THEN_LEXICOGRAPHIC = new Comparator<String>() {
+      public int compare( String a, String b ) {
+         if( a.length() != b.length() )
+            return a.length() - b.length();
+         return a.compareTo( b );
+      }
+   };
+
+   private final Comparator<String> order;
+   private final long runBytes;
+   private final int numThreads;
+
+   /**
+      Make a sorter with the default memory budget, using one thread per processor, both capped to fit the heap
+
+      @param order The order to sort the lines into
+   */
+   public ExternalSorter( Comparator<String> order ) {
+      this( order, DEFAULT_RUN_BYTES, Runtime.getRuntime().availableProcessors() );
+   }
+
+   /**
+      Make a sorter
+
+      @param order The order to sort the lines into
+      @param runBytes The most heap (approximately) to fill with lines before sorting them and spilling them as a run.
+                      It is lowered if the runs of every thread would not fit in MEMORY_SHARE of the heap
+      @param numThreads The number of threads sorting and writing runs. It is lowered if the heap cannot hold a run of
+                        MIN_RUN_BYTES (or runBytes, if smaller) for each of them
+      @throws IllegalArgumentException If runBytes or numThreads is not positive
+   */
+   public ExternalSorter( Comparator<String> order, long runBytes, int numThreads ) {
+      if( runBytes <= 0 )
+         throw new IllegalArgumentException( "Run size must be positive: " + runBytes );
+      if( numThreads <= 0 )
+         throw new IllegalArgumentException( "Number of threads must be positive: " + numThreads );
+
+      //One chunk per thread is held while it is sorted, plus the one being read
+      long budget = (long)( Runtime.getRuntime().maxMemory() * MEMORY_SHARE );
+      int threads = (int)Math.max( 1, Math.min( numThreads, budget / Math.min( runBytes, MIN_RUN_BYTES ) - 1 ) );
+
+      this.order = order;
+      this.runBytes = Math.max( 1, Math.min( runBytes, budget / ( threads + 1 ) ) );
+      this.numThreads = threads;
+   }
+
+   /**
+      Get the most heap (approximately) filled with lines before they are sorted and spilled as a run, after capping
+
+      @return long The run size in bytes
+   */
+   public long getRunBytes() {
+      return runBytes;
+   }
+
+   /**
+      Get the number of threads sorting and writing runs, after capping
+
+      @return int The number of threads
+   */
+   public int getNumThreads() {
+      return numThreads;
+   }
+
+   /**
+      Sort the lines of a text file into another file. The two may be the same file, in which case it is replaced once
+      the sort is done
+
+      @param inFileName The text file to sort
+      @param outFileName The text file to write the sorted lines to. It is replaced if it already exists
+      @return long The number of lines sorted
+      @throws UncheckedIOException If a file cannot be read or written
+   */
+   public long sort( String inFileName, String outFileName ) {
+      Path out = Paths.get( outFileName ).toAbsolutePath();
+      Path dir = out.getParent();
+      ArrayList<Path> runs = new ArrayList<Path>();
+      try {
+         long lines = makeRuns( Paths.get( inFileName ), dir, runs );
+         while( runs.size() > MAX_FAN_IN )
+            runs = mergePass( runs, dir );
+
+         try( BatchWriter writer = new BatchWriter( out.toString() ) ) {
+            merge( runs, writer );
+            writer.commit();
+         }
+         return lines;
+      } catch( IOException e ) {
+         throw new UncheckedIOException( e );
+      } finally {
+         for( Path run : runs ) {
+            try {
+               Files.deleteIfExists( run );
+            } catch( IOException e ) {
+               //Leave it; it is only a temporary file
+            }
+         }
+      }
+   }
+
+   /**
+      Read the input in chunks that fit the memory budget, and sort and spill each chunk as a run
+
+      @param in The file to read
+      @param dir The directory to write the runs to
+      @param runs The list to add the run files to, in the order of the file
+      @return long The number of lines read
+      @throws IOException If a file cannot be read or written
+   */
+   private long makeRuns( Path in, final Path dir, ArrayList<Path> runs ) throws IOException {
+      ExecutorService pool = Executors.newFixedThreadPool( numThreads );
+      ArrayList<Future<Path>> pending = new ArrayList<Future<Path>>();
+      long lines = 0;
+      try( BufferedReader reader = Files.newBufferedReader( in ) ) {
+         ArrayList<String> chunk = new ArrayList<String>();
+         long chunkBytes = 0;
+         String line;
+         while( ( line = reader.readLine() ) != null ) {
+            chunk.add( line );
+            chunkBytes += LINE_OVERHEAD + line.length();
+            lines++;
+            if( chunkBytes >= runBytes ) {
+               //Wait for the oldest run if every thread is busy, so no more than numThreads chunks are held
+               if( pending.size() - runs.size() >= numThreads )
+                  runs.add( await( pending.get( runs.size() ) ) );
+               pending.add( pool.submit( spill( chunk, dir ) ) );
+               chunk = new ArrayList<String>();
+               chunkBytes = 0;
+            }
+         }
+         if( !chunk.isEmpty() || pending.isEmpty() )
+            pending.add( pool.submit( spill( chunk, dir ) ) );
+
+         while( runs.size() < pending.size() )
+            runs.add( await( pending.get( runs.size() ) ) );
+      } finally {
+         pool.shutdown();
+         //Any run still pending when the read failed is deleted once it is written
+         for( int i = runs.size(); i < pending.size(); i++ ) {
+            try {
+               Files.deleteIfExists( pending.get(i).get() );
+            } catch( Exception e ) {
+               //It was never written
+            }
+         }
+      }
+      return lines;
+   }
+
+   /**
+      Get the task that sorts a chunk and writes it to a new run file
+
+      @param chunk The lines of the chunk
+      @param dir The directory to write the run to
+      @return Callable<Path> The task, which returns the run file
+   */
+   private Callable<Path> spill( final ArrayList<String> chunk, final Path dir ) {
+      return new Callable<Path>() {
+         public Path call() throws IOException {
+            String[] lines = chunk.toArray( new String[ chunk.size() ] );
+            Arrays.sort( lines, order ); //stable
+            Path run = Files.createTempFile( dir, "sort", ".run" );
+            try( BufferedWriter writer = Files.newBufferedWriter( run ) ) {
+               for( String line : lines ) {
+                  writer.write( line );
+                  writer.newLine();
+               }
+            }
+            return run;
+         }
+      };
+   }
+
+   /**
+      Wait for a run to be written
+
+      @param run The run being written
+      @return Path The run file
+      @throws IOException If the run could not be written
+   */
+   private static Path await( Future<Path> run ) throws IOException {
+      try {
+         return run.get();
+      } catch( InterruptedException e ) {
+         Thread.currentThread().interrupt();
+         throw new IOException( "Interrupted while sorting", e );
+      } catch( ExecutionException e ) {
+         if( e.getCause() instanceof IOException )
+            throw (IOException)e.getCause();
+         throw new IOException( e.getCause() );
+      }
+   }
+
+   /**
+      Merge each group of MAX_FAN_IN neighbouring runs into one longer run. The old runs are deleted
+
+      @param runs The runs, in order
+      @param dir The directory to write the new runs to
+      @return ArrayList<Path> The new runs, in order
+      @throws IOException If a file cannot be read or written
+   */
+   private ArrayList<Path> mergePass( ArrayList<Path> runs, Path dir ) throws IOException {
+      ArrayList<Path> merged = new ArrayList<Path>();
+      try {
+         for( int from = 0; from < runs.size(); from += MAX_FAN_IN ) {
+            Path run = Files.createTempFile( dir, "sort", ".run" );
+            merged.add( run );
+            try( BatchWriter writer = new BatchWriter( run.toString() ) ) {
+               merge( runs.subList( from, Math.min( runs.size(), from + MAX_FAN_IN ) ), writer );
+               writer.commit();
+            }
+         }
+      } catch( IOException e ) {
+         for( Path run : merged )
+            Files.deleteIfExists( run );
+         throw e;
+      }
+      for( Path run : runs )
+         Files.deleteIfExists( run );
+      return merged;
+   }
+
+   /**
+      Merge sorted runs into one file. When lines are equal, the line from the earlier run comes first, which keeps the
+      sort stable
+
+      @param runs The sorted runs, in order
+      @param writer The writer of the merged file. It is not committed
+      @throws IOException If a run cannot be read
+   */
+   private void merge( List<Path> runs, BatchWriter writer ) throws IOException {
+      PriorityQueue<RunReader> queue = new PriorityQueue<RunReader>( Math.max( 1, runs.size() ), new Comparator<RunReader>() {
+         public int compare( RunReader a, RunReader b ) {
+            int c = order.compare( a.line, b.line );
+            return c != 0 ? c : a.index - b.index;
+         }
+      } );
+
+      ArrayList<RunReader> readers = new ArrayList<RunReader>();
+      try {
+         for( int i = 0; i < runs.size(); i++ ) {
+            RunReader reader = new RunReader( runs.get(i), i );
+            readers.add( reader );
+            if( reader.advance() )
+               queue.add( reader );
+         }
+
+         while( !queue.isEmpty() ) {
+            RunReader reader = queue.poll();
+            writer.writeLine( reader.line );
+            if( reader.advance() )
+               queue.add( reader );
+         }
+      } finally {
+         for( RunReader reader : readers )
+            reader.reader.close();
+      }
+   }
+
+   /**
+      An open run file and the line of it that is next to be merged
+   */
+   private static class RunReader {
+
+      final BufferedReader reader;
+      final int index;
+      String line;
+
+      RunReader( Path run, int index ) throws IOException {
+         reader = Files.newBufferedReader( run );
+         this.index = index;
+      }
+
+      /**
+         Read the next line of the run
+
+         @return boolean True if there was a line, false if the run is used up
+      */
+      boolean advance() throws IOException {
+         line = reader.readLine();
+         return line != null;
+      }
+
+   }
+
+}
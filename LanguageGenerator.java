@@ -0,0 +1,429 @@
+/**
+   LanguageGenerator.java
+
+      Makes a new word for every word of a Dictionary, following the LanguageSpecs of a new language, with no two new words
+      the same. The work is spread over the threads of a ForkJoinPool, and the result depends only on the seed: the same
+      seed gives the same language on any number of threads.
+
+      Each English word gets its own SplittableRandom, seeded from the seed and the position of the word, so the candidates
+      a word tries do not depend on which thread makes them or when. The new words are placed in rounds:
+         1) every word still without a new word makes its next candidate and claims it in a concurrent table of 64-bit
+            fingerprints (two long arrays updated with compare-and-set, with no object per entry). Of the words that claim
+            the same fingerprint in a round, the one that comes first in the Dictionary wins; a fingerprint placed in an
+            earlier round cannot be won at all
+         2) every word checks whether it won its claim. The ones that did not try again in the next round
+      Almost every word is placed in the first round, and the rounds after it only go over the few words that collided.
+
+      Before any word is made, the lengths the specs allow are checked against the number of words that need them. If some
+      set of lengths has more English words that can only take those lengths than LOAD_FACTOR of the strings of those
+      lengths in the alphabet, the excess words, longest English words first, are given a letter more than the specs allow,
+      and the lengths are checked again until every set has room. The plan depends only on the words, so it is the same
+      for every seed and every number of threads. Letters of the alphabet can also run together (eg. "BO" + "MA" and
+      "BOM" + "A"), so a space that passes the check can still run out; a word that has not been placed after MAX_ATTEMPTS
+      tries stops the generator with an IllegalStateException.
+
+   @author Peter Olson
+   @version 10/18/26
+   @see Dictionary.java
+   @see LanguageSpecs.java
+
+**/
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class LanguageGenerator {
+
+   public static final int MAX_ATTEMPTS = 1 << 20;
+   public static final double LOAD_FACTOR = 0.5;    //most of the strings of a length the words may fill, so retries stay rare
+   public static final int MAX_EXTRA_LETTERS = 64;  //most letters a word may be given past the lengths the specs allow
+
+   private static final int BATCH_SIZE = 2048; //words handled by a task without splitting it further
+   private static final long EMPTY = 0;        //a free slot of the fingerprint table
+
+   private final LanguageSpecs specs;
+   private final long seed;
+
+   /**
+      Make a generator
+
+      @param specs The specs of the new language
+      @param seed The seed; the same seed always makes the same language
+   */
+   public LanguageGenerator( LanguageSpecs specs, long seed ) {
+      this.specs = specs;
+      this.seed = seed;
+   }
+
+   /**
+      Make a new word for each of a list of words, with no two new words the same
+
+      @param words The words to make new words for. The same word listed twice gets two different new words
+      @param pool The pool to make the words on
+      @return String[] The new word of each word, in the same order
+      @throws IllegalArgumentException If the alphabet is too small to make room even with MAX_EXTRA_LETTERS more letters
+      @throws IllegalStateException If a word could not be given a new word that is not already taken
+   */
+   public String[] generate( String[] words, ForkJoinPool pool ) {
+      int[] extraLetters = planExtraLetters( words );
+
+      int n = words.length;
+      Round round = new Round( words, extraLetters );
+      int[] pending = new int[ n ];
+      for( int i = 0; i < n; i++ )
+         pending[i] = i;
+
+      int numPending = n;
+      for( int attempt = 0; numPending > 0; attempt++ ) {
+         if( attempt == MAX_ATTEMPTS )
+            throw new IllegalStateException( "Could not make a new word for \"" + words[ pending[0] ] + "\" in " + MAX_ATTEMPTS +
+                                             " attempts; the alphabet has almost no words of its length left" );
+         round.start( attempt, pending );
+         pool.invoke( round.task( 0, numPending ) );
+         round.claimed = true;
+         pool.invoke( round.task( 0, numPending ) );
+
+         //Keep the words that lost their claim, in order
+         int kept = 0;
+         for( int i = 0; i < numPending; i++ )
+            if( round.result[ pending[i] ] == null )
+               pending[ kept++ ] = pending[i];
+         numPending = kept;
+      }
+      return round.result;
+   }
+
+   /**
+      Make a new word in the new language for an English word: a number of letters of the alphabet chosen by the specs,
+      each picked at random
+
+      @param specs The specs of the new language
+      @param englishLength The length of the English word
+      @param random The source of randomness
+      @return String The new word
+   */
+   public static String newWord( LanguageSpecs specs, int englishLength, SplittableRandom random ) {
+      return newWord( specs, englishLength, 0, random );
+   }
+
+   /**
+      Make a new word in the new language for an English word, with a given number of letters more than the specs allow
+
+      @param specs The specs of the new language
+      @param englishLength The length of the English word
+      @param extraLetters The letters to add to the lengths the specs allow
+      @param random The source of randomness
+      @return String The new word
+   */
+   public static String newWord( LanguageSpecs specs, int englishLength, int extraLetters, SplittableRandom random ) {
+      int lo = minLetters( specs, englishLength ) + extraLetters;
+      int hi = maxLetters( specs, englishLength ) + extraLetters;
+      int numLetters;
+      if( specs.MATCH_LENGTH && specs.RANDOMIZE_LENGTH ) {
+         //Move off the matched length by up to APPROX_LENGTH_BUFFER - 1 letters either way, then keep within the bounds
+         int offset = ( random.nextBoolean() ? 1 : -1 ) * random.nextInt( Math.max( 1, specs.APPROX_LENGTH_BUFFER ) );
+         numLetters = Math.max( lo, Math.min( hi, englishLength / specs.AVG_LETTER_LENGTH + extraLetters + offset ) );
+      } else {
+         numLetters = lo + random.nextInt( hi - lo + 1 );
+      }
+
+      StringBuilder word = new StringBuilder();
+      for( int i = 0; i < numLetters; i++ )
+         word.append( specs.ALPHABET[ random.nextInt( specs.ALPHABET.length ) ] );
+      return word.toString();
+   }
+
+   /**
+      Get the fewest letters of the alphabet a new word for an English word of the given length can have
+
+      @param specs The specs of the new language
+      @param englishLength The length of the English word
+      @return int The fewest letters
+   */
+   private static int minLetters( LanguageSpecs specs, int englishLength ) {
+      if( !specs.MATCH_LENGTH )
+         return specs.MIN_RANDOMIZATION_LENGTH;
+      int matched = englishLength / specs.AVG_LETTER_LENGTH;
+      if( !specs.RANDOMIZE_LENGTH )
+         return matched;
+      int lo = matched - Math.max( 0, specs.APPROX_LENGTH_BUFFER - 1 );
+      return Math.min( specs.MAX_RANDOMIZATION_LENGTH, Math.max( specs.MIN_RANDOMIZATION_LENGTH, lo ) );
+   }
+
+   /**
+      Get the most letters of the alphabet a new word for an English word of the given length can have
+
+      @param specs The specs of the new language
+      @param englishLength The length of the English word
+      @return int The most letters
+   */
+   private static int maxLetters( LanguageSpecs specs, int englishLength ) {
+      if( !specs.MATCH_LENGTH )
+         return specs.MAX_RANDOMIZATION_LENGTH;
+      int matched = englishLength / specs.AVG_LETTER_LENGTH;
+      if( !specs.RANDOMIZE_LENGTH )
+         return matched;
+      int hi = matched + Math.max( 0, specs.APPROX_LENGTH_BUFFER - 1 );
+      return Math.max( specs.MIN_RANDOMIZATION_LENGTH, Math.min( specs.MAX_RANDOMIZATION_LENGTH, hi ) );
+   }
+
+   /**
+      Plan how many letters past the lengths the specs allow each word is given, so that the alphabet has room for the
+      words. For every range of lengths, the words that can only be given a length within that range must number no more
+      than LOAD_FACTOR of the strings of the alphabet with those lengths. The words of a range that is over are moved up a
+      letter, longest English words first, and the ranges are checked again. Of the words of one length, the ones that
+      come first in the list keep the fewest letters
+
+      @param words The words to make new words for
+      @return int[] The extra letters of each word, in the same order
+      @throws IllegalArgumentException If some range still does not have room with MAX_EXTRA_LETTERS more letters
+   */
+   private int[] planExtraLetters( String[] words ) {
+      int maxLength = 0;
+      for( String word : words )
+         maxLength = Math.max( maxLength, word.length() );
+      long[][] byLength = new long[ maxLength + 1 ][ MAX_EXTRA_LETTERS + 1 ]; //[English length][extra letters] --> words
+      for( String word : words )
+         byLength[ word.length() ][0]++;
+
+      double alphabetSize = specs.ALPHABET.length;
+      int maxExtra = 0;
+      boolean moved = true;
+      while( moved ) {
+         moved = false;
+         int top = 0;
+         for( int length = 0; length <= maxLength; length++ )
+            for( int extra = 0; extra <= maxExtra; extra++ )
+               if( byLength[ length ][ extra ] > 0 )
+                  top = Math.max( top, maxLetters( specs, length ) + extra );
+
+         for( int lo = 0; lo <= top && !moved; lo++ ) {
+            double room = 0;
+            for( int hi = lo; hi <= top && !moved; hi++ ) {
+               room += Math.pow( alphabetSize, hi ) * LOAD_FACTOR;
+               long need = 0;
+               for( int length = 0; length <= maxLength; length++ )
+                  for( int extra = 0; extra <= maxExtra; extra++ )
+                     if( byLength[ length ][ extra ] > 0 && within( length, extra, lo, hi ) )
+                        need += byLength[ length ][ extra ];
+               if( need <= room )
+                  continue;
+
+               //Move the excess up a letter, taking the longest English words first
+               long excess = need - (long)Math.floor( room );
+               for( int length = maxLength; length >= 0 && excess > 0; length-- ) {
+                  for( int extra = maxExtra; extra >= 0 && excess > 0; extra-- ) {
+                     if( byLength[ length ][ extra ] == 0 || !within( length, extra, lo, hi ) )
+                        continue;
+                     if( extra == MAX_EXTRA_LETTERS )
+                        throw new IllegalArgumentException( "The alphabet of " + specs.ALPHABET.length + " letters does not have room for " +
+                                                            words.length + " words, even with " + MAX_EXTRA_LETTERS + " more letters" );
+                     long move = Math.min( excess, byLength[ length ][ extra ] );
+                     byLength[ length ][ extra ] -= move;
+                     byLength[ length ][ extra + 1 ] += move;
+                     maxExtra = Math.max( maxExtra, extra + 1 );
+                     excess -= move;
+                  }
+               }
+               moved = true;
+            }
+         }
+      }
+
+      //Hand out the extra letters of each length to its words in order, the fewest first
+      int[] extraLetters = new int[ words.length ];
+      int[] next = new int[ maxLength + 1 ];
+      for( int i = 0; i < words.length; i++ ) {
+         int length = words[i].length();
+         while( byLength[ length ][ next[ length ] ] == 0 )
+            next[ length ]++;
+         byLength[ length ][ next[ length ] ]--;
+         extraLetters[i] = next[ length ];
+      }
+      return extraLetters;
+   }
+
+   /**
+      Tell whether every length a word may be given falls within a range
+
+      @param englishLength The length of the English word
+      @param extraLetters The letters added to the lengths the specs allow
+      @param lo The fewest letters of the range
+      @param hi The most letters of the range
+      @return boolean True if the word can only be given a length from lo to hi
+   */
+   private boolean within( int englishLength, int extraLetters, int lo, int hi ) {
+      return minLetters( specs, englishLength ) + extraLetters >= lo && maxLetters( specs, englishLength ) + extraLetters <= hi;
+   }
+
+   /**
+      Spread the bits of a 64-bit value (the finalizer of MurmurHash3)
+
+      @param h The value
+      @return long The mixed value
+   */
+   private static long mix64( long h ) {
+      h ^= h >>> 33;
+      h *= 0xFF51AFD7ED558CCDL;
+      h ^= h >>> 33;
+      h *= 0xC4CEB9FE1A85EC53L;
+      h ^= h >>> 33;
+      return h;
+   }
+
+   /**
+      Get the fingerprint of a word, which is never EMPTY
+
+      @param word The word
+      @return long The fingerprint
+   */
+   private static long fingerprint( String word ) {
+      long h = 0x9E3779B97F4A7C15L;
+      for( int i = 0; i < word.length(); i++ )
+         h = ( h + word.charAt(i) ) * 0x100000001B3L;
+      h = mix64( h ^ word.length() );
+      return h == EMPTY ? 1 : h;
+   }
+
+   /**
+      The state of the placement: the random stream and candidate of each word, and the table of claimed fingerprints
+   */
+   private class Round {
+
+      final String[] words;
+      final int[] extraLetters;
+      final String[] result;
+      final SplittableRandom[] streams;
+      final String[] candidates;
+      final long[] fingerprints;
+      final AtomicLongArray keys;   //the fingerprint held by each slot, or EMPTY
+      final AtomicLongArray owners; //the claim that holds each slot: attempt << 32 | word number; the smallest wins
+      final int mask;
+      int attempt;
+      int[] pending;
+      boolean claimed;              //false while claims are being made, true while they are being checked
+
+      Round( String[] words, int[] extraLetters ) {
+         this.words = words;
+         this.extraLetters = extraLetters;
+         int n = words.length;
+         result = new String[ n ];
+         streams = new SplittableRandom[ n ];
+         candidates = new String[ n ];
+         fingerprints = new long[ n ];
+         int tableSize = Integer.highestOneBit( Math.max( n, 8 ) * 2 - 1 ) << 1;
+         keys = new AtomicLongArray( tableSize );
+         owners = new AtomicLongArray( tableSize );
+         mask = tableSize - 1;
+      }
+
+      /**
+         Get ready for a round
+
+         @param attempt The number of the round
+         @param pending The words still without a new word
+      */
+      void start( int attempt, int[] pending ) {
+         this.attempt = attempt;
+         this.pending = pending;
+         claimed = false;
+      }
+
+      /**
+         Make the next candidate of a word and claim its fingerprint
+
+         @param w The word number
+      */
+      void claim( int w ) {
+         if( streams[w] == null )
+            streams[w] = new SplittableRandom( mix64( seed + 0x9E3779B97F4A7C15L * ( w + 1 ) ) );
+         String candidate = newWord( specs, words[w].length(), extraLetters[w], streams[w] );
+         long key = fingerprint( candidate );
+         candidates[w] = candidate;
+         fingerprints[w] = key;
+
+         long claim = ( (long)attempt << 32 ) | w;
+         int slot = (int)key & mask;
+         while( true ) {
+            long held = keys.get( slot );
+            if( held == EMPTY ) {
+               if( keys.compareAndSet( slot, EMPTY, key ) )
+                  break;
+               held = keys.get( slot );
+            }
+            if( held == key )
+               break;
+            slot = ( slot + 1 ) & mask;
+         }
+
+         //Lower the owner of the slot to this claim if it is smaller. Owners are stored + 1, so 0 means none yet
+         long owner;
+         while( ( owner = owners.get( slot ) ) == 0 || owner > claim + 1 )
+            if( owners.compareAndSet( slot, owner, claim + 1 ) )
+               break;
+      }
+
+      /**
+         Check whether a word won its claim, and if so give it its new word
+
+         @param w The word number
+      */
+      void check( int w ) {
+         long key = fingerprints[w];
+         int slot = (int)key & mask;
+         while( keys.get( slot ) != key )
+            slot = ( slot + 1 ) & mask;
+         if( owners.get( slot ) == ( ( (long)attempt << 32 ) | w ) + 1 ) {
+            result[w] = candidates[w];
+            streams[w] = null;
+         }
+         candidates[w] = null;
+      }
+
+      /**
+         Get a task over a range of the pending words
+
+         @param from The first index into pending
+         @param to The index into pending after the last
+         @return Batch The task
+      */
+      Batch task( int from, int to ) {
+         return new Batch( from, to );
+      }
+
+      /**
+         A range of the pending words, split in half until it is small enough to do directly
+      */
+      private class Batch extends RecursiveAction {
+
+         private static final long serialVersionUID = 1L;
+
+         private final int from;
+         private final int to;
+
+         Batch( int from, int to ) {
+            this.from = from;
+            this.to = to;
+         }
+
+         protected void compute() {
+            if( to - from <= BATCH_SIZE ) {
+               for( int i = from; i < to; i++ ) {
+                  if( claimed )
+                     check( pending[i] );
+                  else
+                     claim( pending[i] );
+               }
+            } else {
+               int middle = ( from + to ) >>> 1;
+               invokeAll( new Batch( from, middle ), new Batch( middle, to ) );
+            }
+         }
+
+      }
+
+   }
+
+}
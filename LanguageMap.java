@@ -0,0 +1,265 @@
+/**
+   LanguageMap.java
+
+      The two-way table between the words of a Dictionary and the words of a language made from it by makeLanguage(..).
+      English word i is paired with new word i. Each side is a WordArena, so a word can be looked up from either side in
+      one hash probe without creating any objects, and the pair is found by the number of the word.
+
+      Both sides are held in uppercase, the same as the words of a Dictionary, so lookups (which fold to uppercase) find
+      every word whatever case it was given in.
+
+      The table can be saved to a compact binary file and read back, so a language that has been made once keeps its
+      words. Words are stored one byte per letter. The file is written to a temporary file and renamed onto the target,
+      the same as every other file written through a BatchWriter, so a failed save never leaves half a table behind.
+
+      --File Format-- (all numbers are big-endian)
+
+         int  MAGIC   -- 0x4C4D4150 ("LMAP")
+         int  VERSION -- the format version; files of any other version are rejected
+         int  numPairs
+         for the English words, then the new words:
+            numPairs x unsigned short -- the length of each word
+            the letters of every word, end to end, one byte each
+
+      The table is built once and is not changed afterwards.
+
+   @author Peter Olson
+   @version 10/18/26
+   @see Dictionary.java
+   @see Translator.java
+   @see WordArena.java
+   @see BatchWriter.java
+
+**/
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+public class LanguageMap {
+
+   public static final int MAGIC = 0x4C4D4150;
+   public static final int VERSION = 1;
+
+   private final WordArena english;
+   private final WordArena translated;
+
+   /**
+      Pair up the words of a Dictionary with the words of a new language
+
+      @param englishWords The words of the Dictionary. Case does not matter
+      @param newWords The new word of each word, in the same order. Case does not matter
+      @throws IllegalArgumentException If the lists are not the same length, or either one has a word more than once
+   */
+   public LanguageMap( String[] englishWords, String[] newWords ) {
+      if( englishWords.length != newWords.length )
+         throw new IllegalArgumentException( "There are " + englishWords.length + " words but " + newWords.length + " new words" );
+
+      english = toArena( englishWords );
+      translated = toArena( newWords );
+      checkPairs( englishWords.length, "the word lists" );
+   }
+
+   /**
+      Read a table written by save(..)
+
+      @param fileName The file to read
+      @throws UncheckedIOException If the file cannot be read
+      @throws IllegalArgumentException If the file is not a language map, is of another version, is cut short, or has a
+                                       word more than once on either side
+   */
+   public LanguageMap( String fileName ) {
+      ByteBuffer in;
+      try {
+         in = ByteBuffer.wrap( Files.readAllBytes( Paths.get( fileName ) ) );
+      } catch( IOException e ) {
+         throw new UncheckedIOException( e );
+      }
+
+      if( in.remaining() < 12 || in.getInt() != MAGIC )
+         throw new IllegalArgumentException( fileName + " is not a language map" );
+      int version = in.getInt();
+      if( version != VERSION )
+         throw new IllegalArgumentException( fileName + " is language map version " + version + ", expected " + VERSION );
+
+      try {
+         int numPairs = in.getInt();
+         if( numPairs < 0 || numPairs > in.remaining() / 4 )
+            throw new IllegalArgumentException( fileName + " has " + numPairs + " pairs, which does not fit in the file" );
+         english = toArena( readWords( in, numPairs ) );
+         translated = toArena( readWords( in, numPairs ) );
+         checkPairs( numPairs, fileName );
+      } catch( BufferUnderflowException e ) {
+         throw new IllegalArgumentException( fileName + " is cut short" );
+      }
+   }
+
+   /**
+      Write the table to a file, so that it can be read back with LanguageMap( String fileName )
+
+      @param fileName The file to write
+      @throws UncheckedIOException If the file cannot be written
+      @throws IllegalArgumentException If a word has a character that does not fit in one byte
+   */
+   public void save( String fileName ) {
+      try( BatchWriter writer = new BatchWriter( fileName ) ) {
+         ByteBuffer header = ByteBuffer.allocate( 12 );
+         header.putInt( MAGIC ).putInt( VERSION ).putInt( size() );
+         writer.write( header.array(), 0, header.position() );
+         writeWords( writer, english );
+         writeWords( writer, translated );
+         writer.commit();
+      }
+   }
+
+   /**
+      Get the new word of an English word
+
+      @param word The English word. Case does not matter
+      @return String The new word, or null if the word is not in the table
+   */
+   public String toNew( CharSequence word ) {
+      int index = english.indexOf( word );
+      return index == -1 ? null : translated.getWord( index );
+   }
+
+   /**
+      Get the English word of a new word
+
+      @param word The new word. Case does not matter
+      @return String The English word, or null if the word is not in the table
+   */
+   public String toEnglish( CharSequence word ) {
+      int index = translated.indexOf( word );
+      return index == -1 ? null : english.getWord( index );
+   }
+
+   /**
+      Get the English words, numbered in the order of the pairs
+
+      @return WordArena The English words
+   */
+   public WordArena getEnglishWords() {
+      return english;
+   }
+
+   /**
+      Get the new words, numbered in the order of the pairs
+
+      @return WordArena The new words
+   */
+   public WordArena getNewWords() {
+      return translated;
+   }
+
+   /**
+      Get the number of pairs
+
+      @return int The number of pairs
+   */
+   public int size() {
+      return english.size();
+   }
+
+   /**
+      Get the number of bytes of heap used by the table
+
+      @return long The heap usage in bytes
+   */
+   public long getMemoryUsage() {
+      return english.getMemoryUsage() + translated.getMemoryUsage();
+   }
+
+   /**
+      Pack a list of words into an arena, in uppercase
+
+      @param words The words
+      @return WordArena The uppercase words, numbered in the order of the list
+   */
+   private static WordArena toArena( String[] words ) {
+      String[] upper = new String[ words.length ];
+      for( int i = 0; i < words.length; i++ )
+         upper[i] = words[i].toUpperCase();
+      return new WordArena( Arrays.asList( upper ), upper.length );
+   }
+
+   /**
+      Check that no word was dropped from either side as a repeat, so that word i of one side is still paired with word
+      i of the other
+
+      @param numPairs The number of pairs there should be
+      @param source What the pairs came from, for the message
+      @throws IllegalArgumentException If either side has a word more than once
+   */
+   private void checkPairs( int numPairs, String source ) {
+      if( english.size() != numPairs || translated.size() != numPairs )
+         throw new IllegalArgumentException( "Every word on each side must be different; found " + ( numPairs - english.size() ) +
+                                             " repeated English words and " + ( numPairs - translated.size() ) + " repeated new words in " + source );
+   }
+
+   /**
+      Write the lengths and then the letters of one side of the table
+
+      @param writer The writer of the file
+      @param words The words of the side
+      @throws IllegalArgumentException If a word is too long, or has a letter that does not fit in one byte
+   */
+   private static void writeWords( BatchWriter writer, WordArena words ) {
+      byte[] chunk = new byte[ 1 << 16 ];
+      int n = 0;
+      for( int i = 0; i < words.size(); i++ ) {
+         String word = words.getWord(i);
+         if( word.length() > 0xFFFF )
+            throw new IllegalArgumentException( "Cannot save a word of " + word.length() + " letters" );
+         if( n + 2 > chunk.length ) {
+            writer.write( chunk, 0, n );
+            n = 0;
+         }
+         chunk[ n++ ] = (byte)( word.length() >>> 8 );
+         chunk[ n++ ] = (byte)word.length();
+      }
+      for( int i = 0; i < words.size(); i++ ) {
+         String word = words.getWord(i);
+         for( int j = 0; j < word.length(); j++ ) {
+            char c = word.charAt(j);
+            if( c > 0xFF )
+               throw new IllegalArgumentException( "Cannot save '" + word + "': letters must fit in one byte" );
+            if( n == chunk.length ) {
+               writer.write( chunk, 0, n );
+               n = 0;
+            }
+            chunk[ n++ ] = (byte)c;
+         }
+      }
+      writer.write( chunk, 0, n );
+   }
+
+   /**
+      Read the lengths and then the letters of one side of the table
+
+      @param in The bytes of the file, at the start of the side
+      @param numPairs The number of words of the side
+      @return String[] The words
+   */
+   private static String[] readWords( ByteBuffer in, int numPairs ) {
+      int[] lengths = new int[ numPairs ];
+      for( int i = 0; i < numPairs; i++ )
+         lengths[i] = in.getShort() & 0xFFFF;
+
+      String[] words = new String[ numPairs ];
+      byte[] letters = new byte[ 256 ];
+      for( int i = 0; i < numPairs; i++ ) {
+         if( letters.length < lengths[i] )
+            letters = new byte[ lengths[i] ];
+         in.get( letters, 0, lengths[i] );
+         words[i] = new String( letters, 0, lengths[i], StandardCharsets.ISO_8859_1 );
+      }
+      return words;
+   }
+
+}
@@ -0,0 +1,190 @@
+/**
+   LengthIndex.java
+
+      Every word of a Dictionary in one array, sorted by length and then alphabetically, with the index at which each length
+      begins. All of the words of one length, or of a range of lengths, sit next to each other in the array, so any of these
+      can be answered without looking at a single word outside the result:
+         1) the words of a given length                 -- getWords( length ), toArray( length )
+         2) the words within a range of lengths          -- getWords( minLength, maxLength ), toArray( minLength, maxLength )
+         3) the number of words of each length           -- count( length ), getHistogram()
+
+      getWords(..) returns a read-only view of the array (no copying); toArray(..) returns a copy.
+
+      The index is built once and is not changed afterwards.
+
+   @author Peter Olson
+   @version 10/18/26
+   @see Dictionary.java
+
+**/
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+public class LengthIndex {
+
+   private final String[] sorted; //all of the words, by length and then alphabetically
+   private final int[] starts;    //the words of length L are sorted[ starts[L] ] to sorted[ starts[L+1] - 1 ]
+
+   /**
+      Build the index from a list of words. Repeated words are only added once
+
+      @param words The words to index
+      @param numWords The total number of words in the list
+   */
+   public LengthIndex( Iterable<String> words, int numWords ) {
+      String[] list = new String[ numWords ];
+      int n = 0;
+      for( String word : words ) {
+         if( n == list.length )
+            list = Arrays.copyOf( list, Math.max( 16, n * 2 ) );
+         list[ n++ ] = word;
+      }
+
+      Arrays.sort( list, 0, n, new Comparator<String>() {
+         public int compare( String a, String b ) {
+            if( a.length() != b.length() )
+               return a.length() - b.length();
+            return a.compareTo( b );
+         }
+      } );
+
+      //Drop repeated words, which are now next to each other
+      int size = 0;
+      for( int i = 0; i < n; i++ )
+         if( size == 0 || !list[i].equals( list[ size - 1 ] ) )
+            list[ size++ ] = list[i];
+      sorted = Arrays.copyOf( list, size );
+
+      int maxLength = size == 0 ? 0 : sorted[ size - 1 ].length();
+      starts = new int[ maxLength + 2 ];
+      for( String word : sorted )
+         starts[ word.length() + 1 ]++;
+      for( int length = 1; length < starts.length; length++ )
+         starts[ length ] += starts[ length - 1 ];
+   }
+
+   /**
+      Get the number of words of the given length
+
+      @param length The length of the words
+      @return int The number of words of that length
+   */
+   public int count( int length ) {
+      return end( length ) - start( length );
+   }
+
+   /**
+      Get the number of words with a length from minLength to maxLength
+
+      @param minLength The shortest length to include
+      @param maxLength The longest length to include
+      @return int The number of words within the range
+   */
+   public int count( int minLength, int maxLength ) {
+      return Math.max( 0, end( maxLength ) - start( minLength ) );
+   }
+
+   /**
+      Get the words of the given length, in alphabetical order, as a read-only view of the index
+
+      @param length The length of the words
+      @return List<String> The words of that length
+   */
+   public List<String> getWords( int length ) {
+      return getWords( length, length );
+   }
+
+   /**
+      Get the words with a length from minLength to maxLength, shortest first and then in alphabetical order, as a
+      read-only view of the index
+
+      @param minLength The shortest length to include
+      @param maxLength The longest length to include
+      @return List<String> The words within the range
+   */
+   public List<String> getWords( int minLength, int maxLength ) {
+      int from = start( minLength );
+      int to = Math.max( from, end( maxLength ) );
+      return Collections.unmodifiableList( Arrays.asList( sorted ).subList( from, to ) );
+   }
+
+   /**
+      Get a copy of the words of the given length, in alphabetical order
+
+      @param length The length of the words
+      @return String[] The words of that length
+   */
+   public String[] toArray( int length ) {
+      return toArray( length, length );
+   }
+
+   /**
+      Get a copy of the words with a length from minLength to maxLength, shortest first and then in alphabetical order
+
+      @param minLength The shortest length to include
+      @param maxLength The longest length to include
+      @return String[] The words within the range
+   */
+   public String[] toArray( int minLength, int maxLength ) {
+      int from = start( minLength );
+      return Arrays.copyOfRange( sorted, from, Math.max( from, end( maxLength ) ) );
+   }
+
+   /**
+      Get the number of words of every length
+
+      @return int[] A new array where element L is the number of words of length L, from 0 to the longest length
+   */
+   public int[] getHistogram() {
+      int[] histogram = new int[ starts.length - 1 ];
+      for( int length = 0; length < histogram.length; length++ )
+         histogram[ length ] = starts[ length + 1 ] - starts[ length ];
+      return histogram;
+   }
+
+   /**
+      Get the length of the longest word
+
+      @return int The length of the longest word, or 0 if there are no words
+   */
+   public int getMaxWordLength() {
+      return starts.length - 2;
+   }
+
+   /**
+      Get the number of distinct words in the index
+
+      @return int The number of words
+   */
+   public int size() {
+      return sorted.length;
+   }
+
+   /**
+      Get the index of the first word of at least the given length
+
+      @param length The length
+      @return int The index in the sorted array
+   */
+   private int start( int length ) {
+      if( length <= 0 )
+         return 0;
+      return length >= starts.length ? sorted.length : starts[ length ];
+   }
+
+   /**
+      Get the index just past the last word of at most the given length
+
+      @param length The length
+      @return int The index in the sorted array
+   */
+   private int end( int length ) {
+      if( length < 0 )
+         return 0;
+      return length + 1 >= starts.length ? sorted.length : starts[ length + 1 ];
+   }
+
+}
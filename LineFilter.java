@@ -0,0 +1,151 @@
+/**
+   LineFilter.java
+
+      A set of removal rules applied to the lines of a text file in one streaming pass. Each rule names the lines to remove;
+      a line is kept only if no rule matches it. Rules are added with the builder-style methods below and are checked in
+      the order they were added, stopping at the first match:
+         removeWord( word )             -- lines equal to the word
+         removeContaining( token )      -- lines containing the token
+         removeContaining( matcher )    -- lines containing any token of a TokenMatcher
+         removeLongerThan( limit )      -- lines at least limit characters long (as removeWordsLongerThanX(..) has always done)
+         remove( predicate )            -- lines the predicate is true for
+
+      apply(..) reads the file through a buffered reader one line at a time and writes the kept lines through a BatchWriter,
+      which replaces the target with an atomic rename once the pass is done. Only one line is held at a time, so memory
+      does not depend on the size of the file, and a chain of removals costs one pass instead of one pass each.
+
+      Files are read and written as UTF-8.
+
+   @author Peter Olson
+   @version 10/18/26
+   @see Dictionary.java
+   @see BatchWriter.java
+   @see TokenMatcher.java
+
+**/
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.function.Predicate;
+
+public class LineFilter {
+
+   private final ArrayList<Predicate<String>> rules = new ArrayList<Predicate<String>>();
+
+   /**
+      Remove the lines equal to a word
+
+      @param word The word to remove
+      @return LineFilter This filter
+   */
+   public LineFilter removeWord( final String word ) {
+      return remove( new Predicate<String>() {
+         public boolean test( String line ) {
+            return line.equals( word );
+         }
+      } );
+   }
+
+   /**
+      Remove the lines containing a token
+
+      @param token The token
+      @return LineFilter This filter
+   */
+   public LineFilter removeContaining( final String token ) {
+      return remove( new Predicate<String>() {
+         public boolean test( String line ) {
+            return line.contains( token );
+         }
+      } );
+   }
+
+   /**
+      Remove the lines containing any of the tokens of a compiled token set
+
+      @param matcher The tokens
+      @return LineFilter This filter
+      @see TokenMatcher.containsAny( CharSequence text )
+   */
+   public LineFilter removeContaining( final TokenMatcher matcher ) {
+      return remove( new Predicate<String>() {
+         public boolean test( String line ) {
+            return matcher.containsAny( line );
+         }
+      } );
+   }
+
+   /**
+      Remove the lines that are at least as long as a limit
+
+      @param upperLimit Lines this long and longer are removed
+      @return LineFilter This filter
+   */
+   public LineFilter removeLongerThan( final int upperLimit ) {
+      return remove( new Predicate<String>() {
+         public boolean test( String line ) {
+            return line.length() >= upperLimit;
+         }
+      } );
+   }
+
+   /**
+      Remove the lines a predicate is true for
+
+      @param rule The predicate
+      @return LineFilter This filter
+   */
+   public LineFilter remove( Predicate<String> rule ) {
+      rules.add( rule );
+      return this;
+   }
+
+   /**
+      Tells whether a line passes the filter
+
+      @param line The line
+      @return boolean True if no rule removes the line, false otherwise
+   */
+   public boolean keeps( String line ) {
+      for( int i = 0; i < rules.size(); i++ )
+         if( rules.get(i).test( line ) )
+            return false;
+      return true;
+   }
+
+   /**
+      Get the number of rules
+
+      @return int The number of rules
+   */
+   public int size() {
+      return rules.size();
+   }
+
+   /**
+      Filter the lines of a text file into another file in one pass
+
+      @param inFileName The text file to read
+      @param outFileName The text file to write the kept lines to. May be the same as inFileName
+      @return BatchWriter.Result The number of bytes and lines kept
+      @throws UncheckedIOException If a file cannot be read (including if it does not exist or is not valid UTF-8) or written
+   */
+   public BatchWriter.Result apply( String inFileName, String outFileName ) {
+      try( BufferedReader reader = Files.newBufferedReader( Paths.get( inFileName ), StandardCharsets.UTF_8 );
+           BatchWriter writer = new BatchWriter( outFileName ) ) {
+         String line;
+         while( ( line = reader.readLine() ) != null )
+            if( keeps( line ) )
+               writer.writeLine( line );
+         return writer.commit();
+      } catch( IOException e ) {
+         throw new UncheckedIOException( e );
+      }
+   }
+
+}
@@ -0,0 +1,358 @@
+/**
+   NGramIndex.java
+
+      An inverted index from every 1, 2 and 3 letter sequence (unigram, bigram, trigram) to the words containing it, used to
+      find the words containing a token without checking every word. Each word is given a number in the order the words
+      were added, and each n-gram has a posting list: the sorted numbers of the words that contain it.
+
+      To find the words containing a token:
+         1) tokens of 1 to 3 letters are a single n-gram, and its posting list is the answer
+         2) longer tokens are split into their trigrams, and the posting lists of the trigrams are intersected, rarest first.
+            Every word containing the token is in the intersection, but a word can hold every trigram of the token without
+            holding the token itself (eg. CABCA holds ABC, BCA and CAB, but not ABCAB), so the words left in the
+            intersection are checked with String.contains(..)
+      Tokens holding a character outside A-Z have no n-grams in the index, and are found by checking every word.
+
+      Words containing an exclusion token are found the same way and subtracted from the result, so no word outside the
+      two posting list walks is ever looked at. Results are in the order the words were added.
+
+      The posting lists are held in one int[], with the start of each n-gram's list in a second int[] (compressed sparse
+      rows), so the index is two arrays plus the list of words no matter how many n-grams there are.
+
+      The index is built once and is not changed afterwards.
+
+   @author Peter Olson
+   @version 10/18/26
+   @see Dictionary.java
+
+**/
+
+import java.util.Arrays;
+
+public class NGramIndex {
+
+   public static final int MAX_GRAM = 3;
+
+   private static final int A = WordTrie.ALPHABET_SIZE;
+   private static final int BIGRAM_BASE = A;
+   private static final int TRIGRAM_BASE = A + A * A;
+   private static final int NUM_KEYS = A + A * A + A * A * A;
+
+   private final String[] words;
+   private final int[] postStart; //the posting list of n-gram k is postings[ postStart[k] ] to postings[ postStart[k+1] - 1 ]
+   private final int[] postings;
+
+   /**
+      Build the index from a list of uppercase words
+
+      @param words The words to index
+      @param numWords The total number of words in the list
+   */
+   public NGramIndex( Iterable<String> words, int numWords ) {
+      String[] list = new String[ numWords ];
+      int n = 0;
+      for( String word : words ) {
+         if( n == list.length )
+            list = Arrays.copyOf( list, Math.max( 16, n * 2 ) );
+         list[ n++ ] = word;
+      }
+      this.words = Arrays.copyOf( list, n );
+
+      //Count the words holding each n-gram, then lay the lists out end to end and fill them
+      int[] lastSeen = new int[ NUM_KEYS ];
+      Arrays.fill( lastSeen, -1 );
+      postStart = new int[ NUM_KEYS + 1 ];
+      for( int id = 0; id < n; id++ )
+         forEachGram( this.words[ id ], id, lastSeen, postStart, null );
+
+      int total = 0;
+      for( int k = 0; k < NUM_KEYS; k++ ) {
+         int count = postStart[k];
+         postStart[k] = total;
+         total += count;
+      }
+      postStart[ NUM_KEYS ] = total;
+
+      postings = new int[ total ];
+      int[] fill = Arrays.copyOf( postStart, NUM_KEYS );
+      Arrays.fill( lastSeen, -1 );
+      for( int id = 0; id < n; id++ )
+         forEachGram( this.words[ id ], id, lastSeen, fill, postings );
+   }
+
+   /**
+      Get all of the words containing the token
+
+      @param token The token to look for. Must be uppercase
+      @return String[] The words containing the token, in the order they were added
+   */
+   public String[] getWordsContaining( String token ) {
+      return toWords( find( token ) );
+   }
+
+   /**
+      Get all of the words containing every one of the tokens
+
+      @param tokens The tokens to look for. Must be uppercase
+      @return String[] The words containing all of the tokens, in the order they were added
+   */
+   public String[] getWordsContainingAll( String[] tokens ) {
+      if( tokens.length == 0 )
+         return toWords( null );
+
+      int[] result = find( tokens[0] );
+      for( int t = 1; t < tokens.length && ( result == null || result.length > 0 ); t++ )
+         result = intersect( result, find( tokens[t] ) );
+      return toWords( result );
+   }
+
+   /**
+      Get all of the words containing the token, but none of the exclusion tokens
+
+      @param token The token to look for. Must be uppercase
+      @param exclusionTokens The tokens that must not be in the word. Must be uppercase
+      @return String[] The words containing the token and none of the exclusion tokens, in the order they were added
+   */
+   public String[] getWordsContainingButNot( String token, String[] exclusionTokens ) {
+      int[] result = find( token );
+      for( int t = 0; t < exclusionTokens.length && ( result == null || result.length > 0 ); t++ )
+         result = subtract( result, find( exclusionTokens[t] ) );
+      return toWords( result );
+   }
+
+   /**
+      Get the number of distinct words in the index
+
+      @return int The number of words
+   */
+   public int size() {
+      return words.length;
+   }
+
+   /**
+      Get the number of bytes of heap used by the arrays of the index, not counting the words themselves
+
+      @return long The heap usage in bytes
+   */
+   public long getMemoryUsage() {
+      final int ARRAY_HEADER = 16;
+      return 3 * ARRAY_HEADER + 4L * words.length + 4L * postStart.length + 4L * postings.length;
+   }
+
+   /**
+      Find the numbers of the words containing the token
+
+      @param token The token to look for. Must be uppercase
+      @return int[] The sorted numbers of the words containing the token, or null if every word contains it
+   */
+   private int[] find( String token ) {
+      int length = token.length();
+      if( length == 0 )
+         return null;
+
+      //Every n-gram of the token must be in the index, or the words have to be checked one by one
+      int numGrams = length <= MAX_GRAM ? 1 : length - MAX_GRAM + 1;
+      int gramLength = Math.min( length, MAX_GRAM );
+      int[] keys = new int[ numGrams ];
+      for( int g = 0; g < numGrams; g++ ) {
+         keys[g] = key( token, g, gramLength );
+         if( keys[g] < 0 )
+            return scan( token );
+      }
+
+      if( numGrams == 1 )
+         return Arrays.copyOfRange( postings, postStart[ keys[0] ], postStart[ keys[0] + 1 ] );
+
+      //Intersect the posting lists from the rarest up, then check what is left. Tokens are short, so an insertion sort will do
+      for( int g = 1; g < numGrams; g++ ) {
+         int k = keys[g];
+         int h = g - 1;
+         while( h >= 0 && listSize( keys[h] ) > listSize( k ) ) {
+            keys[ h + 1 ] = keys[h];
+            h--;
+         }
+         keys[ h + 1 ] = k;
+      }
+
+      int[] candidates = Arrays.copyOfRange( postings, postStart[ keys[0] ], postStart[ keys[0] + 1 ] );
+      for( int g = 1; g < numGrams && candidates.length > 0; g++ )
+         candidates = intersect( candidates, keys[g] );
+
+      int n = 0;
+      for( int id : candidates )
+         if( words[ id ].contains( token ) )
+            candidates[ n++ ] = id;
+      return Arrays.copyOf( candidates, n );
+   }
+
+   /**
+      Find the numbers of the words containing a token that has no n-grams in the index, by checking every word
+
+      @param token The token to look for
+      @return int[] The sorted numbers of the words containing the token
+   */
+   private int[] scan( String token ) {
+      int[] result = new int[ 16 ];
+      int n = 0;
+      for( int id = 0; id < words.length; id++ ) {
+         if( words[ id ].contains( token ) ) {
+            if( n == result.length )
+               result = Arrays.copyOf( result, n * 2 );
+            result[ n++ ] = id;
+         }
+      }
+      return Arrays.copyOf( result, n );
+   }
+
+   /**
+      Count the n-grams of a word, or add the word to their posting lists. A word is counted once per n-gram no matter
+      how many times the n-gram appears in it
+
+      @param word The word
+      @param id The number of the word
+      @param lastSeen The last word counted for each n-gram
+      @param next The count of each n-gram, or the next free place in its posting list
+      @param lists The posting lists to fill, or null to only count
+   */
+   private static void forEachGram( String word, int id, int[] lastSeen, int[] next, int[] lists ) {
+      for( int gramLength = 1; gramLength <= MAX_GRAM; gramLength++ ) {
+         for( int start = 0; start + gramLength <= word.length(); start++ ) {
+            int k = key( word, start, gramLength );
+            if( k < 0 || lastSeen[k] == id )
+               continue;
+            lastSeen[k] = id;
+            if( lists != null )
+               lists[ next[k] ] = id;
+            next[k]++;
+         }
+      }
+   }
+
+   /**
+      Get the key of the n-gram at the given place in a String
+
+      @param s The String
+      @param start The index of the first letter of the n-gram
+      @param gramLength The number of letters in the n-gram, from 1 to MAX_GRAM
+      @return int The key, or -1 if a letter is outside A-Z
+   */
+   private static int key( String s, int start, int gramLength ) {
+      int value = 0;
+      for( int i = start; i < start + gramLength; i++ ) {
+         int letter = s.charAt(i) - 'A';
+         if( letter < 0 || letter >= A )
+            return -1;
+         value = value * A + letter;
+      }
+      return value + ( gramLength == 1 ? 0 : gramLength == 2 ? BIGRAM_BASE : TRIGRAM_BASE );
+   }
+
+   /**
+      Get the length of an n-gram's posting list
+
+      @param k The key of the n-gram
+      @return int The number of words holding the n-gram
+   */
+   private int listSize( int k ) {
+      return postStart[ k + 1 ] - postStart[k];
+   }
+
+   /**
+      Intersect a sorted list of word numbers with an n-gram's posting list
+
+      @param ids The sorted word numbers
+      @param k The key of the n-gram
+      @return int[] The word numbers that are also in the posting list
+   */
+   private int[] intersect( int[] ids, int k ) {
+      return intersect( ids, postings, postStart[k], postStart[ k + 1 ] );
+   }
+
+   /**
+      Intersect two sorted lists of word numbers. null stands for every word
+
+      @param a The first list
+      @param b The second list
+      @return int[] The word numbers in both lists, or null if both are every word
+   */
+   private static int[] intersect( int[] a, int[] b ) {
+      if( a == null )
+         return b;
+      if( b == null )
+         return a;
+      return intersect( a, b, 0, b.length );
+   }
+
+   /**
+      Intersect a sorted list of word numbers with part of another sorted list
+
+      @param a The first list
+      @param b The array holding the second list
+      @param from The index of the first number of the second list
+      @param to The index just past the last number of the second list
+      @return int[] The word numbers in both lists
+   */
+   private static int[] intersect( int[] a, int[] b, int from, int to ) {
+      int[] result = new int[ Math.min( a.length, to - from ) ];
+      int n = 0;
+      int i = 0;
+      int j = from;
+      while( i < a.length && j < to ) {
+         if( a[i] < b[j] )
+            i++;
+         else if( a[i] > b[j] )
+            j++;
+         else {
+            result[ n++ ] = a[i];
+            i++;
+            j++;
+         }
+      }
+      return Arrays.copyOf( result, n );
+   }
+
+   /**
+      Remove the word numbers in the second list from the first. null stands for every word
+
+      @param a The list to remove from
+      @param b The word numbers to remove
+      @return int[] The word numbers in the first list but not the second
+   */
+   private int[] subtract( int[] a, int[] b ) {
+      if( b == null )
+         return new int[0];
+      if( a == null ) {
+         a = new int[ words.length ];
+         for( int id = 0; id < a.length; id++ )
+            a[ id ] = id;
+      }
+
+      int[] result = new int[ a.length ];
+      int n = 0;
+      int j = 0;
+      for( int i = 0; i < a.length; i++ ) {
+         while( j < b.length && b[j] < a[i] )
+            j++;
+         if( j == b.length || b[j] != a[i] )
+            result[ n++ ] = a[i];
+      }
+      return Arrays.copyOf( result, n );
+   }
+
+   /**
+      Turn a list of word numbers into the words
+
+      @param ids The sorted word numbers, or null for every word
+      @return String[] The words
+   */
+   private String[] toWords( int[] ids ) {
+      if( ids == null )
+         return words.clone();
+
+      String[] result = new String[ ids.length ];
+      for( int i = 0; i < ids.length; i++ )
+         result[i] = words[ ids[i] ];
+      return result;
+   }
+
+}
@@ -0,0 +1,485 @@
+/**
+   PositionIndex.java
+
+      An index of which words have which letter at which position, used to answer fixed-length specs like ??CAT? or #^##^
+      without comparing any letters. The words are split up by length, and within each length every word is given a number
+      in alphabetical order. Then for every (length, position, letter) there is a bitmap of the numbers of the words of
+      that length with that letter at that position, and likewise for every (length, position, vowel) and
+      (length, position, consonant), using the vowels the index was built with.
+
+      A spec is answered by ANDing the bitmaps of its pinned positions together. '?' positions add nothing. The words left
+      in the result are already in alphabetical order.
+
+      Each bitmap is stored in whichever of two forms is smaller:
+         1) dense  -- a long[] with one bit per word of that length. These are ANDed 64 words at a time
+         2) sparse -- a sorted int[] of the word numbers, for letters that are rare at a position (eg. a Q or an X)
+      An intersection starts from the bitmap with the fewest words. If that one is sparse, only its words are checked against
+      the others; otherwise the dense bitmaps are ANDed word-parallel.
+
+      --File Format-- (all numbers are big-endian)
+
+         int  MAGIC   -- 0x50494458 ("PIDX")
+         int  VERSION -- the format version; files of any other version are rejected
+         UTF  vowels
+         int  maxLength
+         for each length 1 to maxLength:
+            int numWords, then numWords x length bytes of letters
+            for each position, for each of the 28 slots (A-Z, vowel, consonant):
+               byte form (0 dense, 1 sparse), int count, then count longs (dense) or count ints (sparse)
+
+      The index is built once and is not changed afterwards.
+
+   @author Peter Olson
+   @version 10/18/26
+   @see Dictionary.java
+   @see SpecPattern.java
+
+**/
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class PositionIndex {
+
+   public static final int MAGIC = 0x50494458;
+   public static final int VERSION = 1;
+
+   private static final int SLOT_VOWEL = WordTrie.ALPHABET_SIZE;
+   private static final int SLOT_CONSONANT = WordTrie.ALPHABET_SIZE + 1;
+   private static final int NUM_SLOTS = WordTrie.ALPHABET_SIZE + 2;
+
+   private final String vowels;
+   private final String[][] words;  //words[L] -- the words of length L, in alphabetical order
+   private final long[][][] dense;  //dense[L][ pos * NUM_SLOTS + slot ], or null if that bitmap is sparse
+   private final int[][][] sparse;  //sparse[L][ pos * NUM_SLOTS + slot ], or null if that bitmap is dense
+   private final int[][] counts;    //counts[L][ pos * NUM_SLOTS + slot ] -- the number of words in the bitmap
+
+   /**
+      Build the index from a list of uppercase words
+
+      @param words The words to index
+      @param vowels The letters that count as vowels; every other letter A-Z is a consonant
+   */
+   public PositionIndex( Iterable<String> words, String vowels ) {
+      this.vowels = vowels.toUpperCase();
+
+      int maxLength = 0;
+      ArrayList<ArrayList<String>> byLength = new ArrayList<ArrayList<String>>();
+      for( String word : words ) {
+         int length = word.length();
+         while( byLength.size() <= length )
+            byLength.add( new ArrayList<String>() );
+         byLength.get( length ).add( word );
+         maxLength = Math.max( maxLength, length );
+      }
+
+      this.words = new String[ maxLength + 1 ][];
+      dense = new long[ maxLength + 1 ][][];
+      sparse = new int[ maxLength + 1 ][][];
+      counts = new int[ maxLength + 1 ][];
+
+      for( int length = 1; length <= maxLength; length++ ) {
+         String[] group = byLength.get( length ).toArray( new String[0] );
+         Arrays.sort( group );
+         group = removeRepeats( group );
+         this.words[ length ] = group;
+         buildBitmaps( length );
+      }
+   }
+
+   /**
+      Read an index written by save(..)
+
+      Every count and size in the file is checked against the bytes left before anything is allocated from it, and
+      every bitmap against the number of words of its length, so a cut-short or damaged file is rejected here rather
+      than failing later in match(..)
+
+      @param fileName The file to read
+      @throws UncheckedIOException If the file cannot be read
+      @throws IllegalArgumentException If the file is not a position index, is of another version, is cut short, or has a
+                                       count or bitmap that does not fit
+   */
+   public PositionIndex( String fileName ) {
+      ByteBuffer in;
+      try {
+         in = ByteBuffer.wrap( Files.readAllBytes( Paths.get( fileName ) ) );
+      } catch( IOException e ) {
+         throw new UncheckedIOException( e );
+      }
+
+      if( in.remaining() < 8 || in.getInt() != MAGIC )
+         throw new IllegalArgumentException( fileName + " is not a position index" );
+      int version = in.getInt();
+      if( version != VERSION )
+         throw new IllegalArgumentException( fileName + " is position index version " + version + ", expected " + VERSION );
+
+      need( in, 2, fileName, "the vowels" );
+      int numVowelBytes = in.getShort() & 0xFFFF;
+      need( in, numVowelBytes + 4L, fileName, "the vowels" );
+      byte[] vowelBytes = new byte[ numVowelBytes ];
+      in.get( vowelBytes );
+      vowels = new String( vowelBytes, StandardCharsets.UTF_8 );
+
+      //Every length takes at least its word count and a form byte and count for each of its bitmaps
+      int maxLength = in.getInt();
+      if( maxLength < 0 || maxLength > in.remaining() / ( 4 + 5 * NUM_SLOTS ) )
+         throw new IllegalArgumentException( fileName + " has words up to " + maxLength + " letters long, which does not fit in the file" );
+      words = new String[ maxLength + 1 ][];
+      dense = new long[ maxLength + 1 ][][];
+      sparse = new int[ maxLength + 1 ][][];
+      counts = new int[ maxLength + 1 ][];
+
+      for( int length = 1; length <= maxLength; length++ ) {
+         need( in, 4, fileName, "the words of length " + length );
+         int numWords = in.getInt();
+         if( numWords < 0 )
+            throw new IllegalArgumentException( fileName + " has " + numWords + " words of length " + length );
+         need( in, (long)numWords * length, fileName, "the words of length " + length );
+         String[] group = new String[ numWords ];
+         byte[] letters = new byte[ numWords * length ];
+         in.get( letters );
+         for( int w = 0; w < group.length; w++ )
+            group[w] = new String( letters, w * length, length, StandardCharsets.ISO_8859_1 );
+         words[ length ] = group;
+
+         int denseLength = ( numWords + 63 ) >>> 6;
+         dense[ length ] = new long[ length * NUM_SLOTS ][];
+         sparse[ length ] = new int[ length * NUM_SLOTS ][];
+         counts[ length ] = new int[ length * NUM_SLOTS ];
+         for( int key = 0; key < length * NUM_SLOTS; key++ ) {
+            String what = "bitmap " + key + " of length " + length;
+            need( in, 5, fileName, what );
+            byte form = in.get();
+            int count = in.getInt();
+            if( form == 1 ) {
+               if( count < 0 || count > numWords )
+                  throw new IllegalArgumentException( fileName + " has " + count + " words in " + what + ", which has only " + numWords );
+               need( in, 4L * count, fileName, what );
+               int[] ids = new int[ count ];
+               in.asIntBuffer().get( ids );
+               in.position( in.position() + 4 * count );
+               for( int i = 0; i < count; i++ )
+                  if( ids[i] < 0 || ids[i] >= numWords || ( i > 0 && ids[i] <= ids[ i - 1 ] ) )
+                     throw new IllegalArgumentException( fileName + " has word number " + ids[i] + " out of order or range in " + what );
+               sparse[ length ][ key ] = ids;
+               counts[ length ][ key ] = count;
+            } else if( form == 0 ) {
+               if( count != denseLength )
+                  throw new IllegalArgumentException( fileName + " has " + count + " longs in " + what + ", expected " + denseLength );
+               need( in, 8L * count, fileName, what );
+               long[] bits = new long[ count ];
+               in.asLongBuffer().get( bits );
+               in.position( in.position() + 8 * count );
+               if( ( numWords & 63 ) != 0 && ( bits[ count - 1 ] >>> ( numWords & 63 ) ) != 0 )
+                  throw new IllegalArgumentException( fileName + " has bits past the last word in " + what );
+               int cardinality = 0;
+               for( long b : bits )
+                  cardinality += Long.bitCount( b );
+               dense[ length ][ key ] = bits;
+               counts[ length ][ key ] = cardinality;
+            } else {
+               throw new IllegalArgumentException( fileName + " has an unknown form " + form + " for " + what );
+            }
+         }
+      }
+      if( in.hasRemaining() )
+         throw new IllegalArgumentException( fileName + " has " + in.remaining() + " bytes past the end of the index" );
+   }
+
+   /**
+      Check that a file being read has enough bytes left for the next part of it
+
+      @param in The bytes of the file
+      @param bytes The number of bytes the next part takes
+      @param fileName The file, for the message
+      @param what The next part, for the message
+      @throws IllegalArgumentException If there are fewer bytes left
+   */
+   private static void need( ByteBuffer in, long bytes, String fileName, String what ) {
+      if( in.remaining() < bytes )
+         throw new IllegalArgumentException( fileName + " is cut short in " + what + ": needs " + bytes + " bytes, has " + in.remaining() );
+   }
+
+   /**
+      Write the index to a file, so that it can be read back with PositionIndex( String fileName ) instead of being rebuilt
+
+      @param fileName The file to write
+      @throws UncheckedIOException If the file cannot be written
+      @throws IllegalArgumentException If a word has a character that does not fit in one byte
+   */
+   public void save( String fileName ) {
+      try( DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( fileName ), 1 << 16 ) ) ) {
+         out.writeInt( MAGIC );
+         out.writeInt( VERSION );
+         out.writeUTF( vowels );
+         out.writeInt( words.length - 1 );
+
+         for( int length = 1; length < words.length; length++ ) {
+            out.writeInt( words[ length ].length );
+            for( String word : words[ length ] ) {
+               for( int i = 0; i < length; i++ ) {
+                  char c = word.charAt(i);
+                  if( c > 0xFF )
+                     throw new IllegalArgumentException( "Cannot save '" + word + "': letters must fit in one byte" );
+                  out.writeByte( c );
+               }
+            }
+
+            for( int key = 0; key < length * NUM_SLOTS; key++ ) {
+               int[] ids = sparse[ length ][ key ];
+               if( ids != null ) {
+                  out.writeByte(1);
+                  out.writeInt( ids.length );
+                  for( int id : ids )
+                     out.writeInt( id );
+               } else {
+                  long[] bits = dense[ length ][ key ];
+                  out.writeByte(0);
+                  out.writeInt( bits.length );
+                  for( long b : bits )
+                     out.writeLong( b );
+               }
+            }
+         }
+      } catch( IOException e ) {
+         throw new UncheckedIOException( e );
+      }
+   }
+
+   /**
+      Tells whether a compiled spec can be answered by the index ie. whether it has no '*'
+
+      @param pattern The compiled spec
+      @return boolean True if the spec has a fixed length, false otherwise
+   */
+   public static boolean canMatch( SpecPattern pattern ) {
+      return !pattern.hasStar();
+   }
+
+   /**
+      Find all the words that match a fixed-length spec, in alphabetical order
+
+      eg. match( new SpecPattern( "??CAT?", "AEIOU" ) ) yields "SCATHE", "SCATTY", ...
+
+      @param pattern The compiled spec. It must not have a '*'
+      @return ArrayList<String> The list of words that match
+      @throws IllegalArgumentException If the spec has a '*'
+      @see canMatch( SpecPattern pattern )
+   */
+   public ArrayList<String> match( SpecPattern pattern ) {
+      if( !canMatch( pattern ) )
+         throw new IllegalArgumentException( "Spec '" + pattern + "' does not have a fixed length" );
+
+      ArrayList<String> result = new ArrayList<String>();
+      String spec = pattern.getSpec();
+      int length = spec.length();
+      if( length == 0 || length >= words.length )
+         return result;
+
+      //Collect the bitmaps of the pinned positions
+      int[] keys = new int[ length ];
+      int numKeys = 0;
+      for( int pos = 0; pos < length; pos++ ) {
+         char c = spec.charAt( pos );
+         int slot;
+         if( c == SpecPattern.ANY )
+            continue;
+         else if( c == SpecPattern.VOWEL )
+            slot = SLOT_VOWEL;
+         else if( c == SpecPattern.CONSONANT )
+            slot = SLOT_CONSONANT;
+         else if( c >= 'A' && c <= 'Z' )
+            slot = c - 'A';
+         else
+            return result; //a letter outside A-Z can never match
+
+         keys[ numKeys++ ] = pos * NUM_SLOTS + slot;
+      }
+
+      String[] group = words[ length ];
+      if( numKeys == 0 ) {
+         result.addAll( Arrays.asList( group ) );
+         return result;
+      }
+
+      //Start from the bitmap with the fewest words
+      int[] count = counts[ length ];
+      int smallest = 0;
+      for( int k = 1; k < numKeys; k++ )
+         if( count[ keys[k] ] < count[ keys[ smallest ] ] )
+            smallest = k;
+      int first = keys[ smallest ];
+      keys[ smallest ] = keys[ numKeys - 1 ];
+      numKeys--;
+
+      int[] ids = sparse[ length ][ first ];
+      if( ids != null ) {
+         for( int id : ids )
+            if( hasAll( length, keys, numKeys, id ) )
+               result.add( group[ id ] );
+         return result;
+      }
+
+      long[] bits = dense[ length ][ first ].clone();
+      for( int k = 0; k < numKeys; k++ ) {
+         long[] other = dense[ length ][ keys[k] ];
+         if( other != null ) {
+            for( int i = 0; i < bits.length; i++ )
+               bits[i] &= other[i];
+         } else {
+            //Every sparse bitmap is smaller than every dense one of the same length, so this only happens for ties
+            long[] mask = new long[ bits.length ];
+            for( int id : sparse[ length ][ keys[k] ] )
+               mask[ id >>> 6 ] |= 1L << id;
+            for( int i = 0; i < bits.length; i++ )
+               bits[i] &= mask[i];
+         }
+      }
+
+      for( int i = 0; i < bits.length; i++ ) {
+         long b = bits[i];
+         while( b != 0 ) {
+            result.add( group[ ( i << 6 ) + Long.numberOfTrailingZeros( b ) ] );
+            b &= b - 1;
+         }
+      }
+      return result;
+   }
+
+   /**
+      Get the number of words in the index, of every length
+
+      @return int The number of words
+   */
+   public int size() {
+      int total = 0;
+      for( int length = 1; length < words.length; length++ )
+         total += words[ length ].length;
+      return total;
+   }
+
+   /**
+      Get the vowels the index was built with
+
+      @return String The vowels
+   */
+   public String getVowels() {
+      return vowels;
+   }
+
+   /**
+      Get the number of bytes of heap used by the bitmaps of the index, not counting the words
+
+      @return long The heap usage in bytes
+   */
+   public long getMemoryUsage() {
+      final int ARRAY_HEADER = 16;
+      long total = 0;
+      for( int length = 1; length < words.length; length++ ) {
+         for( int key = 0; key < length * NUM_SLOTS; key++ ) {
+            if( dense[ length ][ key ] != null )
+               total += ARRAY_HEADER + 8L * dense[ length ][ key ].length;
+            else
+               total += ARRAY_HEADER + 4L * sparse[ length ][ key ].length;
+         }
+         total += ARRAY_HEADER + 4L * counts[ length ].length;
+      }
+      return total;
+   }
+
+   /**
+      Build the bitmaps for the words of one length, then store each in its smaller form
+
+      @param length The length of the words
+   */
+   private void buildBitmaps( int length ) {
+      String[] group = words[ length ];
+      int numLongs = ( group.length + 63 ) >>> 6;
+      long[][] bits = new long[ length * NUM_SLOTS ][ numLongs ];
+
+      for( int id = 0; id < group.length; id++ ) {
+         String word = group[ id ];
+         for( int pos = 0; pos < length; pos++ ) {
+            char c = word.charAt( pos );
+            if( c < 'A' || c > 'Z' )
+               continue;
+            long bit = 1L << id;
+            bits[ pos * NUM_SLOTS + ( c - 'A' ) ][ id >>> 6 ] |= bit;
+            int slot = vowels.indexOf(c) >= 0 ? SLOT_VOWEL : SLOT_CONSONANT;
+            bits[ pos * NUM_SLOTS + slot ][ id >>> 6 ] |= bit;
+         }
+      }
+
+      dense[ length ] = new long[ length * NUM_SLOTS ][];
+      sparse[ length ] = new int[ length * NUM_SLOTS ][];
+      counts[ length ] = new int[ length * NUM_SLOTS ];
+      for( int key = 0; key < bits.length; key++ ) {
+         int cardinality = 0;
+         for( long b : bits[ key ] )
+            cardinality += Long.bitCount( b );
+         counts[ length ][ key ] = cardinality;
+
+         //An int per word is smaller than a bit per word when fewer than 1 in 32 words are in the bitmap
+         if( cardinality * 32L < group.length ) {
+            int[] ids = new int[ cardinality ];
+            int n = 0;
+            for( int i = 0; i < numLongs; i++ ) {
+               long b = bits[ key ][i];
+               while( b != 0 ) {
+                  ids[ n++ ] = ( i << 6 ) + Long.numberOfTrailingZeros( b );
+                  b &= b - 1;
+               }
+            }
+            sparse[ length ][ key ] = ids;
+         } else {
+            dense[ length ][ key ] = bits[ key ];
+         }
+      }
+   }
+
+   /**
+      Tells whether a word is in every one of the given bitmaps
+
+      @param length The length of the word
+      @param keys The bitmaps to check
+      @param numKeys The number of bitmaps to check
+      @param id The number of the word
+      @return boolean True if the word is in all of them, false otherwise
+   */
+   private boolean hasAll( int length, int[] keys, int numKeys, int id ) {
+      for( int k = 0; k < numKeys; k++ ) {
+         long[] bits = dense[ length ][ keys[k] ];
+         if( bits != null ) {
+            if( ( bits[ id >>> 6 ] & ( 1L << id ) ) == 0 )
+               return false;
+         } else if( Arrays.binarySearch( sparse[ length ][ keys[k] ], id ) < 0 ) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   /**
+      Remove repeated words from a sorted list
+
+      @param sorted The sorted list of words
+      @return String[] The list with each word once
+   */
+   private static String[] removeRepeats( String[] sorted ) {
+      int n = 0;
+      for( int i = 0; i < sorted.length; i++ )
+         if( n == 0 || !sorted[i].equals( sorted[ n - 1 ] ) )
+            sorted[ n++ ] = sorted[i];
+      return Arrays.copyOf( sorted, n );
+   }
+
+}
@@ -0,0 +1,335 @@
+/**
+   ResultCache.java
+
+      A bounded cache of descramble results, keyed by the letters asked for rather than the order they were given in. The
+      same rack comes up again and again in a game, shuffled differently each time, so every query is first turned into a
+      canonical key (see key(..)): the letters A-Z in sorted order, the number of blanks, and the other settings of the
+      search. "RETAINS", "nastier" and "S-T-A-I-N-E-R" all share one entry.
+
+      Entries are evicted by segmented LRU. A new entry goes into the probation segment; if it is asked for again, it is
+      moved up into the protected segment, which holds PROTECTED_SHARE of the entries. When the protected segment is full,
+      its least recently used entry drops back to probation. Evictions always come from the least recently used end of
+      probation first, so a burst of racks that are only seen once cannot flush out the racks that keep coming back.
+
+      The cache is bounded both by its number of entries and by an estimate of the heap its results take up. A result
+      that would take more than the whole budget on its own is handed back without being cached.
+
+      Concurrent queries for the same key are computed once (single flight): the first caller computes the result while
+      the others wait for it, and all of them get it. If the computation throws, every waiting caller gets the exception,
+      and nothing is cached.
+
+      clear() starts a new generation. A computation that was already running when the cache was cleared was working
+      from what the cache's owner held before, so its result is handed to the callers that asked for it but is not
+      stored, and a query that comes in after the clear does not wait for it but computes its own result.
+
+      The counts of hits, misses, shared waits and evictions are kept for tuning. Each caller gets its own copy of the
+      cached array, so a caller that changes its result does not change what the next caller sees.
+
+   @author Peter Olson
+   @version 10/18/26
+   @see Dictionary.java
+
+**/
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
+
+public class ResultCache {
+
+   public static final int DEFAULT_MAX_ENTRIES = 4096;
+   public static final long DEFAULT_MAX_BYTES = 64L << 20;
+   public static final double PROTECTED_SHARE = 0.8;
+
+   //Approximate heap taken by an entry apart from its words: the map entry, key, array header and bookkeeping
+   private static final int ENTRY_OVERHEAD = 160;
+   //Approximate heap taken by each word of a result apart from its letters: the String, its byte[] and the reference
+   private static final int WORD_OVERHEAD = 48;
+
+   private final int maxEntries;
+   private final long maxBytes;
+   private final int maxProtected;
+
+   //Both segments are kept in access order, least recently used first
+   private final LinkedHashMap<String,String[]> probation = new LinkedHashMap<String,String[]>( 16, 0.75f, true );
+   private final LinkedHashMap<String,String[]> protectedSegment = new LinkedHashMap<String,String[]>( 16, 0.75f, true );
+   private final HashMap<String,FutureTask<String[]>> inFlight = new HashMap<String,FutureTask<String[]>>();
+   private long bytes;
+   private long generation; //counts the calls to clear(); a result computed in an older generation is not stored
+
+   private long hits;
+   private long misses;
+   private long sharedWaits;
+   private long evictions;
+
+   /**
+      Make a cache with the default bounds
+   */
+   public ResultCache() {
+      this( DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES );
+   }
+
+   /**
+      Make a cache
+
+      @param maxEntries The most results to hold
+      @param maxBytes The most heap (approximately) for the results to take up
+      @throws IllegalArgumentException If either bound is not positive
+   */
+   public ResultCache( int maxEntries, long maxBytes ) {
+      if( maxEntries <= 0 )
+         throw new IllegalArgumentException( "Number of entries must be positive: " + maxEntries );
+      if( maxBytes <= 0 )
+         throw new IllegalArgumentException( "Memory budget must be positive: " + maxBytes );
+
+      this.maxEntries = maxEntries;
+      this.maxBytes = maxBytes;
+      maxProtected = Math.max( 1, (int)( maxEntries * PROTECTED_SHARE ) );
+   }
+
+   /**
+      Make the canonical key of a query: the kind of query, the letters A-Z it was given in sorted order, the number of
+      blanks ('?'), and any other settings of the search. Case and the order of the letters do not matter, and other
+      characters are left out, as they are by the descramble searches
+
+      eg. key( "D", "Tac?", 2 ) and key( "D", "?cat", 2 ) are both "D:ACT:1:2"
+
+      @param kind The kind of query, so that different searches over the same letters have different keys
+      @param letters The letters of the query
+      @param settings The other settings of the search
+      @return String The key
+   */
+   public static String key( String kind, String letters, int... settings ) {
+      int[] counts = new int[ WordTrie.ALPHABET_SIZE ];
+      int blanks = WordTrie.countLetters( letters, counts );
+
+      StringBuilder key = new StringBuilder( kind ).append( ':' );
+      for( int i = 0; i < counts.length; i++ )
+         for( int n = 0; n < counts[i]; n++ )
+            key.append( (char)( 'A' + i ) );
+      key.append( ':' ).append( blanks );
+      for( int setting : settings )
+         key.append( ':' ).append( setting );
+      return key.toString();
+   }
+
+   /**
+      Get the result of a query from the cache, or compute it and cache it. If the same key is being computed by another
+      thread, wait for that result instead of computing it again
+
+      @param key The canonical key of the query. See key(..)
+      @param compute Computes the result of the query
+      @return String[] A copy of the result
+   */
+   public String[] get( String key, final Supplier<String[]> compute ) {
+      FutureTask<String[]> task;
+      boolean owner = false;
+      long started;
+      synchronized( this ) {
+         started = generation;
+         String[] cached = lookup( key );
+         if( cached != null ) {
+            hits++;
+            return cached.clone();
+         }
+
+         task = inFlight.get( key );
+         if( task == null ) {
+            misses++;
+            task = new FutureTask<String[]>( new Callable<String[]>() {
+               public String[] call() {
+                  return compute.get();
+               }
+            } );
+            inFlight.put( key, task );
+            owner = true;
+         } else {
+            sharedWaits++;
+         }
+      }
+
+      if( owner ) {
+         task.run();
+         synchronized( this ) {
+            inFlight.remove( key, task );
+            if( generation == started && !task.isCancelled() ) {
+               try {
+                  store( key, task.get() );
+               } catch( Exception e ) {
+                  //The computation failed; it is reported below
+               }
+            }
+         }
+      }
+
+      return await( task ).clone();
+   }
+
+   /**
+      Empty the cache and start a new generation. Results still being computed are not stored when they finish, and are
+      not shared with queries made from now on. The counts are kept
+   */
+   public synchronized void clear() {
+      probation.clear();
+      protectedSegment.clear();
+      inFlight.clear();
+      bytes = 0;
+      generation++;
+   }
+
+   /**
+      Get the number of results held
+
+      @return int The number of results
+   */
+   public synchronized int size() {
+      return probation.size() + protectedSegment.size();
+   }
+
+   /**
+      Get the approximate heap taken up by the results held
+
+      @return long The number of bytes
+   */
+   public synchronized long getMemoryUsage() {
+      return bytes;
+   }
+
+   /**
+      Get the number of queries answered from the cache
+
+      @return long The number of hits
+   */
+   public synchronized long getHits() {
+      return hits;
+   }
+
+   /**
+      Get the number of queries that had to be computed
+
+      @return long The number of misses
+   */
+   public synchronized long getMisses() {
+      return misses;
+   }
+
+   /**
+      Get the number of queries that waited for the same query to be computed by another thread, instead of computing it
+
+      @return long The number of shared waits
+   */
+   public synchronized long getSharedWaits() {
+      return sharedWaits;
+   }
+
+   /**
+      Get the number of results evicted to keep within the bounds
+
+      @return long The number of evictions
+   */
+   public synchronized long getEvictions() {
+      return evictions;
+   }
+
+   public synchronized String toString() {
+      return size() + " results, " + bytes + " bytes; " + hits + " hits, " + misses + " misses, " + sharedWaits +
+             " shared waits, " + evictions + " evictions";
+   }
+
+   /**
+      Look up a key, moving it up into the protected segment if it was on probation
+
+      @param key The key
+      @return String[] The result, or null if it is not held
+   */
+   private String[] lookup( String key ) {
+      String[] result = protectedSegment.get( key );
+      if( result != null )
+         return result;
+
+      result = probation.remove( key );
+      if( result != null ) {
+         protectedSegment.put( key, result );
+         if( protectedSegment.size() > maxProtected ) {
+            //Drop the least recently used protected entry back to probation, as its most recently used entry
+            Iterator<Map.Entry<String,String[]>> eldest = protectedSegment.entrySet().iterator();
+            Map.Entry<String,String[]> demoted = eldest.next();
+            eldest.remove();
+            probation.put( demoted.getKey(), demoted.getValue() );
+         }
+      }
+      return result;
+   }
+
+   /**
+      Put a new result on probation, evicting the least recently used results until the cache is within its bounds
+
+      @param key The key
+      @param result The result
+   */
+   private void store( String key, String[] result ) {
+      long size = sizeOf( key, result );
+      if( size > maxBytes )
+         return;
+
+      probation.put( key, result );
+      bytes += size;
+      while( probation.size() + protectedSegment.size() > maxEntries || bytes > maxBytes ) {
+         LinkedHashMap<String,String[]> segment = probation.isEmpty() ? protectedSegment : probation;
+         Iterator<Map.Entry<String,String[]>> eldest = segment.entrySet().iterator();
+         Map.Entry<String,String[]> evicted = eldest.next();
+         eldest.remove();
+         bytes -= sizeOf( evicted.getKey(), evicted.getValue() );
+         evictions++;
+      }
+   }
+
+   /**
+      Estimate the heap taken by an entry
+
+      @param key The key
+      @param result The result
+      @return long The number of bytes
+   */
+   private static long sizeOf( String key, String[] result ) {
+      long size = ENTRY_OVERHEAD + key.length() + 4L * result.length;
+      for( String word : result )
+         size += WORD_OVERHEAD + ( word == null ? 0 : word.length() );
+      return size;
+   }
+
+   /**
+      Wait for a computation to finish, even if the thread is interrupted while it waits. The interrupt is kept
+
+      @param task The computation
+      @return String[] The result
+   */
+   private static String[] await( FutureTask<String[]> task ) {
+      boolean interrupted = false;
+      try {
+         while( true ) {
+            try {
+               return task.get();
+            } catch( InterruptedException e ) {
+               interrupted = true;
+            } catch( ExecutionException e ) {
+               Throwable cause = e.getCause();
+               if( cause instanceof RuntimeException )
+                  throw (RuntimeException)cause;
+               if( cause instanceof Error )
+                  throw (Error)cause;
+               throw new IllegalStateException( cause );
+            }
+         }
+      } finally {
+         if( interrupted )
+            Thread.currentThread().interrupt();
+      }
+   }
+
+}
@@ -0,0 +1,163 @@
+/**
+   ResultPipeline.java
+
+      A list of results (words, usually) that is cleaned up and ordered in memory and then written to a text file once.
+      The file-based methods of Dictionary (removeDuplicates(..), orderIncreasing(..), alphabetizeSets(..)) each read
+      the whole file back in and write it out again; a ResultPipeline does the same steps on the list it already has,
+      so the file is only opened once, at the end.
+
+      Each step changes the list and returns the pipeline, so the steps can be chained in any order:
+         new ResultPipeline( words ).removeDuplicates().orderIncreasing().alphabetizeSets().write( fileName );
+
+      The steps are:
+         removeDuplicates() -- keep the first of each repeated result                             O(n), see Deduplicator
+         orderIncreasing()  -- group the results by length, shortest first, keeping their order    O(n), a counting sort
+         alphabetizeSets()  -- alphabetize each group of same-length results that sit together    O(n log n)
+         alphabetize()      -- alphabetize all of the results                                     O(n log n)
+
+   @author Peter Olson
+   @version 10/18/26
+   @see Dictionary.java
+   @see Deduplicator.java
+   @see BatchWriter.java
+
+**/
+
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class ResultPipeline {
+
+   private String[] results;
+   private int size;
+
+   /**
+      Start a pipeline over a list of results. The list itself is not changed
+
+      @param results The results
+   */
+   public ResultPipeline( String[] results ) {
+      this.results = results.clone();
+      size = results.length;
+   }
+
+   /**
+      Start a pipeline over a list of results. The list itself is not changed
+
+      @param results The results
+   */
+   public ResultPipeline( Iterable<String> results ) {
+      this.results = new String[ 16 ];
+      for( String result : results ) {
+         if( size == this.results.length )
+            this.results = Arrays.copyOf( this.results, size * 2 );
+         this.results[ size++ ] = result;
+      }
+   }
+
+   /**
+      Remove the repeated results, keeping the first of each
+
+      @return ResultPipeline This pipeline
+   */
+   public ResultPipeline removeDuplicates() {
+      ArrayList<String> kept = Deduplicator.removeDuplicates( Arrays.asList( results ).subList( 0, size ) );
+      results = kept.toArray( new String[ kept.size() ] );
+      size = results.length;
+      return this;
+   }
+
+   /**
+      Group the results by length, from shortest to longest. Results of the same length stay in the order they were in
+
+      @return ResultPipeline This pipeline
+   */
+   public ResultPipeline orderIncreasing() {
+      int maxLength = 0;
+      for( int i = 0; i < size; i++ )
+         maxLength = Math.max( maxLength, results[i].length() );
+
+      int[] starts = new int[ maxLength + 2 ];
+      for( int i = 0; i < size; i++ )
+         starts[ results[i].length() + 1 ]++;
+      for( int length = 1; length < starts.length; length++ )
+         starts[ length ] += starts[ length - 1 ];
+
+      String[] ordered = new String[ size ];
+      for( int i = 0; i < size; i++ )
+         ordered[ starts[ results[i].length() ]++ ] = results[i];
+      results = ordered;
+      return this;
+   }
+
+   /**
+      Alphabetize each group of same-length results that sit next to each other. After orderIncreasing(), this puts the
+      results in order of length and then alphabetically
+
+      @return ResultPipeline This pipeline
+   */
+   public ResultPipeline alphabetizeSets() {
+      int from = 0;
+      while( from < size ) {
+         int to = from + 1;
+         while( to < size && results[ to ].length() == results[ from ].length() )
+            to++;
+         Arrays.sort( results, from, to );
+         from = to;
+      }
+      return this;
+   }
+
+   /**
+      Alphabetize all of the results
+
+      @return ResultPipeline This pipeline
+   */
+   public ResultPipeline alphabetize() {
+      Arrays.sort( results, 0, size );
+      return this;
+   }
+
+   /**
+      Get the number of results
+
+      @return int The number of results
+   */
+   public int size() {
+      return size;
+   }
+
+   /**
+      Get a copy of the results
+
+      @return String[] The results, in their current order
+   */
+   public String[] toArray() {
+      return Arrays.copyOf( results, size );
+   }
+
+   /**
+      Get a copy of the results
+
+      @return ArrayList<String> The results, in their current order
+   */
+   public ArrayList<String> toList() {
+      return new ArrayList<String>( Arrays.asList( results ).subList( 0, size ) );
+   }
+
+   /**
+      Write the results to a text file, one per line, in one batch. If the file name does not end in '.txt', it is added
+
+      @param fileName The text file to write. It is replaced if it already exists
+      @return BatchWriter.Result The number of bytes and lines written
+      @throws UncheckedIOException If the file cannot be written
+   */
+   public BatchWriter.Result write( String fileName ) {
+      if( !fileName.contains(".txt") )
+         fileName += ".txt";
+
+      return BatchWriter.write( Arrays.asList( results ).subList( 0, size ), fileName );
+   }
+
+}
@@ -0,0 +1,124 @@
+/**
+   Scrambler.java
+
+      Hands out every ordering of every subset of a list of letters, one at a time, whether they are words or not. This is
+      what scramble(..) returns all at once; a 10 letter scramble has close to 10 million of them, so a caller that only
+      needs some of them can pull them from a Scrambler instead, and none of the rest are ever built.
+
+      The subsets are taken in the order of a binary count over the letters (the first letter is the lowest bit), and the
+      orderings of each subset are taken in lexicographic order of the positions of its letters, which is the order
+      scramble(..) has always used. Only the current subset and ordering are held: a bitmask, and an array of positions
+      stepped to the next permutation in place.
+
+      Repeated letters are not merged, so a subset with two of the same letter hands out the same String more than once,
+      as scramble(..) does.
+
+   @author Peter Olson
+   @version 10/18/26
+   @see Dictionary.java
+
+**/
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class Scrambler implements Iterator<String> {
+
+   public static final int MAX_LETTERS = 62;
+
+   private final String[] letters;
+   private final int minLength;
+   private final int maxLength;
+   private long subset = -1;  //the letters of the current subset, one bit per letter
+   private int[] chosen;      //the positions of the letters of the current subset, in order
+   private int[] order;       //the current ordering of the subset, as indexes into chosen
+   private String next;
+
+   /**
+      Scramble a list of letters
+
+      @param letters The letters. Each element is usually one letter long, but may be any String
+      @param minLength The fewest letters in a scramble
+      @param maxLength The most letters in a scramble. Subsets larger than this are skipped without being ordered
+      @throws IllegalArgumentException If there are more than MAX_LETTERS letters
+   */
+   public Scrambler( String[] letters, int minLength, int maxLength ) {
+      if( letters.length > MAX_LETTERS )
+         throw new IllegalArgumentException( "Cannot scramble more than " + MAX_LETTERS + " letters: " + letters.length );
+
+      this.letters = letters.clone();
+      this.minLength = Math.max( minLength, 0 );
+      this.maxLength = Math.min( maxLength, letters.length );
+   }
+
+   public boolean hasNext() {
+      if( next == null )
+         next = advance();
+      return next != null;
+   }
+
+   public String next() {
+      if( !hasNext() )
+         throw new NoSuchElementException();
+      String result = next;
+      next = null;
+      return result;
+   }
+
+   /**
+      Step to the next ordering, or the first ordering of the next subset of a length that is wanted
+
+      @return String The scramble, or null if there are no more
+   */
+   private String advance() {
+      if( order == null || !nextPermutation( order ) ) {
+         long end = 1L << letters.length;
+         do {
+            subset++;
+         } while( subset < end && ( Long.bitCount( subset ) < minLength || Long.bitCount( subset ) > maxLength ) );
+         if( subset >= end )
+            return null;
+
+         chosen = new int[ Long.bitCount( subset ) ];
+         for( int i = 0, n = 0; i < letters.length; i++ )
+            if( ( subset & ( 1L << i ) ) != 0 )
+               chosen[ n++ ] = i;
+         order = new int[ chosen.length ];
+         for( int i = 0; i < order.length; i++ )
+            order[i] = i;
+      }
+
+      StringBuilder scramble = new StringBuilder();
+      for( int i = 0; i < order.length; i++ )
+         scramble.append( letters[ chosen[ order[i] ] ] );
+      return scramble.toString();
+   }
+
+   /**
+      Rearrange an array of distinct numbers into the next larger ordering
+
+      @param a The array
+      @return boolean True if there was a next ordering, false if the array was already in its last (descending) order
+   */
+   private static boolean nextPermutation( int[] a ) {
+      int i = a.length - 2;
+      while( i >= 0 && a[i] > a[ i + 1 ] )
+         i--;
+      if( i < 0 )
+         return false;
+
+      int j = a.length - 1;
+      while( a[j] < a[i] )
+         j--;
+      int swap = a[i];
+      a[i] = a[j];
+      a[j] = swap;
+      for( int lo = i + 1, hi = a.length - 1; lo < hi; lo++, hi-- ) {
+         swap = a[lo];
+         a[lo] = a[hi];
+         a[hi] = swap;
+      }
+      return true;
+   }
+
+}
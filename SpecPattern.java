@@ -0,0 +1,198 @@
+/**
+   SpecPattern.java
+
+      A descrambleSpecs(..) spec compiled into a small automaton. The spec is read once, and every word is then checked one
+      letter at a time with a few bit operations, without going back over letters already seen.
+
+      The notation of a spec is:
+         [A-Z] -- that letter
+         '?'   -- any one letter
+         '#'   -- any one consonant
+         '^'   -- any one vowel
+         '*'   -- any number of letters, including none
+
+      Each position in the spec is a state, and the set of states that the letters so far could have reached is held in the
+      bits of a long (a bit-parallel NFA). For each letter there is a mask of the positions that accept it, so reading a
+      letter is:
+         next = ( ( states & accepts[ letter ] ) << 1 ) | ( states & stars )
+      followed by letting each '*' reached also skip ahead to the position after it. A word matches if the state past the
+      last position is reached. Once the set of states is empty no longer word can match, which is what lets a trie walk
+      drop a whole subtree at once.
+
+   @author Peter Olson
+   @version 10/18/26
+   @see Dictionary.java
+   @see WordTrie.java
+
+**/
+
+public class SpecPattern {
+
+   public static final char ANY = '?';
+   public static final char CONSONANT = '#';
+   public static final char VOWEL = '^';
+   public static final char STAR = '*';
+
+   /** The most positions a spec can have, not counting repeated '*'s; one bit of the state is needed past the last position */
+   public static final int MAX_POSITIONS = 63;
+
+   private final String spec;
+   private final long[] accepts;  //for each letter A-Z, the positions that accept it
+   private final long otherAccepts; //the positions that accept a character outside A-Z
+   private final long stars;      //the positions that are a '*'
+   private final long start;
+   private final long accept;
+   private final int minLength;
+
+   /**
+      Compile a spec
+
+      @param spec The spec to compile. Case does not matter. See the notation above
+      @param vowels The letters that count as vowels for '^' and '#'; every other letter is a consonant
+      @throws IllegalArgumentException If the spec holds a character that is not part of the notation, or is too long
+   */
+   public SpecPattern( String spec, String vowels ) {
+      this.spec = spec.toUpperCase();
+      accepts = new long[ WordTrie.ALPHABET_SIZE ];
+
+      long vowelMask = 0;
+      for( int i = 0; i < vowels.length(); i++ ) {
+         char v = Character.toUpperCase( vowels.charAt(i) );
+         if( v >= 'A' && v <= 'Z' )
+            vowelMask |= 1L << ( v - 'A' );
+      }
+
+      long other = 0;
+      long starBits = 0;
+      int position = 0;
+      int letters = 0;
+      for( int i = 0; i < this.spec.length(); i++ ) {
+         char c = this.spec.charAt(i);
+         if( c == STAR && i > 0 && this.spec.charAt( i - 1 ) == STAR )
+            continue; //'**' is the same as '*'
+
+         if( position == MAX_POSITIONS )
+            throw new IllegalArgumentException( "Spec has more than " + MAX_POSITIONS + " positions: " + spec );
+
+         long bit = 1L << position;
+         if( c == STAR ) {
+            starBits |= bit;
+         } else if( c == ANY ) {
+            for( int l = 0; l < WordTrie.ALPHABET_SIZE; l++ )
+               accepts[l] |= bit;
+            other |= bit;
+            letters++;
+         } else if( c == VOWEL || c == CONSONANT ) {
+            for( int l = 0; l < WordTrie.ALPHABET_SIZE; l++ )
+               if( ( ( vowelMask >>> l ) & 1 ) == ( c == VOWEL ? 1 : 0 ) )
+                  accepts[l] |= bit;
+            letters++;
+         } else if( c >= 'A' && c <= 'Z' ) {
+            accepts[ c - 'A' ] |= bit;
+            letters++;
+         } else if( Character.isLetter(c) ) {
+            letters++; //a letter outside A-Z can never match a word
+         } else {
+            throw new IllegalArgumentException( "Invalid spec character '" + c + "'. Use only [a-z], '*', '?', '#', or '^'" );
+         }
+         position++;
+      }
+
+      otherAccepts = other;
+      stars = starBits;
+      accept = 1L << position;
+      minLength = letters;
+      start = close( 1L );
+   }
+
+   /**
+      Get the set of states before any letters have been read
+
+      @return long The starting states
+   */
+   public long start() {
+      return start;
+   }
+
+   /**
+      Read one letter
+
+      @param states The set of states before the letter
+      @param c The letter to read. Must be uppercase
+      @return long The set of states after the letter, or 0 if no word starting with the letters so far can match
+   */
+   public long step( long states, char c ) {
+      int letter = c - 'A';
+      long mask = ( letter >= 0 && letter < WordTrie.ALPHABET_SIZE ) ? accepts[ letter ] : otherAccepts;
+      return close( ( ( states & mask ) << 1 ) | ( states & stars ) );
+   }
+
+   /**
+      Tells whether a set of states means that the letters read so far match the whole spec
+
+      @param states The set of states
+      @return boolean True if the letters read so far are a match, false otherwise
+   */
+   public boolean isMatch( long states ) {
+      return ( states & accept ) != 0;
+   }
+
+   /**
+      Tells whether a word matches the spec
+
+      @param word The word to check. Must be uppercase
+      @return boolean True if the word matches, false otherwise
+   */
+   public boolean matches( CharSequence word ) {
+      if( word.length() < minLength )
+         return false;
+
+      long states = start;
+      for( int i = 0; i < word.length() && states != 0; i++ )
+         states = step( states, word.charAt(i) );
+      return isMatch( states );
+   }
+
+   /**
+      Get the fewest letters a word needs to match the spec
+
+      @return int The number of positions that are not '*'
+   */
+   public int getMinLength() {
+      return minLength;
+   }
+
+   /**
+      Tells whether the spec holds a '*', ie. whether words of more than one length can match it
+
+      @return boolean True if there is a '*', false otherwise
+   */
+   public boolean hasStar() {
+      return stars != 0;
+   }
+
+   /**
+      Get the spec that was compiled, in uppercase
+
+      @return String The spec
+   */
+   public String getSpec() {
+      return spec;
+   }
+
+   public String toString() {
+      return spec;
+   }
+
+   /**
+      Let every '*' in the set of states also stand for no letters at all, reaching the position after it. Repeated '*'s
+      were merged when the spec was compiled, so one pass is enough
+
+      @param states The set of states
+      @return long The set of states with the positions after each '*' added
+   */
+   private long close( long states ) {
+      return states | ( ( states & stars ) << 1 );
+   }
+
+}
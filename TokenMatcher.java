@@ -0,0 +1,251 @@
+/**
+   TokenMatcher.java
+
+      A set of tokens compiled into an Aho-Corasick automaton, which finds every token in a String in a single pass over
+      its characters, no matter how many tokens there are. Checking a word against a blocklist of a few thousand tokens
+      costs one table lookup per letter of the word, instead of one String.contains(..) per token.
+
+      The automaton is a trie of the tokens, where each node also knows the longest proper suffix of its path that is
+      also in the trie (its failure link). The failure links are folded into a full transition table when the matcher is
+      built, so reading a character is always a single lookup:
+         state = next[ state * numClasses + classOf( c ) ]
+      Only the characters that appear in some token get their own column (class) in the table; every other character
+      shares class 0, which always leads back to the root.
+
+      Each state has the list of tokens that end at it, including those that end at a suffix of it, so every hit is seen
+      as soon as its last character is read.
+
+      Matching is case-sensitive. The matcher is built once and is not changed afterwards, so it can be shared between
+      threads.
+
+   @author Peter Olson
+   @version 10/18/26
+   @see Dictionary.java
+
+**/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+
+public class TokenMatcher {
+
+   private final String[] tokens;  //the distinct tokens, in the order they were first given
+   private final int[] classOf;     //character --> column of the table; characters past the end are class 0
+   private final int numClasses;
+   private final int[] next;        //the transition table, numStates x numClasses
+   private final int[] outStart;    //the tokens ending at state s are outTokens[ outStart[s] ] to outTokens[ outStart[s+1] - 1 ]
+   private final int[] outTokens;
+   private final int numStates;
+   private final boolean hasEmpty;  //the empty token is in every String
+
+   /**
+      Compile a set of tokens. Repeated tokens are only added once
+
+      @param tokens The tokens to look for
+   */
+   public TokenMatcher( String[] tokens ) {
+      LinkedHashMap<String, Integer> ids = new LinkedHashMap<String, Integer>();
+      for( String token : tokens )
+         if( !ids.containsKey( token ) )
+            ids.put( token, ids.size() );
+      this.tokens = ids.keySet().toArray( new String[0] );
+      hasEmpty = ids.containsKey( "" );
+
+      //Give each character used by a token a column of the table
+      int maxChar = 0;
+      for( String token : this.tokens )
+         for( int i = 0; i < token.length(); i++ )
+            maxChar = Math.max( maxChar, token.charAt(i) );
+      classOf = new int[ maxChar + 1 ];
+      int classes = 1;
+      for( String token : this.tokens )
+         for( int i = 0; i < token.length(); i++ )
+            if( classOf[ token.charAt(i) ] == 0 )
+               classOf[ token.charAt(i) ] = classes++;
+      numClasses = classes;
+
+      //Build the trie of the tokens, with -1 for a missing edge
+      int capacity = 1;
+      for( String token : this.tokens )
+         capacity += token.length();
+      int[] table = new int[ capacity * numClasses ];
+      Arrays.fill( table, -1 );
+      int[] endsHere = new int[ capacity ]; //token id + 1 ending at each state, or 0
+      int states = 1;
+      for( int t = 0; t < this.tokens.length; t++ ) {
+         String token = this.tokens[t];
+         int state = 0;
+         for( int i = 0; i < token.length(); i++ ) {
+            int slot = state * numClasses + classOf[ token.charAt(i) ];
+            if( table[ slot ] == -1 )
+               table[ slot ] = states++;
+            state = table[ slot ];
+         }
+         endsHere[ state ] = t + 1;
+      }
+      numStates = states;
+
+      //Breadth-first from the root, set each state's failure link and fill in its missing edges from the failure state
+      int[] fail = new int[ states ];
+      int[] queue = new int[ states ];
+      int head = 0;
+      int tail = 0;
+      for( int c = 0; c < numClasses; c++ ) {
+         int child = table[c];
+         if( child == -1 ) {
+            table[c] = 0;
+         } else {
+            fail[ child ] = 0;
+            queue[ tail++ ] = child;
+         }
+      }
+      while( head < tail ) {
+         int state = queue[ head++ ];
+         int failState = fail[ state ];
+         for( int c = 0; c < numClasses; c++ ) {
+            int slot = state * numClasses + c;
+            int child = table[ slot ];
+            if( child == -1 ) {
+               table[ slot ] = table[ failState * numClasses + c ];
+            } else {
+               fail[ child ] = table[ failState * numClasses + c ];
+               queue[ tail++ ] = child;
+            }
+         }
+      }
+      next = Arrays.copyOf( table, states * numClasses );
+
+      //Each state outputs its own token, then those of its failure state. The queue is in breadth-first order, so the
+      //failure state of every state is finished before the state itself
+      int[][] outputs = new int[ states ][];
+      outputs[0] = new int[0];
+      int total = 0;
+      for( int q = 0; q < tail; q++ ) {
+         int state = queue[q];
+         int[] inherited = outputs[ fail[ state ] ];
+         if( endsHere[ state ] != 0 ) {
+            int[] own = new int[ inherited.length + 1 ];
+            own[0] = endsHere[ state ] - 1;
+            System.arraycopy( inherited, 0, own, 1, inherited.length );
+            outputs[ state ] = own;
+         } else {
+            outputs[ state ] = inherited;
+         }
+         total += outputs[ state ].length;
+      }
+
+      outStart = new int[ states + 1 ];
+      outTokens = new int[ total ];
+      int n = 0;
+      for( int s = 0; s < states; s++ ) {
+         outStart[s] = n;
+         for( int t : outputs[s] )
+            outTokens[ n++ ] = t;
+      }
+      outStart[ states ] = n;
+   }
+
+   /**
+      Tells whether the text contains at least one of the tokens. Stops at the first hit
+
+      @param text The text to search
+      @return boolean True if any token is in the text, false otherwise
+   */
+   public boolean containsAny( CharSequence text ) {
+      if( hasEmpty )
+         return true;
+
+      int state = 0;
+      for( int i = 0; i < text.length(); i++ ) {
+         state = step( state, text.charAt(i) );
+         if( outStart[ state ] != outStart[ state + 1 ] )
+            return true;
+      }
+      return false;
+   }
+
+   /**
+      Tells whether the text contains every one of the tokens. Stops as soon as the last one is found
+
+      @param text The text to search
+      @return boolean True if all of the tokens are in the text, false otherwise
+   */
+   public boolean containsAll( CharSequence text ) {
+      int remaining = tokens.length - ( hasEmpty ? 1 : 0 );
+      if( remaining == 0 )
+         return true;
+
+      long[] found = new long[ ( tokens.length + 63 ) >>> 6 ];
+      int state = 0;
+      for( int i = 0; i < text.length(); i++ ) {
+         state = step( state, text.charAt(i) );
+         for( int o = outStart[ state ]; o < outStart[ state + 1 ]; o++ ) {
+            int t = outTokens[o];
+            if( ( found[ t >>> 6 ] & ( 1L << t ) ) == 0 ) {
+               found[ t >>> 6 ] |= 1L << t;
+               if( --remaining == 0 )
+                  return true;
+            }
+         }
+      }
+      return false;
+   }
+
+   /**
+      Find which of the tokens are in the text
+
+      @param text The text to search
+      @return ArrayList<String> The tokens found, each once, in the order their first hit ends in the text
+   */
+   public ArrayList<String> findTokens( CharSequence text ) {
+      ArrayList<String> result = new ArrayList<String>();
+      if( hasEmpty )
+         result.add( "" );
+
+      long[] found = new long[ ( tokens.length + 63 ) >>> 6 ];
+      int state = 0;
+      for( int i = 0; i < text.length(); i++ ) {
+         state = step( state, text.charAt(i) );
+         for( int o = outStart[ state ]; o < outStart[ state + 1 ]; o++ ) {
+            int t = outTokens[o];
+            if( ( found[ t >>> 6 ] & ( 1L << t ) ) == 0 ) {
+               found[ t >>> 6 ] |= 1L << t;
+               result.add( tokens[t] );
+            }
+         }
+      }
+      return result;
+   }
+
+   /**
+      Get the number of distinct tokens
+
+      @return int The number of tokens
+   */
+   public int size() {
+      return tokens.length;
+   }
+
+   /**
+      Get the number of states of the automaton
+
+      @return int The number of states, including the root
+   */
+   public int getNumStates() {
+      return numStates;
+   }
+
+   /**
+      Read one character
+
+      @param state The current state
+      @param c The character to read
+      @return int The next state
+   */
+   private int step( int state, char c ) {
+      int cls = c < classOf.length ? classOf[c] : 0;
+      return next[ state * numClasses + cls ];
+   }
+
+}
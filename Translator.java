@@ -0,0 +1,326 @@
+/**
+   Translator.java
+
+      Rewrites text word by word through a LanguageMap, either from English into a language made by makeLanguage(..) or
+      back again. A text file of any size is streamed through one byte[] of UTF-8: a block is read, split into runs of
+      letters (words) and runs of everything else, and each word of plain ASCII letters is looked up straight from the
+      bytes in the WordArena of its side of the map, without decoding it or making a String. A word found in the map is
+      replaced by the UTF-8 bytes of its pair, made once up front; anything else is copied as it is. A run that holds
+      bytes of a non-ASCII character is decoded, translated as characters and encoded again. The translation of the block
+      is gathered in a second byte[] and handed to the writer in one piece. A word cut off by the end of a block is moved
+      to the front of the buffer and finished with the next block.
+
+      The case of each word is carried over to its translation: "cat" gives a lowercase word, "Cat" a capitalized one and
+      "CAT" an uppercase one. The lowercase, capitalized and uppercase forms of every translation are made once, up front,
+      so the stream itself makes no objects per ASCII word.
+
+      Files are read and written as UTF-8. The output is written through a BatchWriter, so it is only replaced once the
+      whole file has been translated.
+
+   @author Peter Olson
+   @version 10/18/26
+   @see LanguageMap.java
+   @see Dictionary.java
+   @see BatchWriter.java
+
+**/
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+public class Translator {
+
+   public static final int BUFFER_SIZE = 1 << 20;
+
+   private static final int UPPER = 0;
+   private static final int LOWER = 1;
+   private static final int CAPITALIZED = 2;
+
+   private final WordArena from;
+   private final byte[] forms;      //the UTF-8 bytes of the uppercase, lowercase and capitalized translation of each word
+   private final int[] formStarts;  //form f of word i is forms[ formStarts[3i+f] ] to forms[ formStarts[3i+f+1] - 1 ]
+   private byte[] out = new byte[ BUFFER_SIZE ]; //the translation of the current block, written out in one go
+   private int outLength;
+   private int[] wordOffs = new int[ 1 << 16 ]; //where each ASCII word of the current block starts
+   private int[] wordLens = new int[ 1 << 16 ]; //the length of each ASCII word of the current block
+   private int[] ids = new int[ 1 << 16 ];      //the number of each ASCII word of the current block in the map, or -1
+   private long words;
+   private long translated;
+
+   /**
+      Make a translator over a language map
+
+      @param map The pairs of words
+      @param toEnglish True to translate new words into English, false to translate English into new words
+   */
+   public Translator( LanguageMap map, boolean toEnglish ) {
+      from = toEnglish ? map.getNewWords() : map.getEnglishWords();
+      WordArena to = toEnglish ? map.getEnglishWords() : map.getNewWords();
+
+      int n = map.size();
+      byte[][] bytes = new byte[ 3 * n ][];
+      int total = 0;
+      for( int i = 0; i < n; i++ ) {
+         String word = to.getWord(i);
+         String upper = word.toUpperCase();
+         String lower = word.toLowerCase();
+         String capitalized = word.isEmpty() ? word : upper.substring( 0, 1 ) + lower.substring( 1 );
+         bytes[ 3 * i + UPPER ] = upper.getBytes( StandardCharsets.UTF_8 );
+         bytes[ 3 * i + LOWER ] = lower.getBytes( StandardCharsets.UTF_8 );
+         bytes[ 3 * i + CAPITALIZED ] = capitalized.getBytes( StandardCharsets.UTF_8 );
+         total += bytes[ 3 * i ].length + bytes[ 3 * i + 1 ].length + bytes[ 3 * i + 2 ].length;
+      }
+
+      forms = new byte[ total ];
+      formStarts = new int[ 3 * n + 1 ];
+      int position = 0;
+      for( int f = 0; f < bytes.length; f++ ) {
+         formStarts[f] = position;
+         System.arraycopy( bytes[f], 0, forms, position, bytes[f].length );
+         position += bytes[f].length;
+      }
+      formStarts[ bytes.length ] = position;
+   }
+
+   /**
+      Translate a text file into another file
+
+      @param inFileName The text file to read
+      @param outFileName The text file to write the translation to. May be the same as inFileName
+      @return long The number of words translated
+      @throws UncheckedIOException If a file cannot be read or written
+   */
+   public long translate( String inFileName, String outFileName ) {
+      long before = translated;
+      try( InputStream in = Files.newInputStream( Paths.get( inFileName ) );
+           BatchWriter writer = new BatchWriter( outFileName ) ) {
+         byte[] buffer = new byte[ BUFFER_SIZE ];
+         int end = 0;
+         boolean eof = false;
+         while( !eof ) {
+            int read = in.read( buffer, end, buffer.length - end );
+            eof = read == -1;
+            if( !eof )
+               end += read;
+
+            //Hold back a word that may go on into the next block. Bytes of a non-ASCII character count as part of a
+            //word, so a character is never split between blocks either
+            int limit = end;
+            if( !eof ) {
+               while( limit > 0 && isWordByte( buffer[ limit - 1 ] ) )
+                  limit--;
+               if( limit == 0 && end == buffer.length ) {
+                  //A "word" as long as the whole buffer is not a word; cut it at the start of its last character
+                  limit = end - 1;
+                  while( limit > 0 && ( buffer[ limit ] & 0xC0 ) == 0x80 )
+                     limit--;
+                  if( limit == 0 )
+                     limit = end; //not UTF-8 at all; pass it through as it is
+               }
+            }
+
+            translate( buffer, limit );
+            writer.write( out, 0, outLength );
+            System.arraycopy( buffer, limit, buffer, 0, end - limit );
+            end -= limit;
+         }
+         writer.commit();
+      } catch( IOException e ) {
+         throw new UncheckedIOException( e );
+      }
+      return translated - before;
+   }
+
+   /**
+      Translate a piece of text
+
+      @param text The text
+      @return String The translation
+   */
+   public String translate( CharSequence text ) {
+      StringBuilder result = new StringBuilder( text.length() );
+      int i = 0;
+      while( i < text.length() ) {
+         int start = i;
+         if( isLetter( text.charAt(i) ) ) {
+            while( i < text.length() && isLetter( text.charAt(i) ) )
+               i++;
+            char[] word = text.subSequence( start, i ).toString().toCharArray();
+            String translation = translateWord( word, 0, word.length );
+            result.append( translation == null ? text.subSequence( start, i ) : translation );
+         } else {
+            while( i < text.length() && !isLetter( text.charAt(i) ) )
+               i++;
+            result.append( text, start, i );
+         }
+      }
+      return result.toString();
+   }
+
+   /**
+      Get the number of words seen so far, in all the text translated
+
+      @return long The number of words
+   */
+   public long getWords() {
+      return words;
+   }
+
+   /**
+      Get the number of words found in the map and replaced so far, in all the text translated
+
+      @return long The number of words translated
+   */
+   public long getTranslated() {
+      return translated;
+   }
+
+   /**
+      Translate the start of a buffer of UTF-8, up to a limit, writing the result. The ASCII words of the block are found
+      first and looked up all together (see WordArena.indexOf( byte[] buf, int[] offs, int[] lens, int count, int[] ids )),
+      and then the block is walked again to write the translation
+
+      @param bytes The buffer, with its text starting at index 0
+      @param limit The index after the last byte to translate
+   */
+   private void translate( byte[] bytes, int limit ) {
+      int count = 0;
+      int i = 0;
+      while( i < limit ) {
+         if( !isWordByte( bytes[i] ) ) {
+            i++;
+            continue;
+         }
+         int start = i;
+         boolean ascii = true;
+         while( i < limit && isWordByte( bytes[i] ) ) {
+            ascii &= bytes[i] >= 0;
+            i++;
+         }
+         if( ascii ) {
+            if( count == wordOffs.length ) {
+               wordOffs = Arrays.copyOf( wordOffs, count * 2 );
+               wordLens = Arrays.copyOf( wordLens, count * 2 );
+               ids = new int[ count * 2 ];
+            }
+            wordOffs[ count ] = start;
+            wordLens[ count ] = i - start;
+            count++;
+         }
+      }
+      from.indexOf( bytes, wordOffs, wordLens, count, ids );
+      words += count;
+
+      outLength = 0;
+      int next = 0; //the next ASCII word
+      i = 0;
+      while( i < limit ) {
+         int start = i;
+         if( next < count && wordOffs[ next ] == start ) {
+            i += wordLens[ next ];
+            appendWord( bytes, start, i - start, ids[ next++ ] );
+         } else if( isWordByte( bytes[i] ) ) {
+            while( i < limit && isWordByte( bytes[i] ) )
+               i++;
+            byte[] translation = translate( new String( bytes, start, i - start, StandardCharsets.UTF_8 ) )
+                                    .getBytes( StandardCharsets.UTF_8 );
+            append( translation, 0, translation.length );
+         } else {
+            while( i < limit && !isWordByte( bytes[i] ) )
+               i++;
+            append( bytes, start, i - start );
+         }
+      }
+   }
+
+   /**
+      Add bytes to the translation of the current block
+
+      @param bytes The array holding the bytes
+      @param off The index of the first byte
+      @param len The number of bytes
+   */
+   private void append( byte[] bytes, int off, int len ) {
+      if( out.length < outLength + len )
+         out = Arrays.copyOf( out, Math.max( out.length * 2, outLength + len ) );
+      System.arraycopy( bytes, off, out, outLength, len );
+      outLength += len;
+   }
+
+   /**
+      Add the translation of one word of plain ASCII letters to the translation of the current block, keeping its case.
+      A word that is not in the map is added as it is
+
+      @param bytes The array holding the word
+      @param off The index of the first letter
+      @param len The number of letters
+      @param index The number of the word in the map, or -1 if it is not in the map
+   */
+   private void appendWord( byte[] bytes, int off, int len, int index ) {
+      if( index == -1 ) {
+         append( bytes, off, len );
+         return;
+      }
+
+      translated++;
+      int form = UPPER;
+      if( bytes[ off ] >= 'a' )
+         form = LOWER;
+      else if( len > 1 && bytes[ off + 1 ] >= 'a' )
+         form = CAPITALIZED;
+      int f = 3 * index + form;
+      append( forms, formStarts[f], formStarts[ f + 1 ] - formStarts[f] );
+   }
+
+   /**
+      Translate one word, keeping its case
+
+      @param chars The array holding the word
+      @param off The index of the first letter
+      @param len The number of letters
+      @return String The translation, or null if the word is not in the map
+   */
+   private String translateWord( char[] chars, int off, int len ) {
+      words++;
+      int index = from.indexOf( chars, off, len );
+      if( index == -1 )
+         return null;
+
+      translated++;
+      int form = UPPER;
+      if( Character.isLowerCase( chars[ off ] ) )
+         form = LOWER;
+      else if( len > 1 && Character.isLowerCase( chars[ off + 1 ] ) )
+         form = CAPITALIZED;
+      int f = 3 * index + form;
+      return new String( forms, formStarts[f], formStarts[ f + 1 ] - formStarts[f], StandardCharsets.UTF_8 );
+   }
+
+   /**
+      Tells whether a byte of UTF-8 may be part of a word: an ASCII letter, or any byte of a non-ASCII character
+
+      @param b The byte
+      @return boolean True if it may be part of a word
+   */
+   private static boolean isWordByte( byte b ) {
+      return b < 0 || ( ( b | 0x20 ) - 'a' & 0xFF ) < 26; //bit 5 folds 'A'-'Z' onto 'a'-'z'; no other ASCII byte lands there
+   }
+
+   /**
+      Tells whether a character is part of a word, with a fast path for plain ASCII
+
+      @param c The character
+      @return boolean True if it is a letter
+   */
+   private static boolean isLetter( char c ) {
+      if( c < 0x80 )
+         return ( c >= 'A' && c <= 'Z' ) || ( c >= 'a' && c <= 'z' );
+      return Character.isLetter( c );
+   }
+
+}
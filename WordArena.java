@@ -0,0 +1,376 @@
+/**
+   WordArena.java
+
+      A set of words packed end to end into a single char[] (the arena), with an open-addressing long[] hash table over it.
+      Looking up a word does not create any objects: the hash is computed straight from the letters given, folding them to
+      uppercase as it goes, and a match is confirmed by comparing against the letters in the arena.
+
+      The set is held in three arrays:
+         1) arena   -- one record per word, in the order they were added: the word number in two chars, then the letters
+         2) offsets -- the record of word i is arena[ offsets[i] ] to arena[ offsets[i+1] - 1 ]
+         3) table   -- the hash table; each slot is 0 if it is empty, or else holds a 24-bit fingerprint of the hash of
+                       the word, its length (up to 255) and the index of its record in the arena + 1, packed into a long
+
+      For a large set, each of the arrays is a cache miss of its own. The fingerprint and length let a probe turn away a
+      slot holding another word without looking any further, and a slot that matches leads straight to the record, whose
+      letters and word number sit side by side. So a lookup reads one slot of the table and one record of the arena, and
+      offsets is only read to get a word by its number.
+
+      The set is built once and is not changed afterwards.
+
+   @author Peter Olson
+   @version 10/18/26
+   @see Dictionary.java
+
+**/
+
+import java.util.Arrays;
+
+public class WordArena {
+
+   private static final long TAG_MASK = 0xFFFFFFFF00000000L; //the fingerprint and length of a table slot
+   private static final int MAX_TAG_LENGTH = 255; //words of this length or more share a tag, and their length is checked in offsets
+   private static final int ID_CHARS = 2;         //the chars of the word number at the front of each record
+
+   private final char[] arena;
+   private final int[] offsets;
+   private final long[] table;
+   private final int mask;
+   private final int numWords;
+
+   /**
+      Pack a list of uppercase words into the arena. Repeated words are only added once
+
+      @param words The words to add
+      @param numWords The total number of words in the list
+   */
+   public WordArena( Iterable<String> words, int numWords ) {
+      int tableSize = Integer.highestOneBit( Math.max( numWords, 1 ) * 2 - 1 ) << 1;
+      mask = tableSize - 1;
+      table = new long[ tableSize ];
+
+      int[] starts = new int[ numWords + 1 ];
+      char[] letters = new char[ Math.max( 16, numWords * 10 ) ];
+      int length = 0;
+      int n = 0;
+      for( String word : words ) {
+         int recordLength = ID_CHARS + word.length();
+         if( length + recordLength > letters.length )
+            letters = Arrays.copyOf( letters, Math.max( letters.length * 2, length + recordLength ) );
+         word.getChars( 0, word.length(), letters, length + ID_CHARS );
+
+         int hash = hash( letters, length + ID_CHARS, word.length() );
+         int slot = findSlot( hash, letters, length + ID_CHARS, word.length(), letters, starts );
+         if( table[ slot ] == 0 ) {
+            table[ slot ] = tag( hash, word.length() ) | ( length + 1 );
+            letters[ length ] = (char)( n >>> 16 );
+            letters[ length + 1 ] = (char)n;
+            starts[n] = length;
+            length += recordLength;
+            starts[ ++n ] = length;
+         }
+      }
+
+      this.numWords = n;
+      arena = Arrays.copyOf( letters, length );
+      offsets = Arrays.copyOf( starts, n + 1 );
+   }
+
+   /**
+      Tells whether the given word is in the set. Case does not matter. Does not create any objects
+
+      @param word The word to look up
+      @return boolean True if it is in the set, false otherwise
+   */
+   public boolean contains( CharSequence word ) {
+      return indexOf( word ) != -1;
+   }
+
+   /**
+      Tells whether the letters buf[off] to buf[off+len-1] are a word in the set. Case does not matter. Does not create
+      any objects
+
+      @param buf The array holding the letters
+      @param off The index of the first letter
+      @param len The number of letters
+      @return boolean True if it is in the set, false otherwise
+   */
+   public boolean contains( char[] buf, int off, int len ) {
+      return indexOf( buf, off, len ) != -1;
+   }
+
+   /**
+      Get the number of the given word ie. the order in which it was added
+
+      @param word The word to look up. Case does not matter
+      @return int The number of the word, or -1 if it is not in the set
+   */
+   public int indexOf( CharSequence word ) {
+      int len = word.length();
+      int hash = 0;
+      for( int i = 0; i < len; i++ )
+         hash = 31 * hash + upper( word.charAt(i) );
+
+      hash = mix( hash );
+      long tag = tag( hash, len );
+      int slot = hash & mask;
+      long entry;
+      while( ( entry = table[ slot ] ) != 0 ) {
+         if( ( entry & TAG_MASK ) == tag ) {
+            int start = (int)entry - 1;
+            int id = idAt( arena, start );
+            if( len < MAX_TAG_LENGTH || length( id, offsets ) == len ) {
+               int i = 0;
+               while( i < len && arena[ start + ID_CHARS + i ] == upper( word.charAt(i) ) )
+                  i++;
+               if( i == len )
+                  return id;
+            }
+         }
+         slot = ( slot + 1 ) & mask;
+      }
+      return -1;
+   }
+
+   /**
+      Get the number of the word made of the letters buf[off] to buf[off+len-1]. Case does not matter. Does not create any
+      objects
+
+      @param buf The array holding the letters
+      @param off The index of the first letter
+      @param len The number of letters
+      @return int The number of the word, or -1 if it is not in the set
+   */
+   public int indexOf( char[] buf, int off, int len ) {
+      long entry = table[ findSlot( hash( buf, off, len ), buf, off, len, arena, offsets ) ];
+      return entry == 0 ? -1 : idAt( arena, (int)entry - 1 );
+   }
+
+   /**
+      Get the number of the word made of the plain ASCII letters buf[off] to buf[off+len-1], one letter per byte. Case
+      does not matter. Does not create any objects
+
+      @param buf The array holding the letters. Every byte must be an ASCII letter, A-Z or a-z
+      @param off The index of the first letter
+      @param len The number of letters
+      @return int The number of the word, or -1 if it is not in the set
+   */
+   public int indexOf( byte[] buf, int off, int len ) {
+      int hash = 0;
+      for( int i = 0; i < len; i++ )
+         hash = 31 * hash + ( buf[ off + i ] & 0xDF );
+
+      hash = mix( hash );
+      long tag = tag( hash, len );
+      int slot = hash & mask;
+      long entry;
+      while( ( entry = table[ slot ] ) != 0 ) {
+         if( ( entry & TAG_MASK ) == tag ) {
+            int start = (int)entry - 1;
+            int id = idAt( arena, start );
+            if( len < MAX_TAG_LENGTH || length( id, offsets ) == len ) {
+               int i = 0;
+               while( i < len && arena[ start + ID_CHARS + i ] == ( buf[ off + i ] & 0xDF ) )
+                  i++;
+               if( i == len )
+                  return id;
+            }
+         }
+         slot = ( slot + 1 ) & mask;
+      }
+      return -1;
+   }
+
+   /**
+      Get the numbers of many words of plain ASCII letters at once, one letter per byte. Case does not matter. Does not
+      create any objects.
+
+      The words are looked up in two passes over the whole list rather than one word at a time: the first hashes every
+      word and probes the table for a slot with its fingerprint and length, and the second reads and compares the record
+      each slot leads to. No read of one word waits on the reads of the word before it, so the processor keeps many cache
+      misses in flight at once, where indexOf(..) of one word after another would wait for each miss in turn. A word whose
+      record turns out to hold other letters (a fingerprint shared by chance) is looked up on its own
+
+      @param buf The array holding the letters. Every byte must be an ASCII letter, A-Z or a-z
+      @param offs The index of the first letter of each word
+      @param lens The number of letters of each word
+      @param count The number of words
+      @param ids Filled with the number of each word, or -1 if it is not in the set. At least count long
+   */
+   public void indexOf( byte[] buf, int[] offs, int[] lens, int count, int[] ids ) {
+      final int PROBE = -2; //a long word, whose length is not in its tag; look it up on its own
+
+      for( int w = 0; w < count; w++ ) {
+         int off = offs[w];
+         int len = lens[w];
+         int hash = 0;
+         for( int i = 0; i < len; i++ )
+            hash = 31 * hash + ( buf[ off + i ] & 0xDF );
+
+         hash = mix( hash );
+         long tag = tag( hash, len );
+         int slot = hash & mask;
+         long entry;
+         while( ( entry = table[ slot ] ) != 0 && ( entry & TAG_MASK ) != tag )
+            slot = ( slot + 1 ) & mask;
+         if( entry == 0 )
+            ids[w] = -1;
+         else if( len < MAX_TAG_LENGTH )
+            ids[w] = (int)entry - 1; //the record, checked below
+         else
+            ids[w] = PROBE;
+      }
+
+      for( int w = 0; w < count; w++ ) {
+         int start = ids[w];
+         if( start == -1 )
+            continue;
+         int off = offs[w];
+         int len = lens[w];
+         if( start == PROBE ) {
+            ids[w] = indexOf( buf, off, len );
+            continue;
+         }
+
+         int i = 0;
+         while( i < len && arena[ start + ID_CHARS + i ] == ( buf[ off + i ] & 0xDF ) )
+            i++;
+         ids[w] = i == len ? idAt( arena, start ) : indexOf( buf, off, len );
+      }
+   }
+
+   /**
+      Get the word with the given number
+
+      @param index The number of the word, from 0 to size() - 1
+      @return String The word
+   */
+   public String getWord( int index ) {
+      return new String( arena, offsets[ index ] + ID_CHARS, length( index, offsets ) );
+   }
+
+   /**
+      Get the number of words in the set
+
+      @return int The number of words
+   */
+   public int size() {
+      return numWords;
+   }
+
+   /**
+      Get the number of bytes of heap used by the arrays of the set
+
+      @return long The heap usage in bytes
+   */
+   public long getMemoryUsage() {
+      final int ARRAY_HEADER = 16;
+      return 3 * ARRAY_HEADER + 2L * arena.length + 4L * offsets.length + 8L * table.length;
+   }
+
+   /**
+      Find the slot of the table holding the given letters, or the empty slot where they would go
+
+      @param hash The mixed hash of the letters, from hash(..)
+      @param buf The array holding the letters
+      @param off The index of the first letter
+      @param len The number of letters
+      @param letters The arena to compare against
+      @param starts The offsets of the records in the arena
+      @return int The slot
+   */
+   private int findSlot( int hash, char[] buf, int off, int len, char[] letters, int[] starts ) {
+      long tag = tag( hash, len );
+      int slot = hash & mask;
+      long entry;
+      while( ( entry = table[ slot ] ) != 0 ) {
+         if( ( entry & TAG_MASK ) == tag ) {
+            int start = (int)entry - 1;
+            if( len < MAX_TAG_LENGTH || length( idAt( letters, start ), starts ) == len ) {
+               int i = 0;
+               while( i < len && letters[ start + ID_CHARS + i ] == upper( buf[ off + i ] ) )
+                  i++;
+               if( i == len )
+                  return slot;
+            }
+         }
+         slot = ( slot + 1 ) & mask;
+      }
+      return slot;
+   }
+
+   /**
+      Get the word number stored at the front of a record
+
+      @param letters The arena
+      @param start The index of the record
+      @return int The number of the word
+   */
+   private static int idAt( char[] letters, int start ) {
+      return letters[ start ] << 16 | letters[ start + 1 ];
+   }
+
+   /**
+      Get the number of letters of a word
+
+      @param id The number of the word
+      @param starts The offsets of the records in the arena
+      @return int The length of the word
+   */
+   private static int length( int id, int[] starts ) {
+      return starts[ id + 1 ] - starts[ id ] - ID_CHARS;
+   }
+
+   /**
+      Hash the letters buf[off] to buf[off+len-1], folded to uppercase, and mix the hash
+
+      @param buf The array holding the letters
+      @param off The index of the first letter
+      @param len The number of letters
+      @return int The mixed hash
+   */
+   private static int hash( char[] buf, int off, int len ) {
+      int hash = 0;
+      for( int i = 0; i < len; i++ )
+         hash = 31 * hash + upper( buf[ off + i ] );
+      return mix( hash );
+   }
+
+   /**
+      Get the upper 32 bits of a table slot for a word: the fingerprint of its hash and its length. The fingerprint is taken
+      from the top of the hash, which the slot number (taken from the bottom) does not use until the table is very large
+
+      @param hash The mixed hash of the word
+      @param len The length of the word. Lengths of MAX_TAG_LENGTH or more all share the same tag value
+      @return long The tag, in the upper 32 bits
+   */
+   private static long tag( int hash, int len ) {
+      return ( (long)( hash >>> 8 ) << 40 ) | ( (long)Math.min( len, MAX_TAG_LENGTH ) << 32 );
+   }
+
+   /**
+      Fold a letter to uppercase, with a fast path for plain ASCII
+
+      @param c The letter to fold
+      @return char The uppercase letter
+   */
+   private static char upper( char c ) {
+      if( c < 128 )
+         return ( c >= 'a' && c <= 'z' ) ? (char)( c - 32 ) : c;
+      return Character.toUpperCase( c );
+   }
+
+   /**
+      Spread the bits of the hash so that the low bits can be used to pick a table slot
+
+      @param hash The hash to mix
+      @return int The mixed hash
+   */
+   private static int mix( int hash ) {
+      hash ^= hash >>> 16;
+      hash *= 0x85ebca6b;
+      hash ^= hash >>> 13;
+      return hash;
+   }
+
+}
@@ -0,0 +1,417 @@
+/**
+   WordGraph.java
+
+      A minimized directed acyclic word graph (DAWG) of a list of words, packed into primitive arrays. A DAWG is a trie in
+      which identical subtrees are shared, so that every common ending ("-ING", "-NESS", "-ATIONS", ...) is only stored once.
+      For the Collins dictionary this takes the 276,000+ words down to a graph of about 80,000 nodes that fits in under 2 MB.
+
+      The graph is held in three arrays:
+         1) edgeStart -- the index of the first outgoing edge of each node (edgeStart[n+1] is where they end)
+         2) edges     -- each edge packed into a long: the label in the high 32 bits, and the target node in the low 32 bits
+         3) terminal  -- a bit set of the nodes at which a word ends
+
+      The root is node 0. The edges of a node are sorted by label, so a depth-first walk visits the words in alphabetical order.
+
+      The graph is built with the incremental algorithm for sorted input (Daciuk et al. 2000). The words are added one at a
+      time in sorted order, and once a branch of the graph can no longer change it is swapped for an identical branch already
+      in the graph, if there is one. The build-time nodes are then numbered and packed into the arrays.
+
+   @author Peter Olson
+   @version 10/18/26
+   @see Dictionary.java
+   @see WordStore.java
+
+**/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class WordGraph implements WordStore {
+
+   private final int[] edgeStart;
+   private final long[] edges;
+   private final long[] terminal;
+   private final int numWords;
+   private final int maxWordLength;
+
+   /**
+      Build the graph from a list of uppercase words. The words do not need to be sorted, and repeated words are ignored.
+      An empty list gives an empty graph: a root with no edges
+
+      @param words The words to add to the graph
+      @see replaceOrRegister( BuildNode node, HashMap<BuildNode, BuildNode> register )
+      @see number( BuildNode node, IdentityHashMap<BuildNode, Integer> ids, ArrayList<BuildNode> order )
+   */
+   public WordGraph( ArrayList<String> words ) {
+      String[] sorted = words.toArray( new String[ words.size() ] );
+      Arrays.sort( sorted );
+
+      HashMap<BuildNode, BuildNode> register = new HashMap<BuildNode, BuildNode>();
+      BuildNode root = new BuildNode();
+
+      int count = 0;
+      int longest = 0;
+      String previous = "";
+      for( int i = 0; i < sorted.length; i++ ) {
+         String word = sorted[i];
+         if( i > 0 && word.equals( previous ) )
+            continue;
+
+         //Find the end of the prefix shared with the previous word. Everything below it is final
+         int common = 0;
+         int limit = Math.min( word.length(), previous.length() );
+         while( common < limit && word.charAt( common ) == previous.charAt( common ) )
+            common++;
+
+         BuildNode last = root;
+         for( int j = 0; j < common; j++ )
+            last = last.lastChild();
+
+         if( last.numChildren > 0 )
+            replaceOrRegister( last, register );
+
+         //Add the rest of the word as a new branch
+         for( int j = common; j < word.length(); j++ )
+            last = last.addChild( word.charAt(j) );
+         last.terminal = true;
+
+         count++;
+         longest = Math.max( longest, word.length() );
+         previous = word;
+      }
+      if( root.numChildren > 0 ) //an empty list leaves the root on its own
+         replaceOrRegister( root, register );
+
+      numWords = count;
+      maxWordLength = longest;
+
+      //Number the nodes depth-first from the root, then copy their edges into the arrays
+      IdentityHashMap<BuildNode, Integer> ids = new IdentityHashMap<BuildNode, Integer>();
+      ArrayList<BuildNode> order = new ArrayList<BuildNode>();
+      number( root, ids, order );
+
+      int numNodes = order.size();
+      int numEdges = 0;
+      for( BuildNode node : order )
+         numEdges += node.numChildren;
+
+      edgeStart = new int[ numNodes + 1 ];
+      edges = new long[ numEdges ];
+      terminal = new long[ ( numNodes + 63 ) >>> 6 ];
+
+      int e = 0;
+      for( int n = 0; n < numNodes; n++ ) {
+         BuildNode node = order.get(n);
+         edgeStart[n] = e;
+         if( node.terminal )
+            terminal[ n >>> 6 ] |= 1L << n;
+         for( int c = 0; c < node.numChildren; c++ )
+            edges[ e++ ] = ( (long)node.labels[c] << 32 ) | ids.get( node.children[c] );
+      }
+      edgeStart[ numNodes ] = e;
+   }
+
+   /**
+      Swap the most recently added branch below the node for an identical branch in the register, or add it to the register
+      if there is none. Branches are handled from the bottom up, so a node is only compared once all of its children are final
+
+      @param node The node whose last branch is now final
+      @param register All of the final nodes in the graph, keyed by themselves
+   */
+   private static void replaceOrRegister( BuildNode node, HashMap<BuildNode, BuildNode> register ) {
+      BuildNode child = node.lastChild();
+      if( child.numChildren > 0 )
+         replaceOrRegister( child, register );
+
+      BuildNode same = register.get( child );
+      if( same != null )
+         node.children[ node.numChildren - 1 ] = same;
+      else
+         register.put( child, child );
+   }
+
+   /**
+      Number the nodes of the graph depth-first, giving each shared node a single number
+
+      @param node The node to number
+      @param ids The numbers given so far
+      @param order The nodes in the order they were numbered
+   */
+   private static void number( BuildNode node, IdentityHashMap<BuildNode, Integer> ids, ArrayList<BuildNode> order ) {
+      if( ids.containsKey( node ) )
+         return;
+
+      ids.put( node, order.size() );
+      order.add( node );
+      for( int c = 0; c < node.numChildren; c++ )
+         number( node.children[c], ids, order );
+   }
+
+   /**
+      Tells whether the given word is in the graph
+
+      @param word The word to look up. Must be uppercase
+      @return boolean True if it is a word, false otherwise
+   */
+   public boolean contains( CharSequence word ) {
+      int node = walk( word );
+      return node != -1 && isTerminal( node );
+   }
+
+   /**
+      Get all of the words that begin with the given prefix, in alphabetical order
+
+      @param prefix The beginning of the words to find. Must be uppercase
+      @return ArrayList<String> The list of words beginning with the prefix
+   */
+   public ArrayList<String> getWordsWithPrefix( String prefix ) {
+      ArrayList<String> result = new ArrayList<String>();
+      int node = walk( prefix );
+      if( node == -1 )
+         return result;
+
+      WordIterator iterator = new WordIterator( node, prefix );
+      while( iterator.hasNext() )
+         result.add( iterator.next() );
+
+      return result;
+   }
+
+   /**
+      Iterate over all of the words in the graph in alphabetical order. Words are built as they are visited
+
+      @return Iterator<String> The iterator over the words
+   */
+   public Iterator<String> iterator() {
+      return new WordIterator( 0, "" );
+   }
+
+   /**
+      Get the number of words in the graph
+
+      @return int The number of words
+   */
+   public int size() {
+      return numWords;
+   }
+
+   /**
+      Get the number of nodes in the graph
+
+      @return int The number of nodes, including the root
+   */
+   public int getNumNodes() {
+      return edgeStart.length - 1;
+   }
+
+   /**
+      Get the number of edges in the graph
+
+      @return int The number of edges
+   */
+   public int getNumEdges() {
+      return edges.length;
+   }
+
+   /**
+      Get the number of bytes of heap used by the arrays of the graph
+
+      @return long The heap usage in bytes
+   */
+   public long getMemoryUsage() {
+      final int ARRAY_HEADER = 16;
+      return 3 * ARRAY_HEADER + 4L * edgeStart.length + 8L * edges.length + 8L * terminal.length;
+   }
+
+   /**
+      Follow the letters from the root of the graph
+
+      @param letters The letters to follow
+      @return int The node reached, or -1 if the letters leave the graph
+   */
+   private int walk( CharSequence letters ) {
+      int node = 0;
+      for( int i = 0; i < letters.length() && node != -1; i++ )
+         node = findTarget( node, letters.charAt(i) );
+      return node;
+   }
+
+   /**
+      Find the node reached from the given node by the edge with the given label. Edges are sorted, so this is a binary search
+
+      @param node The node to leave from
+      @param c The label of the edge
+      @return int The target node, or -1 if there is no such edge
+   */
+   private int findTarget( int node, char c ) {
+      int lo = edgeStart[ node ];
+      int hi = edgeStart[ node + 1 ] - 1;
+      while( lo <= hi ) {
+         int mid = ( lo + hi ) >>> 1;
+         char label = (char)( edges[ mid ] >>> 32 );
+         if( label < c )
+            lo = mid + 1;
+         else if( label > c )
+            hi = mid - 1;
+         else
+            return (int)edges[ mid ];
+      }
+      return -1;
+   }
+
+   /**
+      Tells whether a word ends at the given node
+
+      @param node The node to check
+      @return boolean True if a word ends at the node, false otherwise
+   */
+   private boolean isTerminal( int node ) {
+      return ( terminal[ node >>> 6 ] & ( 1L << node ) ) != 0;
+   }
+
+   /**
+      Walks the graph depth-first with an explicit stack, building each word only when it is reached
+   */
+   private class WordIterator implements Iterator<String> {
+
+      private final char[] path;
+      private final int[] stackNode; //the node at each depth
+      private final int[] stackEdge; //the next edge to take out of the node at each depth
+      private final int baseDepth;
+      private int depth;
+      private String next;
+
+      /**
+         Create an iterator over the words below the given node
+
+         @param start The node to start from
+         @param prefix The letters that lead to the start node
+      */
+      public WordIterator( int start, String prefix ) {
+         baseDepth = prefix.length();
+         path = new char[ baseDepth + maxWordLength + 1 ];
+         prefix.getChars( 0, baseDepth, path, 0 );
+         stackNode = new int[ maxWordLength + 2 ];
+         stackEdge = new int[ maxWordLength + 2 ];
+         stackNode[0] = start;
+         stackEdge[0] = edgeStart[ start ];
+         depth = 0;
+         if( isTerminal( start ) )
+            next = prefix;
+         else
+            advance();
+      }
+
+      /**
+         Move to the next word in the graph, or set next to null if there are no more
+      */
+      private void advance() {
+         next = null;
+         while( depth >= 0 ) {
+            int node = stackNode[ depth ];
+            int e = stackEdge[ depth ];
+            if( e == edgeStart[ node + 1 ] ) {
+               depth--;
+               continue;
+            }
+
+            stackEdge[ depth ] = e + 1;
+            int target = (int)edges[e];
+            path[ baseDepth + depth ] = (char)( edges[e] >>> 32 );
+            depth++;
+            stackNode[ depth ] = target;
+            stackEdge[ depth ] = edgeStart[ target ];
+            if( isTerminal( target ) ) {
+               next = new String( path, 0, baseDepth + depth );
+               return;
+            }
+         }
+      }
+
+      public boolean hasNext() {
+         return next != null;
+      }
+
+      public String next() {
+         if( next == null )
+            throw new NoSuchElementException();
+         String word = next;
+         advance();
+         return word;
+      }
+
+   }
+
+   /**
+      A node of the graph while it is being built. Once a node is in the register it is never changed, so its hash code can
+      be based on its contents
+   */
+   private static class BuildNode {
+
+      private char[] labels = new char[ 2 ];
+      private BuildNode[] children = new BuildNode[ 2 ];
+      private int numChildren;
+      private boolean terminal;
+
+      /**
+         Add a new last child to the node
+
+         @param label The label of the edge to the child
+         @return BuildNode The new child
+      */
+      public BuildNode addChild( char label ) {
+         if( numChildren == labels.length ) {
+            labels = Arrays.copyOf( labels, numChildren * 2 );
+            children = Arrays.copyOf( children, numChildren * 2 );
+         }
+
+         BuildNode child = new BuildNode();
+         labels[ numChildren ] = label;
+         children[ numChildren++ ] = child;
+         return child;
+      }
+
+      /**
+         Get the most recently added child
+
+         @return BuildNode The last child
+      */
+      public BuildNode lastChild() {
+         return children[ numChildren - 1 ];
+      }
+
+      /**
+         Two nodes are equivalent if both or neither end a word, and they have the same edges leading to the same
+         (already registered) nodes
+      */
+      @Override
+      public boolean equals( Object obj ) {
+         if( !( obj instanceof BuildNode ) )
+            return false;
+
+         BuildNode other = (BuildNode)obj;
+         if( terminal != other.terminal || numChildren != other.numChildren )
+            return false;
+
+         for( int c = 0; c < numChildren; c++ )
+            if( labels[c] != other.labels[c] || children[c] != other.children[c] )
+               return false;
+
+         return true;
+      }
+
+      @Override
+      public int hashCode() {
+         int hash = terminal ? 1 : 0;
+         for( int c = 0; c < numChildren; c++ )
+            hash = 31 * ( 31 * hash + labels[c] ) + System.identityHashCode( children[c] );
+         return hash;
+      }
+
+   }
+
+}
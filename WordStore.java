@@ -0,0 +1,50 @@
+/**
+   WordStore.java
+
+      A read-only set of words that a Dictionary can use in place of its own map. A WordStore holds just the words (no
+      definitions) and is meant to be far smaller than the map, which keeps a String and a map entry for every word.
+
+      Words are stored in uppercase, and are iterated over in alphabetical order.
+
+   @author Peter Olson
+   @version 10/18/26
+   @see Dictionary.java
+   @see WordGraph.java
+
+**/
+
+import java.util.ArrayList;
+
+public interface WordStore extends Iterable<String> {
+
+   /**
+      Tells whether the given word is in the store
+
+      @param word The word to look up. Must be uppercase
+      @return boolean True if it is a word, false otherwise
+   */
+   boolean contains( CharSequence word );
+
+   /**
+      Get all of the words that begin with the given prefix, in alphabetical order
+
+      @param prefix The beginning of the words to find. Must be uppercase
+      @return ArrayList<String> The list of words beginning with the prefix
+   */
+   ArrayList<String> getWordsWithPrefix( String prefix );
+
+   /**
+      Get the number of words in the store
+
+      @return int The number of words
+   */
+   int size();
+
+   /**
+      Get the number of bytes of heap used by the store
+
+      @return long The approximate heap usage in bytes
+   */
+   long getMemoryUsage();
+
+}
@@ -0,0 +1,689 @@
+/**
+   WordTrie.java
+
+      A prefix trie of every word in a Dictionary, packed into primitive arrays. Each node is a single index into the arrays:
+         1) label      -- the letter on the edge leading into the node
+         2) terminal   -- true if the path from the root to the node spells a word
+         3) firstChild -- the index of the first child of the node. The children of a node are always stored next to each other
+         4) numChildren -- the number of children of the node
+
+      The root is node 0. Children are stored in alphabetical order, so walking the trie depth-first visits the words in
+      alphabetical order.
+
+      The trie is used to descramble a set of letters without ever building a String that is not a word. The search walks
+      down the trie while spending a budget of letters (one count per letter of the alphabet) and a budget of blanks ('?'),
+      which can stand in for any letter. A branch is only entered if there is a letter (or blank) left to pay for it, so
+      every path that is walked is the prefix of a real word that can be made from the letters.
+
+      A descramble can also be run on a ForkJoinPool. The search is split into one task per branch of the top
+      PARALLEL_DEPTH levels of the trie (each with its own copy of the budget), and the tasks below that search their
+      branch the usual way into their own list. The lists are joined in the order of the branches, so the words come out
+      in exactly the same (alphabetical) order as a single-threaded search, no matter how many threads there are.
+
+      descrambleReps(..) walks the trie the same way with a different budget: every letter given must be used, and any of
+      them may be used again, up to a count per letter and a total number of extra copies. Each word is reached by
+      exactly one path, so it is found once, without building the repeated-letter racks one by one.
+
+      The trie is also used to find the words that match a descrambleSpecs(..) spec. The compiled spec is run alongside the
+      walk, and a branch is dropped as soon as no word below it could match, so most of the trie is never visited.
+
+      Both searches can also be pulled one word at a time through an Iterator (descrambleIterator(..), matchIterator(..)).
+      The iterator keeps the walk on an explicit stack and only goes as far as the next word, so a caller that stops after
+      a few words never pays for the rest of the search, and a longest-length bound cuts off every branch below it.
+
+      The trie is built once and is not changed afterwards.
+
+   @author Peter Olson
+   @version 10/18/26
+   @see Dictionary.java
+
+**/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+public class WordTrie {
+
+   public static final char BLANK = '?';
+   public static final int ALPHABET_SIZE = 26;
+   public static final int PARALLEL_DEPTH = 2; //levels of the trie split into separate tasks by a parallel descramble
+
+   private char[] label;
+   private boolean[] terminal;
+   private int[] firstChild;
+   private int[] numChildren;
+   private int numNodes;
+   private int maxWordLength;
+   private final int numWords;
+
+   /**
+      Build the trie from a list of uppercase words. The words do not need to be sorted
+
+      @param words The words to add to the trie
+      @param numWords The total number of words in the list
+      @see build( String[] words, int lo, int hi, int depth, int node )
+   */
+   public WordTrie( Iterable<String> words, int numWords ) {
+      String[] sorted = new String[ numWords ];
+      int i = 0;
+      for( String word : words )
+         sorted[i++] = word;
+      sorted = Arrays.copyOf( sorted, i );
+      Arrays.sort( sorted );
+
+      this.numWords = sorted.length;
+
+      int capacity = Math.max( 16, sorted.length * 3 );
+      label = new char[ capacity ];
+      terminal = new boolean[ capacity ];
+      firstChild = new int[ capacity ];
+      numChildren = new int[ capacity ];
+
+      numNodes = 1; //root
+      build( sorted, 0, sorted.length, 0, 0 );
+
+      label = Arrays.copyOf( label, numNodes );
+      terminal = Arrays.copyOf( terminal, numNodes );
+      firstChild = Arrays.copyOf( firstChild, numNodes );
+      numChildren = Arrays.copyOf( numChildren, numNodes );
+   }
+
+   /**
+      Recursively builds the subtree for the words in sorted[lo..hi), which all share the same first 'depth' letters.
+      All of the children of a node are allocated at once so that they sit next to each other in the arrays
+
+      @param sorted The sorted list of words
+      @param lo The index of the first word sharing this prefix
+      @param hi One past the index of the last word sharing this prefix
+      @param depth The length of the shared prefix
+      @param node The node that the shared prefix leads to
+   */
+   private void build( String[] sorted, int lo, int hi, int depth, int node ) {
+      //Words are sorted, so a word equal to the prefix comes first
+      if( lo < hi && sorted[lo].length() == depth ) {
+         terminal[ node ] = true;
+         maxWordLength = Math.max( maxWordLength, depth );
+         while( lo < hi && sorted[lo].length() == depth )
+            lo++; //skip repeated words
+      }
+
+      //Count the distinct letters that follow the prefix
+      int count = 0;
+      char previous = 0;
+      for( int i = lo; i < hi; i++ ) {
+         char c = sorted[i].charAt( depth );
+         if( count == 0 || c != previous ) {
+            count++;
+            previous = c;
+         }
+      }
+
+      if( count == 0 )
+         return;
+
+      int first = allocate( count );
+      firstChild[ node ] = first;
+      numChildren[ node ] = count;
+
+      int child = first;
+      int start = lo;
+      while( start < hi ) {
+         char c = sorted[ start ].charAt( depth );
+         int end = start + 1;
+         while( end < hi && sorted[ end ].charAt( depth ) == c )
+            end++;
+
+         label[ child ] = c;
+         build( sorted, start, end, depth + 1, child );
+
+         child++;
+         start = end;
+      }
+   }
+
+   /**
+      Reserve space for the given number of nodes, growing the arrays if needed
+
+      @param count The number of nodes to reserve
+      @return int The index of the first reserved node
+   */
+   private int allocate( int count ) {
+      if( numNodes + count > label.length ) {
+         int capacity = Math.max( label.length * 2, numNodes + count );
+         label = Arrays.copyOf( label, capacity );
+         terminal = Arrays.copyOf( terminal, capacity );
+         firstChild = Arrays.copyOf( firstChild, capacity );
+         numChildren = Arrays.copyOf( numChildren, capacity );
+      }
+
+      int first = numNodes;
+      numNodes += count;
+      return first;
+   }
+
+   /**
+      Tells whether the given String is a word in the trie
+
+      @param word The word to look up. Must be uppercase
+      @return boolean True if it is a word, false otherwise
+   */
+   public boolean contains( String word ) {
+      int node = 0;
+      for( int i = 0; i < word.length() && node != -1; i++ )
+         node = findChild( node, word.charAt(i) );
+
+      return node != -1 && terminal[ node ];
+   }
+
+   /**
+      Find all the words that can be made from the given letters, using each letter at most as many times as it appears.
+      Each '?' is a blank that can stand in for any one letter. Each word is found once, in alphabetical order.
+
+      eg. descramble( "TAC", 2 ) yields "AT", "CAT", "TA"
+      eg. descramble( "TA?", 3 ) yields every three letter word containing an 'A' and a 'T'
+
+      @param letters The letters to descramble. Case does not matter. Characters that are not letters or '?' are ignored
+      @param minLength The shortest word to include
+      @return ArrayList<String> The list of words that can be made
+      @see search( int node, int depth, int[] budget, int blanks, int minLength, char[] path, ArrayList<String> result )
+   */
+   public ArrayList<String> descramble( String letters, int minLength ) {
+      int[] budget = new int[ ALPHABET_SIZE ];
+      int blanks = countLetters( letters, budget );
+
+      ArrayList<String> result = new ArrayList<String>();
+      search( 0, 0, budget, blanks, minLength, new char[ maxWordLength ], result );
+      return result;
+   }
+
+   /**
+      Find all the words that can be made from the given letters, splitting the search across the threads of a pool.
+      The result is the same, in the same order, as descramble( letters, minLength )
+
+      @param letters The letters to descramble. Case does not matter. Characters that are not letters or '?' are ignored
+      @param minLength The shortest word to include
+      @param pool The pool to run the search on
+      @return ArrayList<String> The list of words that can be made
+      @see DescrambleTask
+   */
+   public ArrayList<String> descramble( String letters, int minLength, ForkJoinPool pool ) {
+      int[] budget = new int[ ALPHABET_SIZE ];
+      int blanks = countLetters( letters, budget );
+
+      return pool.invoke( new DescrambleTask( 0, budget, blanks, minLength, new char[ maxWordLength ], 0 ) );
+   }
+
+   /**
+      Find all the words made of exactly the given letters, where each letter may be repeated beyond the number of times
+      it was given. Each letter of the word must be one of the given letters, every given letter must be used at least as
+      many times as it was given, no letter may be used more than maxCount times (or the number of times it was given, if
+      that is more), and the copies beyond those given may not add up to more than maxExtra. Words are in alphabetical order
+
+      eg. descrambleReps( "LOB", 2, 1 ) yields "BLOB", "BOLL", "BOLO", "BOOL", "LOB", "LOBO", "OBOL"
+      eg. descrambleReps( "LOB", 2, 2 ) yields "BOBOL" as well (an extra 'B' and an extra 'O')
+
+      @param letters The letters to descramble. Case does not matter. Characters that are not letters are ignored
+      @param maxCount The most times any one letter may be used
+      @param maxExtra The most copies of letters, in total, that may be used beyond those given
+      @return ArrayList<String> The list of words that can be made
+      @throws IllegalArgumentException If maxCount or maxExtra is negative
+      @see searchReps( int node, int depth, int[] used, int[] need, int[] cap, int missing, int extra, char[] path, ArrayList<String> result )
+   */
+   public ArrayList<String> descrambleReps( String letters, int maxCount, int maxExtra ) {
+      if( maxCount < 0 || maxExtra < 0 )
+         throw new IllegalArgumentException( "Repeat limits must not be negative: " + maxCount + ", " + maxExtra );
+
+      int[] need = new int[ ALPHABET_SIZE ];
+      countLetters( letters, need );
+      int[] cap = new int[ ALPHABET_SIZE ];
+      int missing = 0;
+      for( int i = 0; i < ALPHABET_SIZE; i++ ) {
+         if( need[i] > 0 )
+            cap[i] = Math.max( need[i], maxCount );
+         missing += need[i];
+      }
+
+      ArrayList<String> result = new ArrayList<String>();
+      if( missing > 0 && missing <= maxWordLength )
+         searchReps( 0, 0, new int[ ALPHABET_SIZE ], need, cap, missing, maxExtra, new char[ maxWordLength ], result );
+      return result;
+   }
+
+   /**
+      Get the words that can be made from the given letters one at a time, in the same (alphabetical) order as
+      descramble( letters, minLength ). The trie is only walked as far as the next word each time one is asked for
+
+      @param letters The letters to descramble. Case does not matter. Characters that are not letters or '?' are ignored
+      @param minLength The shortest word to include
+      @param maxLength The longest word to include. No branch deeper than this is walked
+      @return Iterator<String> The words that can be made
+   */
+   public Iterator<String> descrambleIterator( String letters, int minLength, int maxLength ) {
+      final int[] budget = new int[ ALPHABET_SIZE ];
+      final int[] blanks = { countLetters( letters, budget ) };
+      final int[] spent = new int[ maxWordLength + 1 ]; //the letter spent at each depth, or -1 for a blank
+      final int shortest = minLength;
+
+      return new Walk( maxLength ) {
+         boolean enter( int depth, char c ) {
+            int letter = c - 'A';
+            if( letter >= 0 && letter < ALPHABET_SIZE && budget[ letter ] > 0 ) {
+               budget[ letter ]--;
+               spent[ depth ] = letter;
+            } else if( blanks[0] > 0 ) {
+               blanks[0]--;
+               spent[ depth ] = -1;
+            } else {
+               return false;
+            }
+            return true;
+         }
+
+         void leave( int depth ) {
+            if( spent[ depth ] < 0 )
+               blanks[0]++;
+            else
+               budget[ spent[ depth ] ]++;
+         }
+
+         boolean accepts( int length ) {
+            return length >= shortest;
+         }
+      };
+   }
+
+   /**
+      Get the words that match a compiled spec one at a time, in the same (alphabetical) order as match( pattern )
+
+      @param pattern The compiled spec
+      @return Iterator<String> The words that match
+   */
+   public Iterator<String> matchIterator( final SpecPattern pattern ) {
+      final long[] states = new long[ maxWordLength + 1 ]; //the states reached by the path, at each length
+      states[0] = pattern.start();
+
+      return new Walk( pattern.getMinLength() > maxWordLength ? -1 : maxWordLength ) {
+         boolean enter( int depth, char c ) {
+            states[ depth + 1 ] = pattern.step( states[ depth ], c );
+            return states[ depth + 1 ] != 0;
+         }
+
+         void leave( int depth ) {
+         }
+
+         boolean accepts( int length ) {
+            return pattern.isMatch( states[ length ] );
+         }
+      };
+   }
+
+   /**
+      Count the letters of a rack into a budget
+
+      @param letters The letters to count. Case does not matter
+      @param budget The array to fill with the count of each letter A-Z
+      @return int The number of blanks ('?') found
+   */
+   public static int countLetters( String letters, int[] budget ) {
+      int blanks = 0;
+      for( int i = 0; i < letters.length(); i++ ) {
+         char c = Character.toUpperCase( letters.charAt(i) );
+         if( c == BLANK )
+            blanks++;
+         else if( c >= 'A' && c <= 'Z' )
+            budget[ c - 'A' ]++;
+      }
+      return blanks;
+   }
+
+   /**
+      Depth-first search of the trie, spending the letter budget to go down a branch and giving it back on the way up.
+      Letters from the budget are spent before blanks, so a word that can be made without a blank is never also counted
+      as needing one
+
+      @param node The current node
+      @param depth The length of the path to the current node
+      @param budget The number of each letter that can still be spent
+      @param blanks The number of blanks that can still be spent
+      @param minLength The shortest word to include
+      @param path The letters of the path to the current node
+      @param result The list to add the words found to
+   */
+   private void search( int node, int depth, int[] budget, int blanks, int minLength, char[] path, ArrayList<String> result ) {
+      if( terminal[ node ] && depth >= minLength )
+         result.add( new String( path, 0, depth ) );
+
+      int first = firstChild[ node ];
+      int last = first + numChildren[ node ];
+      for( int child = first; child < last; child++ ) {
+         char c = label[ child ];
+         int letter = c - 'A';
+         path[ depth ] = c;
+         if( letter >= 0 && letter < ALPHABET_SIZE && budget[ letter ] > 0 ) {
+            budget[ letter ]--;
+            search( child, depth + 1, budget, blanks, minLength, path, result );
+            budget[ letter ]++;
+         } else if( blanks > 0 ) {
+            search( child, depth + 1, budget, blanks - 1, minLength, path, result );
+         }
+      }
+   }
+
+   /**
+      Depth-first search of the trie for descrambleReps(..). A letter is free while fewer copies of it have been used than
+      were given, and costs one of the extra copies after that. A branch is dropped as soon as the given letters that are
+      still unused could not fit in the longest word
+
+      @param node The current node
+      @param depth The length of the path to the current node
+      @param used The number of times each letter has been used on the path
+      @param need The number of times each letter was given
+      @param cap The most times each letter may be used
+      @param missing The number of given letters not used yet
+      @param extra The number of extra copies that can still be used
+      @param path The letters of the path to the current node
+      @param result The list to add the words found to
+   */
+   private void searchReps( int node, int depth, int[] used, int[] need, int[] cap, int missing, int extra, char[] path,
+                            ArrayList<String> result ) {
+      if( terminal[ node ] && missing == 0 )
+         result.add( new String( path, 0, depth ) );
+      if( depth + missing > maxWordLength )
+         return;
+
+      int first = firstChild[ node ];
+      int last = first + numChildren[ node ];
+      for( int child = first; child < last; child++ ) {
+         char c = label[ child ];
+         int letter = c - 'A';
+         if( letter < 0 || letter >= ALPHABET_SIZE || used[ letter ] >= cap[ letter ] )
+            continue;
+
+         path[ depth ] = c;
+         used[ letter ]++;
+         if( used[ letter ] <= need[ letter ] )
+            searchReps( child, depth + 1, used, need, cap, missing - 1, extra, path, result );
+         else if( extra > 0 )
+            searchReps( child, depth + 1, used, need, cap, missing, extra - 1, path, result );
+         used[ letter ]--;
+      }
+   }
+
+   /**
+      One branch of a parallel descramble. Near the root, the task makes a subtask for each child it can pay for and
+      joins their lists in order; deeper down, it searches its branch on its own
+   */
+   private class DescrambleTask extends RecursiveTask<ArrayList<String>> {
+
+      private static final long serialVersionUID = 1L;
+
+      private final int node;
+      private final int[] budget;
+      private final int blanks;
+      private final int minLength;
+      private final char[] path;
+      private final int depth;
+
+      /**
+         @param node The node at the top of the branch
+         @param budget The letters left to spend. The task owns this array
+         @param blanks The blanks left to spend
+         @param minLength The shortest word to include
+         @param path The letters of the path to the node, in an array as long as the longest word. The task owns this array
+         @param depth The length of the path to the node
+      */
+      DescrambleTask( int node, int[] budget, int blanks, int minLength, char[] path, int depth ) {
+         this.node = node;
+         this.budget = budget;
+         this.blanks = blanks;
+         this.minLength = minLength;
+         this.path = path;
+         this.depth = depth;
+      }
+
+      protected ArrayList<String> compute() {
+         ArrayList<String> result = new ArrayList<String>();
+         if( depth >= PARALLEL_DEPTH ) {
+            search( node, depth, budget, blanks, minLength, path, result );
+            return result;
+         }
+
+         if( terminal[ node ] && depth >= minLength )
+            result.add( new String( path, 0, depth ) );
+
+         ArrayList<DescrambleTask> tasks = new ArrayList<DescrambleTask>();
+         int first = firstChild[ node ];
+         int last = first + numChildren[ node ];
+         for( int child = first; child < last; child++ ) {
+            int letter = label[ child ] - 'A';
+            boolean paid = letter >= 0 && letter < ALPHABET_SIZE && budget[ letter ] > 0;
+            if( !paid && blanks == 0 )
+               continue;
+
+            int[] childBudget = budget.clone();
+            if( paid )
+               childBudget[ letter ]--;
+            char[] childPath = path.clone();
+            childPath[ depth ] = label[ child ];
+            tasks.add( new DescrambleTask( child, childBudget, paid ? blanks : blanks - 1, minLength, childPath, depth + 1 ) );
+         }
+
+         invokeAll( tasks );
+         for( DescrambleTask task : tasks )
+            result.addAll( task.join() );
+         return result;
+      }
+
+   }
+
+   /**
+      A depth-first walk of the trie that stops at each word it finds, so it can be pulled one word at a time. The walk is
+      held on a stack of nodes and the next child to try at each depth. What it costs to go down a branch, and which words
+      are kept, is left to the subclass
+   */
+   private abstract class Walk implements Iterator<String> {
+
+      private final int maxDepth;
+      private final int[] nodes; //the node at each depth of the path
+      private final int[] next;  //the next child to try at each depth
+      private final char[] path;
+      private int depth;
+      private String word;       //the next word to hand out, or null if it has not been found yet
+      private boolean done;
+
+      /**
+         @param maxDepth The longest word to include; nothing below this depth is walked. Negative for an empty walk
+      */
+      Walk( int maxDepth ) {
+         this.maxDepth = Math.min( maxDepth, maxWordLength );
+         nodes = new int[ maxWordLength + 1 ];
+         next = new int[ maxWordLength + 1 ];
+         path = new char[ maxWordLength ];
+         next[0] = firstChild[0];
+         done = maxDepth < 0;
+      }
+
+      /**
+         Try to go down a branch, paying for its letter
+
+         @param depth The length of the path above the branch
+         @param c The letter of the branch
+         @return boolean True if the branch can be entered, false to skip it
+      */
+      abstract boolean enter( int depth, char c );
+
+      /**
+         Give back what entering a branch cost, on the way back up
+
+         @param depth The length of the path above the branch
+      */
+      abstract void leave( int depth );
+
+      /**
+         Tells whether the word the path spells is to be included
+
+         @param length The length of the path
+         @return boolean True to include the word
+      */
+      abstract boolean accepts( int length );
+
+      public boolean hasNext() {
+         if( word == null && !done )
+            word = advance();
+         return word != null;
+      }
+
+      public String next() {
+         if( !hasNext() )
+            throw new NoSuchElementException();
+         String result = word;
+         word = null;
+         return result;
+      }
+
+      /**
+         Walk on to the next word to include
+
+         @return String The word, or null if the walk is over
+      */
+      private String advance() {
+         while( depth >= 0 ) {
+            int node = nodes[ depth ];
+            int child = next[ depth ];
+            if( depth < maxDepth && child < firstChild[ node ] + numChildren[ node ] ) {
+               next[ depth ]++;
+               if( enter( depth, label[ child ] ) ) {
+                  path[ depth ] = label[ child ];
+                  depth++;
+                  nodes[ depth ] = child;
+                  next[ depth ] = firstChild[ child ];
+                  if( terminal[ child ] && accepts( depth ) )
+                     return new String( path, 0, depth );
+               }
+            } else {
+               //Every child has been tried, so go back up
+               depth--;
+               if( depth >= 0 )
+                  leave( depth );
+            }
+         }
+         done = true;
+         return null;
+      }
+
+   }
+
+   /**
+      Find all the words that match a compiled spec, in alphabetical order
+
+      eg. match( new SpecPattern( "C?T", "AEIOU" ) ) yields "CAT", "COT", "CUT"
+
+      @param pattern The compiled spec
+      @return ArrayList<String> The list of words that match
+      @see match( SpecPattern pattern, Consumer<String> action )
+   */
+   public ArrayList<String> match( SpecPattern pattern ) {
+      final ArrayList<String> result = new ArrayList<String>();
+      match( pattern, new Consumer<String>() {
+         public void accept( String word ) {
+            result.add( word );
+         }
+      } );
+      return result;
+   }
+
+   /**
+      Find all the words that match a compiled spec, handing each one to the action as soon as it is found, in alphabetical
+      order. No list of results is built
+
+      @param pattern The compiled spec
+      @param action What to do with each word that matches
+      @see match( int node, int depth, long states, SpecPattern pattern, char[] path, Consumer<String> action )
+   */
+   public void match( SpecPattern pattern, Consumer<String> action ) {
+      if( pattern.getMinLength() > maxWordLength )
+         return;
+      match( 0, 0, pattern.start(), pattern, new char[ maxWordLength ], action );
+   }
+
+   /**
+      Depth-first walk of the trie, reading the label of each branch into the compiled spec. A branch is not entered if
+      the spec can no longer be matched by any word that goes through it
+
+      @param node The current node
+      @param depth The length of the path to the current node
+      @param states The states of the spec reached by the path to the current node
+      @param pattern The compiled spec
+      @param path The letters of the path to the current node
+      @param action What to do with each word that matches
+   */
+   private void match( int node, int depth, long states, SpecPattern pattern, char[] path, Consumer<String> action ) {
+      if( terminal[ node ] && pattern.isMatch( states ) )
+         action.accept( new String( path, 0, depth ) );
+
+      int first = firstChild[ node ];
+      int last = first + numChildren[ node ];
+      for( int child = first; child < last; child++ ) {
+         long next = pattern.step( states, label[ child ] );
+         if( next != 0 ) {
+            path[ depth ] = label[ child ];
+            match( child, depth + 1, next, pattern, path, action );
+         }
+      }
+   }
+
+   /**
+      Find the child of a node with the given label. Children are sorted, so this is a binary search
+
+      @param node The parent node
+      @param c The label to look for
+      @return int The child node, or -1 if there is none
+   */
+   private int findChild( int node, char c ) {
+      int lo = firstChild[ node ];
+      int hi = lo + numChildren[ node ] - 1;
+      while( lo <= hi ) {
+         int mid = ( lo + hi ) >>> 1;
+         if( label[ mid ] < c )
+            lo = mid + 1;
+         else if( label[ mid ] > c )
+            hi = mid - 1;
+         else
+            return mid;
+      }
+      return -1;
+   }
+
+   /**
+      Get the number of nodes in the trie
+
+      @return int The number of nodes, including the root
+   */
+   public int getNumNodes() {
+      return numNodes;
+   }
+
+   /**
+      Get the number of distinct words in the trie
+
+      @return int The number of words
+   */
+   public int size() {
+      return numWords;
+   }
+
+   /**
+      Get the length of the longest word in the trie
+
+      @return int The length of the longest word
+   */
+   public int getMaxWordLength() {
+      return maxWordLength;
+   }
+
+}